@@ -12,20 +12,27 @@ import java.util.Map;
 import java.util.Set;
 
 import org.antlr.v4.runtime.ANTLRFileStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
 import org.antlr.v4.runtime.LexerNoViableAltException;
 import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.Tree;
 import org.bds.antlr.BigDataScriptLexer;
 import org.bds.antlr.BigDataScriptParser;
 import org.bds.antlr.BigDataScriptParser.IncludeFileContext;
 import org.bds.compile.CompileErrorStrategy;
+import org.bds.compile.CompiledProgramCache;
 import org.bds.compile.CompilerErrorListener;
 import org.bds.compile.CompilerMessage.MessageType;
 import org.bds.compile.CompilerMessages;
+import org.bds.compile.IncludeParser;
 import org.bds.compile.TypeCheckedNodes;
-import org.bds.data.Data;
+import org.bds.data.TransferManifest;
 import org.bds.executioner.Executioner;
 import org.bds.executioner.Executioners;
 import org.bds.executioner.Executioners.ExecutionerType;
@@ -104,13 +111,20 @@ public class Bds {
 	 * Use 'alreadyIncluded' to keep track of from 'include' statements
 	 */
 	public static ParseTree createAst(File file, boolean debug, Set<String> alreadyIncluded) {
+		return createAst(file, debug, alreadyIncluded, null);
+	}
+
+	/**
+	 * Create an AST from a program (using ANTLR lexer & parser)
+	 * Returns null if error
+	 * Use 'alreadyIncluded' to keep track of from 'include' statements
+	 * Use 'includeParser' to parse included files in parallel (can be null)
+	 */
+	public static ParseTree createAst(File file, boolean debug, Set<String> alreadyIncluded, IncludeParser includeParser) {
 		alreadyIncluded.add(Gpr.getCanonicalFileName(file));
 		String fileName = file.toString();
 		String filePath = fileName;
 
-		BigDataScriptLexer lexer = null;
-		BigDataScriptParser parser = null;
-
 		try {
 			filePath = file.getCanonicalPath();
 
@@ -120,31 +134,9 @@ public class Bds {
 				return null;
 			}
 
-			// Create a CharStream that reads from standard input
-			ANTLRFileStream input = new ANTLRFileStream(fileName);
-
-			//---
-			// Lexer: Create a lexer that feeds off of input CharStream
-			//---
-			lexer = new BigDataScriptLexer(input) {
-				@Override
-				public void recover(LexerNoViableAltException e) {
-					throw new RuntimeException(e); // Bail out
-				}
-			};
-
-			//---
-			// Parser
-			//---
-			CommonTokenStream tokens = new CommonTokenStream(lexer);
-			parser = new BigDataScriptParser(tokens);
-
-			// Parser error handling
-			parser.setErrorHandler(new CompileErrorStrategy()); // Bail out with exception if errors in parser
-			parser.addErrorListener(new CompilerErrorListener()); // Catch some other error messages that 'CompileErrorStrategy' fails to catch
-
-			// Begin parsing at main rule
-			ParseTree tree = parser.programUnit();
+			// Already parsed in parallel? Otherwise parse it now (errors are reported here)
+			ParseTree tree = (includeParser != null ? includeParser.get(file) : null);
+			if (tree == null) tree = parse(fileName, true);
 
 			// Error loading file?
 			if (tree == null) {
@@ -161,10 +153,13 @@ public class Bds {
 				}
 			}
 
+			// Included files: Start parsing them in parallel
+			if (includeParser != null) includeParser.parseIncludes(tree);
+
 			// Included files
 			boolean resolveIncludePending = true;
 			while (resolveIncludePending)
-				resolveIncludePending = resolveIncludes(tree, debug, alreadyIncluded);
+				resolveIncludePending = resolveIncludes(tree, debug, alreadyIncluded, includeParser);
 
 			return tree;
 		} catch (Exception e) {
@@ -186,10 +181,69 @@ public class Bds {
 		System.exit(exitValue);
 	}
 
+	/**
+	 * Parse a file (using ANTLR lexer & parser)
+	 *
+	 * We first try ANTLR's faster 'SLL' prediction mode, which bails out
+	 * on syntax errors. Only if that fails, we parse again using full 'LL'
+	 * prediction (which is slower but can parse any valid program).
+	 *
+	 * @param reportErrors : If true, parse using 'LL' when 'SLL' fails and
+	 * report errors. Otherwise only 'SLL' is used, without reporting errors
+	 * (an exception is thrown on syntax errors)
+	 */
+	public static ParseTree parse(String fileName, boolean reportErrors) throws IOException {
+		// Create a CharStream that reads from standard input
+		ANTLRFileStream input = new ANTLRFileStream(fileName);
+
+		//---
+		// Lexer: Create a lexer that feeds off of input CharStream
+		//---
+		BigDataScriptLexer lexer = new BigDataScriptLexer(input) {
+			@Override
+			public void recover(LexerNoViableAltException e) {
+				throw new RuntimeException(e); // Bail out
+			}
+		};
+		if (!reportErrors) lexer.removeErrorListeners();
+
+		//---
+		// Parser
+		//---
+		CommonTokenStream tokens = new CommonTokenStream(lexer);
+		BigDataScriptParser parser = new BigDataScriptParser(tokens);
+
+		// First stage: 'SLL' prediction, bail out on any error (no error messages)
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+
+		try {
+			// Begin parsing at main rule. Note: Rule 'programUnit' does not
+			// end with EOF, so we must check that all input was parsed
+			ParseTree tree = parser.programUnit();
+			if (parser.getCurrentToken().getType() == Token.EOF) return tree;
+			if (!reportErrors) throw new ParseCancellationException("Cannot parse input, near '" + parser.getCurrentToken().getText() + "'");
+		} catch (ParseCancellationException e) {
+			if (!reportErrors) throw e;
+		}
+
+		// Second stage: Full 'LL' prediction, parse again from the beginning
+		parser.reset();
+		parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+		parser.addErrorListener(ConsoleErrorListener.INSTANCE);
+
+		// Parser error handling
+		parser.setErrorHandler(new CompileErrorStrategy()); // Bail out with exception if errors in parser
+		parser.addErrorListener(new CompilerErrorListener()); // Catch some other error messages that 'CompileErrorStrategy' fails to catch
+
+		return parser.programUnit();
+	}
+
 	/**
 	 * Resolve include statements
 	 */
-	private static boolean resolveIncludes(ParseTree tree, boolean debug, Set<String> alreadyIncluded) {
+	private static boolean resolveIncludes(ParseTree tree, boolean debug, Set<String> alreadyIncluded, IncludeParser includeParser) {
 		boolean changed = false;
 		if (tree instanceof IncludeFileContext) {
 			// Parent file: The one that is including the other file
@@ -219,7 +273,7 @@ public class Bds {
 			}
 
 			// Parse
-			ParseTree treeinc = createAst(includedFile, debug, alreadyIncluded);
+			ParseTree treeinc = createAst(includedFile, debug, alreadyIncluded, includeParser);
 			if (treeinc == null) {
 				CompilerMessages.get().add(tree, parentFile, "\n\tFatal error including file '" + includedFilename + "'", MessageType.ERROR);
 				return false;
@@ -231,7 +285,7 @@ public class Bds {
 			}
 		} else {
 			for (int i = 0; i < tree.getChildCount(); i++)
-				changed |= resolveIncludes(tree.getChild(i), debug, alreadyIncluded);
+				changed |= resolveIncludes(tree.getChild(i), debug, alreadyIncluded, includeParser);
 		}
 
 		return changed;
@@ -284,8 +338,16 @@ public class Bds {
 		//---
 		// Convert to AST
 		//---
-		if (debug) log("Creating AST.");
 		CompilerMessages.reset();
+
+		// Compiled program in cache? Nothing else to do
+		CompiledProgramCache compiledProgramCache = CompiledProgramCache.factory(config);
+		if (compiledProgramCache != null) {
+			programUnit = compiledProgramCache.load(programFileName);
+			if (programUnit != null) return true;
+		}
+
+		if (debug) log("Creating AST.");
 		ParseTree tree = null;
 
 		try {
@@ -333,10 +395,16 @@ public class Bds {
 		// Free some memory by reseting structure we won't use any more
 		TypeCheckedNodes.get().reset();
 
+		// Scopes are complete: Resolve variables to slots
+		programUnit.resolveSlots();
+
 		// Perform some checking and show warning messages
 		compileWarn();
 		if (!CompilerMessages.get().isEmpty()) System.err.println("Compiler messages:\n" + CompilerMessages.get());
 
+		// Save compiled program (only if there are no messages, since they are not shown when the program is loaded from cache)
+		if (compiledProgramCache != null && CompilerMessages.get().isEmpty()) compiledProgramCache.save(programFileName, programUnit);
+
 		// OK
 		return true;
 	}
@@ -419,7 +487,12 @@ public class Bds {
 	 */
 	ParseTree createAst() {
 		File file = new File(programFileName);
-		return createAst(file, debug, new HashSet<String>());
+		IncludeParser includeParser = new IncludeParser();
+		try {
+			return createAst(file, debug, new HashSet<String>(), includeParser);
+		} finally {
+			includeParser.shutdown();
+		}
 	}
 
 	/**
@@ -427,26 +500,7 @@ public class Bds {
 	 * @return true if successful
 	 */
 	public boolean download(String url, String fileName) {
-		Data remote = Data.factory(url);
-
-		// Sanity checks
-		if (!remote.isRemote()) {
-			System.err.println("Cannot download non-remote URL: " + url);
-			return false;
-		}
-
-		if (!remote.isFile()) {
-			System.err.println("Cannot download non-file: " + url);
-			return false;
-		}
-
-		// Already downloaded? Nothing to do
-		if (remote.isDownloaded(fileName)) {
-			if (debug) System.err.println("Local file is up to date, no download required: " + fileName);
-			return true;
-		}
-
-		return remote.download(fileName);
+		return TransferManifest.download(url, fileName, debug);
 	}
 
 	public BdsThread getBigDataScriptThread() {
@@ -785,6 +839,14 @@ public class Bds {
 					bdsAction = BdsAction.TEST;
 					break;
 
+				case "-transfer":
+					if ((i + 1) < args.length) {
+						config();
+						boolean ok = transfer(args[++i]);
+						System.exit(ok ? 0 : 1);
+					} else usage("Option '-transfer' requires a manifest file");
+					break;
+
 				case "-upload":
 					if ((i + 2) < args.length) {
 						config();
@@ -1057,42 +1119,22 @@ public class Bds {
 		this.stackCheck = stackCheck;
 	}
 
+	/**
+	 * Download / upload all files in a manifest
+	 * @return true if successful
+	 */
+	public boolean transfer(String manifestFile) {
+		TransferManifest transferManifest = new TransferManifest(manifestFile);
+		transferManifest.setDebug(debug);
+		return transferManifest.run();
+	}
+
 	/**
 	 * Upload a local file to a URL
 	 * @return true if successful
 	 */
 	public boolean upload(String fileName, String url) {
-		Data remote = Data.factory(url);
-		Data local = Data.factory(fileName);
-
-		// Sanity checks
-		if (!remote.isRemote()) {
-			System.err.println("Cannot upload to non-remote URL: " + url);
-			return false;
-		}
-
-		if (!local.isFile()) {
-			System.err.println("Cannot upload non-file: " + fileName);
-			return false;
-		}
-
-		if (!local.exists()) {
-			System.err.println("Local file does not exists: " + fileName);
-			return false;
-		}
-
-		if (!local.canRead()) {
-			System.err.println("Cannot read local file : " + fileName);
-			return false;
-		}
-
-		// Already uploaded? Nothing to do
-		if (remote.isUploaded(fileName)) {
-			if (debug) System.err.println("Remote file is up to date, no upload required: " + url);
-			return true;
-		}
-
-		return remote.upload(fileName);
+		return TransferManifest.upload(fileName, url, debug);
 	}
 
 	void usage(String err) {
@@ -1120,6 +1162,7 @@ public class Bds {
 		System.err.println("  [-r | -restore] checkpoint.chp : Restore state from checkpoint file.");
 		System.err.println("  [-s | -system ] type           : Set system type.");
 		System.err.println("  [-t | -test   ]                : Run user test cases (runs all test* functions).");
+		System.err.println("  -transfer manifest             : Download / upload all files in 'manifest' ('-' for STDIN). Note: Used by 'taks'");
 		System.err.println("  -upload file url               : Upload local file to 'url'. Note: Used by 'taks'");
 		System.err.println("  [-v | -verbose]                : Be verbose.");
 		System.err.println("  -version                       : Show version and exit.");
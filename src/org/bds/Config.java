@@ -12,8 +12,12 @@ import java.util.Properties;
 
 import org.bds.executioner.MonitorTask;
 import org.bds.executioner.TaskLogger;
+import org.bds.report.ReportProgress;
+import org.bds.run.ParallelExecutor;
+import org.bds.serialize.CheckpointSaver;
 import org.bds.task.Tail;
 import org.bds.task.TailFile;
+import org.bds.task.TailOutput;
 import org.bds.task.Task;
 import org.bds.util.Gpr;
 import org.bds.util.Timer;
@@ -33,6 +37,16 @@ public class Config {
 
 	// Cloud: Amazon AWS parameters
 	public static final String AWS_REGION = "awsRegion";
+	public static final String AWS_S3_PART_SIZE = "awsS3PartSize"; // Part size (bytes) for multipart S3 transfers
+	public static final String AWS_S3_THREADS = "awsS3Threads"; // Number of concurrent connections in multipart S3 transfers
+
+	// Remote files (http, ftp, S3) information cache
+	public static final String REMOTE_CACHE_TTL = "remoteCacheTtl"; // Time to live (milliseconds) of cached remote files' information
+	public static final String REMOTE_CACHE_SIZE = "remoteCacheSize"; // Maximum number of cached remote files
+	public static final String TRANSFER_THREADS = "transferThreads"; // Number of files transferred concurrently by 'bds -transfer'
+	public static final String LOCAL_CACHE = "localCache"; // Use a local cache for downloaded remote files
+	public static final String LOCAL_CACHE_DIR = "localCacheDir"; // Local cache directory
+	public static final String LOCAL_CACHE_SIZE = "localCacheSize"; // Local cache maximum size (bytes)
 
 	// PID regular expressions
 	public static final String PID_REGEX = "pidRegex"; // Regex used for PID
@@ -45,6 +59,7 @@ public class Config {
 
 	public static final String SYS_SHELL = "sysShell"; // Sys's shell
 	public static String SYS_SHELL_DEFAULT = "/bin/bash -e -c"; // Note: This executes a script, so it requires the "-c" right before script name
+	public static final String SYS_COPROCESS = "sysCoprocess"; // Execute 'sys' commands using a long lived shell process (one per bds thread)
 
 	// Temporary directory
 	public static final String TMP_DIR = "tmpDir";
@@ -52,13 +67,22 @@ public class Config {
 
 	// Running & reporting
 	public static final String DISABLE_CHECKPOINT_CREATE = "disableCheckpoint"; // Disable checkpoint creation
+	public static final String CHECKPOINT_FORMAT = "checkpointFormat"; // Checkpoint file format: 'binary' or 'text'
+	public static final String CHECKPOINT_COMPRESSION = "checkpointCompression"; // Checkpoint file compression: 'gzip' or 'none'
+	public static final String CHECKPOINT_DELTA = "checkpointDelta"; // Only save records that changed since last full checkpoint
+	public static final String CHECKPOINT_ASYNC = "checkpointAsync"; // Write checkpoint files in a background thread
+	public static final String COMPILE_CACHE = "compileCache"; // Cache compiled programs
+	public static final String COMPILE_CACHE_DIR = "compileCacheDir"; // Compiled programs cache directory
 	public static final String DISABLE_RM_ON_EXIT = "disableRmOnExit";
 	public static final String FILTER_OUT_TASK_HINT = "filterOutTaskHint"; // Lines to filter out from task hint
 	public static final String SHOW_TASK_CODE = "showTaskCode"; // Always show task's code (sys commands)
 	public static final String REPORT_HTML = "reportHtml"; // Create an HTML report
 	public static final String REPORT_YAML = "reportYaml"; // Create a YAML report
 	public static final String TAIL_LINES = "tailLines"; // Number of lie to use in 'tail'
+	public static final String TAIL_BUFFER_SIZE = "tailBufferSize"; // Maximum number of bytes of tasks' output waiting to be shown
+	public static final String TAIL_MAX_BYTES_PER_SEC = "tailMaxBytesPerSec"; // Maximum number of bytes of tasks' output shown per second
 	public static final String TASK_MAX_HINT_LEN = "taskMaxHintLen";
+	public static final String MONITOR_TASK_TYPE = "monitorTaskType"; // How to check for tasks' exit files: 'watch', 'list' or 'poll'
 
 	// Cluster: SGE parameters
 	public static final String CLUSTER_SGE_PE = "sge.pe";
@@ -73,6 +97,10 @@ public class Config {
 	public static final String CLUSTER_STAT_ADDITIONAL_ARGUMENTS = "clusterStatAdditionalArgs"; // Cluster additional command line arguments (when requesting information about all tasks)
 	public static final String CLUSTER_POSTMORTEMINFO_ADDITIONAL_ARGUMENTS = "clusterPostMortemInfoAdditionalArgs"; // Cluster additional command line arguments (when requesting information about a failed task)
 	public static final String CLUSTER_POSTMORTEMINFO_DISABLED = "clusterPostMortemDisabled"; // Some clusters do not provide information after the process dies
+	public static final String CLUSTER_BATCH_SIZE = "clusterBatchSize"; // Maximum number of tasks submitted as one 'array job' (batching is disabled if less than 2)
+	public static final String CLUSTER_BATCH_TIME = "clusterBatchTime"; // Time window (milliseconds) used to gather tasks into one 'array job'
+	public static int DEFAULT_CLUSTER_BATCH_SIZE = 0;
+	public static int DEFAULT_CLUSTER_BATCH_TIME = 1000;
 
 	// Cluster: Generic cluster
 	public static final String CLUSTER_GENERIC_RUN = "clusterGenericRun";
@@ -84,10 +112,15 @@ public class Config {
 	public static final String MAX_NUMBER_OF_RUNNING_THREADS = "maxThreads";
 	public static final int MAX_NUMBER_OF_RUNNING_THREADS_MIN_VALUE = 50; // If maxThreads in configuration file is too small, we'll consider it an error and use this number
 	public static final int DEFAULT_MAX_NUMBER_OF_RUNNING_THREADS = 512;
+	public static final String PARALLEL_MODE = "parallelMode"; // How to run 'par' expressions: 'thread', 'virtual' or 'pool'
+	public static final String PARALLEL_POOL_SIZE = "parallelPoolSize"; // Number of threads in 'pool' mode (zero means number of CPUs)
+	public static final String PARALLEL_POOL_MAX_SPARE = "parallelPoolMaxSpare"; // Maximum number of threads added in 'pool' mode to replace blocked ones (zero means default)
 
 	public static final String WAIT_AFTER_TASK_RUN = "waitAfterTaskRun";
 	public static int DEFAULT_WAIT_AFTER_TASK_RUN = 0;
 
+	public static final String LOCAL_LAUNCHER = "localLauncher"; // Use a long lived launcher process to run local tasks
+
 	public static final String WAIT_TEXT_FILE_BUSY = "waitTextFileBusy";
 	public static int DEFAULT_WAIT_TEXT_FILE_BUSY = 10;
 
@@ -121,6 +154,9 @@ public class Config {
 	ArrayList<String> filterOutTaskHint;
 	TaskLogger taskLogger;
 	MonitorTask monitorTask;
+	CheckpointSaver checkpointSaver; // Write checkpoint files in background
+	ParallelExecutor parallelExecutor; // Run 'par' expressions
+	ReportProgress reportProgress; // Progress report (only when logging)
 	Tail tail;
 
 	/**
@@ -238,15 +274,39 @@ public class Config {
 		return maxThreads;
 	}
 
+	/**
+	 * Get checkpoint saver (null if checkpoints are written synchronously)
+	 */
+	public synchronized CheckpointSaver getCheckpointSaver() {
+		if (checkpointSaver == null && getBool(CHECKPOINT_ASYNC, false)) {
+			checkpointSaver = new CheckpointSaver();
+			checkpointSaver.setDebug(isDebug());
+			checkpointSaver.setVerbose(isVerbose());
+			checkpointSaver.start();
+		}
+		return checkpointSaver;
+	}
+
 	public MonitorTask getMonitorTask() {
 		if (monitorTask == null) {
-			monitorTask = new MonitorTask();
+			monitorTask = MonitorTask.factory(getString(MONITOR_TASK_TYPE, MonitorTask.MONITOR_TYPE_LIST).trim());
 			monitorTask.setDebug(isDebug());
 			monitorTask.setVerbose(isVerbose());
 		}
 		return monitorTask;
 	}
 
+	/**
+	 * Get parallel executor (used to run BdsThreads created by 'par' expressions)
+	 */
+	public synchronized ParallelExecutor getParallelExecutor() {
+		if (parallelExecutor == null) {
+			parallelExecutor = ParallelExecutor.factory(getString(PARALLEL_MODE, ParallelExecutor.MODE_THREAD).trim(), (int) getLong(PARALLEL_POOL_SIZE, 0), (int) getLong(PARALLEL_POOL_MAX_SPARE, 0));
+			if (debug) Timer.showStdErr("Config: Parallel executor " + parallelExecutor);
+		}
+		return parallelExecutor;
+	}
+
 	public String getPidFile() {
 		return pidFile;
 	}
@@ -273,6 +333,13 @@ public class Config {
 		return pidRegex;
 	}
 
+	/**
+	 * Progress report (null if progress is not reported)
+	 */
+	public ReportProgress getReportProgress() {
+		return reportProgress;
+	}
+
 	public String getReportFileName() {
 		return reportFileName;
 	}
@@ -337,6 +404,8 @@ public class Config {
 			tail.setDebug(isDebug());
 			tail.setVerbose(isVerbose());
 			tail.setQuiet(isQuiet());
+			tail.setMaxBufferSize(getLong(TAIL_BUFFER_SIZE, TailOutput.DEFAULT_MAX_BUFFER_SIZE));
+			tail.setMaxBytesPerSec(getLong(TAIL_MAX_BYTES_PER_SEC, TailOutput.DEFAULT_MAX_BYTES_PER_SEC));
 			tail.start(); // Create a 'tail' process (to show STDOUT & STDERR from all processes)
 		}
 		return tail;
@@ -442,13 +511,18 @@ public class Config {
 	}
 
 	public void kill() {
+		if (checkpointSaver != null) {
+			checkpointSaver.kill(); // Finish writing checkpoint files
+			checkpointSaver = null;
+		}
+
 		if (tail != null) {
 			tail.kill(); // Kill tail process
 			tail = null;
 		}
 
 		if (monitorTask != null) {
-			// monitorTask.kill();
+			monitorTask.kill();
 			monitorTask = null;
 		}
 	}
@@ -549,6 +623,10 @@ public class Config {
 		this.reportFileName = reportFileName;
 	}
 
+	public void setReportProgress(ReportProgress reportProgress) {
+		this.reportProgress = reportProgress;
+	}
+
 	public void setReportHtml(boolean reportHtml) {
 		this.reportHtml = reportHtml;
 	}
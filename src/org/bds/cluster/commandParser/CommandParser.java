@@ -42,12 +42,16 @@ public class CommandParser {
 		return sb.toString();
 	}
 
+	public String getCmd() {
+		return cmd;
+	}
+
 	public void parse() {
 		parse(true);
 	}
 
 	/**
-	 * Parse command's output
+	 * Connect to host and parse command's output
 	 */
 	public void parse(boolean updateAlive) {
 		try {
@@ -58,44 +62,7 @@ public class CommandParser {
 			String result = ssh.exec(cmd);
 			if (debug) Gpr.debug("\n---------- RESULT:Start ----------\n" + result + "---------- RESULT:End ----------");
 
-			// Parse results (if any)
-			if ((result != null) && (result.length() > 0)) {
-				//---
-				// Parse the results. Split each command and parse separately
-				//---
-				String command = null;
-
-				result.replace('\r', ' ');
-				String res[] = result.split("\n");
-				ArrayList<String> lines = new ArrayList<String>();
-
-				for (String line : res) {
-					// New 'command'?
-					if (line.startsWith("#")) {
-						// Parse old section
-						if (command != null) parse(command, lines);
-
-						// Create new command
-						command = line.substring(1).replaceAll(" ", "_").trim();
-						lines = new ArrayList<String>();
-					} else lines.add(line);
-
-				}
-
-				// Parse last command
-				if (command != null) parse(command, lines);
-
-				// We were able to connect and got some results, so probably the host is alive.
-				if (updateAlive) host.getHealth().setAlive(true);
-			} else {
-				if (debug) Gpr.debug("Error trying to connect: Empty result string");
-				// Could not connect
-				host.getHealth().setAlive(false);
-			}
-
-			// Store results
-			String key = this.getClass().getSimpleName().substring("CommandParser".length()); // Command parser name (minus the 'CommandParser' prefix)
-			host.getHealth().setNote(key, result);
+			parse(result, updateAlive);
 		} catch (Exception e) {
 			if (debug) Gpr.debug("Error trying to connect:\n" + e);
 			// Could not connect
@@ -103,6 +70,50 @@ public class CommandParser {
 		}
 	}
 
+	/**
+	 * Parse command's output
+	 */
+	public void parse(String result, boolean updateAlive) {
+		// Parse results (if any)
+		if ((result != null) && (result.length() > 0)) {
+			//---
+			// Parse the results. Split each command and parse separately
+			//---
+			String command = null;
+
+			result.replace('\r', ' ');
+			String res[] = result.split("\n");
+			ArrayList<String> lines = new ArrayList<String>();
+
+			for (String line : res) {
+				// New 'command'?
+				if (line.startsWith("#")) {
+					// Parse old section
+					if (command != null) parse(command, lines);
+
+					// Create new command
+					command = line.substring(1).replaceAll(" ", "_").trim();
+					lines = new ArrayList<String>();
+				} else lines.add(line);
+
+			}
+
+			// Parse last command
+			if (command != null) parse(command, lines);
+
+			// We were able to connect and got some results, so probably the host is alive.
+			if (updateAlive) host.getHealth().setAlive(true);
+		} else {
+			if (debug) Gpr.debug("Error trying to connect: Empty result string");
+			// Could not connect
+			host.getHealth().setAlive(false);
+		}
+
+		// Store results
+		String key = this.getClass().getSimpleName().substring("CommandParser".length()); // Command parser name (minus the 'CommandParser' prefix)
+		host.getHealth().setNote(key, result);
+	}
+
 	public void parse(String cmdResult[]) {
 		throw new RuntimeException("This should never be invoked!");
 	}
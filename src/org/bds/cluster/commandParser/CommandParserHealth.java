@@ -0,0 +1,27 @@
+package org.bds.cluster.commandParser;
+
+import org.bds.cluster.host.HostSsh;
+
+/**
+ * Obtain all host's information in one ssh command (i.e. one round-trip):
+ * System type, uptime, disk, users, memory and (optionally) cpu information.
+ *
+ * System specific commands are selected by the remote shell, so we don't
+ * need to know the system type in advance.
+ *
+ * @author pcingola
+ */
+public class CommandParserHealth extends CommandParser {
+
+	/**
+	 * @param cpuInfo : Also obtain cpu information (it does not usually change, so it's only needed once)
+	 */
+	public CommandParserHealth(HostSsh host, boolean cpuInfo) {
+		super(host, "uname -a;uptime;df;who");
+
+		String linux = (cpuInfo ? "cat /proc/cpuinfo;" : "") + "cat /proc/meminfo";
+		String darwin = (cpuInfo ? "sysctl -a;" : "") + "top -l 1";
+		cmd += "case `uname` in Linux) " + createCmd(linux) + " ;; Darwin) " + createCmd(darwin) + " ;; esac";
+	}
+
+}
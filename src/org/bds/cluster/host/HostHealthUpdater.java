@@ -1,15 +1,15 @@
 package org.bds.cluster.host;
 
 import org.bds.cluster.ClusterSsh;
-import org.bds.cluster.commandParser.CommandParser;
-import org.bds.cluster.commandParser.CommandParserCpuInfo;
-import org.bds.cluster.commandParser.CommandParserSystemProfiler;
-import org.bds.cluster.commandParser.CommandParserUname;
+import org.bds.cluster.commandParser.CommandParserHealth;
 import org.bds.util.Gpr;
 
 /**
  * Update host's info every now and then (in a separate thread)
  *
+ * All host's information is obtained using one ssh command (see
+ * CommandParserHealth), on the host's shared ssh session.
+ *
  * @author pcingola
  */
 public class HostHealthUpdater extends Thread {
@@ -25,21 +25,6 @@ public class HostHealthUpdater extends Thread {
 		this.host = host;
 	}
 
-	/**
-	 * Connect to host (via ssh) and execute several commands in order to obtain host's information
-	 */
-	void info() {
-		if (debug) Gpr.debug("Info\tHost: " + host);
-
-		// Information that is obtained only once
-		new CommandParserUname(host).parse(false); // System type
-		systemType = host.getHealth().getSystemType();
-
-		// Run next command
-		if (systemType.equalsIgnoreCase("Linux")) new CommandParserCpuInfo(host).parse(false);
-		else if (systemType.equalsIgnoreCase("Darwin")) new CommandParserSystemProfiler(host).parse(false);
-	}
-
 	/**
 	 * Stop execution of this thread
 	 */
@@ -54,9 +39,7 @@ public class HostHealthUpdater extends Thread {
 	public void run() {
 		try {
 			while (run) {
-				// This should be run only once
-				if (systemType == null) info();
-				if (run) update();
+				update();
 
 				// I'd rather sleep this way in order to allow for notifications (i.e. 'wake up call')
 				synchronized (this) {
@@ -77,22 +60,17 @@ public class HostHealthUpdater extends Thread {
 
 	/**
 	 * Connect to host (via ssh) and execute several commands in order to update host's information
-	 * (e.g. cpu information does not usually change, so it's not obtained)
+	 * (e.g. cpu information does not usually change, so it's only obtained once)
 	 */
 	void update() {
-		// We don't have system info yet?
-		if (systemType == null) return;
-
 		if (debug) Gpr.debug("Update: Start\tHost: " + host + "\talive: " + host.getHealth().isAlive());
 
-		// Select which command parsers to run depending on system type
-		CommandParser commandParser = null;
-		if (systemType.equalsIgnoreCase("Linux")) commandParser = new CommandParser(host, "uptime;df;who;uname -a;cat /proc/meminfo");
-		else if (systemType.equalsIgnoreCase("Darwin")) commandParser = new CommandParser(host, "uptime;df;who;uname -a;top -l 1");
-		else return;
-
 		// Run command parser (updates host health)
-		commandParser.parse();
+		new CommandParserHealth(host, systemType == null).parse();
+
+		// We have system info? No need to obtain cpu info again
+		String st = host.getHealth().getSystemType();
+		if (st != null && !st.isEmpty()) systemType = st;
 
 		if (debug) Gpr.debug("Host info updated: " + host //
 				+ "\nResources: " + host.getResources() //
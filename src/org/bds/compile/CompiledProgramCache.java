@@ -0,0 +1,233 @@
+package org.bds.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.bds.Bds;
+import org.bds.Config;
+import org.bds.lang.BdsNode;
+import org.bds.lang.BlockWithFile;
+import org.bds.lang.ProgramUnit;
+import org.bds.lang.StatementInclude;
+import org.bds.osCmd.Exec;
+import org.bds.serialize.BdsSerializer;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+
+/**
+ * On-disk cache of compiled (i.e. parsed and type-checked) programs
+ *
+ * Each program has a 'manifest' (keyed by program's path), listing the
+ * program's file and all included files. Compiled programs are keyed by
+ * a hash of the contents of all those files (plus bds version, current
+ * dir and include path), so changing any file makes a new entry: An
+ * entry is never used for a program that changed. When a new entry is
+ * saved, the program's previous entry is deleted.
+ *
+ * Entries are serialized BdsNodes, so keys also include a format version
+ * and the bds code (jar or classes) they were created with: Entries
+ * saved by a different build of bds are never loaded.
+ *
+ * Entries are written to a temporary file and renamed, so concurrent
+ * processes never see a partially written entry. Any error reading an
+ * entry is a cache miss (the program is compiled as usual).
+ *
+ * @author pcingola
+ */
+public class CompiledProgramCache {
+
+	public static final String MANIFEST_EXT = ".files";
+	public static final String PROGRAM_EXT = ".bdc";
+	public static final String TMP_EXT = ".tmp";
+	public static final int VERSION = 1; // Entries format version: Increment when the serialized format changes
+
+	private static String codeVersion;
+
+	String dir;
+	boolean debug;
+
+	/**
+	 * Create a cache according to config options
+	 * @return null if the cache is disabled
+	 */
+	public static CompiledProgramCache factory(Config config) {
+		if (config == null || !config.getBool(Config.COMPILE_CACHE, false)) return null;
+		String dir = config.getString(Config.COMPILE_CACHE_DIR, config.getTmpDir() + "/bds/compiled");
+		CompiledProgramCache cache = new CompiledProgramCache(dir);
+		cache.setDebug(config.isDebug());
+		return cache;
+	}
+
+	/**
+	 * Version of the bds code (jar or classes directory) creating the
+	 * entries: Its path, size and modification time
+	 */
+	static synchronized String codeVersion() {
+		if (codeVersion == null) {
+			try {
+				File code = new File(Bds.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+				if (code.isDirectory()) code = new File(code, Bds.class.getName().replace('.', '/') + ".class");
+				codeVersion = code.getCanonicalPath() + "\t" + code.length() + "\t" + code.lastModified();
+			} catch (Exception e) {
+				codeVersion = ""; // Code location not available: Rely on 'Bds.VERSION' only
+			}
+		}
+		return codeVersion;
+	}
+
+	public CompiledProgramCache(String dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Hash (hex string)
+	 */
+	String hash(String... strs) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			for (String str : strs) {
+				md.update(str.getBytes("UTF-8"));
+				md.update((byte) 0);
+			}
+
+			StringBuilder sb = new StringBuilder();
+			for (byte b : md.digest())
+				sb.append(String.format("%02x", b & 0xff));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Compiled program's key: Hash of all source files (file name and contents)
+	 */
+	String key(Map<String, String> textByFile) {
+		String strs[] = new String[5 + 2 * textByFile.size()];
+		int i = 0;
+		strs[i++] = Bds.VERSION;
+		strs[i++] = Integer.toString(VERSION);
+		strs[i++] = codeVersion();
+		strs[i++] = System.getProperty(Exec.USER_DIR);
+		strs[i++] = Config.get().getIncludePath().toString();
+		for (Map.Entry<String, String> e : textByFile.entrySet()) {
+			strs[i++] = e.getKey();
+			strs[i++] = e.getValue();
+		}
+		return hash(strs);
+	}
+
+	/**
+	 * Load a compiled program
+	 * @return Compiled program or null if not found in cache
+	 */
+	public ProgramUnit load(String programFileName) {
+		File manifest = manifestFile(programFileName);
+		if (!manifest.exists()) return null;
+
+		try {
+			// Read all files listed in manifest (first line is the entry's key)
+			Map<String, String> textByFile = new TreeMap<>();
+			String lines[] = Gpr.readFile(manifest.getPath(), false).split("\n");
+			for (int i = 1; i < lines.length; i++) {
+				String fileName = lines[i];
+				if (fileName.isEmpty()) continue;
+				if (!Gpr.exists(fileName)) return null; // A file has been removed
+				textByFile.put(fileName, Gpr.readFile(fileName, false));
+			}
+			if (textByFile.isEmpty()) return null;
+
+			// Find compiled program
+			File program = new File(dir, key(textByFile) + PROGRAM_EXT);
+			if (!program.exists()) {
+				if (debug) Timer.showStdErr("Compiled program cache miss: '" + programFileName + "'");
+				return null;
+			}
+
+			ProgramUnit programUnit = new BdsSerializer(program.getPath(), null).loadProgramUnit();
+			if (programUnit == null) return null;
+			programUnit.restoreScope();
+
+			if (debug) Timer.showStdErr("Compiled program cache hit: '" + programFileName + "', entry '" + program + "'");
+			return programUnit;
+		} catch (Throwable t) {
+			// Cannot load entry: Compile the program
+			if (debug) Timer.showStdErr("Error loading compiled program for '" + programFileName + "': " + t.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Manifest file: List of source files used by a program
+	 */
+	File manifestFile(String programFileName) {
+		return new File(dir, hash(Bds.VERSION, Integer.toString(VERSION), codeVersion(), System.getProperty(Exec.USER_DIR), Gpr.getCanonicalFileName(programFileName)) + MANIFEST_EXT);
+	}
+
+	/**
+	 * Move 'tmp' to 'file' (atomically)
+	 */
+	void move(File tmp, File file) throws IOException {
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Save a compiled program
+	 */
+	public void save(String programFileName, ProgramUnit programUnit) {
+		// Source files (contents are the ones used when compiling)
+		Map<String, String> textByFile = new TreeMap<>();
+		List<BdsNode> blocks = programUnit.findNodes(StatementInclude.class, true);
+		blocks.add(programUnit);
+		for (BdsNode node : blocks) {
+			BlockWithFile bwf = (BlockWithFile) node;
+			if (bwf.getFileName() == null || bwf.getFileText() == null) continue;
+			textByFile.put(Gpr.getCanonicalFileName(bwf.getFileName()), bwf.getFileText());
+		}
+
+		String key = key(textByFile);
+		StringBuilder sb = new StringBuilder();
+		sb.append(key + "\n");
+		for (String fileName : textByFile.keySet())
+			sb.append(fileName + "\n");
+
+		File program = new File(dir, key + PROGRAM_EXT);
+		File manifest = manifestFile(programFileName);
+		String keyPrev = (manifest.exists() ? Gpr.readFile(manifest.getPath(), false).split("\n")[0] : "");
+		File tmpProgram = new File(program.getPath() + "." + UUID.randomUUID() + TMP_EXT);
+		File tmpManifest = new File(manifest.getPath() + "." + UUID.randomUUID() + TMP_EXT);
+		try {
+			new File(dir).mkdirs();
+
+			// Write compiled program before manifest
+			new BdsSerializer(tmpProgram.getPath(), null).save(programUnit);
+			move(tmpProgram, program);
+
+			Gpr.toFile(tmpManifest.getPath(), sb.toString());
+			move(tmpManifest, manifest);
+
+			// Delete previous entry
+			if (!keyPrev.isEmpty() && !keyPrev.equals(key)) new File(dir, keyPrev + PROGRAM_EXT).delete();
+
+			if (debug) Timer.showStdErr("Compiled program cache: Saved '" + programFileName + "', entry '" + program + "'");
+		} catch (Throwable t) {
+			// Cache is only an optimization: Nothing else to do
+			if (debug) Timer.showStdErr("Error saving compiled program for '" + programFileName + "': " + t.getMessage());
+			tmpProgram.delete();
+			tmpManifest.delete();
+		}
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+}
@@ -0,0 +1,116 @@
+package org.bds.compile;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.bds.Bds;
+import org.bds.antlr.BigDataScriptParser.IncludeFileContext;
+import org.bds.lang.StatementInclude;
+import org.bds.util.Gpr;
+
+/**
+ * Parse included files in parallel (fork-join pool)
+ *
+ * As soon as a file is parsed, all files it includes are submitted to
+ * be parsed (and so on, recursively). Parsing is speculative: Trees are
+ * only used by 'Bds.createAst', which still resolves 'include' statements
+ * sequentially, in program order (so de-duplication of included files is
+ * deterministic). Files that cannot be parsed are parsed again by
+ * 'Bds.createAst', so error messages are the same as parsing sequentially.
+ *
+ * @author pcingola
+ */
+public class IncludeParser {
+
+	/**
+	 * Parse a file and submit its included files
+	 */
+	@SuppressWarnings("serial")
+	class ParseTask extends RecursiveTask<ParseTree> {
+
+		File file;
+
+		ParseTask(File file) {
+			this.file = file;
+		}
+
+		@Override
+		protected ParseTree compute() {
+			try {
+				ParseTree tree = Bds.parse(file.toString(), false);
+				parseIncludes(tree);
+				return tree;
+			} catch (Throwable t) {
+				return null; // Errors are reported when the file is parsed again
+			}
+		}
+	}
+
+	ForkJoinPool pool;
+	Map<String, ParseTask> tasks; // Parse tasks, by canonical file name
+	Set<String> submitted; // Canonical names of all files submitted
+
+	public IncludeParser() {
+		pool = new ForkJoinPool();
+		tasks = new ConcurrentHashMap<>();
+		submitted = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	}
+
+	/**
+	 * Get a file's parse tree (wait until it is parsed). A tree is
+	 * only returned once (nodes are added to the including file's tree)
+	 * @return null if the file was not submitted or could not be parsed
+	 */
+	public ParseTree get(File file) {
+		ParseTask task = tasks.remove(Gpr.getCanonicalFileName(file));
+		if (task == null) return null;
+
+		try {
+			return task.join();
+		} catch (CancellationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Submit all files included in 'tree'
+	 */
+	public void parseIncludes(ParseTree tree) {
+		if (tree instanceof IncludeFileContext) {
+			File parentFile = new File(((IncludeFileContext) tree).getStart().getInputStream().getSourceName());
+			String includedFilename = StatementInclude.includeFileName(tree.getChild(1).getText());
+			File includedFile = StatementInclude.includeFile(includedFilename, parentFile);
+			if (includedFile != null) submit(includedFile);
+		} else {
+			for (int i = 0; i < tree.getChildCount(); i++)
+				parseIncludes(tree.getChild(i));
+		}
+	}
+
+	/**
+	 * Stop all threads (pending parse tasks are discarded)
+	 */
+	public void shutdown() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Submit a file to be parsed (unless it was already submitted)
+	 */
+	void submit(File file) {
+		String canonicalFileName = Gpr.getCanonicalFileName(file);
+		if (!submitted.add(canonicalFileName)) return;
+
+		ParseTask task = new ParseTask(file);
+		tasks.put(canonicalFileName, task);
+		pool.execute(task);
+	}
+
+}
@@ -105,7 +105,7 @@ public class DataHttp extends DataRemote {
 	 * Download a file
 	 */
 	@Override
-	public boolean download(String localFile) {
+	protected boolean downloadRemote(String localFile) {
 		URLConnection connection = null;
 		try {
 			// Connect and update info
@@ -278,6 +278,7 @@ public class DataHttp extends DataRemote {
 			exists = false;
 			lastModified = new Date(0);
 			size = 0;
+			version = null;
 			ok = false;
 		} else {
 			// Update data
@@ -289,6 +290,7 @@ public class DataHttp extends DataRemote {
 			long lastMod = connection.getLastModified();
 			if (lastMod == 0) lastMod = connection.getDate(); // If last_modified is not found, use 'date' (e.g. dynamic content)
 			lastModified = new Date(lastMod);
+			version = connection.getHeaderField("ETag"); // Null if not available
 
 			ok = true;
 
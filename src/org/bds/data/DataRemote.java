@@ -21,6 +21,7 @@ public abstract class DataRemote extends Data {
 	protected Date lastModified;
 	protected long size;
 	protected Timer latestUpdate;
+	protected String version; // Remote file's version (e.g. 'ETag'), null if unknown
 
 	public DataRemote() {
 		super();
@@ -35,13 +36,13 @@ public abstract class DataRemote extends Data {
 
 	@Override
 	public boolean canRead() {
-		if (needsUpdateInfo()) updateInfo();
+		updateInfoIfNeeded();
 		return canRead;
 	}
 
 	@Override
 	public boolean canWrite() {
-		if (needsUpdateInfo()) updateInfo();
+		updateInfoIfNeeded();
 		return canWrite;
 	}
 
@@ -52,9 +53,26 @@ public abstract class DataRemote extends Data {
 		return download(localFile);
 	}
 
+	/**
+	 * Download a file (using the local cache, if enabled)
+	 */
+	@Override
+	public boolean download(String localFile) {
+		if (localFile == null) localFile = getLocalPath();
+
+		LocalCache localCache = LocalCache.get();
+		if (localCache == null || !isFile()) return downloadRemote(localFile);
+		return localCache.download(this, localFile);
+	}
+
+	/**
+	 * Download a file from remote server (do not use the local cache)
+	 */
+	protected abstract boolean downloadRemote(String localFile);
+
 	@Override
 	public boolean exists() {
-		if (needsUpdateInfo()) updateInfo();
+		updateInfoIfNeeded();
 		return exists;
 	}
 
@@ -65,7 +83,7 @@ public abstract class DataRemote extends Data {
 
 	@Override
 	public Date getLastModified() {
-		if (needsUpdateInfo()) updateInfo();
+		updateInfoIfNeeded();
 		return lastModified;
 	}
 
@@ -75,6 +93,20 @@ public abstract class DataRemote extends Data {
 		return localPath;
 	}
 
+	public String getVersion() {
+		updateInfoIfNeeded();
+		return version;
+	}
+
+	/**
+	 * Remote file has been modified (e.g. uploaded or deleted):
+	 * Cached information is no longer valid
+	 */
+	public void invalidateInfo() {
+		latestUpdate = null;
+		RemoteInfoCache.get().invalidate(getAbsolutePath());
+	}
+
 	@Override
 	public boolean isDownloaded(String localPath) {
 		if (debug) Gpr.debug("Comparing local file '" + localPath + "' to remote file '" + getAbsolutePath() + "'");
@@ -84,9 +116,7 @@ public abstract class DataRemote extends Data {
 		if (!localFile.exists()) return false;
 
 		// Get remote data
-		if (needsUpdateInfo()) {
-			if (!updateInfo()) return false; // Cannot update information
-		}
+		if (!updateInfoIfNeeded()) return false; // Cannot update information
 
 		// Has local file a different size than remote file?
 		if (size <= 0) return false; // Note: Negative size indicates dynamic content
@@ -115,9 +145,7 @@ public abstract class DataRemote extends Data {
 		if (!localFile.exists()) return false;
 
 		// Get remote data
-		if (needsUpdateInfo()) {
-			if (!updateInfo()) return false; // Cannot update information
-		}
+		if (!updateInfoIfNeeded()) return false; // Cannot update information
 
 		// Has local file a different size than remote file?
 		if (localFile.length() != size) return false;
@@ -161,7 +189,7 @@ public abstract class DataRemote extends Data {
 
 	@Override
 	public long size() {
-		if (needsUpdateInfo()) updateInfo();
+		updateInfoIfNeeded();
 		return size;
 	}
 
@@ -175,6 +203,35 @@ public abstract class DataRemote extends Data {
 	 */
 	protected abstract boolean updateInfo();
 
+	/**
+	 * Update information, if needed. Information is looked up in the
+	 * shared cache before connecting to remote
+	 * @return false if information could not be updated
+	 */
+	protected boolean updateInfoIfNeeded() {
+		if (!needsUpdateInfo()) return true;
+
+		RemoteInfoCache remoteInfoCache = RemoteInfoCache.get();
+		String url = getAbsolutePath();
+		if (remoteInfoCache.load(url, this)) return true;
+
+		// Many files from the same 'directory' requested? Get them in one request
+		if (remoteInfoCache.needsListing(url) && updateInfoList() && remoteInfoCache.load(url, this)) return true;
+
+		if (!updateInfo()) return false;
+		remoteInfoCache.put(url, this);
+		return true;
+	}
+
+	/**
+	 * Update information for all files in the parent 'directory' (e.g. by
+	 * listing it) and add them to the shared cache
+	 * @return true if the parent directory was listed
+	 */
+	protected boolean updateInfoList() {
+		return false;
+	}
+
 	/**
 	 * Update last modified in local copy
 	 */
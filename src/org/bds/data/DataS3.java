@@ -1,11 +1,20 @@
 package org.bds.data;
 
 import java.io.File;
-import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.bds.Config;
 import org.bds.util.Gpr;
@@ -24,17 +33,31 @@ import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
-import com.amazonaws.services.s3.model.S3ObjectInputStream;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
 
 /**
  * A bucket / object in AWS S3
  *
+ * Large objects are transferred in parts ('awsS3PartSize' bytes),
+ * using up to 'awsS3Threads' concurrent connections:
+ *   - Downloads use parallel 'ranged' GET requests
+ *   - Uploads use multipart uploads (TransferManager)
+ *
+ * Objects' information is shared through RemoteInfoCache. When many
+ * objects with the same prefix are queried, they are all obtained
+ * using one 'list' request instead of one HEAD request per object.
+ *
  * @author pcingola
  */
 public class DataS3 extends DataRemote {
 
 	private static int BUFFER_SIZE = 100 * 1024;
+	public static final long DEFAULT_PART_SIZE = 16 * 1024 * 1024;
+	public static final long MIN_PART_SIZE = 5 * 1024 * 1024; // S3 does not allow smaller parts in multipart uploads
+	public static final int DEFAULT_THREADS = 8;
+	public static final int LIST_MAX_BATCHES = 10; // Maximum number of 'list' requests when populating the cache (each request returns up to 1000 objects)
 
 	public static final String DEFAULT_AWS_REGION = Regions.US_EAST_1.toString();
 	public static final String AWS_DOMAIN = "amazonaws.com";
@@ -42,6 +65,9 @@ public class DataS3 extends DataRemote {
 	public static final String AWS_S3_PROTOCOL = "s3://";
 
 	private static Map<Region, AmazonS3> s3ByRegion = new HashMap<>();
+	private static Map<String, Region> regionByBucket = new HashMap<>();
+	private static Map<Region, TransferManager> transferManagerByRegion = new HashMap<>();
+	private static ExecutorService downloadThreads; // Threads used for parallel downloads (shared by all regions)
 
 	AmazonS3URI s3uri;
 	Region region;
@@ -58,6 +84,7 @@ public class DataS3 extends DataRemote {
 	public boolean delete() {
 		if (!isFile()) return false; // Do not delete bucket
 		getS3().deleteObject(bucketName, key);
+		invalidateInfo();
 		return true;
 	}
 
@@ -67,24 +94,17 @@ public class DataS3 extends DataRemote {
 	}
 
 	/**
-	 * Download a file
+	 * Copy an object (or a part of it) to a local file, starting at 'offset'
+	 * @return Number of bytes copied
 	 */
-	@Override
-	public boolean download(String localFile) {
-		try {
-			if (!isFile()) return false;
-
-			S3Object s3object = getS3().getObject(new GetObjectRequest(bucketName, key));
-			if (verbose) System.out.println("Downloading '" + this + "'");
-			updateInfo(s3object);
-
-			// Create local file
-			mkdirsLocal(localFile);
-			FileOutputStream os = new FileOutputStream(getLocalPath());
-
-			// Copy S3 object to file
-			S3ObjectInputStream is = s3object.getObjectContent();
-			int count = 0, total = 0, lastShown = 0;
+	protected long copy(S3Object s3object, String localFile, long offset) throws Exception {
+		long total = 0, lastShown = 0;
+		try (InputStream is = s3object.getObjectContent(); //
+				RandomAccessFile os = new RandomAccessFile(localFile, "rw") //
+		) {
+			os.seek(offset);
+
+			int count = 0;
 			byte data[] = new byte[BUFFER_SIZE];
 			while ((count = is.read(data, 0, BUFFER_SIZE)) != -1) {
 				os.write(data, 0, count);
@@ -98,11 +118,38 @@ public class DataS3 extends DataRemote {
 					}
 				}
 			}
+		}
+
+		return total;
+	}
+
+	/**
+	 * Download a file
+	 * Large objects are downloaded in parts, using parallel 'ranged' GET requests
+	 */
+	@Override
+	protected boolean downloadRemote(String localFile) {
+		try {
+			if (!isFile()) return false;
+			if (localFile == null) localFile = getLocalPath();
+
+			// Only read metadata (HEAD request)
+			ObjectMetadata om = getS3().getObjectMetadata(bucketName, key);
+			updateInfo(om);
+			if (verbose) System.out.println("Downloading '" + this + "'");
+
+			// Create an empty local file
+			mkdirsLocal(localFile);
+			try (RandomAccessFile raf = new RandomAccessFile(localFile, "rw")) {
+				raf.setLength(0);
+			}
+
+			long total;
+			long partSize = getPartSize();
+			if (size <= partSize) total = copy(getS3().getObject(new GetObjectRequest(bucketName, key)), localFile, 0);
+			else total = downloadParts(localFile, om.getETag(), partSize);
 			if (verbose) System.err.println("");
 
-			// Close streams
-			is.close();
-			os.close();
 			if (verbose) Timer.showStdErr("Donwload finished. Total " + total + " bytes.");
 
 			// Update last modified info
@@ -115,6 +162,43 @@ public class DataS3 extends DataRemote {
 		}
 	}
 
+	/**
+	 * Download object in parts (parallel 'ranged' GET requests)
+	 * Parts must match 'eTag', so we cannot mix parts from different versions of the object
+	 */
+	protected long downloadParts(final String localFile, final String eTag, long partSize) throws Exception {
+		if (debug) Timer.showStdErr("Downloading '" + this + "' in " + ((size + partSize - 1) / partSize) + " parts");
+
+		// Submit one request per part
+		List<Future<Long>> parts = new LinkedList<>();
+		for (long range[] : partRanges(size, partSize)) {
+			final long first = range[0];
+			final GetObjectRequest request = partRequest(first, range[1], eTag);
+
+			parts.add(getDownloadThreads().submit(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					S3Object s3object = getS3().getObject(request);
+					if (s3object == null) throw new RuntimeException("Object '" + DataS3.this + "' changed while downloading");
+					return copy(s3object, localFile, first);
+				}
+			}));
+		}
+
+		// Wait for all parts
+		long total = 0;
+		try {
+			for (Future<Long> part : parts)
+				total += part.get();
+		} catch (ExecutionException e) {
+			for (Future<Long> part : parts)
+				part.cancel(true);
+			throw (e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+		}
+
+		return total;
+	}
+
 	/**
 	 * Does the directory exist?
 	 */
@@ -169,6 +253,13 @@ public class DataS3 extends DataRemote {
 		return bucketName + "/" + key;
 	}
 
+	/**
+	 * Part size used in multipart transfers
+	 */
+	protected long getPartSize() {
+		return Math.max(Config.get().getLong(Config.AWS_S3_PART_SIZE, DEFAULT_PART_SIZE), MIN_PART_SIZE);
+	}
+
 	public Region getRegion() {
 		return region;
 	}
@@ -196,6 +287,37 @@ public class DataS3 extends DataRemote {
 		return s3;
 	}
 
+	/**
+	 * Threads used for parallel downloads
+	 */
+	protected static synchronized ExecutorService getDownloadThreads() {
+		if (downloadThreads == null) downloadThreads = newThreadPool("s3-download");
+		return downloadThreads;
+	}
+
+	/**
+	 * Create a transfer manager (multipart uploads).
+	 * Transfer managers are thread safe, we only need one per region
+	 */
+	protected TransferManager getTransferManager() {
+		AmazonS3 s3 = getS3();
+
+		synchronized (transferManagerByRegion) {
+			TransferManager tm = transferManagerByRegion.get(region);
+			if (tm == null) {
+				tm = new TransferManager(s3, newThreadPool("s3-upload"));
+
+				TransferManagerConfiguration tmConfig = new TransferManagerConfiguration();
+				tmConfig.setMinimumUploadPartSize(getPartSize());
+				tmConfig.setMultipartUploadThreshold(getPartSize());
+				tm.setConfiguration(tmConfig);
+
+				transferManagerByRegion.put(region, tm);
+			}
+			return tm;
+		}
+	}
+
 	/**
 	 * Is this a bucket?
 	 */
@@ -261,6 +383,24 @@ public class DataS3 extends DataRemote {
 		return true;
 	}
 
+	/**
+	 * Create a pool of 'awsS3Threads' threads.
+	 * Threads are daemon, so they don't prevent the program from finishing
+	 */
+	protected static ExecutorService newThreadPool(final String name) {
+		int threads = (int) Config.get().getLong(Config.AWS_S3_THREADS, DEFAULT_THREADS);
+		return Executors.newFixedThreadPool(Math.max(threads, 1), new ThreadFactory() {
+			int threadNum = 1;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread th = new Thread(r, name + "-" + (threadNum++));
+				th.setDaemon(true);
+				return th;
+			}
+		});
+	}
+
 	/**
 	 * Parse string representing an AWS S3 URI
 	 */
@@ -280,27 +420,40 @@ public class DataS3 extends DataRemote {
 		}
 	}
 
+	/**
+	 * Split an object of 'size' bytes into parts: A list of [first, last] byte ranges (inclusive)
+	 */
+	public static List<long[]> partRanges(long size, long partSize) {
+		List<long[]> ranges = new ArrayList<>();
+		for (long start = 0; start < size; start += partSize) {
+			long range[] = { start, Math.min(start + partSize, size) - 1 };
+			ranges.add(range);
+		}
+		return ranges;
+	}
+
+	/**
+	 * Request for bytes [first, last] of the object
+	 * The object must match 'eTag' (if not null), so parts from different versions are never mixed
+	 */
+	public GetObjectRequest partRequest(long first, long last, String eTag) {
+		GetObjectRequest request = new GetObjectRequest(bucketName, key).withRange(first, last);
+		if (eTag != null) request.withMatchingETagConstraint(eTag);
+		return request;
+	}
+
 	/**
 	 * Connect and update info
 	 */
 	@Override
 	protected boolean updateInfo() {
-		try {
-			if (region == null) {
-				String regionName = getS3().getBucketLocation(bucketName);
-
-				// Update region
-				if (regionName.equals("US")) region = Region.getRegion(Regions.valueOf(DEFAULT_AWS_REGION));
-				else region = Region.getRegion(Regions.fromName(regionName));
-			}
-		} catch (AmazonClientException e) {
-			throw new RuntimeException("Error accessing S3 bucket '" + bucketName + "'", e);
-		}
+		updateRegion();
 
 		try {
 			if (isFile()) {
-				S3Object s3object = getS3().getObject(new GetObjectRequest(bucketName, key));
-				return updateInfo(s3object);
+				// Only read metadata (HEAD request)
+				ObjectMetadata om = getS3().getObjectMetadata(bucketName, key);
+				return updateInfo(om);
 			} else if (existsDir()) {
 				// Special case when keys are 'directories'
 				exists = true;
@@ -308,12 +461,14 @@ public class DataS3 extends DataRemote {
 				canWrite = true;
 				lastModified = new Date(0L);
 				size = 0;
+				version = null;
 				latestUpdate = new Timer(CACHE_TIMEOUT);
 				return true;
 			} else return false;
 		} catch (AmazonServiceException e) {
+			// Note: Responses to HEAD requests have no body, so 'NoSuchKey' is only reported as 'not found' status code
 			String errorCode = e.getErrorCode();
-			if (!errorCode.equals("NoSuchKey")) throw new RuntimeException("Error accessing S3 bucket '" + bucketName + "', key '" + key + "'" + this, e);
+			if (e.getStatusCode() != 404 && !"NoSuchKey".equals(errorCode)) throw new RuntimeException("Error accessing S3 bucket '" + bucketName + "', key '" + key + "'" + this, e);
 
 			// The object does not exists
 			exists = false;
@@ -321,23 +476,75 @@ public class DataS3 extends DataRemote {
 			canWrite = false;
 			lastModified = new Date(0L);
 			size = 0;
+			version = null;
 			latestUpdate = new Timer(CACHE_TIMEOUT);
 			return true;
 		}
 	}
 
 	/**
-	 * Update object's information
+	 * List all objects having the same prefix (i.e. in the same 'directory')
+	 * and add their information to the shared cache
 	 */
-	protected boolean updateInfo(S3Object s3object) {
-		// Read metadata
-		ObjectMetadata om = s3object.getObjectMetadata();
+	@Override
+	protected boolean updateInfoList() {
+		// Cache's URLs must match the ones created from the listing
+		if (!isFile() || !getAbsolutePath().endsWith("/" + key)) return false;
+		updateRegion();
+
+		int idx = key.lastIndexOf('/');
+		String prefix = (idx >= 0 ? key.substring(0, idx + 1) : "");
+		String parentUrl = RemoteInfoCache.parent(getAbsolutePath());
+		if (debug) Timer.showStdErr("Listing S3 bucket '" + bucketName + "', prefix '" + prefix + "'");
+
+		RemoteInfoCache remoteInfoCache = RemoteInfoCache.get();
+		try {
+			ObjectListing objectListing = getS3().listObjects( //
+					new ListObjectsRequest() //
+							.withBucketName(bucketName) //
+							.withPrefix(prefix) //
+							.withDelimiter("/") // Only objects in this 'directory'
+			);
+
+			for (int batch = 1;; batch++) {
+				for (S3ObjectSummary objectSummary : objectListing.getObjectSummaries()) {
+					String name = objectSummary.getKey().substring(prefix.length());
+					remoteInfoCache.put(parentUrl + "/" + name, true, true, true, objectSummary.getLastModified(), objectSummary.getSize(), objectSummary.getETag());
+				}
+
+				// Sub-directories are reported as common prefixes (otherwise they would be assumed not to exist)
+				for (String commonPrefix : objectListing.getCommonPrefixes())
+					remoteInfoCache.putDir(parentUrl + "/" + commonPrefix.substring(prefix.length()));
+
+				if (!objectListing.isTruncated()) break;
+
+				// Too many objects: Do not mark listing as complete
+				if (batch >= LIST_MAX_BATCHES) {
+					remoteInfoCache.addListing(parentUrl, false);
+					return true;
+				}
+
+				objectListing = getS3().listNextBatchOfObjects(objectListing);
+			}
+		} catch (AmazonClientException e) {
+			if (debug) Timer.showStdErr("Error listing S3 bucket '" + bucketName + "', prefix '" + prefix + "': " + e.getMessage());
+			return false;
+		}
 
+		remoteInfoCache.addListing(parentUrl, true);
+		return true;
+	}
+
+	/**
+	 * Update object's information
+	 */
+	protected boolean updateInfo(ObjectMetadata om) {
 		// Update data
 		size = om.getContentLength();
 		canRead = true;
 		canWrite = true;
 		lastModified = om.getLastModified();
+		version = om.getETag();
 		exists = true;
 		latestUpdate = new Timer(CACHE_TIMEOUT);
 
@@ -352,6 +559,30 @@ public class DataS3 extends DataRemote {
 		return true;
 	}
 
+	/**
+	 * Find bucket's region (only one request per bucket)
+	 */
+	protected void updateRegion() {
+		if (region != null) return;
+
+		synchronized (regionByBucket) {
+			region = regionByBucket.get(bucketName);
+			if (region != null) return;
+
+			try {
+				String regionName = getS3().getBucketLocation(bucketName);
+
+				// Update region
+				if (regionName.equals("US")) region = Region.getRegion(Regions.valueOf(DEFAULT_AWS_REGION));
+				else region = Region.getRegion(Regions.fromName(regionName));
+			} catch (AmazonClientException e) {
+				throw new RuntimeException("Error accessing S3 bucket '" + bucketName + "'", e);
+			}
+
+			regionByBucket.put(bucketName, region);
+		}
+	}
+
 	/**
 	 * Cannot upload to a web server
 	 */
@@ -364,8 +595,14 @@ public class DataS3 extends DataRemote {
 			return false;
 		}
 
-		// Upload
-		getS3().putObject(new PutObjectRequest(bucketName, key, file));
+		// Upload (large files are uploaded using multipart uploads)
+		try {
+			getTransferManager().upload(new PutObjectRequest(bucketName, key, file)).waitForCompletion();
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Interrupted while uploading file '" + localFileName + "' to '" + this + "'", e);
+		}
+
+		invalidateInfo();
 		return true;
 	}
 }
@@ -0,0 +1,356 @@
+package org.bds.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bds.Config;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+
+/**
+ * Local cache for remote files, shared by all tasks and runs
+ *
+ * Entries are keyed by URL and version (e.g. S3 / http 'ETag', or last
+ * modified and size), so a new version of a remote file is a new entry.
+ *
+ * The cache is disabled by default (see 'localCache' in config file).
+ *
+ * Concurrency: Entries are locked using a fixed number of lock files
+ * ('LOCK_STRIPES', selected by the entry's key), so lock files are
+ * never deleted and don't accumulate. Processes (or threads) trying to
+ * get the same entry wait for the one downloading it. Files are
+ * downloaded to a temporary file and renamed when the download is
+ * complete, so an entry is never seen partially downloaded.
+ *
+ * Local files are copies of cache entries (not links), so a task
+ * modifying its local file does not modify the cache.
+ *
+ * Least recently used entries (oldest modification time) are deleted
+ * when the cache is larger than 'localCacheSize' bytes.
+ *
+ * @author pcingola
+ */
+public class LocalCache {
+
+	public static final String LOCK_EXT = ".lock";
+	public static final String TMP_EXT = ".tmp";
+	public static final String STATS_FILE = "stats.txt";
+	public static final long DEFAULT_SIZE = 10L * 1024 * 1024 * 1024;
+	public static final int LOCK_STRIPES = 256; // Number of lock files (entries are assigned to a lock by the first two hex digits of their key)
+
+	private static LocalCache localCache;
+	private static boolean initialized;
+
+	String dir;
+	long maxSize; // Maximum cache size (bytes)
+	boolean debug;
+	boolean verbose;
+	long hits, misses; // Counters for this process
+	long statsStart[]; // Counters for all processes when this process started
+	Object locks[]; // Locks by stripe. Note: File locks are held by the JVM, so threads must be synchronized as well
+
+	/**
+	 * Get singleton (null if the cache is disabled)
+	 */
+	public static synchronized LocalCache get() {
+		if (!initialized) {
+			initialized = true;
+			Config config = Config.get();
+			if (config.getBool(Config.LOCAL_CACHE, false)) {
+				String dir = config.getString(Config.LOCAL_CACHE_DIR, config.getTmpDir() + "/" + DataRemote.TMP_BDS_DATA + "/cache");
+				localCache = new LocalCache(dir, config.getLong(Config.LOCAL_CACHE_SIZE, DEFAULT_SIZE));
+				localCache.setVerbose(config.isVerbose());
+				localCache.setDebug(config.isDebug());
+			}
+		}
+		return localCache;
+	}
+
+	/**
+	 * Reset singleton
+	 */
+	public static synchronized void reset() {
+		localCache = null;
+		initialized = false;
+	}
+
+	public LocalCache(String dir, long maxSize) {
+		this.dir = dir;
+		this.maxSize = maxSize;
+		locks = new Object[LOCK_STRIPES];
+		for (int i = 0; i < locks.length; i++)
+			locks[i] = new Object();
+		statsStart = readStats();
+	}
+
+	/**
+	 * Create 'localFile' as a copy of 'entry'
+	 * Note: We don't use links, a task modifying the local file would modify the cache entry
+	 */
+	protected void copy(File entry, String localFile, Date lastModified) throws IOException {
+		File local = new File(localFile);
+		if (local.getParentFile() != null) local.getParentFile().mkdirs();
+
+		// Copy to a temporary file, then rename (atomically)
+		Path tmp = new File(localFile + "." + UUID.randomUUID() + TMP_EXT).toPath();
+		Files.copy(entry.toPath(), tmp, StandardCopyOption.REPLACE_EXISTING);
+		Files.move(tmp, local.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		if (lastModified != null && lastModified.getTime() > 0) local.setLastModified(lastModified.getTime());
+	}
+
+	/**
+	 * Download a remote file using the cache
+	 * @return true if successful
+	 */
+	public boolean download(DataRemote data, String localFile) {
+		String key = key(data);
+		if (key == null) return data.downloadRemote(localFile); // We cannot identify this version: Don't use cache
+
+		new File(dir).mkdirs();
+		File entry = new File(dir, key);
+		boolean hit;
+		synchronized (lock(key)) {
+			try (RandomAccessFile lockFile = new RandomAccessFile(lockFile(key), "rw")) {
+				FileLock fileLock = lockFile.getChannel().lock();
+				try {
+					hit = entry.exists() && (data.size < 0 || entry.length() == data.size);
+					if (hit) {
+						if (debug) Timer.showStdErr("Local cache hit: '" + data.getAbsolutePath() + "', entry '" + entry + "'");
+					} else {
+						// Download to a temporary file, then rename (atomically)
+						if (verbose) Timer.showStdErr("Local cache miss: '" + data.getAbsolutePath() + "', downloading to cache entry '" + entry + "'");
+						File tmp = new File(dir, key + "." + UUID.randomUUID() + TMP_EXT);
+						if (!data.downloadRemote(tmp.getPath())) {
+							tmp.delete();
+							return false;
+						}
+						Files.move(tmp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+					}
+
+					// Least recently used entries have the oldest modification time
+					entry.setLastModified(System.currentTimeMillis());
+
+					// Create local file. Note: We hold the lock, so the entry cannot be evicted
+					copy(entry, localFile, data.lastModified);
+				} finally {
+					fileLock.release();
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Error accessing local cache entry '" + entry + "' for '" + data.getAbsolutePath() + "'", e);
+			}
+		}
+
+		updateStats(hit);
+		if (!hit) evict();
+		return true;
+	}
+
+	/**
+	 * Delete least recently used entries until the cache is under 'maxSize'
+	 * Entries being used (locked) are not deleted
+	 */
+	protected void evict() {
+		if (maxSize <= 0) return; // No limit
+
+		// Find all entries and total size
+		File files[] = new File(dir).listFiles();
+		if (files == null) return;
+
+		final Map<File, Long> lastUsed = new HashMap<>();
+		List<File> entries = new ArrayList<>();
+		long total = 0;
+		for (File f : files) {
+			String name = f.getName();
+			if (name.endsWith(LOCK_EXT) || name.endsWith(TMP_EXT) || name.equals(STATS_FILE)) continue;
+			entries.add(f);
+			lastUsed.put(f, f.lastModified());
+			total += f.length();
+		}
+		if (total <= maxSize) return;
+
+		// Delete least recently used first
+		Collections.sort(entries, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(lastUsed.get(f1), lastUsed.get(f2));
+			}
+		});
+
+		for (File entry : entries) {
+			if (total <= maxSize) break;
+			long len = entry.length();
+			if (evict(entry)) total -= len;
+		}
+	}
+
+	/**
+	 * Delete an entry, unless it is being used
+	 * @return true if the entry was deleted
+	 */
+	boolean evict(File entry) {
+		String key = entry.getName();
+		synchronized (lock(key)) {
+			try (RandomAccessFile lockFile = new RandomAccessFile(lockFile(key), "rw"); //
+					FileLock fileLock = lockFile.getChannel().tryLock() //
+			) {
+				if (fileLock == null) return false; // Another process is using this entry (or another entry sharing the lock)
+				if (debug) Timer.showStdErr("Local cache: Deleting entry '" + entry + "'");
+				return entry.delete();
+			} catch (IOException | OverlappingFileLockException e) {
+				return false;
+			}
+		}
+	}
+
+	public String getDir() {
+		return dir;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Cache key: Hash of URL and version
+	 * @return null if the remote file's version cannot be identified
+	 */
+	protected String key(DataRemote data) {
+		if (!data.updateInfoIfNeeded() || !data.exists) return null;
+
+		String version = data.getVersion();
+		if (version == null || version.isEmpty()) {
+			// No version information? Use last modified and size
+			if (data.lastModified == null || data.lastModified.getTime() <= 0 || data.size < 0) return null;
+			version = data.lastModified.getTime() + ":" + data.size;
+		}
+
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			byte digest[] = md.digest((data.getAbsolutePath() + "\t" + version).getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest)
+				sb.append(String.format("%02x", b & 0xff));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException | IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Lock object for an entry (threads in this JVM)
+	 */
+	Object lock(String key) {
+		return locks[lockStripe(key)];
+	}
+
+	/**
+	 * Lock file for an entry (processes)
+	 */
+	File lockFile(String key) {
+		return new File(dir, String.format("%02x", lockStripe(key)) + LOCK_EXT);
+	}
+
+	/**
+	 * Lock stripe for an entry: First two hex digits of the key
+	 */
+	int lockStripe(String key) {
+		return Integer.parseInt(key.substring(0, 2), 16) % LOCK_STRIPES;
+	}
+
+	/**
+	 * Read counters for all processes using this cache: [hits, misses]
+	 */
+	protected long[] readStats() {
+		long stats[] = new long[2];
+		File statsFile = new File(dir, STATS_FILE);
+		if (!statsFile.exists()) return stats;
+
+		String fields[] = Gpr.readFile(statsFile.getPath()).trim().split("\t");
+		for (int i = 0; i < stats.length && i < fields.length; i++)
+			stats[i] = Gpr.parseLongSafe(fields[i]);
+		return stats;
+	}
+
+	/**
+	 * Counters for all processes using this cache since this process started: [hits, misses]
+	 * Note: This includes tasks (they download their inputs using the cache)
+	 */
+	public long[] statsRun() {
+		long stats[] = readStats();
+		for (int i = 0; i < stats.length; i++)
+			stats[i] -= statsStart[i];
+		return stats;
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	@Override
+	public String toString() {
+		return "LocalCache: dir '" + dir + "', max size " + maxSize + ", hits " + hits + ", misses " + misses;
+	}
+
+	/**
+	 * Update counters (this process and all processes using the cache)
+	 */
+	protected void updateStats(boolean hit) {
+		synchronized (this) {
+			if (hit) hits++;
+			else misses++;
+		}
+
+		File statsFile = new File(dir, STATS_FILE);
+		synchronized (locks) {
+			try (RandomAccessFile raf = new RandomAccessFile(statsFile, "rw")) {
+				FileLock fileLock = raf.getChannel().lock();
+				try {
+					// Read
+					long stats[] = new long[2];
+					String line = raf.readLine();
+					if (line != null) {
+						String fields[] = line.trim().split("\t");
+						for (int i = 0; i < stats.length && i < fields.length; i++)
+							stats[i] = Gpr.parseLongSafe(fields[i]);
+					}
+
+					// Update and write
+					stats[hit ? 0 : 1]++;
+					raf.seek(0);
+					raf.setLength(0);
+					raf.writeBytes(stats[0] + "\t" + stats[1] + "\n");
+				} finally {
+					fileLock.release();
+				}
+			} catch (IOException e) {
+				if (debug) Timer.showStdErr("Cannot update local cache statistics '" + statsFile + "': " + e.getMessage());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,234 @@
+package org.bds.data;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.bds.Config;
+import org.bds.util.Timer;
+
+/**
+ * Process-wide cache of remote files' information (exists, size,
+ * last modified, etc.), keyed by canonical URL.
+ *
+ * Data objects are created at every call site (e.g. 'Data.factory()'),
+ * so caching information in each object does not avoid requests to
+ * the remote server. This cache is shared by all DataRemote objects.
+ *
+ * Entries expire after 'remoteCacheTtl' milliseconds and the least
+ * recently used entries are evicted when there are more than
+ * 'remoteCacheSize' entries.
+ *
+ * Entries can be added in bulk by listing a 'directory' (e.g. an S3
+ * prefix). A directory listing also tells us which files do NOT exist
+ * (sub-directories must be added to the cache, see 'putDir()'). URLs
+ * ending in '/' are directories, they are never assumed not to exist.
+ *
+ * @author pcingola
+ */
+public class RemoteInfoCache {
+
+	public static final int DEFAULT_SIZE = 100 * 1000;
+	public static final int LIST_MIN_SIBLINGS = 10; // List parent 'directory' when this many siblings are not found in cache
+
+	private static RemoteInfoCache remoteInfoCache;
+
+	/**
+	 * Cached information
+	 */
+	class RemoteInfo {
+		boolean canRead, canWrite, exists;
+		Date lastModified;
+		long size;
+		String version;
+		long expire; // Expiration time (milliseconds)
+
+		RemoteInfo(boolean canRead, boolean canWrite, boolean exists, Date lastModified, long size, String version, long ttl) {
+			this.canRead = canRead;
+			this.canWrite = canWrite;
+			this.exists = exists;
+			this.lastModified = lastModified;
+			this.size = size;
+			this.version = version;
+			expire = System.currentTimeMillis() + ttl;
+		}
+
+		boolean isExpired() {
+			return System.currentTimeMillis() > expire;
+		}
+	}
+
+	long ttl; // Time to live (milliseconds)
+	int maxSize; // Maximum number of entries
+	Map<String, RemoteInfo> infoByUrl; // Information by URL (LRU)
+	Map<String, Long> listedByDir; // Directories listed (expiration time). Files not in the listing do not exist
+	Map<String, Integer> missesByDir; // Number of cache misses for files in a directory
+	long hits, misses;
+
+	/**
+	 * Get singleton
+	 */
+	public static synchronized RemoteInfoCache get() {
+		if (remoteInfoCache == null) {
+			Config config = Config.get();
+			long ttl = (config != null ? config.getLong(Config.REMOTE_CACHE_TTL, DataRemote.CACHE_TIMEOUT) : DataRemote.CACHE_TIMEOUT);
+			int size = (int) (config != null ? config.getLong(Config.REMOTE_CACHE_SIZE, DEFAULT_SIZE) : DEFAULT_SIZE);
+			remoteInfoCache = new RemoteInfoCache(ttl, size);
+		}
+		return remoteInfoCache;
+	}
+
+	/**
+	 * Parent 'directory' of a URL
+	 */
+	public static String parent(String url) {
+		int idx = url.lastIndexOf('/');
+		return idx > 0 ? url.substring(0, idx) : url;
+	}
+
+	/**
+	 * Reset singleton
+	 */
+	public static synchronized void reset() {
+		remoteInfoCache = null;
+	}
+
+	@SuppressWarnings("serial")
+	public RemoteInfoCache(long ttl, final int maxSize) {
+		this.ttl = ttl;
+		this.maxSize = maxSize;
+
+		infoByUrl = new LinkedHashMap<String, RemoteInfo>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, RemoteInfo> eldest) {
+				return size() > maxSize;
+			}
+		};
+
+		listedByDir = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+				return size() > maxSize;
+			}
+		};
+
+		missesByDir = new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Add information from a directory listing
+	 * @param complete : If true, files not in the directory listing do not exist
+	 */
+	public synchronized void addListing(String dirUrl, boolean complete) {
+		missesByDir.remove(dirUrl);
+		if (complete) listedByDir.put(dirUrl, System.currentTimeMillis() + ttl);
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public long getTtl() {
+		return ttl;
+	}
+
+	/**
+	 * Remove a URL from cache (e.g. the file has been modified)
+	 */
+	public synchronized void invalidate(String url) {
+		infoByUrl.remove(url);
+		listedByDir.remove(parent(url));
+	}
+
+	/**
+	 * Load information from cache into 'data'
+	 * @return true if information was found in cache
+	 */
+	public synchronized boolean load(String url, DataRemote data) {
+		RemoteInfo info = infoByUrl.get(url);
+		if (info != null && info.isExpired()) {
+			infoByUrl.remove(url);
+			info = null;
+		}
+
+		if (info == null) {
+			// Directories are not objects, so they are not in directory listings
+			if (url.endsWith("/")) {
+				misses++;
+				return false;
+			}
+
+			// Parent directory listed? Then the file does not exist
+			String dir = parent(url);
+			Long expire = listedByDir.get(dir);
+			if (expire == null || System.currentTimeMillis() > expire) {
+				misses++;
+				return false;
+			}
+
+			info = new RemoteInfo(false, false, false, new Date(0L), 0, null, expire - System.currentTimeMillis());
+		}
+
+		hits++;
+		data.canRead = info.canRead;
+		data.canWrite = info.canWrite;
+		data.exists = info.exists;
+		data.lastModified = info.lastModified;
+		data.size = info.size;
+		data.version = info.version;
+		data.latestUpdate = new Timer(Math.max(info.expire - System.currentTimeMillis(), 0));
+		return true;
+	}
+
+	/**
+	 * A file was not found in cache: Should we list its parent 'directory'?
+	 */
+	public synchronized boolean needsListing(String url) {
+		String dir = parent(url);
+		Integer count = missesByDir.get(dir);
+		count = (count != null ? count + 1 : 1);
+		missesByDir.put(dir, count);
+		return count >= LIST_MIN_SIBLINGS;
+	}
+
+	/**
+	 * Add information to cache
+	 */
+	public synchronized void put(String url, boolean canRead, boolean canWrite, boolean exists, Date lastModified, long size, String version) {
+		infoByUrl.put(url, new RemoteInfo(canRead, canWrite, exists, lastModified, size, version, ttl));
+	}
+
+	/**
+	 * Add a 'directory' found in a directory listing (e.g. an S3 common prefix)
+	 */
+	public void putDir(String url) {
+		if (url.endsWith("/")) url = url.substring(0, url.length() - 1);
+		put(url, true, true, true, new Date(0L), 0, null);
+	}
+
+	/**
+	 * Add information from 'data' to cache
+	 */
+	public void put(String url, DataRemote data) {
+		put(url, data.canRead, data.canWrite, data.exists, data.lastModified, data.size, data.version);
+	}
+
+	public synchronized int size() {
+		return infoByUrl.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "RemoteInfoCache: entries " + infoByUrl.size() + ", hits " + hits + ", misses " + misses + ", ttl " + ttl;
+	}
+
+}
@@ -0,0 +1,211 @@
+package org.bds.data;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.bds.Config;
+
+/**
+ * Transfer (download / upload) many remote files in one process
+ *
+ * Tasks having several remote inputs or outputs invoke 'bds -transfer'
+ * once, instead of invoking 'bds -download' / 'bds -upload' once per
+ * file (i.e. starting one JVM per file).
+ *
+ * Manifest format: One transfer per line, tab separated
+ *     download	url	localFile
+ *     upload	localFile	url
+ *
+ * Empty lines and lines starting with '#' are ignored. A manifest
+ * file name '-' means STDIN.
+ *
+ * Files are transferred concurrently using 'transferThreads' threads.
+ * Connections (e.g. S3 clients) are shared by all transfers. The status
+ * of each transfer ('OK' or 'FAILED') is reported in STDERR.
+ *
+ * @author pcingola
+ */
+public class TransferManifest {
+
+	public static final String DOWNLOAD = "download";
+	public static final String UPLOAD = "upload";
+	public static final String STDIN = "-";
+	public static final int DEFAULT_THREADS = 8;
+
+	/**
+	 * One file transfer
+	 */
+	class Transfer implements Callable<Boolean> {
+		String type, src, dst;
+		String error;
+
+		Transfer(String type, String src, String dst) {
+			this.type = type;
+			this.src = src;
+			this.dst = dst;
+		}
+
+		@Override
+		public Boolean call() {
+			try {
+				if (type.equals(DOWNLOAD)) return download(src, dst, debug);
+				return upload(src, dst, debug);
+			} catch (Throwable t) {
+				error = t.getMessage();
+				if (debug) t.printStackTrace();
+				return false;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return type + "\t" + src + "\t" + dst;
+		}
+	}
+
+	String manifestFile;
+	boolean debug;
+	List<Transfer> transfers;
+
+	/**
+	 * Download a URL to a local file
+	 * @return true if successful
+	 */
+	public static boolean download(String url, String fileName, boolean debug) {
+		Data remote = Data.factory(url);
+
+		// Sanity checks
+		if (!remote.isRemote()) {
+			System.err.println("Cannot download non-remote URL: " + url);
+			return false;
+		}
+
+		if (!remote.isFile()) {
+			System.err.println("Cannot download non-file: " + url);
+			return false;
+		}
+
+		// Already downloaded? Nothing to do
+		if (remote.isDownloaded(fileName)) {
+			if (debug) System.err.println("Local file is up to date, no download required: " + fileName);
+			return true;
+		}
+
+		return remote.download(fileName);
+	}
+
+	/**
+	 * Upload a local file to a URL
+	 * @return true if successful
+	 */
+	public static boolean upload(String fileName, String url, boolean debug) {
+		Data remote = Data.factory(url);
+		Data local = Data.factory(fileName);
+
+		// Sanity checks
+		if (!remote.isRemote()) {
+			System.err.println("Cannot upload to non-remote URL: " + url);
+			return false;
+		}
+
+		if (!local.isFile()) {
+			System.err.println("Cannot upload non-file: " + fileName);
+			return false;
+		}
+
+		if (!local.exists()) {
+			System.err.println("Local file does not exists: " + fileName);
+			return false;
+		}
+
+		if (!local.canRead()) {
+			System.err.println("Cannot read local file : " + fileName);
+			return false;
+		}
+
+		// Already uploaded? Nothing to do
+		if (remote.isUploaded(fileName)) {
+			if (debug) System.err.println("Remote file is up to date, no upload required: " + url);
+			return true;
+		}
+
+		return remote.upload(fileName);
+	}
+
+	public TransferManifest(String manifestFile) {
+		this.manifestFile = manifestFile;
+		transfers = new ArrayList<>();
+	}
+
+	/**
+	 * Parse manifest
+	 */
+	public void load() {
+		try (BufferedReader reader = new BufferedReader(manifestFile.equals(STDIN) ? new InputStreamReader(System.in) : new FileReader(manifestFile))) {
+			String line;
+			for (int lineNum = 1; (line = reader.readLine()) != null; lineNum++) {
+				if (line.trim().isEmpty() || line.startsWith("#")) continue;
+
+				String fields[] = line.split("\t");
+				if (fields.length != 3 || !(fields[0].equals(DOWNLOAD) || fields[0].equals(UPLOAD))) {
+					throw new RuntimeException("Invalid line in transfer manifest '" + manifestFile + "', line " + lineNum + ": '" + line + "'");
+				}
+
+				transfers.add(new Transfer(fields[0], fields[1], fields[2]));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading transfer manifest '" + manifestFile + "'", e);
+		}
+	}
+
+	/**
+	 * Transfer all files. Status of each transfer is shown in STDERR
+	 * @return true if all files were transferred successfully
+	 */
+	public boolean run() {
+		if (transfers.isEmpty()) load();
+
+		int threads = (int) Config.get().getLong(Config.TRANSFER_THREADS, DEFAULT_THREADS);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, transfers.size())));
+
+		boolean ok = true;
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (Transfer transfer : transfers)
+				results.add(executor.submit(transfer));
+
+			// Report status (in manifest order)
+			for (int i = 0; i < transfers.size(); i++) {
+				Transfer transfer = transfers.get(i);
+				boolean tok = results.get(i).get();
+				ok &= tok;
+
+				System.err.println((tok ? "OK" : "FAILED") + "\t" + transfer + (transfer.error != null ? "\t" + transfer.error : ""));
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException("Error transferring files in manifest '" + manifestFile + "'", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		return ok;
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	public int size() {
+		return transfers.size();
+	}
+
+}
@@ -209,9 +209,13 @@ public class CheckTasksRunning {
 
 	/**
 	 *  Use only the first part before '.' as PID
+	 *  Array job tasks (e.g. '123.4' or '123[4]') are matched by their array job ID ('123')
 	 */
 	String parsePidPart(String pid) {
-		return pid.split("\\.")[0];
+		String pidPart = pid.split("\\.")[0];
+		int idx = pidPart.indexOf('[');
+		if (idx > 0) pidPart = pidPart.substring(0, idx);
+		return pidPart;
 	}
 
 	/**
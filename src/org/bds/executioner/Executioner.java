@@ -1,6 +1,7 @@
 package org.bds.executioner;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -12,9 +13,9 @@ import org.bds.cluster.host.Host;
 import org.bds.cluster.host.HostLocal;
 import org.bds.osCmd.Cmd;
 import org.bds.osCmd.Exec;
-import org.bds.task.DependencyState;
 import org.bds.task.Tail;
 import org.bds.task.Task;
+import org.bds.task.TaskDependecies;
 import org.bds.task.TaskState;
 import org.bds.util.Gpr;
 import org.bds.util.TextTable;
@@ -40,7 +41,7 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 	protected boolean running, valid;
 	protected boolean removeTaskCannotExecute; // Should a task be finished if there are no resources to execute it? In most cases yes, but some clusters host are dynamic (they appear and disappear), so even if there are no resources now there might be resources in the future.
 	protected int hostIdx = 0;
-	protected List<Task> tasksToRun; // Tasks queued for execution
+	protected TaskQueue tasksToRun; // Tasks queued for execution
 	protected Map<Task, Host> tasksSelected; // Tasks that has been selected and it will be immediately start execution in host
 	protected Map<String, Task> tasksRunning; // Tasks running
 	protected Map<String, Task> tasksDone; // Tasks that fin
@@ -54,12 +55,14 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 	protected Timer timer; // Task timer (when was the task started)
 	protected CheckTasksRunning checkTasksRunning;
 	protected LinkedList<Task> finishTask;
+	protected final Object wakeUpLock = new Object(); // Lock used to wake up the scheduling loop (note: we don't use 'this' because Executioner is a Thread and 'join()' waits on it)
+	protected boolean wakeUp; // Has the scheduling loop been notified? Guarded by 'wakeUpLock'
 
 	public Executioner(Config config) {
 		super();
 		valid = true;
 		this.config = config;
-		tasksToRun = new ArrayList<>();
+		tasksToRun = new TaskQueue();
 		taskUpdateStates = new ArrayList<>();
 		tail = config.getTail();
 		taskLogger = config.getTaskLogger();
@@ -83,6 +86,7 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 		if (debug) log("Queuing task: " + task.getId());
 		task.state(TaskState.SCHEDULED);
 		tasksToRun.add(task);
+		wakeUp();
 	}
 
 	protected synchronized void addCmd(Task task, Cmd cmd) {
@@ -109,6 +113,29 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 		throw new RuntimeException("Unimplemented method for class: " + getClass().getCanonicalName());
 	}
 
+	/**
+	 * Dependencies changed state for these tasks (e.g. a task they depend
+	 * on finished, in this or any other executioner). They may be ready to run.
+	 */
+	public void dependencyStateChanged(Collection<Task> tasks) {
+		tasksToRun.dependencyStateChanged(tasks);
+		wakeUp();
+	}
+
+	/**
+	 * Finish tasks that cannot be executed (e.g. dependency errors or "lack of resources")
+	 */
+	protected synchronized void finishTasks() {
+		if (finishTask == null) return;
+
+		for (Task task : finishTask) {
+			tasksToRun.remove(task); // Make sure we don't try to select the task again
+			task.setExitValue(Task.EXITCODE_ERROR);
+			taskFinished(task, TaskState.START_FAILED);
+		}
+		finishTask = null;
+	}
+
 	/**
 	 * Find a task by ID
 	 */
@@ -235,12 +262,14 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 		// Kill all 'tasksToRun'.
 		// Note: We need to create a new list to avoid concurrent modification exceptions
 		ArrayList<Task> tokill = new ArrayList<>();
-		tokill.addAll(tasksToRun);
+		for (Task t : tasksToRun)
+			tokill.add(t);
 		tokill.addAll(tasksRunning.values());
 		for (Task t : tokill)
 			kill(t);
 
 		running = valid = false;
+		wakeUp();
 	}
 
 	/**
@@ -368,7 +397,7 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 					if (debug) log("Queue: No more tasks to run.");
 				}
 
-				sleepLong();
+				waitWakeUp(SLEEP_TIME_LONG);
 			}
 
 		} catch (Throwable t) {
@@ -404,7 +433,7 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 				// Get next task and run it
 				runTask(taskHostPair.first, taskHostPair.second);
 			} else {
-				sleepMid();
+				waitWakeUp(SLEEP_TIME_MID);
 			}
 
 			reportsChecksUpdates();
@@ -440,7 +469,7 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 			while (Exec.countRunningThreads() >= config.getMaxThreads()) {
 				// Too many threads running? Sleep for a while (block until some threads finish)
 				if (debug) log("INFO: Too many threads running (limit set to " + config.getMaxThreads() + "). Waiting for some threads to finish.");
-				sleepLong();
+				waitWakeUp(SLEEP_TIME_LONG);
 			}
 		}
 
@@ -482,49 +511,30 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 
 		finishTask = null;
 
-		// Try to find a task matching a host
-		for (Task task : tasksToRun) {
-			// Already selected? Skip
-			if (tasksSelected.containsKey(task)) continue;
-
-			// Can we run this task?
-			if (task.canRun()) {
-				// Are dependencies satisfied for this task?
-				DependencyState dep = task.dependencyState();
-				switch (dep) {
-				case OK:
-					break;
-
-				case WAIT:
-					continue;
+		// Update dependency states (only tasks having dependencies that changed state)
+		tasksToRun.update();
 
-				case ERROR:
-					// Dependency error => Finish this task
-					if (finishTask == null) finishTask = new LinkedList<>();
-					finishTask.add(task);
-					continue; // Do not schedule
-
-				default:
-					throw new RuntimeException("Unimplemented dependency state '" + dep + "'");
-
-				}
-
-				// Select a suitable host in the cluster that satisfies task resources
-				Tuple<Task, Host> taskHost = selectTask(task);
-				if (taskHost != null) return taskHost;
-			}
+		// Dependency error => Finish these tasks (do not schedule)
+		for (Task task : tasksToRun.errors()) {
+			if (finishTask == null) finishTask = new LinkedList<>();
+			finishTask.add(task);
 		}
 
-		// These tasks cannot be executed due to "lack of resources"
-		if (finishTask != null) {
-			for (Task task : finishTask) {
-				task.setExitValue(Task.EXITCODE_ERROR);
-				taskFinished(task, TaskState.START_FAILED);
+		// Try to find a task matching a host.
+		// Note: We only try the first task for each 'resource request'. If it
+		//       doesn't fit in any host, no other task requesting the same
+		//       resources would.
+		for (Task task : tasksToRun.readyFirst()) {
+			// Select a suitable host in the cluster that satisfies task resources
+			Tuple<Task, Host> taskHost = selectTask(task);
+			if (taskHost != null) {
+				finishTasks();
+				return taskHost;
 			}
-			finishTask = null;
 		}
 
 		// Cannot run any task in any host
+		finishTasks();
 		return null;
 	}
 
@@ -584,6 +594,7 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 	protected synchronized void selectTask(Task task, Host host) {
 		if (debug) log("Task selected '" + task.getId() + "' on host '" + host + "'");
 		tasksSelected.put(task, host);
+		tasksToRun.selected(task);
 		host.add(task);
 	}
 
@@ -599,22 +610,6 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 		this.verbose = verbose;
 	}
 
-	void sleepLong() {
-		try {
-			sleep(SLEEP_TIME_LONG);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
-	void sleepMid() {
-		try {
-			sleep(SLEEP_TIME_SHORT);
-		} catch (InterruptedException e) {
-			throw new RuntimeException(e);
-		}
-	}
-
 	void sleepShort() {
 		try {
 			sleep(SLEEP_TIME_SHORT);
@@ -638,6 +633,7 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 		}
 
 		taskUpdateStates.add(new Tuple<>(task, taskState));
+		wakeUp(); // Resources will be released, we may be able to run another task
 	}
 
 	/**
@@ -646,12 +642,13 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 	@Override
 	public synchronized void taskRunning(Task task) {
 		taskUpdateStates.add(new Tuple<>(task, TaskState.RUNNING));
-
+		wakeUp();
 	}
 
 	@Override
 	public synchronized void taskStarted(Task task) {
 		taskUpdateStates.add(new Tuple<>(task, TaskState.STARTED));
+		wakeUp();
 	}
 
 	protected synchronized boolean taskUpdateFinished(Task task, TaskState taskState) {
@@ -701,6 +698,16 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 			}
 		}
 
+		// Task finished (and it will not be re-executed)? Notify tasks depending on it
+		if (task.isDone()) {
+			List<Task> tasksDepChanged = TaskDependecies.get().taskFinished(task);
+			if (!tasksDepChanged.isEmpty()) {
+				Executioners executioners = Executioners.getInstance();
+				if (executioners != null) executioners.dependencyStateChanged(tasksDepChanged);
+				else dependencyStateChanged(tasksDepChanged);
+			}
+		}
+
 		return true;
 	}
 
@@ -819,6 +826,32 @@ public abstract class Executioner extends Thread implements NotifyTaskState, Pid
 		return tt.toString();
 	}
 
+	/**
+	 * Wait until the scheduling loop is woken up (e.g. a task was
+	 * queued or finished) or until 'timeout' milliseconds elapsed.
+	 * The timeout makes sure periodic checks are still performed.
+	 */
+	protected void waitWakeUp(long timeout) {
+		synchronized (wakeUpLock) {
+			try {
+				if (!wakeUp && running) wakeUpLock.wait(timeout);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+			wakeUp = false;
+		}
+	}
+
+	/**
+	 * Wake up the scheduling loop
+	 */
+	public void wakeUp() {
+		synchronized (wakeUpLock) {
+			wakeUp = true;
+			wakeUpLock.notifyAll();
+		}
+	}
+
 	/**
 	 * Wait for a task to start
 	 */
@@ -2,7 +2,10 @@ package org.bds.executioner;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -13,9 +16,11 @@ import org.bds.cluster.host.HostInifinte;
 import org.bds.cluster.host.HostResources;
 import org.bds.osCmd.Cmd;
 import org.bds.osCmd.CmdCluster;
+import org.bds.osCmd.CmdClusterArray;
 import org.bds.osCmd.Exec;
 import org.bds.osCmd.ExecResult;
 import org.bds.task.Task;
+import org.bds.util.Gpr;
 import org.bds.util.Timer;
 
 /**
@@ -54,6 +59,11 @@ public class ExecutionerCluster extends Executioner {
 	protected String pidRegexStr; // Regular expression matching a PID from 'qsub' command
 	protected Pattern pidRegex; // Regular expression (compiled) matching a PID from 'qsub' command
 
+	protected int batchSize; // Maximum number of tasks submitted as one 'array job' (batching is disabled if less than 2)
+	protected int batchTime; // Time window (milliseconds) to gather tasks into one 'array job'
+	protected Map<String, List<Task>> batchByKey; // Tasks waiting to be submitted, indexed by submit arguments (resources & queue)
+	protected Map<String, Timer> batchTimerByKey; // When was the first task added to each batch
+
 	protected ExecutionerCluster(Config config) {
 		super(config);
 
@@ -76,6 +86,12 @@ public class ExecutionerCluster extends Executioner {
 
 		postMortemDisabled = config.getBool(Config.CLUSTER_POSTMORTEMINFO_DISABLED, false);
 
+		// Batch submission ('array jobs')
+		batchSize = (int) config.getLong(Config.CLUSTER_BATCH_SIZE, Config.DEFAULT_CLUSTER_BATCH_SIZE);
+		batchTime = (int) config.getLong(Config.CLUSTER_BATCH_TIME, Config.DEFAULT_CLUSTER_BATCH_TIME);
+		batchByKey = new LinkedHashMap<>();
+		batchTimerByKey = new LinkedHashMap<>();
+
 		memParam = "mem=";
 		cpuParam = "nodes=1:ppn=";
 		wallTimeParam = "walltime=";
@@ -146,6 +162,91 @@ public class ExecutionerCluster extends Executioner {
 		}
 	}
 
+	/**
+	 * Command line arguments to submit an 'array job' having 'size' tasks
+	 */
+	protected void addArrayArgs(int size, String name, List<String> args) {
+		args.add("-t");
+		args.add("1-" + size);
+	}
+
+	/**
+	 * Job ID of task number 'index' within an 'array job'
+	 * E.g. Job ID '123[].server' and index 4 => '123[4].server'
+	 */
+	public String arrayTaskPid(String pid, int index) {
+		if (pid.contains("[]")) return pid.replace("[]", "[" + index + "]");
+		return pid + "[" + index + "]";
+	}
+
+	/**
+	 * Add a task to a batch (tasks requesting the same resources
+	 * and queue are submitted together as one 'array job')
+	 */
+	protected synchronized void batchAdd(Task task) {
+		String key = batchKey(task);
+
+		List<Task> batch = batchByKey.get(key);
+		if (batch == null) {
+			batch = new ArrayList<>();
+			batchByKey.put(key, batch);
+			batchTimerByKey.put(key, new Timer());
+		}
+		batch.add(task);
+		if (debug) log("Task '" + task.getId() + "' added to batch (" + batch.size() + " tasks): " + key);
+	}
+
+	/**
+	 * Tasks submitted in the same batch must have the same submit arguments
+	 */
+	protected String batchKey(Task task) {
+		ArrayList<String> args = new ArrayList<>();
+		addResources(task, args);
+
+		StringBuilder key = new StringBuilder();
+		for (String arg : args)
+			key.append(arg + " ");
+		return key.toString();
+	}
+
+	/**
+	 * Remove (and return) batches ready to be submitted
+	 * @param force : Return all batches, regardless of size and time window
+	 */
+	protected synchronized List<List<Task>> batchReady(boolean force) {
+		List<List<Task>> ready = new ArrayList<>();
+
+		for (Iterator<String> it = batchByKey.keySet().iterator(); it.hasNext();) {
+			String key = it.next();
+			List<Task> batch = batchByKey.get(key);
+
+			if (force || batch.size() >= batchSize || batchTimerByKey.get(key).elapsed() >= batchTime) {
+				ready.add(batch);
+				batchTimerByKey.remove(key);
+				it.remove();
+			}
+		}
+
+		return ready;
+	}
+
+	/**
+	 * Submit batches that are ready
+	 */
+	protected void batchSubmit(boolean force) {
+		if (batchByKey.isEmpty()) return;
+
+		for (List<Task> batch : batchReady(force)) {
+			// Skip tasks finished (e.g. killed) while waiting in the batch
+			ArrayList<Task> tasks = new ArrayList<>(batch.size());
+			for (Task task : batch)
+				if (!task.isDone()) tasks.add(task);
+
+			if (tasks.size() == 1) runTask(tasks.get(0), tasksSelected.get(tasks.get(0)), createRunCmd(tasks.get(0)));
+			else if (!tasks.isEmpty()) runTasks(tasks);
+		}
+	}
+
 	/**
 	 * Create bds-exec commnad
 	 */
@@ -252,6 +353,68 @@ public class ExecutionerCluster extends Executioner {
 		return cmd;
 	}
 
+	/**
+	 * Create a command to submit several tasks as one 'array job'
+	 */
+	protected Cmd createRunCmd(List<Task> tasks) {
+		Task first = tasks.get(0);
+
+		//---
+		// Create a script that runs the task corresponding to the 'array index'
+		//---
+		StringBuilder script = new StringBuilder();
+		script.append("#!/bin/bash\n\n");
+		script.append("# Array index (environment variable depends on the cluster system)\n");
+		script.append("idx=${SGE_TASK_ID:-${PBS_ARRAYID:-${PBS_ARRAY_INDEX:-${MOAB_JOBARRAYINDEX:-${SLURM_ARRAY_TASK_ID:-$LSB_JOBINDEX}}}}}\n\n");
+		script.append("case \"$idx\" in\n");
+		for (int i = 0; i < tasks.size(); i++) {
+			Task task = tasks.get(i);
+			task.createProgramFile(); // We must create a program file
+			script.append("\t" + (i + 1) + ") exec " + bdsCommand(task) + ";;\n");
+		}
+		script.append("esac\n\n");
+		script.append("echo \"Unknown array index '$idx'\" >&2\n");
+		script.append("exit 1\n");
+
+		String base = Gpr.removeExt(first.getProgramFileName()) + ".array";
+		String scriptFile = base + ".sh";
+		Gpr.toFile(scriptFile, script.toString());
+		if (!log) new File(scriptFile).deleteOnExit();
+
+		if (debug) log("Running " + tasks.size() + " tasks as an array job, script '" + scriptFile + "'");
+
+		//---
+		// Create command line to dispatch the 'array job'
+		//---
+		ArrayList<String> args = new ArrayList<String>();
+
+		for (String arg : getCommandRun())
+			args.add(arg);
+
+		// All tasks in the batch request the same resources
+		addResources(first, args);
+		addArrayArgs(tasks.size(), first.getName(), args);
+
+		// Cluster's Stdout & Stderr files are shared by all tasks in the array
+		if (clusterRunCommandStdOutOption != null) {
+			args.add(clusterRunCommandStdOutOption);
+			args.add(clusterStdFile(base + ".stdout"));
+			if (!log) new File(clusterStdFile(base + ".stdout")).deleteOnExit();
+		}
+
+		if (clusterRunCommandStdErrOption != null) {
+			args.add(clusterRunCommandStdErrOption);
+			args.add(clusterStdFile(base + ".stderr"));
+			if (!log) new File(clusterStdFile(base + ".stderr")).deleteOnExit();
+		}
+
+		// Create full command
+		CmdClusterArray cmd = new CmdClusterArray(first.getId() + ".array", args.toArray(Cmd.ARGS_ARRAY_TYPE), tasks);
+		cmd.setStdin("/bin/bash '" + scriptFile + "'");
+		cmd.setReadPid(true); // Cluster system reports 'array job' ID
+		return cmd;
+	}
+
 	@Override
 	protected void followStop(Task task) {
 		super.followStop(task);
@@ -263,6 +426,58 @@ public class ExecutionerCluster extends Executioner {
 		}
 	}
 
+	/**
+	 * Is batch submission ('array jobs') enabled?
+	 */
+	public boolean isBatch() {
+		return batchSize > 1;
+	}
+
+	@Override
+	public synchronized void kill() {
+		// Tasks waiting to be submitted are killed as any other task in 'tasksToRun'
+		batchByKey.clear();
+		batchTimerByKey.clear();
+		super.kill();
+	}
+
+	/**
+	 * Kill a task. If the task is part of an 'array job', only the
+	 * task's array element is killed (the rest of the tasks keep running)
+	 */
+	@Override
+	public synchronized void kill(Task task) {
+		if (task.isDone()) return; // Nothing to do
+
+		Cmd cmd = getCmd(task);
+		if (cmd instanceof CmdClusterArray) {
+			removeCmd(task); // Don't kill the whole array job (see 'Executioner.kill(task)')
+			((CmdClusterArray) cmd).kill(task);
+		}
+
+		super.kill(task);
+	}
+
+	/**
+	 * Kill one task of an 'array job' (i.e. the task's array element)
+	 */
+	public void killArrayTask(Task task) {
+		// Prepare command line arguments
+		ArrayList<String> args = new ArrayList<String>();
+		for (String arg : osKillCommand(task))
+			args.add(arg);
+		args.add(task.getPid());
+
+		// Run command
+		ExecResult cmdExecResult = Exec.exec(args, true);
+		if (debug) log("Killing array task " + task.getId() //
+				+ "\n\tCommand executed : '" + args + "'" //
+				+ "\n\tExit value       : " + cmdExecResult.exitValue //
+				+ "\n\tStdout           : " + cmdExecResult.stdOut //
+				+ "\n\tStderr           : " + cmdExecResult.stdErr //
+		);
+	}
+
 	@Override
 	protected CheckTasksRunning getCheckTasksRunning() {
 		if (checkTasksRunning == null) {
@@ -369,10 +584,31 @@ public class ExecutionerCluster extends Executioner {
 		);
 	}
 
+	@Override
+	protected void reportsChecksUpdates() {
+		if (isBatch()) batchSubmit(!running);
+		super.reportsChecksUpdates();
+	}
+
 	@Override
 	protected void runTask(Task task, Host host) {
+		host.add(task);
+
+		// Batch mode: Task will be submitted later, as part of an 'array job'
+		if (isBatch()) {
+			batchAdd(task);
+			batchSubmit(false);
+			return;
+		}
+
 		// Create a (shell) command to run task in cluster
-		Cmd cmd = createRunCmd(task);
+		runTask(task, host, createRunCmd(task));
+	}
+
+	/**
+	 * Run a command that submits 'task' to the cluster
+	 */
+	protected void runTask(Task task, Host host, Cmd cmd) {
 		if (cmd != null) {
 			addCmd(task, cmd);
 			cmd.setHost(host);
@@ -381,20 +617,37 @@ public class ExecutionerCluster extends Executioner {
 			cmd.setDebug(debug);
 		}
 
-		host.add(task);
+		runCmd(cmd);
+	}
 
-		// Run command
-		// Note: We run in blocking mode to avoid choking the head node with 
-		// too many threads, too many file descriptors, etc..
-		if (cmd != null) {
-			try {
-				cmd.start();
-				cmd.join(); // Wait for this thread to finish
-			} catch (InterruptedException e) {
-				throw new RuntimeException("Error while waiting for command execution:\n\tCommand: " + cmd, e);
-			}
-		}
+	/**
+	 * Run a command that submits all 'tasks' as one 'array job'
+	 */
+	protected void runTasks(List<Task> tasks) {
+		Cmd cmd = createRunCmd(tasks);
+		cmd.setHost(tasksSelected.get(tasks.get(0)));
+		cmd.setExecutioner(this);
+		cmd.setDebug(debug);
+		for (Task task : tasks)
+			addCmd(task, cmd);
+
+		runCmd(cmd);
+	}
 
+	/**
+	 * Run a 'submit' command
+	 * Note: We run in blocking mode to avoid choking the head node with
+	 * too many threads, too many file descriptors, etc..
+	 */
+	protected void runCmd(Cmd cmd) {
+		if (cmd == null) return;
+
+		try {
+			cmd.start();
+			cmd.join(); // Wait for this thread to finish
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Error while waiting for command execution:\n\tCommand: " + cmd, e);
+		}
 	}
 
 	@Override
@@ -32,6 +32,9 @@ public class ExecutionerClusterGeneric extends ExecutionerCluster {
 		clusterKillAdditionalArgs = new String[0];
 		clusterStatAdditionalArgs = new String[0];
 		clusterPostMortemAdditionalArgs = new String[0];
+
+		// Generic cluster scripts cannot submit 'array jobs'
+		batchSize = 0;
 	}
 
 	@Override
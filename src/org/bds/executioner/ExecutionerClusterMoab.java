@@ -1,5 +1,7 @@
 package org.bds.executioner;
 
+import java.util.List;
+
 import org.bds.Config;
 
 /**
@@ -26,4 +28,14 @@ public class ExecutionerClusterMoab extends ExecutionerCluster {
 		clusterPostMortemInfoCommand = postMortemInfoCommand;
 	}
 
+	/**
+	 * Command line arguments to submit an 'array job' having 'size' tasks
+	 * E.g. 'msub -t name[1-10]'
+	 */
+	@Override
+	protected void addArrayArgs(int size, String name, List<String> args) {
+		args.add("-t");
+		args.add(name.replaceAll("\\W", "_") + "[1-" + size + "]");
+	}
+
 }
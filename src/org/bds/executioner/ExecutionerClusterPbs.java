@@ -5,24 +5,15 @@ import org.bds.Config;
 /**
  * Execute tasks in a PBS cluster.
  *
- * All commands are run using 'qsub' (or equivalent) commands
+ * All commands are run using 'qsub' (or equivalent) commands.
+ * Commands and 'array job' arguments are the same as in MOAB clusters.
  *
  * @author pcingola
  */
-public class ExecutionerClusterPbs extends ExecutionerCluster {
+public class ExecutionerClusterPbs extends ExecutionerClusterMoab {
 
 	public ExecutionerClusterPbs(Config config) {
 		super(config);
-
-		// Define commands
-		String execCommand[] = { "msub" };
-		String killCommand[] = { "canceljob" };
-		String statCommand[] = { "showq" };
-		String postMortemInfoCommand[] = { "checkjob", "-v" };
-
-		clusterRunCommand = execCommand;
-		clusterKillCommand = killCommand;
-		clusterStatCommand = statCommand;
-		clusterPostMortemInfoCommand = postMortemInfoCommand;
 	}
+
 }
@@ -15,7 +15,7 @@ import org.bds.util.Timer;
  */
 public class ExecutionerClusterSge extends ExecutionerCluster {
 
-	public static final String PID_REGEX_DEFAULT = "Your job (\\S+)";
+	public static final String PID_REGEX_DEFAULT = "Your job(?:-array)? (\\S+)";
 
 	String sgePe = "", sgeMem = "", sgeTimeOut = "", sgeTimeOutSoft = "";
 	boolean timeInSecs = false;
@@ -32,6 +32,11 @@ public class ExecutionerClusterSge extends ExecutionerCluster {
 		//		$ echo ls | qsub
 		// 		Your job 33 ("STDIN") has been submitted
 		//
+		// or, when submitting an 'array job':
+		//
+		//		$ echo ls | qsub -t 1-10
+		//		Your job-array 34.1-10:1 ("STDIN") has been submitted
+		//
 		// So, this is a pattern matcher to parse the PID
 		pidRegexStr = config.getPidRegex(PID_REGEX_DEFAULT);
 		pidRegex = Pattern.compile(pidRegexStr);
@@ -97,6 +102,15 @@ public class ExecutionerClusterSge extends ExecutionerCluster {
 		}
 	}
 
+	/**
+	 * Job ID of task number 'index' within an 'array job'
+	 * E.g. Job ID '34.1-10:1' and index 4 => '34.4'
+	 */
+	@Override
+	public String arrayTaskPid(String pid, int index) {
+		return pid.split("\\.")[0] + "." + index;
+	}
+
 	/**
 	 * Represent a time according for 'qsub' command line arguments
 	 */
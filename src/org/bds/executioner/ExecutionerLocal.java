@@ -4,7 +4,9 @@ import java.util.ArrayList;
 
 import org.bds.Config;
 import org.bds.osCmd.Cmd;
+import org.bds.osCmd.CmdLauncher;
 import org.bds.osCmd.CmdLocal;
+import org.bds.osCmd.Launcher;
 import org.bds.task.Task;
 import org.bds.util.Gpr;
 import org.bds.util.Timer;
@@ -23,6 +25,8 @@ public class ExecutionerLocal extends Executioner {
 	public static String LOCAL_KILL_COMMAND[] = { "bds", "kill" };
 	public static String LOCAL_STAT_COMMAND[] = { "ps" };
 
+	protected Launcher launcher; // Launcher process (null if tasks are run as independent processes)
+
 	/**
 	 * Create command line arguments for "bds -exec"
 	 */
@@ -48,6 +52,13 @@ public class ExecutionerLocal extends Executioner {
 		checkTasksRunning = new CheckTasksRunningLocal(config, this);
 		checkTasksRunning.setDebug(config.isDebug());
 		checkTasksRunning.setVerbose(config.isVerbose());
+
+		// Use a launcher process?
+		if (config.getBool(Config.LOCAL_LAUNCHER, false)) {
+			launcher = new Launcher();
+			launcher.setDebug(config.isDebug());
+			if (!launcher.create()) launcher = null; // Could not start launcher: Run each task as a new process
+		}
 	}
 
 	/**
@@ -103,6 +114,20 @@ public class ExecutionerLocal extends Executioner {
 		// Create command line
 		String args[] = createBdsExecCmdArgs(task);
 
+		// Run using launcher process
+		// Note: "Text file busy" happens when a process forked from this JVM inherits
+		//       the descriptor of a program file that is still open for writing.
+		//       The launcher is forked only once, when the executioner is created
+		//       (before any program file is written), and tasks are forked by the
+		//       launcher's shell, not by this JVM. So no task can hold a write
+		//       descriptor of a program file, and we don't need to sleep here.
+		if (launcher != null) {
+			if (debug) Timer.showStdErr("Launching command: " + task.getId());
+			CmdLauncher cmd = new CmdLauncher(task.getId(), args, launcher);
+			cmd.setDebug(debug);
+			return cmd;
+		}
+
 		avoidTextFileBusyError();
 
 		// Join args
@@ -124,6 +149,12 @@ public class ExecutionerLocal extends Executioner {
 	 */
 	@Override
 	protected synchronized void follow(Task task) {
+		// Launcher's commands write STDOUT and STDERR to files only
+		if (launcher != null) {
+			super.follow(task);
+			return;
+		}
+
 		if (taskLogger != null) taskLogger.add(task, this); // Log PID (if any)
 
 		// We need to feed the InputStreams from the process, instead of file names
@@ -145,6 +176,12 @@ public class ExecutionerLocal extends Executioner {
 		if (monitorTask != null) monitorTask.add(this, task); // Start monitoring exit file
 	}
 
+	@Override
+	protected void runExecutionerLoopAfter() {
+		super.runExecutionerLoopAfter();
+		if (launcher != null) launcher.shutdown();
+	}
+
 	@Override
 	public String[] osKillCommand(Task task) {
 		// This is killed internally by 'bds' (see GO program)
@@ -4,6 +4,7 @@ import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.bds.Config;
+import org.bds.task.Task;
 import org.bds.util.Timer;
 
 /**
@@ -74,6 +75,15 @@ public class Executioners {
 		executionersInstance = null;
 	}
 
+	/**
+	 * Dependencies changed state for these tasks: Notify all
+	 * executioners (the tasks may be queued in any of them)
+	 */
+	public void dependencyStateChanged(Collection<Task> tasks) {
+		for (Executioner ex : getAll())
+			ex.dependencyStateChanged(tasks);
+	}
+
 	private Executioners(Config config) {
 		if (executionersInstance != null) throw new RuntimeException("Only one instance is allowed! This is a singleton.");
 		this.config = config;
@@ -2,7 +2,9 @@ package org.bds.executioner;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 
 import org.bds.task.Task;
 import org.bds.task.TaskState;
@@ -12,10 +14,18 @@ import org.bds.util.Timer;
 /**
  * Monitor a task: Check if a task finished by checking if 'exitFile' exists
  *
+ * This implementation checks each 'exitFile' independently (one 'stat' per
+ * task on every update). See MonitorTaskDir and MonitorTaskWatch for
+ * implementations that scale better with the number of tasks.
+ *
  * @author pcingola
  */
 public class MonitorTask {
 
+	public static final String MONITOR_TYPE_POLL = "poll"; // Check each exit file
+	public static final String MONITOR_TYPE_LIST = "list"; // List directories containing exit files
+	public static final String MONITOR_TYPE_WATCH = "watch"; // Filesystem notifications, fall back to listing directories
+
 	// Cluster scheduling is usually quite slow, so we don't need a short monitoring interval.
 	// Reducing this sleep time adds processing and probably has not many benefits.
 	public static final int SLEEP_TIME = 500;
@@ -25,6 +35,27 @@ public class MonitorTask {
 	HashMap<Task, Executioner> execByTask;
 	Timer latestUpdate;
 
+	/**
+	 * Create a task monitor of type 'monitorType'
+	 */
+	public static MonitorTask factory(String monitorType) {
+		if (monitorType == null || monitorType.isEmpty()) monitorType = MONITOR_TYPE_LIST;
+
+		switch (monitorType.toLowerCase()) {
+		case MONITOR_TYPE_POLL:
+			return new MonitorTask();
+
+		case MONITOR_TYPE_LIST:
+			return new MonitorTaskDir();
+
+		case MONITOR_TYPE_WATCH:
+			return new MonitorTaskWatch();
+
+		default:
+			throw new RuntimeException("Unknown task monitor type '" + monitorType + "'");
+		}
+	}
+
 	public MonitorTask() {
 		execByTask = new HashMap<Task, Executioner>();
 		latestUpdate = new Timer();
@@ -42,6 +73,39 @@ public class MonitorTask {
 		execByTask.put(task, executioner);
 	}
 
+	/**
+	 * Find tasks having a (non-empty) 'exitFile'
+	 */
+	protected Collection<Task> exitFileReady() {
+		ArrayList<Task> ready = new ArrayList<Task>();
+
+		for (Task task : execByTask.keySet()) {
+			if (isExitFileOk(task.getExitCodeFile())) ready.add(task);
+		}
+
+		return ready;
+	}
+
+	/**
+	 * Check that 'exitFile' exists and it is not zero length
+	 * From 'Fedor Gusev':
+	 *     ...here NFS is somewhat slow, and the file is still empty
+	 *     and it report exit code as 1. But if I check the file manually, it
+	 *     has 0 in it. I've introduced a check for non-zero length of
+	 *     the file and the problem is gone.
+	 */
+	protected boolean isExitFileOk(String exitFileName) {
+		File exitFile = new File(exitFileName);
+		return exitFile.exists() && exitFile.length() > 0;
+	}
+
+	/**
+	 * Stop monitoring, release resources
+	 */
+	public synchronized void kill() {
+		execByTask.clear();
+	}
+
 	/**
 	 * Run once every SLEEP_TIME
 	 */
@@ -69,38 +133,29 @@ public class MonitorTask {
 		this.verbose = verbose;
 	}
 
+	/**
+	 * Number of tasks being monitored
+	 */
+	public synchronized int size() {
+		return execByTask.size();
+	}
+
 	/**
 	 * Update finished tasks.
 	 * Check if 'exitFile' exist and update states accordingly
 	 */
 	synchronized void updateFinished() {
-		ArrayList<Task> toUpdate = null;
+		if (execByTask.isEmpty()) return;
 
-		for (Task task : execByTask.keySet()) {
-			String exitFileName = task.getExitCodeFile();
-
-			// Check that 'exitFile' exists and it is not zero length
-			// From 'Fedor Gusev':
-			//     ...here NFS is somewhat slow, and the file is still empty
-			//     and it report exit code as 1. But if I check the file manually, it
-			//     has 0 in it. I've introduced a check for non-zero length of
-			//     the file and the problem is gone.
-			File exitFile = new File(exitFileName);
-			boolean exitFileOk = exitFile.exists() && exitFile.length() > 0;
-
-			if (exitFileOk || task.isTimedOut()) {
-				// Create (or add) to tasks to delete
-				if (toUpdate == null) toUpdate = new ArrayList<Task>();
-				toUpdate.add(task);
-			}
-		}
+		// Tasks having an exit file or timed out
+		LinkedHashSet<Task> toUpdate = new LinkedHashSet<Task>(exitFileReady());
+		for (Task task : execByTask.keySet())
+			if (task.isTimedOut()) toUpdate.add(task);
 
-		// An task to delete?
-		if (toUpdate != null) {
-			for (Task task : toUpdate) {
-				updateFinished(task);
-				remove(task); // We don't need to monitor this task any more
-			}
+		// Update finished tasks
+		for (Task task : toUpdate) {
+			updateFinished(task);
+			remove(task); // We don't need to monitor this task any more
 		}
 	}
 
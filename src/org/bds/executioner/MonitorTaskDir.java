@@ -0,0 +1,127 @@
+package org.bds.executioner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bds.task.Task;
+import org.bds.util.Timer;
+
+/**
+ * Monitor tasks by listing the directories containing their 'exitFile'
+ *
+ * Instead of checking each 'exitFile' (one 'stat' per task), we read
+ * each directory once per update (one 'readdir' per directory) and
+ * only check the size of the exit files actually found. This reduces
+ * the load on network file systems (e.g. NFS) when there are many
+ * tasks running.
+ *
+ * @author pcingola
+ */
+public class MonitorTaskDir extends MonitorTask {
+
+	Map<String, Map<String, Task>> tasksByDir; // Tasks indexed by exitFile's directory and file name
+
+	public MonitorTaskDir() {
+		super();
+		tasksByDir = new HashMap<>();
+	}
+
+	@Override
+	public synchronized void add(Executioner executioner, Task task) {
+		if (task == null) return;
+		super.add(executioner, task);
+
+		File exitFile = new File(task.getExitCodeFile()).getAbsoluteFile();
+		String dir = exitFile.getParent();
+
+		Map<String, Task> tasks = tasksByDir.get(dir);
+		if (tasks == null) {
+			tasks = new HashMap<>();
+			tasksByDir.put(dir, tasks);
+			addDir(dir);
+		}
+		tasks.put(exitFile.getName(), task);
+	}
+
+	/**
+	 * A new directory is being monitored
+	 */
+	protected void addDir(String dir) {
+		if (debug) Timer.showStdErr("MonitorTask: Adding directory '" + dir + "'");
+	}
+
+	/**
+	 * Find tasks having a (non-empty) 'exitFile': List each directory once
+	 */
+	@Override
+	protected Collection<Task> exitFileReady() {
+		ArrayList<Task> ready = new ArrayList<>();
+		for (String dir : tasksByDir.keySet())
+			exitFileReady(dir, ready);
+		return ready;
+	}
+
+	/**
+	 * Find tasks having a (non-empty) 'exitFile' in directory 'dir'
+	 */
+	protected void exitFileReady(String dir, Collection<Task> ready) {
+		Map<String, Task> tasks = tasksByDir.get(dir);
+		if (tasks == null) return;
+
+		String[] fileNames = new File(dir).list();
+		if (fileNames == null) return;
+
+		for (String fileName : fileNames) {
+			Task task = tasks.get(fileName);
+			if (task != null && isExitFileOk(task.getExitCodeFile())) ready.add(task);
+		}
+	}
+
+	/**
+	 * Find task having an (non-empty) exit file 'fileName' in directory 'dir'
+	 */
+	protected Task exitFileReady(String dir, String fileName) {
+		Map<String, Task> tasks = tasksByDir.get(dir);
+		if (tasks == null) return null;
+
+		Task task = tasks.get(fileName);
+		if (task != null && isExitFileOk(task.getExitCodeFile())) return task;
+		return null;
+	}
+
+	@Override
+	public synchronized void kill() {
+		for (String dir : new ArrayList<>(tasksByDir.keySet()))
+			removeDir(dir);
+		tasksByDir.clear();
+		super.kill();
+	}
+
+	@Override
+	public synchronized void remove(Task task) {
+		super.remove(task);
+
+		File exitFile = new File(task.getExitCodeFile()).getAbsoluteFile();
+		String dir = exitFile.getParent();
+
+		Map<String, Task> tasks = tasksByDir.get(dir);
+		if (tasks == null || tasks.get(exitFile.getName()) != task) return;
+
+		tasks.remove(exitFile.getName());
+		if (tasks.isEmpty()) {
+			tasksByDir.remove(dir);
+			removeDir(dir);
+		}
+	}
+
+	/**
+	 * A directory is no longer monitored
+	 */
+	protected void removeDir(String dir) {
+		if (debug) Timer.showStdErr("MonitorTask: Removing directory '" + dir + "'");
+	}
+
+}
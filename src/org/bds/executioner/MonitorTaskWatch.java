@@ -0,0 +1,148 @@
+package org.bds.executioner;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.bds.task.Task;
+import org.bds.util.Timer;
+
+/**
+ * Monitor tasks using filesystem notifications (WatchService)
+ *
+ * Each directory containing 'exitFile's is registered once, so that
+ * we only check exit files that have been created or modified.
+ *
+ * Notifications are not delivered for some filesystems (e.g. when an
+ * NFS file is written by a different host), so directories are also
+ * listed periodically (once every SLEEP_TIME_LIST), as in MonitorTaskDir.
+ *
+ * @author pcingola
+ */
+public class MonitorTaskWatch extends MonitorTaskDir {
+
+	public static final int SLEEP_TIME_LIST = 10 * SLEEP_TIME; // Fall back to listing directories
+
+	WatchService watchService;
+	Map<String, WatchKey> watchKeyByDir; // Watch key for each directory
+	Set<String> dirsToList; // Directories that need to be listed in next update
+	Timer latestList;
+
+	public MonitorTaskWatch() {
+		super();
+		watchKeyByDir = new HashMap<>();
+		dirsToList = new LinkedHashSet<>();
+		latestList = new Timer();
+
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+		} catch (IOException | UnsupportedOperationException e) {
+			// No notifications available: We only list directories
+			watchService = null;
+		}
+	}
+
+	@Override
+	protected void addDir(String dir) {
+		super.addDir(dir);
+
+		// Exit files created before registering the directory are not
+		// notified, so we list this directory in the next update
+		dirsToList.add(dir);
+
+		if (watchService == null) return;
+		try {
+			WatchKey watchKey = Paths.get(dir).register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			watchKeyByDir.put(dir, watchKey);
+		} catch (IOException e) {
+			if (debug) Timer.showStdErr("MonitorTask: Cannot watch directory '" + dir + "', using directory listing. " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Find tasks having a (non-empty) 'exitFile': Process filesystem
+	 * notifications, and list directories when needed
+	 */
+	@Override
+	protected Collection<Task> exitFileReady() {
+		LinkedHashSet<Task> ready = new LinkedHashSet<>();
+
+		// Process notifications
+		if (watchService != null) {
+			WatchKey watchKey;
+			while ((watchKey = watchService.poll()) != null) {
+				String dir = watchKey.watchable().toString();
+
+				for (WatchEvent<?> event : watchKey.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						// Events were lost: List directory
+						dirsToList.add(dir);
+					} else {
+						Task task = exitFileReady(dir, ((Path) event.context()).toString());
+						if (task != null) ready.add(task);
+					}
+				}
+
+				// Directory no longer accessible? Fall back to listing
+				if (!watchKey.reset() && watchKeyByDir.remove(dir) != null) dirsToList.add(dir);
+			}
+		}
+
+		// Time to list all directories?
+		if (latestList.elapsed() >= SLEEP_TIME_LIST) {
+			dirsToList.addAll(tasksByDir.keySet());
+			latestList.start();
+		} else if (watchService == null || watchKeyByDir.size() < tasksByDir.size()) {
+			// Directories that are not being watched are listed every time
+			for (String dir : tasksByDir.keySet())
+				if (!watchKeyByDir.containsKey(dir)) dirsToList.add(dir);
+		}
+
+		// List directories
+		if (!dirsToList.isEmpty()) {
+			for (String dir : dirsToList)
+				exitFileReady(dir, ready);
+			dirsToList.clear();
+		}
+
+		return ready;
+	}
+
+	@Override
+	public synchronized void kill() {
+		super.kill();
+
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				// Nothing to do
+			}
+			watchService = null;
+		}
+	}
+
+	@Override
+	protected void removeDir(String dir) {
+		super.removeDir(dir);
+
+		dirsToList.remove(dir);
+		WatchKey watchKey = watchKeyByDir.remove(dir);
+		if (watchKey != null) watchKey.cancel();
+	}
+
+	@Override
+	public String toString() {
+		return "MonitorTaskWatch: directories " + tasksByDir.size() + ", watched " + watchKeyByDir.size();
+	}
+}
@@ -0,0 +1,254 @@
+package org.bds.executioner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bds.cluster.host.HostResources;
+import org.bds.task.DependencyState;
+import org.bds.task.Task;
+import org.bds.task.TaskDependecies;
+
+/**
+ * Tasks queued for execution.
+ *
+ * Tasks are kept in separate sets, according to their dependency state:
+ *   - WAIT  : Waiting for one or more dependencies to finish
+ *   - READY : All dependencies are satisfied. These tasks are indexed
+ *             by the resources they request, so that the scheduler
+ *             only tries one task for each 'resource request' (if
+ *             the first one doesn't fit in any host, none of them do)
+ *   - ERROR : One or more dependencies failed
+ *
+ * Tasks in WAIT state are only re-evaluated when one of their
+ * dependencies finishes (see 'dependencyStateChanged()'), so the
+ * scheduler does not need to walk the dependency graph of every
+ * queued task on every pass. Dependency states are provided by
+ * TaskDependecies' reverse dependency graph.
+ *
+ * Note: Methods are synchronized on this object (and not on the
+ *       executioner), because any executioner can notify that a
+ *       task finished.
+ *
+ * @author pcingola
+ */
+public class TaskQueue implements Iterable<Task> {
+
+	long nextOrder; // Queue order counter
+	Map<Task, Long> orderByTask; // All tasks in the queue and their queue order
+	Set<Task> wait; // Tasks waiting for dependencies
+	Set<Task> waitUpdate; // Tasks waiting for dependencies that need to be re-evaluated
+	Map<String, LinkedHashSet<Task>> readyByResources; // Tasks ready to run, indexed by requested resources
+	List<Task> error; // Tasks that cannot run because a dependency failed
+
+	/**
+	 * A key representing resources requested by a task: Tasks having
+	 * the same key must be interchangeable when selecting a host, so
+	 * all requested resources (and the queue) are included
+	 */
+	public static String resourcesKey(Task task) {
+		HostResources resources = task.getResources();
+		return resources.getCpus() //
+				+ "\t" + resources.getMem() //
+				+ "\t" + resources.getTimeout() //
+				+ "\t" + resources.getWallTimeout() //
+				+ "\t" + task.getQueue() //
+		;
+	}
+
+	public TaskQueue() {
+		orderByTask = new LinkedHashMap<>();
+		wait = new LinkedHashSet<>();
+		waitUpdate = new LinkedHashSet<>();
+		readyByResources = new LinkedHashMap<>();
+		error = new ArrayList<>();
+	}
+
+	/**
+	 * Add a task to the queue (it starts in 'WAIT' state, it
+	 * will be evaluated in the next 'update()')
+	 */
+	public synchronized void add(Task task) {
+		if (orderByTask.containsKey(task)) return;
+		orderByTask.put(task, nextOrder++);
+		wait.add(task);
+		waitUpdate.add(task);
+	}
+
+	/**
+	 * Add a task to the 'ready' set corresponding to its resources
+	 */
+	protected void addReady(Task task) {
+		String key = resourcesKey(task);
+		LinkedHashSet<Task> ready = readyByResources.get(key);
+		if (ready == null) {
+			ready = new LinkedHashSet<>();
+			readyByResources.put(key, ready);
+		}
+		ready.add(task);
+	}
+
+	public synchronized boolean contains(Task task) {
+		return orderByTask.containsKey(task);
+	}
+
+	/**
+	 * Dependencies changed state for these tasks (e.g. a task they
+	 * depend on finished): Re-evaluate them in next update
+	 */
+	public synchronized void dependencyStateChanged(Collection<Task> tasks) {
+		for (Task t : tasks)
+			if (wait.contains(t)) waitUpdate.add(t);
+	}
+
+	/**
+	 * Get and remove tasks that cannot be executed because of dependency errors
+	 */
+	public synchronized List<Task> errors() {
+		if (error.isEmpty()) return Collections.emptyList();
+		List<Task> err = error;
+		error = new ArrayList<>();
+		for (Task t : err)
+			remove(t);
+		return err;
+	}
+
+	public synchronized boolean isEmpty() {
+		return orderByTask.isEmpty();
+	}
+
+	/**
+	 * Iterate over all tasks in the queue (in queue order)
+	 * Note: We iterate over a copy to avoid concurrent modifications
+	 */
+	@Override
+	public synchronized Iterator<Task> iterator() {
+		return new ArrayList<>(orderByTask.keySet()).iterator();
+	}
+
+	/**
+	 * First task in each 'ready' set that can run, one for
+	 * each resource request. Sorted by queue order.
+	 */
+	public synchronized List<Task> readyFirst() {
+		List<Task> tasks = new ArrayList<>(readyByResources.size());
+
+		for (LinkedHashSet<Task> ready : readyByResources.values()) {
+			for (Task t : ready) {
+				if (t.canRun()) {
+					tasks.add(t);
+					break;
+				}
+			}
+		}
+
+		// Sort by queue order
+		if (tasks.size() > 1) {
+			Collections.sort(tasks, new Comparator<Task>() {
+				@Override
+				public int compare(Task t1, Task t2) {
+					return Long.compare(orderByTask.get(t1), orderByTask.get(t2));
+				}
+			});
+		}
+
+		return tasks;
+	}
+
+	/**
+	 * Remove a task from the queue
+	 */
+	public synchronized boolean remove(Task task) {
+		if (orderByTask.remove(task) == null) return false;
+
+		wait.remove(task);
+		waitUpdate.remove(task);
+		removeReady(task);
+		return true;
+	}
+
+	/**
+	 * Remove a task from the 'ready' sets
+	 */
+	protected void removeReady(Task task) {
+		String key = resourcesKey(task);
+		LinkedHashSet<Task> ready = readyByResources.get(key);
+		if (ready == null) return;
+
+		ready.remove(task);
+		if (ready.isEmpty()) readyByResources.remove(key);
+	}
+
+	/**
+	 * A task has been selected for execution: It is no longer
+	 * 'ready', but it stays in the queue until it starts
+	 */
+	public synchronized void selected(Task task) {
+		removeReady(task);
+	}
+
+	public synchronized int size() {
+		return orderByTask.size();
+	}
+
+	public synchronized int sizeReady() {
+		int count = 0;
+		for (Set<Task> ready : readyByResources.values())
+			count += ready.size();
+		return count;
+	}
+
+	public synchronized int sizeWait() {
+		return wait.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Queued: " + size() //
+				+ "\twait: " + wait.size() //
+				+ "\tready: " + sizeReady() //
+				+ "\terror: " + error.size() //
+		;
+	}
+
+	/**
+	 * Re-evaluate dependency state of tasks that need it
+	 * (i.e. one of their dependencies finished since last update)
+	 */
+	public synchronized void update() {
+		if (waitUpdate.isEmpty()) return;
+
+		TaskDependecies taskDependecies = TaskDependecies.get();
+		for (Task task : waitUpdate) {
+			DependencyState dep = taskDependecies.dependencyState(task);
+			switch (dep) {
+			case OK:
+				wait.remove(task);
+				addReady(task);
+				break;
+
+			case WAIT:
+				// Nothing to do: We'll be notified when dependencies finish
+				break;
+
+			case ERROR:
+				wait.remove(task);
+				error.add(task);
+				break;
+
+			default:
+				throw new RuntimeException("Unimplemented dependency state '" + dep + "'");
+			}
+		}
+
+		waitUpdate.clear();
+	}
+
+}
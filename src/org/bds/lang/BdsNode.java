@@ -34,6 +34,7 @@ public abstract class BdsNode implements BdsSerialize {
 	protected BdsNode parent;
 	protected int id, lineNum, charPosInLine; // Source code info
 	protected Type returnType;
+	private byte fastRun; // Can this node run without bookkeeping? (0: Not known yet, 1: Yes, -1: No)
 
 	/**
 	 * Constructor
@@ -381,6 +382,36 @@ public abstract class BdsNode implements BdsSerialize {
 		return id <= 0;
 	}
 
+	/**
+	 * Can this node (and all its sub-nodes) be evaluated without
+	 * BdsThread's bookkeeping (program counter, scopes, checkpoint
+	 * recovery)? I.e. it can never checkpoint, wait, create tasks or
+	 * threads, call functions or need a new scope.
+	 *
+	 * Note: This is calculated only once (after the program is type-checked)
+	 */
+	public boolean isFastRun() {
+		if (fastRun == 0) {
+			boolean fast = isFastRunNode() && !isNeedsScope();
+			if (fast) {
+				for (BdsNode node : findNodes(null, false))
+					if (!(node instanceof Type) && !node.isFastRun()) {
+						fast = false;
+						break;
+					}
+			}
+			fastRun = (byte) (fast ? 1 : -1);
+		}
+		return fastRun > 0;
+	}
+
+	/**
+	 * Can this node be evaluated without bookkeeping (sub-nodes are not checked)
+	 */
+	protected boolean isFastRunNode() {
+		return false;
+	}
+
 	/**
 	 * Is return type int?
 	 */
@@ -433,6 +464,34 @@ public abstract class BdsNode implements BdsSerialize {
 		return true;
 	}
 
+	/**
+	 * Can this node (and all its sub-nodes) be evaluated without side
+	 * effects? I.e. it only assigns variables declared within 'function'
+	 * and only calls side effect free functions (see
+	 * FunctionDeclaration.isSideEffectFree()).
+	 *
+	 * Note: Nodes having side effects (e.g. tasks, 'sys', 'print') say so
+	 * by overriding 'isSideEffectFreeNode'
+	 */
+	public boolean isSideEffectFree(FunctionDeclaration function) {
+		if (!isSideEffectFreeNode(function)) return false;
+
+		for (BdsNode node : findNodes(null, false)) {
+			if (node instanceof Type) continue;
+			if (node instanceof FunctionDeclaration) continue; // Declarations don't run. Calls check the function they invoke
+			if (!node.isSideEffectFree(function)) return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Can this node be evaluated without side effects (sub-nodes are not checked)
+	 */
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return true;
+	}
+
 	/**
 	 * Should we stop in this node when debugging?
 	 */
@@ -781,6 +840,7 @@ public abstract class BdsNode implements BdsSerialize {
 		// Create a new scope?
 		if (isNeedsScope()) {
 			Scope newScope = new Scope(scope, this);
+			newScope.initLayout(); // Assign slots to variables declared in this scope
 			scope = newScope;
 		}
 
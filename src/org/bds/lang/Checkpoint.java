@@ -19,6 +19,11 @@ public class Checkpoint extends Statement {
 		super(parent, tree);
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return false;
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		int idx = 0;
@@ -20,6 +20,11 @@ public class Exit extends Statement {
 		super(parent, tree);
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return false;
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		// child[0] = 'exit'
@@ -17,6 +17,12 @@ public class ExpressionAssignment extends ExpressionBinary {
 		super(parent, tree);
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		// Only assignments to local variables
+		return (left instanceof ReferenceVar) && ((ReferenceVar) left).isFunctionLocal();
+	}
+
 	@Override
 	protected String op() {
 		return "=";
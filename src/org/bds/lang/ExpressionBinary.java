@@ -25,6 +25,11 @@ public class ExpressionBinary extends Expression {
 		return right;
 	}
 
+	@Override
+	protected boolean isFastRunNode() {
+		return true;
+	}
+
 	@Override
 	protected boolean isReturnTypesNotNull() {
 		if (right == null) return (left.getReturnType() != null);
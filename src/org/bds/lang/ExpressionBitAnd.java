@@ -27,7 +27,7 @@ public class ExpressionBitAnd extends ExpressionBit {
 		bdsThread.run(left);
 		bdsThread.run(right);
 		if (bdsThread.isCheckpointRecover()) return;
-		bdsThread.push(bdsThread.popInt() & bdsThread.popInt());
+		bdsThread.pushInt(bdsThread.popInt() & bdsThread.popInt());
 	}
 
 }
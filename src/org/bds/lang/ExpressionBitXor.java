@@ -29,7 +29,7 @@ public class ExpressionBitXor extends ExpressionBit {
 
 		if (bdsThread.isCheckpointRecover()) return;
 
-		bdsThread.push(bdsThread.popInt() ^ bdsThread.popInt());
+		bdsThread.pushInt(bdsThread.popInt() ^ bdsThread.popInt());
 	}
 
 }
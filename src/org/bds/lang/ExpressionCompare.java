@@ -58,10 +58,25 @@ public abstract class ExpressionCompare extends ExpressionBinary {
 
 		if (bdsThread.isCheckpointRecover()) return;
 
+		// Numeric types: Compare without boxing values
+		if (left.isNumeric() && right.isNumeric()) {
+			if (left.isReal() || right.isReal()) {
+				double r = bdsThread.popReal();
+				double l = bdsThread.popReal();
+				bdsThread.pushBool(cmp(l, r));
+				return;
+			} else if (left.isInt() || right.isInt()) {
+				long r = bdsThread.popInt();
+				long l = bdsThread.popInt();
+				bdsThread.pushBool(cmp(l, r));
+				return;
+			}
+		}
+
 		Object rval = bdsThread.pop();
 		Object lval = bdsThread.pop();
 
-		bdsThread.push(compare(bdsThread, lval, rval));
+		bdsThread.pushBool(compare(bdsThread, lval, rval));
 	}
 
 	@Override
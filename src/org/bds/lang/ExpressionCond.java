@@ -23,6 +23,11 @@ public class ExpressionCond extends Expression {
 		super(parent, tree);
 	}
 
+	@Override
+	protected boolean isFastRunNode() {
+		return true;
+	}
+
 	@Override
 	protected boolean isReturnTypesNotNull() {
 		if (expr == null || expr.getReturnType() == null) return false;
@@ -53,6 +53,11 @@ public class ExpressionDepOperator extends Expression {
 		return true;
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return false;
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		// Find 'dependency' operator (i.e. '<-')
@@ -33,12 +33,12 @@ public class ExpressionDivide extends ExpressionMath {
 		if (isInt()) {
 			long r = bdsThread.popInt();
 			long l = bdsThread.popInt();
-			bdsThread.push(l / r);
+			bdsThread.pushInt(l / r);
 			return;
 		} else if (isReal()) {
 			double r = bdsThread.popReal();
 			double l = bdsThread.popReal();
-			bdsThread.push(l / r);
+			bdsThread.pushReal(l / r);
 			return;
 		}
 
@@ -22,6 +22,16 @@ public class ExpressionGoal extends ExpressionUnary {
 		op = "goal";
 	}
 
+	@Override
+	protected boolean isFastRunNode() {
+		return false;
+	}
+
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return false;
+	}
+
 	@Override
 	public Type returnType(Scope scope) {
 		if (returnType != null) return returnType;
@@ -24,7 +24,7 @@ public class ExpressionLogicNot extends ExpressionUnary {
 	public void runStep(BdsThread bdsThread) {
 		bdsThread.run(expr);
 		if (bdsThread.isCheckpointRecover()) return;
-		bdsThread.push(!bdsThread.popBool());
+		bdsThread.pushBool(!bdsThread.popBool());
 	}
 
 	@Override
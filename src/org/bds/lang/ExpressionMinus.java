@@ -30,12 +30,12 @@ public class ExpressionMinus extends ExpressionMath {
 
 			// This should be an unary expression!
 			if (isInt()) {
-				bdsThread.push(-bdsThread.popInt());
+				bdsThread.pushInt(-bdsThread.popInt());
 				return;
 			}
 
 			if (isReal()) {
-				bdsThread.push(-bdsThread.popReal());
+				bdsThread.pushReal(-bdsThread.popReal());
 				return;
 			}
 		} else {
@@ -47,14 +47,14 @@ public class ExpressionMinus extends ExpressionMath {
 			if (isInt()) {
 				long r = bdsThread.popInt();
 				long l = bdsThread.popInt();
-				bdsThread.push(l - r);
+				bdsThread.pushInt(l - r);
 				return;
 			}
 
 			if (isReal()) {
 				double r = bdsThread.popReal();
 				double l = bdsThread.popReal();
-				bdsThread.push(l - r);
+				bdsThread.pushReal(l - r);
 				return;
 			}
 
@@ -32,7 +32,7 @@ public class ExpressionModulo extends ExpressionMath {
 
 		long den = bdsThread.popInt();
 		long num = bdsThread.popInt();
-		bdsThread.push(num % den);
+		bdsThread.pushInt(num % den);
 	}
 
 	@Override
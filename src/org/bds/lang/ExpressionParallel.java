@@ -21,7 +21,7 @@ public class ExpressionParallel extends ExpressionTask {
 	 */
 	BdsThread createParallel(BdsThread bdsThread) {
 		BdsThread bdsNewThread = new BdsThread(statement, bdsThread);
-		bdsNewThread.start();
+		bdsNewThread.startThread();
 		return bdsNewThread;
 	}
 
@@ -30,7 +30,7 @@ public class ExpressionParallel extends ExpressionTask {
 	 */
 	FunctionCallThread createParallelFunctionCall(BdsThread bdsThread, Object arguments[]) {
 		FunctionCallThread bdsNewThread = new FunctionCallThread(this, getFunctionCall(), bdsThread, arguments);
-		bdsNewThread.start();
+		bdsNewThread.startThread();
 		return bdsNewThread;
 	}
 
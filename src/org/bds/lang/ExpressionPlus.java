@@ -63,14 +63,14 @@ public class ExpressionPlus extends ExpressionMath {
 		if (isInt()) {
 			long r = bdsThread.popInt();
 			long l = bdsThread.popInt();
-			bdsThread.push(l + r);
+			bdsThread.pushInt(l + r);
 			return;
 		}
 
 		if (isReal()) {
 			double r = bdsThread.popReal();
 			double l = bdsThread.popReal();
-			bdsThread.push(l + r);
+			bdsThread.pushReal(l + r);
 			return;
 		}
 
@@ -39,6 +39,11 @@ public class ExpressionSys extends Expression {
 		return sys;
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return false;
+	}
+
 	/**
 	 * Get a sys ID
 	 */
@@ -121,21 +126,26 @@ public class ExpressionSys extends Expression {
 
 		execId("exec", getFileName(), null, bdsThread);
 
-		// EXEC expressions are always executed locally AND immediately
-		LinkedList<String> args = new LinkedList<>();
-		String shell = Config.get().getSysShell();
-		for (String arg : shell.split("\\s+"))
-			args.add(arg);
-
 		// Interpolated variables
 		String cmds = getCommands(bdsThread);
 		if (bdsThread.isCheckpointRecover()) return;
 
-		args.add(cmds);
-
-		// Run command line
+		// EXEC expressions are always executed locally AND immediately
 		boolean quiet = !(bdsThread.getConfig().isVerbose() || bdsThread.getConfig().isDebug() || bdsThread.getConfig().isLog());
-		ExecResult execResult = Exec.exec(args, quiet);
+		ExecResult execResult;
+		if (bdsThread.getConfig().getBool(Config.SYS_COPROCESS, false)) {
+			// Send command to thread's shell process
+			execResult = bdsThread.getSysCoprocess().exec(cmds, bdsThread.getCurrentDir(), quiet);
+		} else {
+			// Run command line
+			LinkedList<String> args = new LinkedList<>();
+			String shell = Config.get().getSysShell();
+			for (String arg : shell.split("\\s+"))
+				args.add(arg);
+			args.add(cmds);
+
+			execResult = Exec.exec(args, quiet);
+		}
 
 		// Error running process?
 		int exitValue = execResult.exitValue;
@@ -8,6 +8,7 @@ import org.bds.compile.CompilerMessage.MessageType;
 import org.bds.compile.CompilerMessages;
 import org.bds.data.Data;
 import org.bds.data.DataRemote;
+import org.bds.data.TransferManifest;
 import org.bds.executioner.Executioner;
 import org.bds.executioner.Executioners;
 import org.bds.run.BdsThread;
@@ -39,6 +40,8 @@ public class ExpressionTask extends ExpressionWithScope {
 
 	public static final String CMD_DOWNLOAD = "bds -download";
 	public static final String CMD_UPLOAD = "bds -upload";
+	public static final String CMD_TRANSFER = "bds -transfer";
+	public static final String CMD_TRANSFER_EOF = "BDS_TRANSFER_EOF";
 
 	// Note:	It is important that 'options' node is type-checked before the others in order to
 	//			add variables to the scope before statements uses them.
@@ -71,6 +74,9 @@ public class ExpressionTask extends ExpressionWithScope {
 		HashMap<String, String> replace = new HashMap<>();
 		StringBuilder sbDown = new StringBuilder();
 		StringBuilder sbUp = new StringBuilder();
+		StringBuilder sbDownManifest = new StringBuilder();
+		StringBuilder sbUpManifest = new StringBuilder();
+		int countDown = 0, countUp = 0;
 
 		if (taskDependency != null) {
 			//---
@@ -85,6 +91,8 @@ public class ExpressionTask extends ExpressionWithScope {
 								+ " \"" + dataIn.getAbsolutePath() + "\"" //
 								+ " \"" + dataIn.getLocalPath() + "\"" //
 								+ "\n");
+						sbDownManifest.append(TransferManifest.DOWNLOAD + "\t" + dataIn.getAbsolutePath() + "\t" + dataIn.getLocalPath() + "\n");
+						countDown++;
 
 						replace.put(dataIn.getAbsolutePath(), dataIn.getLocalPath());
 					}
@@ -103,6 +111,8 @@ public class ExpressionTask extends ExpressionWithScope {
 								+ " \"" + dataOut.getLocalPath() + "\"" //
 								+ " \"" + dataOut.getAbsolutePath() + "\"" //
 								+ "\n");
+						sbUpManifest.append(TransferManifest.UPLOAD + "\t" + dataOut.getLocalPath() + "\t" + dataOut.getAbsolutePath() + "\n");
+						countUp++;
 
 						replace.put(dataOut.getAbsolutePath(), dataOut.getLocalPath());
 
@@ -126,6 +136,10 @@ public class ExpressionTask extends ExpressionWithScope {
 		// Replace all occurrences of remote references
 		sysCmds = replace(replace, sysCmds);
 
+		// More than one file? Transfer all of them using only one process
+		if (countDown > 1) sbDown = transferCommand(sbDownManifest);
+		if (countUp > 1) sbUp = transferCommand(sbUpManifest);
+
 		// Put everything together
 		StringBuilder sbSys = new StringBuilder();
 		if (sbDown.length() > 0) {
@@ -232,6 +246,11 @@ public class ExpressionTask extends ExpressionWithScope {
 		return true;
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return false;
+	}
+
 	@Override
 	public boolean isStopDebug() {
 		return true;
@@ -397,6 +416,17 @@ public class ExpressionTask extends ExpressionWithScope {
 		}
 	}
 
+	/**
+	 * Command transferring all files in a manifest (the manifest is a 'here document')
+	 */
+	StringBuilder transferCommand(StringBuilder manifest) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(CMD_TRANSFER + " " + TransferManifest.STDIN + " <<'" + CMD_TRANSFER_EOF + "'\n");
+		sb.append(manifest);
+		sb.append(CMD_TRANSFER_EOF + "\n");
+		return sb;
+	}
+
 	@Override
 	public String toString() {
 		return "task" //
@@ -18,6 +18,11 @@ public class ExpressionUnary extends Expression {
 		super(parent, tree);
 	}
 
+	@Override
+	protected boolean isFastRunNode() {
+		return true;
+	}
+
 	@Override
 	protected boolean isReturnTypesNotNull() {
 		return expr.getReturnType() != null;
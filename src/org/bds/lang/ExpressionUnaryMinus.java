@@ -39,10 +39,10 @@ public class ExpressionUnaryMinus extends ExpressionUnary {
 		bdsThread.run(expr);
 		if (bdsThread.isCheckpointRecover()) return;
 
-		if (returnType == Type.INT) {
-			bdsThread.push(-bdsThread.popInt());
-		} else if (returnType == Type.REAL) {
-			bdsThread.push(-bdsThread.popReal());
+		if (returnType.isInt()) {
+			bdsThread.pushInt(-bdsThread.popInt());
+		} else if (returnType.isReal()) {
+			bdsThread.pushReal(-bdsThread.popReal());
 		} else throw new RuntimeException("Cannot cast to 'int' or 'real'. This should never happen!");
 	}
 
@@ -20,7 +20,7 @@ public class ExpressionUnaryPlus extends ExpressionUnaryMinus {
 	 */
 	@Override
 	public void runStep(BdsThread bdsThread) {
-		if ((returnType == Type.INT) || (returnType == Type.REAL)) bdsThread.run(expr);
+		if (returnType.isInt() || returnType.isReal()) bdsThread.run(expr);
 		else throw new RuntimeException("Cannot cast to 'int' or 'real'. This should never happen!");
 	}
 }
@@ -22,6 +22,11 @@ public class ExpressionWrapper extends Expression {
 		return expression;
 	}
 
+	@Override
+	protected boolean isFastRunNode() {
+		return true;
+	}
+
 	@Override
 	protected boolean isReturnTypesNotNull() {
 		return expression.getReturnType() != null;
@@ -8,6 +8,11 @@ import java.util.Map;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.bds.compile.CompilerMessages;
 import org.bds.compile.CompilerMessage.MessageType;
+import org.bds.data.Data;
+import org.bds.lang.nativeFunctions.FunctionNativeRangeInt;
+import org.bds.lang.nativeFunctions.FunctionNativeRangeIntStep;
+import org.bds.lang.nativeFunctions.FunctionNativeRangeReal;
+import org.bds.lang.nativeMethods.string.MethodNative_string_readLines;
 import org.bds.run.BdsThread;
 import org.bds.run.RunState;
 import org.bds.scope.Scope;
@@ -31,6 +36,7 @@ public class ForLoopList extends StatementWithScope {
 	Statement statement;
 	String iterableListName;
 	String iterableCountName;
+	String iterableSourceName;
 
 	public ForLoopList(BdsNode parent, ParseTree tree) {
 		super(parent, tree);
@@ -66,18 +72,50 @@ public class ForLoopList extends StatementWithScope {
 
 	/**
 	 * Iterable values (list of elements to iterate)
+	 * Values are stored in the scope, so that checkpoints can save them
 	 */
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	protected ArrayList initIterableValues(BdsThread bdsThread, ScopeSymbol varSym) {
-		// Evaluate list
-		bdsThread.run(expression);
+	@SuppressWarnings("rawtypes")
+	protected ForLoopListIterator initIterableValues(BdsThread bdsThread, ScopeSymbol varSym, ArrayList iterableValues) {
+		iterableListName = ScopeSymbol.INTERNAL_SYMBOL_START + "iterableList." + getFileName() + "." + getLineNum() + "." + getCharPosInLine();
+		Type iterableListType = TypeList.get(varSym.getType());
+		ScopeSymbol ssIterableList = new ScopeSymbol(iterableListName, iterableListType, iterableValues);
+		bdsThread.getScope().add(ssIterableList);
 
+		return new ForLoopListIteratorList(iterableValues);
+	}
+
+	/**
+	 * Iterator on the elements of the collection
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected ForLoopListIterator initIterator(BdsThread bdsThread, ScopeSymbol varSym) {
 		// Are we recovering state from a checkpoint file?
 		if (bdsThread.isCheckpointRecover()) {
-			ScopeSymbol ssIterableList = bdsThread.getScope().getSymbol(iterableListName);
-			return (ArrayList) ssIterableList.getValue();
+			bdsThread.run(expression);
+			Scope scope = bdsThread.getScope();
+			ScopeSymbol ssIterableSource = (iterableSourceName != null ? scope.getSymbol(iterableSourceName) : null);
+			if (ssIterableSource != null) return ForLoopListIterator.factory((List<String>) ssIterableSource.getValue());
+			return new ForLoopListIteratorList((ArrayList) scope.getSymbol(iterableListName).getValue());
 		}
 
+		// Can we iterate without evaluating the expression (i.e. without creating the whole list)?
+		ForLoopListIterator it = initIteratorLazy(bdsThread);
+		if (it != null) {
+			// Iterable source (so that checkpoints can re-create the iterator)
+			List<String> source = it.getSource();
+			if (source != null) {
+				iterableSourceName = ScopeSymbol.INTERNAL_SYMBOL_START + "iterableSource." + getFileName() + "." + getLineNum() + "." + getCharPosInLine();
+				ScopeSymbol ssIterableSource = new ScopeSymbol(iterableSourceName, TypeList.get(Type.STRING), new ArrayList<>(source));
+				bdsThread.getScope().add(ssIterableSource);
+				return it;
+			}
+
+			return initIterableValues(bdsThread, varSym, new ArrayList());
+		}
+
+		// Evaluate list
+		bdsThread.run(expression);
+
 		//---
 		// Find (or create) a collection we can iterate on
 		//---
@@ -93,15 +131,49 @@ public class ForLoopList extends StatementWithScope {
 			iterableValues.add(res);
 		}
 
-		//---
-		// Iterable list
-		//---
-		iterableListName = ScopeSymbol.INTERNAL_SYMBOL_START + "iterableList." + getFileName() + "." + getLineNum() + "." + getCharPosInLine();
-		Type iterableListType = TypeList.get(varSym.getType());
-		ScopeSymbol ssIterableList = new ScopeSymbol(iterableListName, iterableListType, iterableValues);
-		bdsThread.getScope().add(ssIterableList);
+		return initIterableValues(bdsThread, varSym, iterableValues);
+	}
 
-		return iterableValues;
+	/**
+	 * Create an iterator without evaluating the expression, for
+	 * expressions that can produce a large number of values:
+	 * 		- file.readLines()	: Read lines one by one
+	 * 		- range(...)		: Values are calculated on the fly
+	 *
+	 * @return An iterator or null if expression cannot be iterated lazily
+	 */
+	@SuppressWarnings("rawtypes")
+	protected ForLoopListIterator initIteratorLazy(BdsThread bdsThread) {
+		if (!(expression instanceof FunctionCall)) return null;
+
+		FunctionCall fcall = (FunctionCall) expression;
+		FunctionDeclaration fdecl = fcall.getFunctionDeclaration();
+		if (!(fdecl instanceof MethodNative_string_readLines) //
+				&& !(fdecl instanceof FunctionNativeRangeInt) //
+				&& !(fdecl instanceof FunctionNativeRangeIntStep) //
+				&& !(fdecl instanceof FunctionNativeRangeReal) //
+		) return null;
+
+		// Evaluate function arguments only
+		fcall.evalFunctionArguments(bdsThread);
+		Object arguments[] = (Object[]) bdsThread.pop();
+
+		// Range
+		if (fdecl instanceof FunctionNativeRangeInt) return new ForLoopListIteratorRange((Long) arguments[0], (Long) arguments[1], 1L);
+		if (fdecl instanceof FunctionNativeRangeIntStep) return new ForLoopListIteratorRange((Long) arguments[0], (Long) arguments[1], (Long) arguments[2]);
+		if (fdecl instanceof FunctionNativeRangeReal) return new ForLoopListIteratorRange((Double) arguments[0], (Double) arguments[1], (Double) arguments[2]);
+
+		// Read lines: Download data if necessary (same as 'readLines()')
+		Data data = bdsThread.data(arguments[0].toString());
+		if (data.isRemote() //
+				&& !data.isDownloaded() //
+				&& !data.download() //
+		) return new ForLoopListIteratorList(new ArrayList()); // Download error
+
+		// Local file doesn't exist? Iterate on an empty list
+		if (!Gpr.exists(data.getLocalPath())) return new ForLoopListIteratorList(new ArrayList());
+
+		return new ForLoopListIteratorFile(data.getLocalPath());
 	}
 
 	@Override
@@ -126,48 +198,59 @@ public class ForLoopList extends StatementWithScope {
 	/**
 	 * Run
 	 */
-	@SuppressWarnings({ "rawtypes" })
 	@Override
 	public void runStep(BdsThread bdsThread) {
 		ScopeSymbol varSym = initBeginDecl(bdsThread);
-		ArrayList iterableValues = initIterableValues(bdsThread, varSym);
-		ScopeSymbol iterableCount = initIterableCounter(bdsThread);
-
-		// First element to iterate.
-		// Note: This could be set by a checkpoint recovery, so we have to read it from the scope
-		long interStart = (Long) iterableCount.getValue(); //
-
-		// Iterate on collection
-		for (int iter = (int) interStart; iter < iterableValues.size(); iter++) {
-			iterableCount.setValue(iter); // Update scope symbol (so that checkpoints can save state)
-
-			// Get the element we are iterating on
-			Object o = iterableValues.get(iter);
-			varSym.setValue(varSym.getType().cast(o));
-
-			bdsThread.run(statement); // Loop statement
 
-			switch (bdsThread.getRunState()) {
-			case OK:
-			case CHECKPOINT_RECOVER:
-				break;
-
-			case BREAK: // Break from loop
-				bdsThread.setRunState(RunState.OK);
-				return;
-
-			case CONTINUE: // Continue: Nothing to do, just continue with the next iteration
-				bdsThread.setRunState(RunState.OK);
-				break;
+		ForLoopListIterator it;
+		try {
+			it = initIterator(bdsThread, varSym);
+		} catch (Throwable t) {
+			bdsThread.fatalError(this, t);
+			return;
+		}
 
-			case FATAL_ERROR:
-			case RETURN: // Return
-			case EXIT: // Exit program
-				return;
+		ScopeSymbol iterableCount = initIterableCounter(bdsThread);
 
-			default:
-				throw new RuntimeException("Unhandled RunState: " + bdsThread.getRunState());
+		try {
+			// First element to iterate.
+			// Note: This could be set by a checkpoint recovery, so we have to read it from the scope
+			long iterStart = (Long) iterableCount.getValue();
+			if (iterStart > 0) it.seek(iterStart);
+
+			// Iterate on collection
+			while (it.hasNext()) {
+				// Get the element we are iterating on
+				Object o = it.next();
+				iterableCount.setValue(it.getPosition()); // Update scope symbol (so that checkpoints can save state)
+				varSym.setValue(varSym.getType().cast(o));
+
+				bdsThread.run(statement); // Loop statement
+
+				switch (bdsThread.getRunState()) {
+				case OK:
+				case CHECKPOINT_RECOVER:
+					break;
+
+				case BREAK: // Break from loop
+					bdsThread.setRunState(RunState.OK);
+					return;
+
+				case CONTINUE: // Continue: Nothing to do, just continue with the next iteration
+					bdsThread.setRunState(RunState.OK);
+					break;
+
+				case FATAL_ERROR:
+				case RETURN: // Return
+				case EXIT: // Exit program
+					return;
+
+				default:
+					throw new RuntimeException("Unhandled RunState: " + bdsThread.getRunState());
+				}
 			}
+		} finally {
+			it.close();
 		}
 	}
 
@@ -0,0 +1,84 @@
+package org.bds.lang;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Iterate over the values of a 'for( var : expression )' loop
+ *
+ * Each element has a 'position' (e.g. index in a list, or byte
+ * offset in a file). The position of the current element is stored
+ * in the loop's scope, so iteration can be resumed after recovering
+ * from a checkpoint.
+ *
+ * @author pcingola
+ */
+public abstract class ForLoopListIterator {
+
+	// Lazy sources (values are not stored in checkpoints, only the source)
+	public static final String SOURCE_READ_LINES = "readLines";
+	public static final String SOURCE_RANGE_INT = "rangeInt";
+	public static final String SOURCE_RANGE_REAL = "rangeReal";
+
+	protected long position = -1; // Position of the current element
+
+	/**
+	 * Create an iterator from a source description (see 'getSource()')
+	 */
+	public static ForLoopListIterator factory(List<String> source) {
+		String type = source.get(0);
+		switch (type) {
+		case SOURCE_READ_LINES:
+			return new ForLoopListIteratorFile(source.get(1));
+
+		case SOURCE_RANGE_INT:
+			return new ForLoopListIteratorRange(Long.parseLong(source.get(1)), Long.parseLong(source.get(2)), Long.parseLong(source.get(3)));
+
+		case SOURCE_RANGE_REAL:
+			return new ForLoopListIteratorRange(Double.parseDouble(source.get(1)), Double.parseDouble(source.get(2)), Double.parseDouble(source.get(3)));
+
+		default:
+			throw new RuntimeException("Unknown iterator source '" + type + "'");
+		}
+	}
+
+	/**
+	 * Create a source description
+	 */
+	protected static List<String> source(String type, Object... args) {
+		List<String> source = new ArrayList<>();
+		source.add(type);
+		for (Object arg : args)
+			source.add(arg.toString());
+		return source;
+	}
+
+	/**
+	 * Release resources (e.g. close files)
+	 */
+	public void close() {
+	}
+
+	/**
+	 * Position of the current element (i.e. the one returned by last 'next()' invocation)
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Source description, used to re-create the iterator when
+	 * recovering from a checkpoint. Null if the iterator is not lazy
+	 */
+	public abstract List<String> getSource();
+
+	public abstract boolean hasNext();
+
+	public abstract Object next();
+
+	/**
+	 * Set iterator so that 'next()' returns the element at 'position'
+	 */
+	public abstract void seek(long position);
+
+}
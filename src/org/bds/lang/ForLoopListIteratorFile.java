@@ -0,0 +1,185 @@
+package org.bds.lang;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.bds.util.Gpr;
+
+/**
+ * Iterate over the lines of a file (i.e. 'for( l : file.readLines() )')
+ * without reading the whole file into memory.
+ * Position is the byte offset where the line starts (in the uncompressed
+ * file, if the file is gzipped)
+ *
+ * Note: Lines are the same as the ones returned by 'readLines()', i.e.
+ * trailing empty lines are dropped and an empty file has one empty line
+ *
+ * @author pcingola
+ */
+public class ForLoopListIteratorFile extends ForLoopListIterator {
+
+	public static final int BUFFER_SIZE = 64 * 1024;
+
+	String fileName;
+	InputStream input;
+	boolean eof;
+	long offset; // Offset of next byte to read
+	byte line[]; // Line buffer
+	String next; // Next line (null if there are no more lines)
+	long nextStart; // Offset of next line
+	boolean emptyFile; // Set when an empty file is detected
+	int emptyLines; // Empty lines waiting to be returned (only returned if a non-empty line follows)
+	long emptyLinesStart; // Offset of first pending empty line
+	String held; // Non-empty line held until pending empty lines are returned
+	long heldStart; // Offset of held line
+
+	public ForLoopListIteratorFile(String fileName) {
+		this.fileName = fileName;
+		line = new byte[1024];
+		seek(0);
+	}
+
+	/**
+	 * Find next line
+	 */
+	void advance() {
+		next = null;
+
+		// Pending empty lines?
+		if (emptyLines > 0) {
+			emptyLines--;
+			next = "";
+			nextStart = emptyLinesStart++;
+			return;
+		}
+
+		// Line held until empty lines were returned?
+		if (held != null) {
+			next = held;
+			nextStart = heldStart;
+			held = null;
+			return;
+		}
+
+		while (true) {
+			long start = offset;
+			String l = readLine();
+
+			if (l == null) {
+				// Empty file: Return one empty line, as 'readLines()' does
+				if (start == 0 && !emptyFile) {
+					emptyFile = true;
+					next = "";
+					nextStart = 0;
+				}
+
+				return; // Note: Trailing empty lines are dropped
+			}
+
+			if (l.isEmpty()) {
+				if (emptyLines == 0) emptyLinesStart = start;
+				emptyLines++;
+			} else if (emptyLines > 0) {
+				held = l;
+				heldStart = start;
+				advance();
+				return;
+			} else {
+				next = l;
+				nextStart = start;
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		if (input == null) return;
+		try {
+			input.close();
+		} catch (IOException e) {
+			// Nothing to do
+		}
+		input = null;
+	}
+
+	@Override
+	public List<String> getSource() {
+		return source(SOURCE_READ_LINES, fileName);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	@Override
+	public Object next() {
+		String l = next;
+		position = nextStart;
+		advance();
+		return l;
+	}
+
+	/**
+	 * Read bytes until a new line (or end of file)
+	 * @return A line (without the '\n') or null if there is nothing else to read
+	 */
+	String readLine() {
+		if (eof) return null;
+
+		try {
+			int len = 0;
+			int b;
+			while ((b = input.read()) >= 0) {
+				offset++;
+				if (b == '\n') return new String(line, 0, len, Charset.defaultCharset());
+				if (len >= line.length) line = Arrays.copyOf(line, 2 * line.length);
+				line[len++] = (byte) b;
+			}
+
+			eof = true;
+			close();
+			return len > 0 ? new String(line, 0, len, Charset.defaultCharset()) : null;
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException("Error reading file '" + fileName + "'", e);
+		}
+	}
+
+	@Override
+	public void seek(long position) {
+		close();
+		if (!Gpr.exists(fileName)) throw new RuntimeException("File not found '" + fileName + "'");
+
+		try {
+			InputStream in = new FileInputStream(fileName);
+			if (fileName.endsWith(".gz")) in = new GZIPInputStream(in, BUFFER_SIZE);
+			input = new BufferedInputStream(in, BUFFER_SIZE);
+
+			// Skip bytes
+			offset = 0;
+			while (offset < position) {
+				long skipped = input.skip(position - offset);
+				if (skipped <= 0) break;
+				offset += skipped;
+			}
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException("Error opening file '" + fileName + "'", e);
+		}
+
+		eof = false;
+		emptyFile = position > 0; // Only an empty file if we are reading from the beginning
+		emptyLines = 0;
+		held = null;
+		advance();
+	}
+
+}
@@ -0,0 +1,42 @@
+package org.bds.lang;
+
+import java.util.List;
+
+/**
+ * Iterate over a list of values. Position is the element's index
+ *
+ * @author pcingola
+ */
+public class ForLoopListIteratorList extends ForLoopListIterator {
+
+	@SuppressWarnings("rawtypes")
+	List values;
+	int idx; // Index of next element
+
+	@SuppressWarnings("rawtypes")
+	public ForLoopListIteratorList(List values) {
+		this.values = values;
+	}
+
+	@Override
+	public List<String> getSource() {
+		return null;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return idx < values.size();
+	}
+
+	@Override
+	public Object next() {
+		position = idx;
+		return values.get(idx++);
+	}
+
+	@Override
+	public void seek(long position) {
+		idx = (int) position;
+	}
+
+}
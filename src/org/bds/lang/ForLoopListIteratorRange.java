@@ -0,0 +1,78 @@
+package org.bds.lang;
+
+import java.util.List;
+
+/**
+ * Iterate over the values of 'range(min, max, step)' without
+ * creating the list. Position is the element's index
+ *
+ * Note: Values are calculated exactly as 'range()' does, i.e.
+ * by adding 'step' to the previous value (this matters for reals)
+ *
+ * Note: As in 'range()', there are no elements if 'min > max' (for
+ * any 'step'). If 'min <= max' and 'step <= 0', 'range()' never ends,
+ * so we report an error instead of looping forever
+ *
+ * @author pcingola
+ */
+public class ForLoopListIteratorRange extends ForLoopListIterator {
+
+	boolean real;
+	long minInt, maxInt, stepInt, nextInt;
+	double minReal, maxReal, stepReal, nextReal;
+	long idx; // Index of next element
+
+	public ForLoopListIteratorRange(double min, double max, double step) {
+		if (step <= 0 && min <= max) throw new RuntimeException("Invalid range step " + step + ", range(" + min + ", " + max + ", " + step + ") never ends");
+		real = true;
+		minReal = min;
+		maxReal = max;
+		stepReal = step;
+		seek(0);
+	}
+
+	public ForLoopListIteratorRange(long min, long max, long step) {
+		if (step <= 0 && min <= max) throw new RuntimeException("Invalid range step " + step + ", range(" + min + ", " + max + ", " + step + ") never ends");
+		minInt = min;
+		maxInt = max;
+		stepInt = step;
+		seek(0);
+	}
+
+	@Override
+	public List<String> getSource() {
+		if (real) return source(SOURCE_RANGE_REAL, minReal, maxReal, stepReal);
+		return source(SOURCE_RANGE_INT, minInt, maxInt, stepInt);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (real) return nextReal <= maxReal;
+		return nextInt <= maxInt && nextInt >= minInt; // Second condition checks for overflow
+	}
+
+	@Override
+	public Object next() {
+		position = idx++;
+		if (real) {
+			double value = nextReal;
+			nextReal += stepReal;
+			return value;
+		}
+
+		long value = nextInt;
+		nextInt += stepInt;
+		return value;
+	}
+
+	@Override
+	public void seek(long position) {
+		idx = position;
+		if (real) {
+			nextReal = minReal;
+			for (long i = 0; i < position; i++)
+				nextReal += stepReal;
+		} else nextInt = minInt + position * stepInt;
+	}
+
+}
@@ -63,6 +63,11 @@ public class FunctionCall extends Expression {
 		return true;
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return (functionDeclaration != null) && functionDeclaration.isSideEffectFree();
+	}
+
 	@Override
 	public boolean isStopDebug() {
 		return true;
@@ -23,6 +23,7 @@ public class FunctionDeclaration extends StatementWithScope {
 	protected Parameters parameters;
 	protected Statement statement;
 	protected String signature;
+	private byte sideEffectFree; // Is this function side effect free? (0: Not known yet, 1: Yes, -1: No)
 
 	public FunctionDeclaration(BdsNode parent, ParseTree tree) {
 		super(parent, tree);
@@ -125,6 +126,25 @@ public class FunctionDeclaration extends StatementWithScope {
 		return false;
 	}
 
+	/**
+	 * Can this function be evaluated without side effects? I.e. it only
+	 * assigns its own arguments and local variables and it only calls
+	 * side effect free functions (no tasks, 'sys', 'print', etc.).
+	 * Such a function can be applied concurrently (e.g. 'list.pmap()').
+	 *
+	 * Note: This is conservative (e.g. recursive functions are not side
+	 * effect free) and it is calculated only once (after the program is
+	 * type-checked)
+	 */
+	public boolean isSideEffectFree() {
+		if (sideEffectFree == 0) {
+			sideEffectFree = -1; // Recursive calls are not side effect free
+			boolean free = (statement != null) && statement.isSideEffectFree(this);
+			sideEffectFree = (byte) (free ? 1 : -1);
+		}
+		return sideEffectFree > 0;
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		returnType = (Type) factory(tree, 0);
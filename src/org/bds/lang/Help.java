@@ -23,6 +23,11 @@ public class Help extends Statement {
 		return helpString;
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return false;
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		helpString = tree.getText();
@@ -21,6 +21,11 @@ public class Kill extends Statement {
 		super(parent, tree);
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		return false;
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		// child[0] = 'Kill'
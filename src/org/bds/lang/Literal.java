@@ -15,6 +15,11 @@ public class Literal extends Expression {
 		super(parent, tree);
 	}
 
+	@Override
+	protected boolean isFastRunNode() {
+		return true;
+	}
+
 	@Override
 	protected boolean isReturnTypesNotNull() {
 		return true;
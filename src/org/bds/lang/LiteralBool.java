@@ -23,7 +23,7 @@ public class LiteralBool extends Literal {
 	 */
 	@Override
 	public void runStep(BdsThread bdsThread) {
-		bdsThread.push(value);
+		bdsThread.pushBool(value);
 	}
 
 	public boolean isValue() {
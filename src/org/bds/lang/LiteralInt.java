@@ -20,7 +20,7 @@ public class LiteralInt extends Literal {
 
 	@Override
 	public void runStep(BdsThread bdsThread) {
-		bdsThread.push(value);
+		bdsThread.pushInt(value);
 	}
 
 	public long getValue() {
@@ -20,7 +20,7 @@ public class LiteralReal extends Literal {
 
 	@Override
 	public void runStep(BdsThread csThread) {
-		csThread.push(value);
+		csThread.pushReal(value);
 	}
 
 	public double getValue() {
@@ -39,7 +39,7 @@ public class Post extends Pre {
 		else if (operation == PrePostOperation.DECREMENT) ref.setValue(bdsThread, value - 1);
 		else throw new RuntimeException("Unknown operator " + operation);
 
-		bdsThread.push(value);
+		bdsThread.pushInt(value);
 	}
 
 	@Override
@@ -21,6 +21,12 @@ public class Pre extends ExpressionUnary {
 		super(parent, tree);
 	}
 
+	@Override
+	protected boolean isSideEffectFreeNode(FunctionDeclaration function) {
+		// Only local variables can be incremented / decremented
+		return (expr instanceof ReferenceVar) && ((ReferenceVar) expr).isFunctionLocal();
+	}
+
 	@Override
 	protected void parse(ParseTree tree) {
 		operation = PrePostOperation.parse(tree.getChild(0).getText());
@@ -44,7 +50,7 @@ public class Pre extends ExpressionUnary {
 		else throw new RuntimeException("Unknown operator " + operation);
 
 		ref.setValue(bdsThread, value);
-		bdsThread.push(value);
+		bdsThread.pushInt(value);
 	}
 
 	@Override
@@ -2,7 +2,9 @@ package org.bds.lang;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.antlr.v4.runtime.ANTLRFileStream;
 import org.antlr.v4.runtime.CharStream;
@@ -58,6 +60,26 @@ public class ProgramUnit extends BlockWithFile {
 		runScope = bdsThread.getScope();
 	}
 
+	/**
+	 * Resolve variable references to scope slots.
+	 * Invoked once the whole program is type-checked, so no
+	 * slots are assigned or resolved while the program is running
+	 */
+	public void resolveSlots() {
+		for (BdsNode node : findNodes(ReferenceVar.class, true))
+			((ReferenceVar) node).resolve();
+	}
+
+	/**
+	 * Create the scope holding all functions (this is done when type-checking).
+	 * Used when a program is loaded without type-checking (e.g. from compiled program cache)
+	 */
+	public void restoreScope() {
+		Scope scope = new Scope(new Scope(), this);
+		typeCheck(scope, null);
+		setScope(scope);
+	}
+
 	public void setBdsThread(BdsThread bdsThread) {
 		this.bdsThread = bdsThread;
 	}
@@ -87,7 +109,10 @@ public class ProgramUnit extends BlockWithFile {
 	protected void typeCheck(Scope scope, CompilerMessages compilerMessages) {
 		// Add all functions
 		List<BdsNode> funcs = findNodes(FunctionDeclaration.class, true);
+		Set<BdsNode> added = new HashSet<>();
 		for (BdsNode func : funcs) {
+			if (!added.add(func)) continue; // Already added (a function can be found more than once, e.g. in a type-checked program)
+
 			// Create scope symbol
 			FunctionDeclaration fd = (FunctionDeclaration) func;
 			TypeFunc typeFunc = new TypeFunc(fd);
@@ -23,6 +23,11 @@ public abstract class Reference extends Expression {
 		return (ss != null) && ss.isConstant();
 	}
 
+	@Override
+	protected boolean isFastRunNode() {
+		return true;
+	}
+
 	public boolean isVariable(Scope scope) {
 		ScopeSymbol ss = getScopeSymbol(scope);
 		return (ss != null);
@@ -1,5 +1,7 @@
 package org.bds.lang;
 
+import java.util.ArrayList;
+
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.bds.compile.CompilerMessages;
 import org.bds.compile.CompilerMessage.MessageType;
@@ -15,6 +17,12 @@ import org.bds.scope.ScopeSymbol;
 public class ReferenceVar extends Reference {
 
 	protected String name;
+	protected boolean functionLocal; // Is the variable declared in the enclosing function (i.e. a function argument or local variable)?
+	private Scope typeCheckScope; // Scope used during type-checking (used to resolve the variable's slot)
+	private boolean resolved; // Has the variable's slot been resolved?
+	private Scope slotLayout; // Layout of the scope declaring the variable
+	private int slot = -1; // Variable's slot in 'slotLayout' (negative if not available)
+	private Scope skipLayouts[]; // Layouts of scopes between this reference and the declaring scope
 
 	/**
 	 * Create a reference form a string
@@ -46,7 +54,8 @@ public class ReferenceVar extends Reference {
 	 */
 	@Override
 	public ScopeSymbol getScopeSymbol(Scope scope) {
-		return scope.getSymbol(name);
+		if (slot < 0) return scope.getSymbol(name); // No slot (or not resolved yet, e.g. during type-checking)
+		return scope.getSymbol(name, slotLayout, slot, skipLayouts);
 	}
 
 	@Override
@@ -54,6 +63,15 @@ public class ReferenceVar extends Reference {
 		return name;
 	}
 
+	/**
+	 * Is this variable declared in the enclosing function (i.e. a
+	 * function argument or local variable)?
+	 * Note: Returns false if it has not been resolved (e.g. not type-checked)
+	 */
+	public boolean isFunctionLocal() {
+		return functionLocal;
+	}
+
 	@Override
 	protected boolean isReturnTypesNotNull() {
 		return returnType != null;
@@ -69,6 +87,52 @@ public class ReferenceVar extends Reference {
 		name = str;
 	}
 
+	/**
+	 * Resolve variable's slot using the scopes created during type-checking.
+	 * Note: This is done after the whole program is type-checked (see
+	 * 'ProgramUnit.resolveSlots()'), because scopes are complete only then
+	 */
+	protected void resolve() {
+		if (resolved || typeCheckScope == null) return;
+
+		ArrayList<Scope> skip = new ArrayList<>();
+		for (Scope scope = typeCheckScope; scope != null; scope = scope.getParent()) {
+			Scope layout = scope.getLayout();
+
+			if (scope.getSymbolLocal(name) != null) {
+				// Declaring scope found
+				if (layout == scope) {
+					slotLayout = layout;
+					slot = layout.getSlot(name);
+					skipLayouts = skip.toArray(new Scope[0]);
+				}
+				break;
+			}
+
+			// Functions are resolved by name
+			if (scope.getFunctionsLocal(name) != null || layout != scope) break;
+
+			skip.add(layout);
+		}
+
+		// Is the node declaring the variable within the enclosing function?
+		BdsNode function = this;
+		while (function != null && !(function instanceof FunctionDeclaration))
+			function = function.getParent();
+
+		for (Scope scope = typeCheckScope; scope != null && function != null; scope = scope.getParent()) {
+			if (scope.getSymbolLocal(name) != null) {
+				for (BdsNode n = scope.getNode(); n != null && !functionLocal; n = n.getParent())
+					functionLocal = (n == function);
+				break;
+			}
+			if (scope.getFunctionsLocal(name) != null) break;
+		}
+
+		typeCheckScope = null;
+		resolved = true;
+	}
+
 	@Override
 	public Type returnType(Scope scope) {
 		if (returnType != null) return returnType;
@@ -85,7 +149,7 @@ public class ReferenceVar extends Reference {
 	 */
 	@Override
 	public void runStep(BdsThread bdsThread) {
-		ScopeSymbol ss = bdsThread.getScope().getSymbol(name);
+		ScopeSymbol ss = getScopeSymbol(bdsThread.getScope());
 		if (ss == null) bdsThread.fatalError(this, "Cannot find variable '" + name + "'");
 		bdsThread.push(ss.getValue());
 	}
@@ -110,6 +174,7 @@ public class ReferenceVar extends Reference {
 	protected void typeCheck(Scope scope, CompilerMessages compilerMessages) {
 		// Calculate return type
 		returnType(scope);
+		typeCheckScope = scope;
 
 		if (!scope.hasSymbol(name)) compilerMessages.add(this, "Symbol '" + name + "' cannot be resolved", MessageType.ERROR);
 	}
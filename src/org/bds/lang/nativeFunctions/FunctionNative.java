@@ -62,6 +62,15 @@ public abstract class FunctionNative extends FunctionDeclaration {
 		return true;
 	}
 
+	/**
+	 * Native functions are side effect free unless they say otherwise
+	 * (e.g. printing, random numbers, file system or task operations)
+	 */
+	@Override
+	public boolean isSideEffectFree() {
+		return true;
+	}
+
 	@Override
 	public void runFunction(BdsThread bdsThread) {
 		try {
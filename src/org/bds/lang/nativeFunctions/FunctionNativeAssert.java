@@ -14,6 +14,11 @@ public abstract class FunctionNativeAssert extends FunctionNative {
 		super();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	public void runFunction(BdsThread bdsThread) {
 		try {
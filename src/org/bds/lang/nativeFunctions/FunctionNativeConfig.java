@@ -30,6 +30,11 @@ public class FunctionNativeConfig extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	protected Object parseFile(BdsThread bdsThread, String fileName, HashMap<String, String> configOri) {
 		// Sanity check
 		if (!Gpr.canRead(fileName)) bdsThread.fatalError(this, "Cannot read config file '" + fileName + "'");
@@ -28,6 +28,11 @@ public class FunctionNativeLog extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runFunctionNative(BdsThread csThread) {
 		String str = csThread.getString("str");
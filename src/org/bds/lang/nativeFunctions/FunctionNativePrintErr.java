@@ -27,6 +27,11 @@ public class FunctionNativePrintErr extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runFunctionNative(BdsThread csThread) {
 		String str = csThread.getString("str");
@@ -28,6 +28,11 @@ public class FunctionNativePrintHelp extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runFunctionNative(BdsThread bdsThread) {
 		HelpCreator hc = new HelpCreator(bdsThread.getRoot().getProgramUnit());
@@ -26,6 +26,11 @@ public class FunctionNativeRand extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runFunctionNative(BdsThread csThread) {
 		return csThread.getRandom().nextDouble();
@@ -26,6 +26,11 @@ public class FunctionNativeRandIntRange extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runFunctionNative(BdsThread csThread) {
 		long range = csThread.getInt("range");
@@ -26,6 +26,11 @@ public class FunctionNativeRandSeed extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runFunctionNative(BdsThread csThread) {
 		long seed = csThread.getInt("seed");
@@ -4,6 +4,7 @@ import org.bds.lang.Parameters;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.run.BdsThread;
+import org.bds.run.ParallelExecutor;
 
 /**
  * Native function "sleep"
@@ -27,12 +28,17 @@ public class FunctionNativeSleep extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runFunctionNative(BdsThread csThread) {
 		long secs = csThread.getInt("seconds");
 		if (secs <= 0) return false;
 		try {
-			Thread.sleep(secs * 1000);
+			ParallelExecutor.sleep(secs * 1000);
 		} catch (InterruptedException e) {
 			return false;
 		}
@@ -4,6 +4,7 @@ import org.bds.lang.Parameters;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.run.BdsThread;
+import org.bds.run.ParallelExecutor;
 
 /**
  * Native function "sleep"
@@ -27,12 +28,17 @@ public class FunctionNativeSleepReal extends FunctionNative {
 		addNativeFunctionToScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runFunctionNative(BdsThread csThread) {
 		double secs = csThread.getReal("seconds");
 		if (secs <= 0) return false;
 		try {
-			Thread.sleep((long) (secs * 1000));
+			ParallelExecutor.sleep((long) (secs * 1000));
 		} catch (InterruptedException e) {
 			return false;
 		}
@@ -64,6 +64,15 @@ public abstract class MethodNative extends MethodDeclaration {
 		return true;
 	}
 
+	/**
+	 * Native methods are side effect free unless they say otherwise
+	 * (e.g. methods modifying the object, file system or task operations)
+	 */
+	@Override
+	public boolean isSideEffectFree() {
+		return true;
+	}
+
 	@Override
 	public void runFunction(BdsThread bdsThread) {
 		// Get object 'this'
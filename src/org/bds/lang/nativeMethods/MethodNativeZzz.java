@@ -27,6 +27,11 @@ public class MethodNativeZzz extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
 		return objThis.toString();
@@ -32,6 +32,11 @@ public class MethodNativeListAddIndex extends MethodNativeList {
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
 		ArrayList list = (ArrayList) objThis;
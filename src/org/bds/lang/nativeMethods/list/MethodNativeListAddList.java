@@ -34,6 +34,11 @@ public class MethodNativeListAddList extends MethodNativeList {
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
 		ArrayList list = (ArrayList) objThis;
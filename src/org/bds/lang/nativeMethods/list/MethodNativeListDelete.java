@@ -31,6 +31,11 @@ public class MethodNativeListDelete extends MethodNativeList {
 	}
 
 	@SuppressWarnings({ "rawtypes" })
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		List list = (List) objThis;
@@ -54,6 +54,11 @@ public class MethodNativeListFilter extends MethodNativeList {
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		ArrayList list = (ArrayList) objThis;
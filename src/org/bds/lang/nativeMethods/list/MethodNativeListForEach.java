@@ -54,6 +54,11 @@ public class MethodNativeListForEach extends MethodNativeList {
 	}
 
 	@SuppressWarnings({ "rawtypes" })
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		ArrayList list = (ArrayList) objThis;
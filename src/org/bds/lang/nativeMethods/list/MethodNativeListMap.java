@@ -67,6 +67,11 @@ public class MethodNativeListMap extends MethodNativeList {
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		ArrayList list = (ArrayList) objThis;
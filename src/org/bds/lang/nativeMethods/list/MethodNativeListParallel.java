@@ -0,0 +1,130 @@
+package org.bds.lang.nativeMethods.list;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bds.lang.FunctionDeclaration;
+import org.bds.lang.Type;
+import org.bds.run.BdsThread;
+import org.bds.util.Gpr;
+
+/**
+ * Apply a function to all elements in a list, in parallel
+ *
+ * The list is partitioned into chunks that are processed by a fork-join
+ * pool. Each chunk is processed on its own lightweight BdsThread (see
+ * 'BdsThread(BdsThread)'), so function's arguments and local variables
+ * are not shared. Results are stored by index, so they are in the same
+ * order as if the function was applied sequentially.
+ *
+ * Only side effect free functions are applied in parallel (see
+ * 'FunctionDeclaration.isSideEffectFree()'), other functions are applied
+ * sequentially on the calling thread.
+ *
+ * @author pcingola
+ */
+public abstract class MethodNativeListParallel extends MethodNativeList {
+
+	public static int CHUNKS_PER_THREAD = 4; // Split the list into this many chunks per pool thread (balances load when some elements take longer)
+
+	/**
+	 * Apply function to list elements in [start, end)
+	 */
+	@SuppressWarnings("serial")
+	class ApplyTask extends RecursiveAction {
+
+		BdsThread bdsThread;
+		FunctionDeclaration function;
+		List<?> list;
+		Object results[];
+		int start, end, chunkSize;
+		AtomicReference<String> error; // First error message (shared by all tasks)
+
+		ApplyTask(ApplyTask task, int start, int end) {
+			this(task.bdsThread, task.function, task.list, task.results, start, end, task.chunkSize, task.error);
+		}
+
+		ApplyTask(BdsThread bdsThread, FunctionDeclaration function, List<?> list, Object results[], int start, int end, int chunkSize, AtomicReference<String> error) {
+			this.bdsThread = bdsThread;
+			this.function = function;
+			this.list = list;
+			this.results = results;
+			this.start = start;
+			this.end = end;
+			this.chunkSize = chunkSize;
+			this.error = error;
+		}
+
+		@Override
+		protected void compute() {
+			// Split
+			if (end - start > chunkSize) {
+				int mid = (start + end) >>> 1;
+				invokeAll(new ApplyTask(this, start, mid), new ApplyTask(this, mid, end));
+				return;
+			}
+
+			// Apply function on a new lightweight context
+			BdsThread bdsThreadChunk = new BdsThread(bdsThread);
+			for (int i = start; i < end && error.get() == null; i++) {
+				try {
+					results[i] = function.apply(bdsThreadChunk, list.get(i));
+				} catch (Throwable t) {
+					String msg = bdsThreadChunk.getFatalErrorMessage();
+					error(msg != null ? msg : t.getMessage());
+				}
+			}
+		}
+
+		void error(String msg) {
+			error.compareAndSet(null, msg != null ? msg : "Error applying function '" + function.getFunctionName() + "'");
+		}
+	}
+
+	public MethodNativeListParallel(Type baseType) {
+		super(baseType);
+	}
+
+	/**
+	 * Apply function to all elements in the list
+	 * @return Function's results (same order as the list)
+	 */
+	protected Object[] apply(BdsThread bdsThread, FunctionDeclaration function, List<?> list) {
+		Object results[] = new Object[list.size()];
+
+		// Cannot run in parallel? Apply sequentially
+		if (list.size() < 2 || !function.isSideEffectFree() || bdsThread.isCheckpointRecover() || bdsThread.getDebugMode() != null) {
+			if (bdsThread.isDebug() && !function.isSideEffectFree()) Gpr.debug("Function '" + function.getFunctionName() + "' may have side effects, applying sequentially");
+
+			for (int i = 0; i < results.length; i++)
+				results[i] = function.apply(bdsThread, list.get(i));
+			return results;
+		}
+
+		// Apply in parallel
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int chunkSize = Math.max(1, list.size() / (pool.getParallelism() * CHUNKS_PER_THREAD));
+		AtomicReference<String> error = new AtomicReference<>();
+		pool.invoke(new ApplyTask(bdsThread, function, list, results, 0, list.size(), chunkSize, error));
+		if (error.get() != null) throw new RuntimeException(error.get());
+
+		return results;
+	}
+
+	/**
+	 * Get function argument 'f' and check that its return type can be cast to 'returnType'
+	 */
+	protected FunctionDeclaration getFunction(BdsThread bdsThread, Type returnType) {
+		FunctionDeclaration function = (FunctionDeclaration) bdsThread.getObject("f");
+		if (!function.getReturnType().canCast(returnType)) bdsThread.fatalError(this, "Cannot cast " + function.getReturnType() + " to " + returnType);
+		return function;
+	}
+
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
+}
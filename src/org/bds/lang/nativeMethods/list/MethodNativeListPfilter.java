@@ -0,0 +1,53 @@
+package org.bds.lang.nativeMethods.list;
+
+import java.util.ArrayList;
+
+import org.bds.lang.FunctionDeclaration;
+import org.bds.lang.Parameters;
+import org.bds.lang.Type;
+import org.bds.lang.TypeFunc;
+import org.bds.lang.TypeList;
+import org.bds.run.BdsThread;
+
+/**
+ * Parallel filter: Filter elements form a list by applying a function
+ * that returns a 'bool' (see MethodNativeListParallel)
+ *
+ * @author pcingola
+ */
+public class MethodNativeListPfilter extends MethodNativeListParallel {
+
+	public MethodNativeListPfilter(Type baseType) {
+		super(baseType);
+	}
+
+	@Override
+	protected void initMethod(Type baseType) {
+		functionName = "pfilter";
+		classType = TypeList.get(baseType);
+		returnType = TypeList.get(baseType);
+
+		TypeFunc typeFunc = TypeFunc.get(Parameters.get(baseType, ""), Type.BOOL);
+		String argNames[] = { "this", "f" };
+		Type argTypes[] = { classType, typeFunc };
+		parameters = Parameters.get(argTypes, argNames);
+
+		addNativeMethodToClassScope();
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		ArrayList list = (ArrayList) objThis;
+		ArrayList newList = new ArrayList();
+
+		// Get function
+		FunctionDeclaration function = getFunction(bdsThread, Type.BOOL);
+
+		Object results[] = apply(bdsThread, function, list);
+		for (int i = 0; i < results.length; i++)
+			if ((Boolean) Type.BOOL.cast(results[i])) newList.add(list.get(i));
+
+		return newList;
+	}
+}
@@ -0,0 +1,50 @@
+package org.bds.lang.nativeMethods.list;
+
+import java.util.ArrayList;
+
+import org.bds.lang.FunctionDeclaration;
+import org.bds.lang.Parameters;
+import org.bds.lang.Type;
+import org.bds.lang.TypeFunc;
+import org.bds.lang.TypeList;
+import org.bds.run.BdsThread;
+
+/**
+ * Parallel foreach: Apply a function to all elements in the list (see MethodNativeListParallel)
+ *
+ * Note: Functions having side effects are applied sequentially
+ *
+ * @author pcingola
+ */
+public class MethodNativeListPforEach extends MethodNativeListParallel {
+
+	public MethodNativeListPforEach(Type baseType) {
+		super(baseType);
+	}
+
+	@Override
+	protected void initMethod(Type baseType) {
+		functionName = "pforeach";
+		classType = TypeList.get(baseType);
+		returnType = TypeList.get(baseType);
+
+		TypeFunc typeFunc = TypeFunc.get(Parameters.get(baseType, ""), Type.BOOL);
+		String argNames[] = { "this", "f" };
+		Type argTypes[] = { classType, typeFunc };
+		parameters = Parameters.get(argTypes, argNames);
+
+		addNativeMethodToClassScope();
+	}
+
+	@SuppressWarnings({ "rawtypes" })
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		ArrayList list = (ArrayList) objThis;
+
+		// Get function
+		FunctionDeclaration function = (FunctionDeclaration) bdsThread.getObject("f");
+		apply(bdsThread, function, list);
+
+		return list;
+	}
+}
@@ -0,0 +1,56 @@
+package org.bds.lang.nativeMethods.list;
+
+import java.util.ArrayList;
+
+import org.bds.lang.FunctionDeclaration;
+import org.bds.lang.Parameters;
+import org.bds.lang.Type;
+import org.bds.lang.TypeFunc;
+import org.bds.lang.TypeList;
+import org.bds.run.BdsThread;
+
+/**
+ * Parallel map: Apply a function to all elements in the list (see MethodNativeListParallel)
+ *
+ * @author pcingola
+ */
+public class MethodNativeListPmap extends MethodNativeListParallel {
+
+	public Type returnBaseType; // This is public because otherwise reflections in type checking won't be able to access it
+
+	public MethodNativeListPmap(Type baseType) {
+		super(baseType);
+	}
+
+	@Override
+	protected void initMethod(Type baseType) {
+		functionName = "pmap";
+		classType = TypeList.get(baseType);
+		returnBaseType = baseType;
+		returnType = TypeList.get(baseType);
+
+		TypeFunc typeFunc = TypeFunc.get(Parameters.get(baseType, ""), Type.ANY);
+		String argNames[] = { "this", "f" };
+		Type argTypes[] = { classType, typeFunc };
+		parameters = Parameters.get(argTypes, argNames);
+
+		addNativeMethodToClassScope();
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
+		ArrayList list = (ArrayList) objThis;
+
+		// Get function
+		FunctionDeclaration function = getFunction(bdsThread, returnBaseType);
+
+		// Map
+		Object results[] = apply(bdsThread, function, list);
+		ArrayList res = new ArrayList(results.length);
+		for (Object r : results)
+			res.add(returnBaseType.cast(r)); // Cast to list's type
+
+		return res;
+	}
+}
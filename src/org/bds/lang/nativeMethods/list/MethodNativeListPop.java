@@ -32,6 +32,11 @@ public class MethodNativeListPop extends MethodNativeList {
 	}
 
 	@SuppressWarnings("rawtypes")
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
 		ArrayList list = (ArrayList) objThis;
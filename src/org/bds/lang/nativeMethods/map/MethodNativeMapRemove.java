@@ -32,6 +32,11 @@ public class MethodNativeMapRemove extends MethodNativeMap {
 	}
 
 	@SuppressWarnings({ "rawtypes" })
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread csThread, Object objThis) {
 		HashMap map = (HashMap) objThis;
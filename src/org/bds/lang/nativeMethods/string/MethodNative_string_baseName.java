@@ -23,6 +23,11 @@ public class MethodNative_string_baseName extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		String filePath = objThis.toString();
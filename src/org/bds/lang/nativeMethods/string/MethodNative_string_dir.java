@@ -26,6 +26,11 @@ public class MethodNative_string_dir extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		ArrayList<String> list = bdsThread.data(objThis.toString()).list();
@@ -31,6 +31,11 @@ public class MethodNative_string_dirPath_regex extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	/**
 	 * Does the path match?
 	 */
@@ -30,6 +30,11 @@ public class MethodNative_string_dir_regex extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	/**
 	 * Does the path match?
 	 */
@@ -23,6 +23,11 @@ public class MethodNative_string_download extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		Data data = bdsThread.data(objThis.toString());
@@ -23,6 +23,11 @@ public class MethodNative_string_download_localname extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		String localName = bdsThread.getString("localName");
@@ -22,6 +22,11 @@ public class MethodNative_string_exists extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		return (bdsThread.data(objThis.toString())).exists();
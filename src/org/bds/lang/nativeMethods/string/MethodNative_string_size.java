@@ -22,6 +22,11 @@ public class MethodNative_string_size extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		return (long) (bdsThread.data(objThis.toString())).size();
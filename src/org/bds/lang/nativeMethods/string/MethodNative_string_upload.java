@@ -24,6 +24,11 @@ public class MethodNative_string_upload extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		Data data = bdsThread.data(objThis.toString());
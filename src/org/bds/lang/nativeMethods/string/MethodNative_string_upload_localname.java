@@ -24,6 +24,11 @@ public class MethodNative_string_upload_localname extends MethodNative {
 		addNativeMethodToClassScope();
 	}
 
+	@Override
+	public boolean isSideEffectFree() {
+		return false;
+	}
+
 	@Override
 	protected Object runMethodNative(BdsThread bdsThread, Object objThis) {
 		String localName = bdsThread.getString("localName");
@@ -0,0 +1,163 @@
+package org.bds.osCmd;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bds.executioner.ExecutionerCluster;
+import org.bds.task.Task;
+import org.bds.task.TaskState;
+
+/**
+ * A command that submits several tasks to a cluster as one 'array job'
+ * (e.g. 'qsub -t 1-N')
+ *
+ * The cluster reports one job ID for the whole array, each task
+ * gets its own 'array task' ID (e.g. 'jobId.N' or 'jobId[N]'), so
+ * tasks can still be tracked and killed individually (killing a task
+ * only kills its array element, see 'kill(task)').
+ *
+ * @author pcingola
+ */
+public class CmdClusterArray extends CmdCluster {
+
+	protected List<Task> tasks; // Tasks in this array job (array index is 'list index + 1')
+	protected Set<Task> tasksKilled; // Tasks killed individually (the rest of the array job keeps running)
+
+	public CmdClusterArray(String id, String[] args, List<Task> tasks) {
+		super(id, args);
+		this.tasks = tasks;
+		tasksKilled = new HashSet<>();
+	}
+
+	@Override
+	protected void addError(String errMsg) {
+		super.addError(errMsg);
+		if (errMsg != null) {
+			for (Task t : tasksAlive())
+				t.setErrorMsg(error);
+		}
+	}
+
+	@Override
+	protected void execDone() {
+		stateDone();
+		if (notifyTaskState != null) {
+			for (Task t : tasksAlive())
+				notifyTaskState.taskRunning(t);
+		}
+	}
+
+	@Override
+	protected void execError(Throwable t, TaskState taskState, int exitCode) {
+		stateDone();
+		exitValue = exitCode;
+
+		addError(t != null ? t.getMessage() : null);
+
+		if (debug && t != null) t.printStackTrace();
+
+		for (Task tt : tasksAlive()) {
+			tt.setExitValue(exitCode);
+			if (notifyTaskState != null) notifyTaskState.taskFinished(tt, taskState);
+		}
+	}
+
+	public List<Task> getTasks() {
+		return tasks;
+	}
+
+	@Override
+	public void kill() {
+		if (debug) log("Process killed");
+
+		killCmd();
+
+		// Notify end of execution
+		for (Task t : tasksAlive()) {
+			t.setExitValue(Task.EXITCODE_KILLED);
+			if (notifyTaskState != null) notifyTaskState.taskFinished(t, TaskState.KILLED);
+		}
+	}
+
+	/**
+	 * Kill only one task (i.e. its array element), the rest of
+	 * the tasks in the array job keep running
+	 *
+	 * Note: The caller is responsible for notifying the task's end
+	 * of execution (see 'ExecutionerCluster.kill(task)')
+	 */
+	public void kill(Task task) {
+		synchronized (this) {
+			if (!tasks.contains(task) || !tasksKilled.add(task)) return;
+		}
+
+		if (debug) log("Killing task '" + task.getId() + "', PID '" + task.getPid() + "'");
+
+		// Array job ID not available yet? The array element is killed when we read it (see 'readPid()')
+		if (task.getPid() != null && !task.getPid().isEmpty()) killArrayTask(task);
+	}
+
+	/**
+	 * Kill a task's array element in the cluster
+	 */
+	protected void killArrayTask(Task task) {
+		if (pidParser instanceof ExecutionerCluster) ((ExecutionerCluster) pidParser).killArrayTask(task);
+	}
+
+	/**
+	 * Read array job ID and set each task's ID
+	 */
+	@Override
+	protected boolean readPid() throws InterruptedException, IOException {
+		if (!super.readPid()) return false;
+		if (pid == null || pid.isEmpty()) return true;
+
+		for (int i = 0; i < tasks.size(); i++) {
+			String taskPid;
+			if (pidParser instanceof ExecutionerCluster) taskPid = ((ExecutionerCluster) pidParser).arrayTaskPid(pid, i + 1);
+			else taskPid = pid + "." + (i + 1);
+			tasks.get(i).setPid(taskPid);
+		}
+
+		// Kill array elements of tasks killed while the array job was being submitted
+		for (Task t : tasksKilled())
+			killArrayTask(t);
+
+		return true;
+	}
+
+	@Override
+	protected void stateRunning() {
+		started = true;
+		if (notifyTaskState != null) {
+			for (Task t : tasksAlive())
+				notifyTaskState.taskStarted(t);
+		}
+	}
+
+	@Override
+	protected void stateStarted() {
+		started = true;
+	}
+
+	/**
+	 * Tasks that have not been killed individually
+	 */
+	public synchronized List<Task> tasksAlive() {
+		List<Task> alive = new ArrayList<>(tasks.size());
+		for (Task t : tasks)
+			if (!tasksKilled.contains(t)) alive.add(t);
+		return alive;
+	}
+
+	/**
+	 * Tasks killed individually
+	 */
+	protected synchronized List<Task> tasksKilled() {
+		return new ArrayList<>(tasksKilled);
+	}
+
+}
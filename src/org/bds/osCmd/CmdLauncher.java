@@ -0,0 +1,141 @@
+package org.bds.osCmd;
+
+import org.bds.executioner.Executioner;
+import org.bds.executioner.ExecutionerLocal;
+import org.bds.task.Task;
+
+/**
+ * A command executed by a Launcher process
+ *
+ * No thread or process is created for this command: The command
+ * is sent to the launcher, which reports PID and exit code back
+ *
+ * @author pcingola
+ */
+public class CmdLauncher extends Cmd {
+
+	public static final int PID_WAIT_TIME = 1000; // Check launcher state every now and then, while waiting for PID
+
+	protected Launcher launcher;
+	protected String pid;
+	protected boolean launched; // Has 'exec()' finished (i.e. task states have been notified)?
+	protected boolean exitReported; // Has the launcher reported an exit code?
+	protected volatile boolean killed;
+
+	public CmdLauncher(String id, String args[], Launcher launcher) {
+		super(id, args);
+		this.launcher = launcher;
+	}
+
+	/**
+	 * Command is executed by the launcher: Nothing to do
+	 */
+	@Override
+	protected void execCmd() throws Exception {
+	}
+
+	/**
+	 * Launch request has been processed. The exit code may
+	 * have been already reported (very short commands)
+	 */
+	@Override
+	protected void execDone() {
+		boolean notify;
+		synchronized (this) {
+			launched = true;
+			notify = exitReported;
+		}
+		if (notify) notifyFinished();
+	}
+
+	/**
+	 * Send 'run' request to launcher and wait for PID
+	 */
+	@Override
+	protected boolean execPrepare() throws Exception {
+		if (!launcher.launch(this)) {
+			addError("Launcher not running");
+			return false;
+		}
+
+		synchronized (this) {
+			while (pid == null && !exitReported && launcher.isRunning())
+				wait(PID_WAIT_TIME);
+		}
+
+		if (pid == null) {
+			addError("Launcher did not report a PID");
+			return false;
+		}
+
+		if (task != null) task.setPid(pid);
+		return true;
+	}
+
+	/**
+	 * Launcher reported that the command finished
+	 */
+	public void finished(int exitValue) {
+		boolean notify;
+		synchronized (this) {
+			if (exitReported) return;
+			this.exitValue = exitValue;
+			exitReported = true;
+			notify = launched;
+			notifyAll(); // Wake up 'execPrepare' (if it's waiting for PID)
+		}
+		if (notify) notifyFinished();
+	}
+
+	public String getPid() {
+		return pid;
+	}
+
+	@Override
+	protected void killCmd() {
+		killed = true;
+		if (pid == null) return;
+
+		// Use the same 'kill' command as 'CmdLocal'
+		String argsKill[] = null;
+		if (notifyTaskState != null && (notifyTaskState instanceof Executioner) && (task != null)) argsKill = ((Executioner) notifyTaskState).osKillCommand(task);
+		if (argsKill == null) argsKill = ExecutionerLocal.LOCAL_KILL_COMMAND;
+
+		String args[] = new String[argsKill.length + 1];
+		for (int i = 0; i < argsKill.length; i++)
+			args[i] = argsKill[i];
+		args[argsKill.length] = pid;
+
+		if (debug) log("Killing process '" + pid + "'");
+		launcher.kill(id, args);
+		addError("Killed!\n");
+	}
+
+	/**
+	 * Notify that the command finished
+	 */
+	protected void notifyFinished() {
+		stateDone();
+		if (killed) return; // Already notified by 'kill()'
+
+		if (task != null) {
+			task.setExitValue(exitValue);
+			if (notifyTaskState != null) notifyTaskState.taskFinished(task, null); // Notify end of execution
+		}
+	}
+
+	public synchronized void setPid(String pid) {
+		this.pid = pid;
+		notifyAll();
+	}
+
+	/**
+	 * Execute the command in the caller's thread: Sending a request
+	 * to the launcher is fast, so we don't need a new thread
+	 */
+	@Override
+	public synchronized void start() {
+		exec();
+	}
+
+}
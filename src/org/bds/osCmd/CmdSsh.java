@@ -30,6 +30,7 @@ public class CmdSsh extends Cmd {
 		// Execute ssh
 		ssh = new Ssh(host);
 		ssh.setShowStdout(true);
+		ssh.setTask(true);
 		ssh.exec(command);
 		exitValue = ssh.getExitValue();
 	}
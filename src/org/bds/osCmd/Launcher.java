@@ -0,0 +1,240 @@
+package org.bds.osCmd;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bds.task.Task;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+
+/**
+ * A long lived process that launches commands on behalf of bds.
+ *
+ * Instead of starting one process (and a few threads to read its
+ * STDOUT and STDERR) per task, we send a 'launch request' to a shell
+ * process through a pipe. The launcher starts the command in the
+ * background and reports back the command's PID and exit code.
+ *
+ * Protocol (one line per message, tab separated fields):
+ *
+ * 		Requests (launcher's STDIN):
+ * 			run  \t id \t command \t arg_1 \t ... \t arg_N
+ * 			kill \t id \t command \t arg_1 \t ... \t arg_N
+ *
+ * 		Responses (launcher's STDOUT):
+ * 			pid  \t id \t pid
+ * 			exit \t id \t exitCode
+ *
+ * Note: Commands are run using 'bds exec', which takes care of
+ *       timeouts, redirections and process groups (see ExecutionerLocal)
+ *
+ * @author pcingola
+ */
+public class Launcher extends Thread {
+
+	public static final String LAUNCHER_SHELL[] = { "/bin/bash", "-c" };
+
+	public static final String LAUNCHER_SCRIPT = "" //
+			+ "while IFS=$'\\t' read -r -a args ; do\n" //
+			+ "	case \"${args[0]}\" in\n" //
+			+ "	run)\n" //
+			+ "		( \"${args[@]:2}\" < /dev/null > /dev/null 2>&1 &\n" //
+			+ "		  pid=$!\n" //
+			+ "		  echo \"pid	${args[1]}	$pid\"\n" //
+			+ "		  wait $pid\n" //
+			+ "		  echo \"exit	${args[1]}	$?\" ) < /dev/null &\n" //
+			+ "		;;\n" //
+			+ "	kill)\n" //
+			+ "		\"${args[@]:2}\" < /dev/null > /dev/null 2>&1 &\n" //
+			+ "		;;\n" //
+			+ "	esac\n" //
+			+ "done\n" //
+	;
+
+	boolean debug;
+	boolean alive;
+	Process process;
+	BufferedWriter stdin;
+	Map<String, CmdLauncher> cmdById;
+
+	public Launcher() {
+		super();
+		setDaemon(true);
+		cmdById = new HashMap<>();
+	}
+
+	/**
+	 * Create launcher process and start reading its output
+	 * @return true if the launcher process was started
+	 */
+	public boolean create() {
+		ArrayList<String> args = new ArrayList<>();
+		for (String arg : LAUNCHER_SHELL)
+			args.add(arg);
+		args.add(LAUNCHER_SCRIPT);
+
+		try {
+			ProcessBuilder pb = new ProcessBuilder(args);
+			pb.redirectError(Redirect.INHERIT);
+			process = pb.start();
+			stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
+		} catch (IOException e) {
+			Timer.showStdErr("Launcher: Cannot start launcher process: " + e.getMessage());
+			return false;
+		}
+
+		alive = true;
+		start();
+		return true;
+	}
+
+	/**
+	 * Launcher process finished: Commands that did not report
+	 * an exit code are considered to have failed.
+	 */
+	protected void finished() {
+		ArrayList<CmdLauncher> cmds;
+		synchronized (this) {
+			alive = false;
+			cmds = new ArrayList<>(cmdById.values());
+			cmdById.clear();
+		}
+
+		for (CmdLauncher cmd : cmds)
+			cmd.finished(Task.EXITCODE_ERROR);
+	}
+
+	public synchronized boolean isRunning() {
+		return alive;
+	}
+
+	/**
+	 * Send a 'kill' request
+	 */
+	public void kill(String id, String args[]) {
+		send("kill", id, args);
+	}
+
+	/**
+	 * Send a 'run' request
+	 * @return true if the request was sent
+	 */
+	public boolean launch(CmdLauncher cmd) {
+		synchronized (this) {
+			if (!alive) return false;
+			cmdById.put(cmd.getCmdId(), cmd);
+		}
+
+		if (!send("run", cmd.getCmdId(), cmd.getCommandArgs())) {
+			remove(cmd.getCmdId());
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parse a line from launcher's STDOUT
+	 */
+	protected void parse(String line) {
+		if (debug) Timer.showStdErr("Launcher: Received '" + line + "'");
+
+		String fields[] = line.split("\t");
+		if (fields.length < 3) {
+			Timer.showStdErr("Launcher: Cannot parse line '" + line + "'");
+			return;
+		}
+
+		String msg = fields[0], id = fields[1], value = fields[2];
+		switch (msg) {
+		case "pid":
+			CmdLauncher cmd = get(id);
+			if (cmd != null) cmd.setPid(value);
+			break;
+
+		case "exit":
+			cmd = remove(id);
+			if (cmd != null) cmd.finished(Gpr.parseIntSafe(value));
+			break;
+
+		default:
+			Timer.showStdErr("Launcher: Unknown message '" + line + "'");
+		}
+	}
+
+	protected synchronized CmdLauncher get(String id) {
+		return cmdById.get(id);
+	}
+
+	protected synchronized CmdLauncher remove(String id) {
+		return cmdById.remove(id);
+	}
+
+	/**
+	 * Read launcher's STDOUT
+	 */
+	@Override
+	public void run() {
+		try {
+			BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line;
+			while ((line = stdout.readLine()) != null)
+				parse(line);
+		} catch (IOException e) {
+			if (debug) e.printStackTrace();
+		} finally {
+			finished();
+		}
+	}
+
+	/**
+	 * Send a request to the launcher
+	 */
+	protected synchronized boolean send(String msg, String id, String args[]) {
+		if (!alive) return false;
+
+		StringBuilder line = new StringBuilder();
+		line.append(msg + "\t" + id);
+		for (String arg : args)
+			line.append("\t" + arg);
+
+		if (debug) Timer.showStdErr("Launcher: Sending '" + line + "'");
+
+		try {
+			stdin.write(line.toString());
+			stdin.write('\n');
+			stdin.flush();
+			return true;
+		} catch (IOException e) {
+			Timer.showStdErr("Launcher: Error sending request: " + e.getMessage());
+			return false;
+		}
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	/**
+	 * Stop accepting requests. The launcher process finishes
+	 * when all the commands it launched have finished
+	 */
+	public synchronized void shutdown() {
+		if (!alive) return;
+
+		alive = false;
+		try {
+			stdin.close();
+		} catch (IOException e) {
+			// Nothing to do
+		}
+	}
+
+}
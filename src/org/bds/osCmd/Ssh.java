@@ -11,9 +11,6 @@ import org.bds.util.Gpr;
 
 import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelExec;
-import com.jcraft.jsch.JSch;
-import com.jcraft.jsch.Session;
-import com.jcraft.jsch.UserInfo;
 
 /**
  * Executes an command in a remote host, via ssh
@@ -26,7 +23,11 @@ import com.jcraft.jsch.UserInfo;
  * command killed). By doing this, we don't have to worry about leaving
  * commands running on a server when our script died. Otherwise we should
  * have a mechanism to log into the server and kill the processes (which may not
- * be feasible if the network is down).
+ * be feasible if the network is down). Closing the channel is enough to get
+ * the command killed, so sessions can be shared (see SshSessionPool).
+ *
+ * Connections are not opened for each command: Each command opens a new
+ * channel on one of the host's sessions (see SshSessionPool).
  *
  * @author pcingola
  */
@@ -37,15 +38,13 @@ public class Ssh {
 
 	public static int MAX_ITER_DISCONNECT = 600;
 	public static int WAIT_DISCONNECT = 100;
-	public static int WAIT_READ = 100;
 	public static int EXIT_CODE_DISCONNECT = 1;
 	static int BUFFER_SIZE = 100 * 1024;
 
 	boolean debug = false;
 	boolean showStdout = false;
+	boolean task = false; // Is this command a task? Tasks cannot use channels reserved for probes and transfers (see SshSessionPool)
 	int exitValue;
-	JSch jsch;
-	Session session;
 	Channel channel;
 	Host host;
 	byte[] tmp = new byte[BUFFER_SIZE];
@@ -89,38 +88,31 @@ public class Ssh {
 	}
 
 	/**
-	 * Connect to a remote host and return a channel (session and jsch are set)
+	 * Open a channel on the host's session (the session is shared by all commands to the host)
 	 */
 	Channel connect(String channleType, String sshCommand) throws Exception {
-		JSch.setConfig("StrictHostKeyChecking", "no"); // Not recommended, but useful
-		jsch = new JSch();
-
-		// Some "reasonable" defaults
-		if (Gpr.exists(defaultKnownHosts)) jsch.setKnownHosts(defaultKnownHosts);
-		for (String identity : defaultKnownIdentity)
-			if (Gpr.exists(identity)) jsch.addIdentity(identity);
-
-		// Create session and connect
-		if (debug) Gpr.debug("Create conection:\n\tuser: '" + host.getUserName() + "'\n\thost : '" + host.getHostName() + "'\n\tport : " + host.getPort());
-		session = jsch.getSession(host.getUserName(), host.getHostName(), host.getPort());
-		session.setUserInfo(new SshUserInfo());
-		session.connect();
-
-		// Create channel
-		channel = session.openChannel(channleType);
+		Channel channel = SshSessionPool.get().openChannel(host, channleType, task);
 		if ((sshCommand != null) && (channel instanceof ChannelExec)) ((ChannelExec) channel).setCommand(sshCommand);
 
+		synchronized (this) {
+			this.channel = channel;
+		}
 		return channel;
 	}
 
 	/**
-	 * Diconnect, clear objects and set exit value
+	 * Close channel and set exit value (the session is kept open)
 	 */
 	int disconnect(boolean force) {
+		Channel channel;
+		synchronized (this) {
+			channel = this.channel;
+			this.channel = null;
+		}
 
 		// Close channel
 		if (channel != null) {
-			if (!force) waitChannel();
+			if (!force) waitChannel(channel);
 
 			// Channel is closed, now we can get exit status
 			if (!force && channel.isClosed()) exitValue = channel.getExitStatus();
@@ -128,17 +120,9 @@ public class Ssh {
 
 			// OK, we can disconnect now
 			channel.disconnect();
-			channel = null;
+			SshSessionPool.get().release(host, channel);
 		}
 
-		// Close session
-		if (session != null) {
-			session.disconnect();
-			session = null;
-		}
-
-		if (jsch != null) jsch = null;
-
 		return exitValue;
 	}
 
@@ -150,8 +134,7 @@ public class Ssh {
 	public String exec(String command) {
 		// Open ssh session
 		try {
-			channel = connect("exec", command);
-			ChannelExec chexec = (ChannelExec) channel;
+			ChannelExec chexec = (ChannelExec) connect("exec", command);
 			chexec.setInputStream(null);
 			chexec.setPty(true); // Allocate pseudo-tty (same as "ssh -t")
 
@@ -160,15 +143,17 @@ public class Ssh {
 			//chexec.setOutputStream(System.out);
 
 			// Connect channel
+			InputStream in = chexec.getInputStream();
 			chexec.connect();
 
 			// Read input
-			String result = readChannel(true);
+			String result = readChannel(in);
 
 			disconnect(false); // Disconnect and get exit code
 			return result;
 		} catch (Exception e) {
 			if (debug) e.printStackTrace();
+			disconnect(true);
 			return null;
 		}
 	}
@@ -185,39 +170,17 @@ public class Ssh {
 	}
 
 	/**
-	 * Read an input stream while data is available
-	 */
-	String readAvailable(InputStream in) throws IOException {
-		if (in.available() > 0) {
-			int i = in.read(tmp, 0, BUFFER_SIZE);
-			if (i < 0) return null;
-
-			String recv = new String(tmp, 0, i);
-			if (showStdout) System.out.print(recv);
-			return recv;
-		}
-
-		return null;
-	}
-
-	/**
-	 * Read channle's input
+	 * Read channel's input until the channel is closed (blocking reads)
 	 */
-	String readChannel(boolean waitClose) {
+	String readChannel(InputStream in) {
 		StringBuilder stdout = new StringBuilder();
 		try {
-			InputStream in = channel.getInputStream();
-
-			while (waitClose && !channel.isClosed()) {
-				String recv = readAvailable(in);
-				if (recv != null) stdout.append(recv);
-
-				Thread.sleep(WAIT_READ);
+			for (int len = in.read(tmp, 0, BUFFER_SIZE); len >= 0; len = in.read(tmp, 0, BUFFER_SIZE)) {
+				String recv = new String(tmp, 0, len);
+				if (showStdout) System.out.print(recv);
+				stdout.append(recv);
 			}
-
-			String recv = readAvailable(in);
-			if (recv != null) stdout.append(recv);
-		} catch (Exception e) {
+		} catch (IOException e) {
 			if (debug) e.printStackTrace();
 		}
 
@@ -235,9 +198,25 @@ public class Ssh {
 	public void scpTo(String localFileName, String remoteFileName) throws Exception {
 		if (debug) Gpr.debug("SCP " + localFileName + " " + remoteFileName);
 		String scpcommand = "scp -t " + remoteFileName;
-		channel = connect("exec", scpcommand);
+		Channel channel = connect("exec", scpcommand);
 		File lfile = new File(localFileName);
 
+		try {
+			scpTo(channel, lfile);
+		} catch (Exception e) {
+			disconnect(true);
+			throw e;
+		}
+
+		disconnect(false);
+	}
+
+	/**
+	 * Send a file using 'scp' protocol
+	 */
+	void scpTo(Channel channel, File lfile) throws Exception {
+		String localFileName = lfile.getPath();
+
 		// Get I/O streams for remote scp
 		OutputStream out = channel.getOutputStream();
 		InputStream in = channel.getInputStream();
@@ -248,7 +227,7 @@ public class Ssh {
 
 		// Send "C0644 fileSize fileName", where filename should not include '/'
 		long filesize = lfile.length();
-		scpcommand = "C0644 " + filesize + " " + Gpr.baseName(localFileName) + "\n";
+		String scpcommand = "C0644 " + filesize + " " + Gpr.baseName(localFileName) + "\n";
 		if (checkAck(scpcommand, out, in) != 0) throw new Exception("Error in SCP ('C' command was not acknoledged)");
 
 		// Send a contents of localFileName
@@ -268,8 +247,6 @@ public class Ssh {
 
 		if (checkAck(null, out, in) != 0) throw new Exception("Error in SCP ('C' command was not acknoledged)");
 		out.close();
-
-		disconnect(false);
 	}
 
 	public void setDebug(boolean debug) {
@@ -280,10 +257,14 @@ public class Ssh {
 		this.showStdout = showStdout;
 	}
 
+	public void setTask(boolean task) {
+		this.task = task;
+	}
+
 	/**
 	 * Wait for channel
 	 */
-	void waitChannel() {
+	void waitChannel(Channel channel) {
 		// Wait until channel is finished (otherwise redirections will not work)
 		for (int i = 0; (i < MAX_ITER_DISCONNECT) && !channel.isClosed(); i++) {
 			if (debug) Gpr.debug(i + "\t\tDisconnect:\tclosed: " + channel.isClosed() + "\teof: " + channel.isEOF() + "\tconnected: " + channel.isConnected());
@@ -297,41 +278,3 @@ public class Ssh {
 		if (debug) Gpr.debug("\t\tSSH disconnect:\tclosed: " + channel.isClosed() + "\teof: " + channel.isEOF() + "\tconnected: " + channel.isConnected());
 	}
 }
-
-class SshUserInfo implements UserInfo {
-
-	boolean debug = false;
-
-	@Override
-	public String getPassphrase() {
-		return null;
-	}
-
-	@Override
-	public String getPassword() {
-		return null;
-	}
-
-	@Override
-	public boolean promptPassphrase(String arg0) {
-		if (debug) Gpr.debug("SSH Message: " + arg0);
-		return false;
-	}
-
-	@Override
-	public boolean promptPassword(String arg0) {
-		if (debug) Gpr.debug("SSH Message: " + arg0);
-		return true;
-	}
-
-	@Override
-	public boolean promptYesNo(String arg0) {
-		if (debug) Gpr.debug("SSH Message: " + arg0);
-		return true;
-	}
-
-	@Override
-	public void showMessage(String arg0) {
-		System.err.println("SSH Message: " + arg0);
-	}
-}
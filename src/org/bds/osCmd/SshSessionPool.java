@@ -0,0 +1,231 @@
+package org.bds.osCmd;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bds.cluster.host.Host;
+import org.bds.util.Gpr;
+
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+/**
+ * Process-wide pool of ssh sessions, shared by all commands (tasks,
+ * host health probes, scp) sent to a host.
+ *
+ * SSH multiplexes channels on a session, so each command opens a new
+ * channel on one of the host's sessions instead of a new connection
+ * (i.e. we don't pay a handshake per command). The number of channels
+ * open on a session is limited to 'MAX_CHANNELS' (ssh servers limit the
+ * number of channels per connection, e.g. OpenSSH's 'MaxSessions' is 10).
+ * When all the host's sessions are full, an additional session is
+ * connected, so opening a channel never blocks.
+ *
+ * A task's channel is open while the task runs, so tasks can only use
+ * 'MAX_CHANNELS - RESERVED_CHANNELS' channels on each session. The
+ * remaining channels are reserved for short commands (host health
+ * probes, file transfers), so they don't wait for tasks to finish.
+ *
+ * If a session is dropped, new channels are opened on another session.
+ * Dropped sessions and additional sessions are disconnected when their
+ * last channel is released.
+ *
+ * @author pcingola
+ */
+public class SshSessionPool {
+
+	public static int MAX_CHANNELS = 10; // Maximum number of channels open on a session
+	public static int RESERVED_CHANNELS = 2; // Channels on each session that tasks cannot use (reserved for probes and transfers)
+	public static int SERVER_ALIVE_INTERVAL = 60 * 1000; // Send 'keep alive' messages (milliseconds). Sessions are kept open, so we need to detect dropped connections
+
+	private static SshSessionPool sshSessionPool;
+
+	/**
+	 * A session and the number of channels open on it
+	 */
+	class PooledSession {
+		Session session;
+		int channels; // Number of channels open on this session
+
+		PooledSession(Session session) {
+			this.session = session;
+		}
+
+		boolean isConnected() {
+			return session != null && session.isConnected();
+		}
+	}
+
+	boolean debug;
+	JSch jsch;
+	Map<String, List<PooledSession>> sessionsByHost; // Sessions by 'user@host:port'
+	Map<Channel, PooledSession> sessionByChannel; // Session each open channel belongs to
+
+	/**
+	 * Get singleton
+	 */
+	public static synchronized SshSessionPool get() {
+		if (sshSessionPool == null) sshSessionPool = new SshSessionPool();
+		return sshSessionPool;
+	}
+
+	/**
+	 * Close all sessions and reset singleton
+	 */
+	public static synchronized void reset() {
+		if (sshSessionPool != null) sshSessionPool.close();
+		sshSessionPool = null;
+	}
+
+	public SshSessionPool() {
+		sessionsByHost = new HashMap<>();
+		sessionByChannel = new IdentityHashMap<>();
+
+		JSch.setConfig("StrictHostKeyChecking", "no"); // Not recommended, but useful
+		jsch = new JSch();
+
+		// Some "reasonable" defaults
+		try {
+			if (Gpr.exists(Ssh.defaultKnownHosts)) jsch.setKnownHosts(Ssh.defaultKnownHosts);
+			for (String identity : Ssh.defaultKnownIdentity)
+				if (Gpr.exists(identity)) jsch.addIdentity(identity);
+		} catch (JSchException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Close all sessions
+	 */
+	public void close() {
+		// Note: Don't hold the pool's lock while locking a host's sessions (see 'openChannel')
+		List<List<PooledSession>> sessionsList;
+		synchronized (this) {
+			sessionsList = new ArrayList<>(sessionsByHost.values());
+			sessionByChannel.clear();
+		}
+
+		for (List<PooledSession> sessions : sessionsList) {
+			synchronized (sessions) {
+				for (PooledSession ps : sessions)
+					if (ps.session != null) ps.session.disconnect();
+				sessions.clear();
+			}
+		}
+	}
+
+	/**
+	 * Connect a new session to a host
+	 */
+	Session connect(Host host) throws JSchException {
+		if (debug) Gpr.debug("Create conection:\n\tuser: '" + host.getUserName() + "'\n\thost : '" + host.getHostName() + "'\n\tport : " + host.getPort());
+		Session session = jsch.getSession(host.getUserName(), host.getHostName(), host.getPort());
+		session.setUserInfo(new SshUserInfo());
+		session.setDaemonThread(true); // Open sessions should not prevent the JVM from exiting
+		session.setServerAliveInterval(SERVER_ALIVE_INTERVAL);
+		session.connect();
+		return session;
+	}
+
+	/**
+	 * Disconnect a session and remove it from the host's sessions
+	 */
+	void disconnect(List<PooledSession> sessions, PooledSession ps) {
+		if (debug) Gpr.debug("Disconnect session, channels open: " + ps.channels);
+		if (ps.session != null) ps.session.disconnect();
+		sessions.remove(ps);
+	}
+
+	/**
+	 * Get (or create) a host's list of sessions
+	 */
+	synchronized List<PooledSession> hostSessions(Host host) {
+		String key = host.getUserName() + "@" + host.getHostName() + ":" + host.getPort();
+		List<PooledSession> sessions = sessionsByHost.get(key);
+		if (sessions == null) {
+			sessions = new ArrayList<>();
+			sessionsByHost.put(key, sessions);
+		}
+		return sessions;
+	}
+
+	/**
+	 * Open a channel on one of the host's sessions. A new session is
+	 * connected if all sessions are full (or dropped).
+	 *
+	 * @param task : Is this channel used to run a task? Tasks cannot use reserved channels
+	 *
+	 * Note: Channels must be released using 'release(host, channel)'
+	 */
+	public Channel openChannel(Host host, String channelType, boolean task) throws Exception {
+		List<PooledSession> sessions = hostSessions(host);
+		int maxChannels = task ? Math.max(1, MAX_CHANNELS - RESERVED_CHANNELS) : MAX_CHANNELS;
+
+		synchronized (sessions) {
+			// Try to open a channel on an existing session
+			for (PooledSession ps : new ArrayList<>(sessions)) {
+				if (!ps.isConnected()) {
+					if (ps.channels <= 0) disconnect(sessions, ps); // Dropped session and no channels using it
+					continue;
+				}
+
+				if (ps.channels < maxChannels) {
+					try {
+						return openChannel(ps, channelType);
+					} catch (JSchException e) {
+						// Session dropped? Try another one
+						if (debug) Gpr.debug("Cannot open channel on host '" + host + "': " + e.getMessage());
+						ps.session.disconnect();
+					}
+				}
+			}
+
+			// All sessions are full: Connect a new one
+			PooledSession ps = new PooledSession(connect(host));
+			sessions.add(ps);
+			if (debug) Gpr.debug("Host '" + host + "', number of sessions: " + sessions.size());
+			return openChannel(ps, channelType);
+		}
+	}
+
+	/**
+	 * Open a channel on a session and account for it
+	 */
+	Channel openChannel(PooledSession ps, String channelType) throws JSchException {
+		Channel channel = ps.session.openChannel(channelType);
+		ps.channels++;
+		synchronized (this) {
+			sessionByChannel.put(channel, ps);
+		}
+		return channel;
+	}
+
+	/**
+	 * Release a channel opened by 'openChannel'
+	 */
+	public void release(Host host, Channel channel) {
+		PooledSession ps;
+		synchronized (this) {
+			ps = sessionByChannel.remove(channel);
+		}
+		if (ps == null) return;
+
+		List<PooledSession> sessions = hostSessions(host);
+		synchronized (sessions) {
+			ps.channels--;
+
+			// Disconnect dropped sessions and idle additional sessions (the host's first session is kept open)
+			if (ps.channels <= 0 && (!ps.isConnected() || sessions.indexOf(ps) > 0)) disconnect(sessions, ps);
+		}
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+}
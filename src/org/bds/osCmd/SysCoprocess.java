@@ -0,0 +1,189 @@
+package org.bds.osCmd;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.bds.Config;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+
+/**
+ * A long lived shell process that executes 'sys' commands.
+ *
+ * Instead of starting a new process (and two threads to read its
+ * STDOUT and STDERR) for each 'sys' command, commands are sent to a
+ * shell process (the 'sysShell') through a pipe. Each command runs in
+ * a sub-shell (so variables, current dir, 'exit', etc. do not affect
+ * other commands), using the same shell options as 'sysShell' (e.g.
+ * '-e'). STDIN is '/dev/null'.
+ *
+ * Protocol:
+ *
+ * 		Requests (coprocess' STDIN):
+ * 			currentDir \n
+ * 			command (one or more lines) \n
+ * 			delimiter \n
+ *
+ * 		Responses (coprocess' STDOUT):
+ * 			command's STDOUT, followed by: delimiter exitCode \n
+ *
+ * 		Command's STDERR is written to a temporary file
+ *
+ * Note: The delimiter is a random string, so it cannot be confused with
+ *       commands' output
+ *
+ * Note: Background processes writing to STDOUT after the command
+ *       finished are not supported
+ *
+ * @author pcingola
+ */
+public class SysCoprocess {
+
+	public static final String COPROCESS_SCRIPT = "" //
+			+ "set +o > \"$2\"\n" // Shell options (e.g. '-e'), used when running each command. Note: '$(set +o)' does not show '-e'
+			+ "opts=$(cat \"$2\")\n" //
+			+ "set +e\n" //
+			+ "while IFS= read -r dir ; do\n" //
+			+ "	cmd=''\n" //
+			+ "	while IFS= read -r line && [ \"$line\" != \"$1\" ] ; do\n" //
+			+ "		cmd=\"$cmd$line\n\"\n" //
+			+ "	done\n" //
+			+ "	( eval \"$opts\" ; cd \"$dir\" || exit 1 ; eval \"$cmd\" ) < /dev/null 2> \"$2\"\n" //
+			+ "	printf '%s %d\\n' \"$1\" $?\n" //
+			+ "done\n" //
+	;
+
+	public static int BUFFER_SIZE = 64 * 1024;
+
+	boolean debug;
+	String delimiter;
+	Pattern delimiterPattern;
+	File stderrFile;
+	Process process;
+	OutputStream stdin;
+	InputStream stdout;
+	byte buffer[] = new byte[BUFFER_SIZE];
+
+	public SysCoprocess() {
+		delimiter = "bds_sys_" + UUID.randomUUID().toString().replace("-", "");
+		delimiterPattern = Pattern.compile(delimiter + " (\\d+)\n$");
+	}
+
+	/**
+	 * Stop shell process
+	 */
+	public synchronized void close() {
+		if (process != null) process.destroy();
+		process = null;
+		if (stderrFile != null) stderrFile.delete();
+		stderrFile = null;
+	}
+
+	/**
+	 * Create shell process
+	 */
+	void create() throws IOException {
+		stderrFile = File.createTempFile("bds_sys_", ".stderr");
+		stderrFile.deleteOnExit();
+
+		List<String> args = new ArrayList<>();
+		for (String arg : Config.get().getSysShell().split("\\s+"))
+			args.add(arg);
+		args.add(COPROCESS_SCRIPT);
+		args.add("bds_sys"); // Script name ($0)
+		args.add(delimiter); // $1
+		args.add(stderrFile.getPath()); // $2
+
+		ProcessBuilder pb = new ProcessBuilder(args);
+		pb.redirectError(Redirect.INHERIT);
+		process = pb.start();
+		stdin = process.getOutputStream();
+		stdout = process.getInputStream();
+
+		if (debug) Timer.showStdErr("Sys coprocess: Created");
+	}
+
+	/**
+	 * Execute a command
+	 * @param currentDir : Run command in this directory
+	 * @param quiet : If false, show command's STDOUT / STDERR
+	 */
+	public synchronized ExecResult exec(String commands, String currentDir, boolean quiet) {
+		if (debug) Timer.showStdErr("Executing command (sys coprocess): '" + commands + "'");
+
+		try {
+			if (process == null || !process.isAlive()) {
+				close();
+				create();
+			}
+
+			// Send command
+			String request = currentDir + "\n" + commands + "\n" + delimiter + "\n";
+			stdin.write(request.getBytes());
+			stdin.flush();
+
+			// Read output until we find the delimiter
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			String tail = "";
+			int tailLen = delimiter.length() + 16; // Enough to contain a delimiter and exit code
+			Matcher matcher = null;
+			while (matcher == null) {
+				int len = stdout.read(buffer);
+				if (len < 0) throw new IOException("Sys coprocess finished unexpectedly");
+				out.write(buffer, 0, len);
+
+				// Last bytes of output (delimiter is ASCII, so we don't need to decode characters)
+				tail += new String(buffer, 0, len, StandardCharsets.ISO_8859_1);
+				if (tail.length() > tailLen) tail = tail.substring(tail.length() - tailLen);
+
+				Matcher m = delimiterPattern.matcher(tail);
+				if (m.find()) matcher = m;
+			}
+
+			// Parse output and exit code
+			String outStr = out.toString();
+			String stdOut = lines(outStr.substring(0, outStr.lastIndexOf(delimiter)));
+			int exitValue = Gpr.parseIntSafe(matcher.group(1));
+			String stdErr = lines(Gpr.readFile(stderrFile.getPath(), false));
+			if (debug) Gpr.debug("Exit value: " + exitValue);
+
+			if (!quiet) {
+				System.out.print(stdOut);
+				System.err.print(stdErr);
+			}
+
+			return new ExecResult(stdOut, stdErr, exitValue);
+		} catch (IOException e) {
+			close();
+			throw new RuntimeException("Cannot execute commands: '" + commands + "'", e);
+		}
+	}
+
+	/**
+	 * Output as lines: Same format as reading the output using 'StreamGobbler'
+	 */
+	String lines(String str) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		BufferedReader reader = new BufferedReader(new StringReader(str));
+		for (String line = reader.readLine(); line != null; line = reader.readLine())
+			sb.append(line + "\n");
+		return sb.toString();
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+}
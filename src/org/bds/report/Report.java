@@ -10,10 +10,10 @@ import java.util.Map;
 import org.bds.Bds;
 import org.bds.Config;
 import org.bds.cluster.host.HostResources;
+import org.bds.data.LocalCache;
 import org.bds.lang.ExpressionTask;
 import org.bds.lang.Statement;
 import org.bds.run.BdsThread;
-import org.bds.run.BdsThreads;
 import org.bds.scope.Scope;
 import org.bds.scope.ScopeSymbol;
 import org.bds.task.TailFile;
@@ -40,9 +40,7 @@ public class Report {
 	public static final String LINE = "--------------------";
 
 	public static final int MAX_TASK_FAILED_NAMES = 10; // Maximum number of failed tasks to show in summary
-	public static final int REPORT_TIME = 60; // Update report every 'REPORT_TIME' seconds
-
-	protected static Timer timerReport = new Timer(); // added by Jin Lee (for prog report timer)
+	public static final int REPORT_TIME = 60; // Create progress report after 'REPORT_TIME' seconds (see ReportProgress)
 
 	boolean yaml;
 	boolean verbose;
@@ -50,27 +48,6 @@ public class Report {
 	BdsThread bdsThread;
 	Map<String, BdsThread> taskId2BdsThread;
 
-	/**
-	 * Check if this is a good time to create a report
-	 */
-	public static void reportTime() {
-		boolean doReport = false;
-
-		synchronized (timerReport) {
-			if (timerReport.elapsedSecs() > REPORT_TIME) { // Generate report every 'REPORT_TIME' seconds
-				timerReport.start();
-				doReport = true;
-			}
-		}
-
-		if (doReport) {
-			// Create an HTML report
-			// Note: Should we create a YAML report as well?
-			Report report = new Report(BdsThreads.getInstance().get().getRoot(), false);
-			report.createReport();
-		}
-	}
-
 	public Report(BdsThread bdsThread, boolean yaml) {
 		if (!bdsThread.isRoot()) throw new RuntimeException("Cannot create report from non-root bdsThread");
 
@@ -144,6 +121,12 @@ public class Report {
 		rTemplate.add("taskFailed", taskDepsRoot.countTaskFailed());
 		rTemplate.add("taskFailedNames", taskDepsRoot.taskFailedNames(MAX_TASK_FAILED_NAMES, "\n"));
 
+		// Local cache (remote files downloaded by this program and its tasks)
+		LocalCache localCache = LocalCache.get();
+		long cacheStats[] = (localCache != null ? localCache.statsRun() : new long[2]);
+		rTemplate.add("cacheHits", cacheStats[0]);
+		rTemplate.add("cacheMisses", cacheStats[1]);
+
 		// Timeline height
 		int timelineHeight = REPORT_TIMELINE_HEIGHT * (1 + taskNum);
 		rTemplate.add("timelineHeight", timelineHeight);
@@ -0,0 +1,206 @@
+package org.bds.report;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.bds.Bds;
+import org.bds.Config;
+import org.bds.run.BdsThread;
+import org.bds.task.Task;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+
+/**
+ * Progress report, updated while the program is running
+ *
+ * Tasks are added as they finish. A background thread appends
+ * one line per task to a JavaScript data file, and a static HTML
+ * page (created once) renders the data. Updating the report is
+ * proportional to the number of tasks finished since the last
+ * update, not to the total number of tasks.
+ *
+ * Each task is added only once (e.g. a task notified as finished
+ * more than once does not add a second line).
+ *
+ * @author pcingola
+ */
+public class ReportProgress extends Thread {
+
+	public static final String PROGRESS_TEMPLATE = "ProgressTemplate.html";
+	public static final int UPDATE_TIME = 10; // Append new tasks to data file every 'UPDATE_TIME' seconds
+
+	boolean debug;
+	boolean verbose;
+	boolean running;
+	boolean created; // Have the report files been created?
+	int taskNum; // Number of tasks added
+	String progName;
+	String threadIdRoot;
+	Date startTime;
+	String htmlFile; // Report (static HTML page)
+	String jsFile; // Report data (one line per task)
+	long firstUpdate; // Don't create any file before this time (short programs don't need a progress report)
+	LinkedList<String> queue; // Lines pending to be written
+	Set<String> taskIds; // Tasks added
+
+	public ReportProgress(BdsThread bdsThread) {
+		super();
+		setDaemon(true);
+		if (!bdsThread.isRoot()) throw new RuntimeException("Cannot create progress report from non-root bdsThread");
+
+		String reportBaseName = Config.get().getReportFileName();
+		if (reportBaseName == null) reportBaseName = bdsThread.getBdsThreadId();
+		htmlFile = reportBaseName + ".progress.html";
+		jsFile = reportBaseName + ".progress.js";
+
+		progName = Gpr.baseName(bdsThread.getStatement().getFileName());
+		threadIdRoot = bdsThread.getBdsThreadId();
+		startTime = new Date();
+		firstUpdate = System.currentTimeMillis() + 1000L * Report.REPORT_TIME;
+		queue = new LinkedList<>();
+		taskIds = new HashSet<>();
+		running = true;
+		verbose = Config.get().isVerbose();
+		debug = Config.get().isDebug();
+	}
+
+	/**
+	 * A task finished: Add it to the report
+	 * Note: The line is created here, so it reflects the task's state when it finished
+	 */
+	public synchronized void add(Task task) {
+		if (!taskIds.add(task.getId())) return; // Already added
+		taskNum++;
+		queue.add("bdsTask(" + json(task) + ");\n");
+	}
+
+	/**
+	 * Create report files
+	 */
+	void create() {
+		if (verbose) Timer.showStdErr("Writing progress report file '" + htmlFile + "'");
+
+		SimpleDateFormat outFormat = new SimpleDateFormat(Report.DATE_FORMAT_HTML);
+		RTemplate rTemplate = new RTemplate(Bds.class, PROGRESS_TEMPLATE, htmlFile);
+		rTemplate.add("progName", progName);
+		rTemplate.add("threadIdRoot", threadIdRoot);
+		rTemplate.add("startTime", outFormat.format(startTime));
+		rTemplate.add("dataJsFile", Gpr.baseName(jsFile));
+		rTemplate.createOuptut();
+
+		Gpr.toFile(jsFile, "");
+		created = true;
+	}
+
+	public String getHtmlFile() {
+		return htmlFile;
+	}
+
+	public String getJsFile() {
+		return jsFile;
+	}
+
+	/**
+	 * Task as a JSON object
+	 */
+	String json(Task task) {
+		SimpleDateFormat outFormat = new SimpleDateFormat(Report.DATE_FORMAT_HTML);
+		Date start = task.getRunningStartTime();
+		Date end = task.getRunningEndTime();
+		if (end == null) end = start;
+
+		StringBuilder sb = new StringBuilder();
+		sb.append("{");
+		sb.append(jsonField("num", taskNum));
+		sb.append(", " + jsonField("id", Gpr.baseName(task.getId())));
+		sb.append(", " + jsonField("name", task.getName()));
+		sb.append(", " + jsonField("state", task.getTaskState()));
+		sb.append(", " + jsonField("ok", task.isDoneOk()));
+		sb.append(", " + jsonField("exitCode", task.getExitValue()));
+		sb.append(", " + jsonField("retry", task.getFailCount() > 1 ? (task.getFailCount() - 1) + "/" + (task.getMaxFailCount() - 1) : ""));
+		sb.append(", " + jsonField("start", start != null ? outFormat.format(start) : ""));
+		sb.append(", " + jsonField("end", end != null ? outFormat.format(end) : ""));
+		sb.append(", " + jsonField("elapsed", start != null ? Timer.toDDHHMMSS(end.getTime() - start.getTime()) : ""));
+		sb.append(", " + jsonField("hint", task.getProgramHint()));
+		sb.append("}");
+		return sb.toString();
+	}
+
+	String jsonField(String name, Object value) {
+		if (value instanceof Number || value instanceof Boolean) return "\"" + name + "\": " + value;
+		return "\"" + name + "\": \"" + (value != null ? StringEscapeUtils.escapeEcmaScript(value.toString()) : "") + "\"";
+	}
+
+	/**
+	 * Write pending lines and stop thread
+	 */
+	public void kill() {
+		synchronized (this) {
+			running = false;
+			notifyAll();
+		}
+
+		try {
+			join();
+		} catch (InterruptedException e) {
+			// Nothing to do
+		}
+
+		// Make sure all tasks are written
+		if (created) update(true);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				synchronized (this) {
+					if (!running) break;
+					wait(1000L * UPDATE_TIME);
+					if (!running) break;
+				}
+
+				update(false);
+			}
+		} catch (InterruptedException e) {
+			// Nothing to do
+		} catch (Throwable t) {
+			Timer.showStdErr("Error writing progress report '" + htmlFile + "': " + t.getMessage());
+			if (debug) t.printStackTrace();
+		}
+	}
+
+	/**
+	 * Append pending lines to data file (create report if needed)
+	 * @param force : Create the report even if 'REPORT_TIME' has not elapsed yet
+	 */
+	public void update(boolean force) {
+		if (!created && !force && System.currentTimeMillis() < firstUpdate) return; // Too early to create a report
+
+		LinkedList<String> lines;
+		synchronized (this) {
+			if (queue.isEmpty() && created) return;
+			lines = queue;
+			queue = new LinkedList<>();
+		}
+
+		if (!created) create();
+		if (lines.isEmpty()) return;
+
+		if (debug) Timer.showStdErr("Progress report: Appending " + lines.size() + " tasks to '" + jsFile + "'");
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(jsFile, true))) {
+			for (String line : lines)
+				out.write(line);
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing file '" + jsFile + "'", e);
+		}
+	}
+
+}
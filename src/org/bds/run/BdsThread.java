@@ -13,9 +13,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 
 import org.bds.Config;
 import org.bds.data.Data;
+import org.bds.data.LocalCache;
 import org.bds.executioner.Executioner;
 import org.bds.executioner.Executioners;
 import org.bds.lang.BdsNode;
@@ -31,11 +33,14 @@ import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.lang.Wait;
 import org.bds.osCmd.Exec;
+import org.bds.osCmd.SysCoprocess;
 import org.bds.report.Report;
+import org.bds.report.ReportProgress;
 import org.bds.scope.Scope;
 import org.bds.scope.ScopeSymbol;
 import org.bds.serialize.BdsSerialize;
 import org.bds.serialize.BdsSerializer;
+import org.bds.serialize.CheckpointSaver;
 import org.bds.task.Task;
 import org.bds.task.TaskDependecies;
 import org.bds.util.Gpr;
@@ -67,6 +72,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 	List<String> removeOnExit; // Files to be removed on exit
 	Timer timer; // Program timer
 	boolean freeze; // Freeze execution in next execution step
+	int fastRunDepth; // Nesting level of nodes running without bookkeeping (see 'runFast')
 
 	// Debug stuff
 	BufferedReader console; // Read debug commands from console
@@ -76,7 +82,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 	// Scope
 	Scope scope; // Base scope
 	String scopeNodeId; // Scope's ID, used only when un-serializing
-	Deque<Object> stack; // Program stack
+	ValueStack stack; // Program stack
 
 	// BdsThread
 	String currentDir; // Program's 'current directoy'
@@ -84,6 +90,10 @@ public class BdsThread extends Thread implements BdsSerialize {
 	String bdsThreadId; // BdsThread ID
 	int bdsThreadNum; // Thread number
 	Map<String, BdsThread> bdsChildThreadsById; // Child threads
+	CountDownLatch finished; // Only used when running on a ParallelExecutor (see 'startThread()')
+	SysCoprocess sysCoprocess; // Long lived shell process used to execute 'sys' commands (see Config.SYS_COPROCESS)
+	boolean lightweight; // A lightweight context used to apply a function concurrently (see 'BdsThread(BdsThread)')
+	String fatalErrorMessage; // Fatal error in a lightweight context (it is reported by the parent thread)
 
 	// Task management
 	TaskDependecies taskDependecies;
@@ -102,7 +112,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 		bdsThreadNum = bigDataScriptThreadId();
 		pc = new ProgramCounter(parent.getPc());
 		scope = parent.scope;
-		stack = new LinkedList<>();
+		stack = new ValueStack();
 		runState = RunState.OK;
 		config = parent.config;
 		random = parent.random;
@@ -124,7 +134,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 		bdsThreadNum = bigDataScriptThreadId();
 		pc = new ProgramCounter();
 		scope = Scope.getGlobalScope();
-		stack = new LinkedList<>();
+		stack = new ValueStack();
 		runState = RunState.OK;
 		this.config = config;
 		random = new Random();
@@ -139,6 +149,32 @@ public class BdsThread extends Thread implements BdsSerialize {
 		taskDependecies.setDebug(isDebug());
 	}
 
+	/**
+	 * A lightweight context used to apply a side effect free function
+	 * concurrently (e.g. 'list.pmap()'). It has its own program counter,
+	 * stack and scopes (based on parent's current scope), but it is not
+	 * a child thread: it is not started, it cannot create tasks or threads
+	 * and fatal errors are reported by the parent thread.
+	 */
+	public BdsThread(BdsThread parent) {
+		super();
+		this.parent = parent;
+		lightweight = true;
+		bdsThreadNum = parent.bdsThreadNum;
+		bdsThreadId = parent.bdsThreadId;
+		statement = parent.statement;
+		pc = new ProgramCounter(parent.getPc());
+		scope = parent.scope;
+		stack = new ValueStack();
+		runState = RunState.OK;
+		config = parent.config;
+		random = parent.random;
+		removeOnExit = parent.removeOnExit;
+		currentDir = parent.currentDir;
+		bdsChildThreadsById = new HashMap<>();
+		taskDependecies = new TaskDependecies();
+	}
+
 	/**
 	 * Add a child task
 	 */
@@ -216,7 +252,12 @@ public class BdsThread extends Thread implements BdsSerialize {
 		// Save
 		if (isVerbose()) System.err.println("Creating checkpoint file: '" + checkpointFileName + "'");
 		BdsSerializer bdsSer = new BdsSerializer(checkpointFileName, config);
-		bdsSer.save(getRoot()); // Save root thread
+		CheckpointSaver checkpointSaver = config.getCheckpointSaver();
+		if (checkpointSaver != null) {
+			// Snapshot root thread, the file is written in the background
+			bdsSer.snapshot(getRoot());
+			checkpointSaver.add(bdsSer);
+		} else bdsSer.save(getRoot()); // Save root thread
 
 		return checkpointFileName;
 	}
@@ -392,6 +433,13 @@ public class BdsThread extends Thread implements BdsSerialize {
 	public void fatalError(BdsNode bdsnode, String message) {
 		runState = RunState.FATAL_ERROR;
 		String filePos = getFileLinePos(bdsnode);
+
+		// Lightweight context: The parent thread shows the error (and creates the checkpoint)
+		if (lightweight) {
+			if (fatalErrorMessage == null) fatalErrorMessage = filePos + (filePos.isEmpty() ? "" : ". ") + message;
+			return;
+		}
+
 		System.err.println("Fatal error: " //
 				+ filePos + (filePos.isEmpty() ? "" : ". ") //
 				+ message);
@@ -432,7 +480,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 
 		while (freeze) {
 			try {
-				Thread.sleep(FROZEN_SLEEP_TIME);
+				ParallelExecutor.sleep(FROZEN_SLEEP_TIME);
 				if (isDebug()) Gpr.debug("Frozen bdsThread: '" + getBdsThreadId() + "'");
 			} catch (InterruptedException e) {
 				// Nothing to do
@@ -488,6 +536,10 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return exitValue;
 	}
 
+	public String getFatalErrorMessage() {
+		return fatalErrorMessage;
+	}
+
 	/**
 	 * Try to get file / line / pos information
 	 * Recurse to parent node if not found
@@ -597,7 +649,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return scopeNodeId;
 	}
 
-	public Deque<Object> getStack() {
+	public ValueStack getStack() {
 		return stack;
 	}
 
@@ -616,6 +668,17 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return getScope().getSymbol(varName).getValue().toString();
 	}
 
+	/**
+	 * Shell process used to execute 'sys' commands (create it if needed)
+	 */
+	public synchronized SysCoprocess getSysCoprocess() {
+		if (sysCoprocess == null) {
+			sysCoprocess = new SysCoprocess();
+			sysCoprocess.setDebug(isDebug());
+		}
+		return sysCoprocess;
+	}
+
 	/**
 	 * Get a task (this thread or any child thread)
 	 */
@@ -728,6 +791,14 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return parent == null;
 	}
 
+	/**
+	 * Is the thread running this BdsThread alive?
+	 */
+	public boolean isThreadAlive() {
+		if (finished != null) return finished.getCount() > 0;
+		return isAlive();
+	}
+
 	public boolean isThreadsDone() {
 		return bdsChildThreadsById.isEmpty();
 	}
@@ -736,6 +807,14 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return config != null && config.isVerbose();
 	}
 
+	/**
+	 * Wait for this BdsThread to finish
+	 */
+	public void joinThread() throws InterruptedException {
+		if (finished != null) ParallelExecutor.await(finished);
+		else join();
+	}
+
 	/**
 	 * Kill: Stop execution of current thread
 	 */
@@ -792,7 +871,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 
 	public Object pop() {
 		if (isCheckpointRecover()) return null;
-		return stack.removeFirst();
+		return stack.pop();
 	}
 
 	//	public long popInt() {
@@ -815,21 +894,24 @@ public class BdsThread extends Thread implements BdsSerialize {
 	 * Pop a bool from stack
 	 */
 	public boolean popBool() {
-		return (Boolean) Type.BOOL.cast(pop());
+		if (isCheckpointRecover()) return false;
+		return stack.popBool();
 	}
 
 	/**
 	 * Pop an int from stack
 	 */
 	public long popInt() {
-		return (Long) Type.INT.cast(pop());
+		if (isCheckpointRecover()) return 0;
+		return stack.popInt();
 	}
 
 	/**
 	 * Pop a real from stack
 	 */
 	public double popReal() {
-		return (Double) Type.REAL.cast(pop());
+		if (isCheckpointRecover()) return 0;
+		return stack.popReal();
 	}
 
 	/**
@@ -880,8 +962,28 @@ public class BdsThread extends Thread implements BdsSerialize {
 	}
 
 	public void push(Object obj) {
-		if (!isCheckpointRecover()) stack.addFirst(obj);
+		if (!isCheckpointRecover()) stack.push(obj);
+	}
+
+	/**
+	 * Push a bool (not boxed)
+	 */
+	public void pushBool(boolean value) {
+		if (!isCheckpointRecover()) stack.pushBool(value);
+	}
 
+	/**
+	 * Push an int (not boxed)
+	 */
+	public void pushInt(long value) {
+		if (!isCheckpointRecover()) stack.pushInt(value);
+	}
+
+	/**
+	 * Push a real (not boxed)
+	 */
+	public void pushReal(double value) {
+		if (!isCheckpointRecover()) stack.pushReal(value);
 	}
 
 	/**
@@ -962,18 +1064,40 @@ public class BdsThread extends Thread implements BdsSerialize {
 
 	@Override
 	public void run() {
+		try {
+			runBdsThread();
+		} finally {
+			if (sysCoprocess != null) sysCoprocess.close();
+			if (finished != null) finished.countDown();
+		}
+	}
+
+	/**
+	 * Run this BdsThread
+	 */
+	protected void runBdsThread() {
 		timer = new Timer();
 
 		createLogDir(); // Create log dir
 
 		// Start child threads (e.g. when recovering)
 		for (BdsThread bth : bdsChildThreadsById.values()) {
-			if (!bth.isAlive() && !bth.isFinished()) bth.start();
+			if (!bth.isThreadAlive() && !bth.isFinished()) bth.startThread();
 		}
 
 		// Add this thread to collections
 		BdsThreads.getInstance().add(this);
 
+		// Local cache statistics (reported when the program finishes) start here
+		if (config != null && isRoot()) LocalCache.get();
+
+		// Report progress (tasks are added to the report as they finish)
+		if (config != null && isRoot() && config.isLog()) {
+			ReportProgress reportProgress = new ReportProgress(this);
+			config.setReportProgress(reportProgress);
+			reportProgress.start();
+		}
+
 		// Run statement (i.e. run program)
 		boolean ok = true;
 		runStatement();
@@ -1030,6 +1154,9 @@ public class BdsThread extends Thread implements BdsSerialize {
 
 		// Create reports? Only root thread creates reports
 		if (config != null && isRoot()) {
+			// Finish progress report
+			if (config.getReportProgress() != null) config.getReportProgress().kill();
+
 			// Create HTML report?
 			if (config.isReportHtml()) {
 				Report report = new Report(this, false);
@@ -1070,6 +1197,13 @@ public class BdsThread extends Thread implements BdsSerialize {
 	 * Run this node
 	 */
 	public void run(BdsNode node) {
+		// Fast path: Nodes that can never checkpoint, wait or create tasks / threads
+		// don't need program counter or scope bookkeeping (not used when debugging)
+		if (runState == RunState.OK && debugMode == null && node.isFastRun()) {
+			runFast(node);
+			return;
+		}
+
 		// Before node execution
 		if (!isCheckpointRecover()) runBegin(node);
 
@@ -1093,6 +1227,30 @@ public class BdsThread extends Thread implements BdsSerialize {
 		if (!isCheckpointRecover()) runEnd(node);
 	}
 
+	/**
+	 * Run a node that doesn't need bookkeeping (see BdsNode.isFastRun()).
+	 * Errors are handled by the outermost 'fast' node: Values pushed by
+	 * its sub-nodes are removed from the stack, so the stack is consistent
+	 * with the program counter if a checkpoint is created
+	 */
+	protected void runFast(BdsNode node) {
+		if (fastRunDepth > 0) {
+			node.runStep(this);
+			return;
+		}
+
+		int stackSize = stack.size();
+		fastRunDepth++;
+		try {
+			node.runStep(this);
+		} catch (Throwable t) {
+			stack.truncate(stackSize);
+			fatalError(node, t);
+		} finally {
+			fastRunDepth--;
+		}
+	}
+
 	/**
 	 * Run before running the node
 	 */
@@ -1170,7 +1328,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 
 		// Stack
 		String b64 = serializer.getNextField();
-		stack = (b64 != null && !b64.isEmpty() ? (Deque<Object>) serializer.base64Decode(b64) : null);
+		stack = new ValueStack(b64 != null && !b64.isEmpty() ? (Deque<Object>) serializer.base64Decode(b64) : null);
 	}
 
 	@Override
@@ -1252,7 +1410,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 		out.append("\t" + serializer.serializeSaveValue(parent != null ? parent.getBdsThreadId() : ""));
 		out.append("\t" + serializer.serializeSaveValue(runState.toString()));
 		out.append("\t" + serializer.serializeSaveValue(currentDir));
-		out.append("\t" + serializer.base64encode(stack));
+		out.append("\t" + serializer.base64encode(stack.toDeque()));
 		return out.toString();
 	}
 
@@ -1415,6 +1573,21 @@ public class BdsThread extends Thread implements BdsSerialize {
 		return sb.toString();
 	}
 
+	/**
+	 * Start running this BdsThread, either on its own thread
+	 * or on the ParallelExecutor (see 'Config.PARALLEL_MODE')
+	 */
+	public void startThread() {
+		ParallelExecutor parallelExecutor = (config != null ? config.getParallelExecutor() : null);
+		if (parallelExecutor == null || parallelExecutor.isThreadPerBdsThread()) {
+			start();
+			return;
+		}
+
+		finished = new CountDownLatch(1);
+		parallelExecutor.execute(this);
+	}
+
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -1433,7 +1606,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 	public String toStringStack() {
 		StringBuilder sb = new StringBuilder();
 		int num = 0;
-		for (Object obj : stack)
+		for (Object obj : stack.toDeque())
 			sb.append("Stack[" + (num++) + "]:\tClass: " + obj.getClass().getSimpleName() + "\tValue: " + obj.toString() + "\n");
 		return sb.toString();
 	}
@@ -1488,7 +1661,7 @@ public class BdsThread extends Thread implements BdsSerialize {
 			if (bdsThread != null) {
 				if (isDebug()) Timer.showStdErr("Waiting for parallel '" + bdsThread.getBdsThreadId() + "' to finish. RunState: " + bdsThread.getRunState());
 				if (bdsThread.isFinished()) return true;
-				bdsThread.join();
+				bdsThread.joinThread();
 				return bdsThread.getExitValue() == 0; // Finished OK?
 			}
 		} catch (InterruptedException e) {
@@ -0,0 +1,219 @@
+package org.bds.run;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinPool.ManagedBlocker;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bds.util.Timer;
+
+/**
+ * Run BdsThreads created by 'par' expressions
+ *
+ * Modes:
+ *   - thread  : Each BdsThread runs on its own (operating system) thread
+ *   - virtual : BdsThreads run on virtual threads (requires Java 21 or later,
+ *               falls back to 'pool' if not available)
+ *   - pool    : BdsThreads run on a bounded work-stealing pool. Blocking points
+ *               ('wait', 'sleep', waiting for tasks) are 'managed blocks', so
+ *               the pool can add a worker while a BdsThread is blocked
+ *
+ * Note: In 'pool' mode, at most 'maxSpareThreads' workers are added to replace
+ *       blocked BdsThreads (the JVM fails if a pool adds too many workers).
+ *       Once this limit is reached, BdsThreads block without adding a worker
+ *       and new BdsThreads run on their own thread, so they never wait in the
+ *       pool's queue for a blocked worker
+ *
+ * @author pcingola
+ */
+public class ParallelExecutor {
+
+	public static final String MODE_THREAD = "thread";
+	public static final String MODE_VIRTUAL = "virtual";
+	public static final String MODE_POOL = "pool";
+	public static final int DEFAULT_MAX_SPARE_THREADS = 128; // Default maximum number of workers added to replace blocked BdsThreads (must be lower than the JVM's limit, 256)
+
+	/**
+	 * A pool worker (it knows the executor it belongs to)
+	 */
+	static class Worker extends ForkJoinWorkerThread {
+
+		ParallelExecutor parallelExecutor;
+
+		Worker(ForkJoinPool pool, ParallelExecutor parallelExecutor) {
+			super(pool);
+			this.parallelExecutor = parallelExecutor;
+		}
+	}
+
+	String mode;
+	ForkJoinPool pool; // Used in 'pool' mode
+	int maxSpareThreads; // Maximum number of workers added to the pool to replace blocked BdsThreads
+	AtomicInteger spareThreads; // Number of BdsThreads blocked, whose worker has been replaced
+	Method startVirtualThread; // Thread.startVirtualThread(Runnable), used in 'virtual' mode
+
+	/**
+	 * Block until 'latch' reaches zero
+	 */
+	public static void await(final CountDownLatch latch) throws InterruptedException {
+		block(new ManagedBlocker() {
+
+			@Override
+			public boolean block() throws InterruptedException {
+				latch.await();
+				return true;
+			}
+
+			@Override
+			public boolean isReleasable() {
+				return latch.getCount() == 0;
+			}
+		});
+	}
+
+	/**
+	 * Block current thread until 'blocker' is released.
+	 * If the thread is a pool worker, the pool adds a worker while
+	 * it is blocked (unless there are already 'maxSpareThreads')
+	 */
+	static void block(ManagedBlocker blocker) throws InterruptedException {
+		Thread thread = Thread.currentThread();
+		ParallelExecutor pe = (thread instanceof Worker ? ((Worker) thread).parallelExecutor : null);
+
+		// Pool worker: Let the pool replace it while blocked
+		if (pe != null && pe.spareThreads.incrementAndGet() <= pe.maxSpareThreads) {
+			try {
+				ForkJoinPool.managedBlock(blocker);
+				return;
+			} finally {
+				pe.spareThreads.decrementAndGet();
+			}
+		}
+		if (pe != null) pe.spareThreads.decrementAndGet();
+
+		// Block without replacing this thread
+		if (!blocker.isReleasable()) blocker.block();
+	}
+
+	public static ParallelExecutor factory(String mode, int poolSize, int maxSpareThreads) {
+		if (mode == null || mode.isEmpty()) mode = MODE_THREAD;
+
+		switch (mode.toLowerCase()) {
+		case MODE_THREAD:
+		case MODE_VIRTUAL:
+		case MODE_POOL:
+			return new ParallelExecutor(mode.toLowerCase(), poolSize, maxSpareThreads);
+
+		default:
+			throw new RuntimeException("Unknown parallel mode '" + mode + "'");
+		}
+	}
+
+	/**
+	 * Sleep 'millis' milliseconds
+	 */
+	public static void sleep(final long millis) throws InterruptedException {
+		final long end = System.currentTimeMillis() + millis;
+
+		block(new ManagedBlocker() {
+
+			@Override
+			public boolean block() throws InterruptedException {
+				long remaining = end - System.currentTimeMillis();
+				if (remaining > 0) Thread.sleep(remaining);
+				return true;
+			}
+
+			@Override
+			public boolean isReleasable() {
+				return System.currentTimeMillis() >= end;
+			}
+		});
+	}
+
+	/**
+	 * Wait on 'lock' (i.e. 'lock.wait(millis)'). The caller must own lock's monitor
+	 */
+	public static void waitOn(final Object lock, final long millis) throws InterruptedException {
+		block(new ManagedBlocker() {
+
+			boolean done = false;
+
+			@Override
+			public boolean block() throws InterruptedException {
+				lock.wait(millis);
+				done = true;
+				return true;
+			}
+
+			@Override
+			public boolean isReleasable() {
+				return done;
+			}
+		});
+	}
+
+	protected ParallelExecutor(String mode, int poolSize, int maxSpareThreads) {
+		this.mode = mode;
+		this.maxSpareThreads = (maxSpareThreads > 0 ? maxSpareThreads : DEFAULT_MAX_SPARE_THREADS);
+		spareThreads = new AtomicInteger();
+
+		if (mode.equals(MODE_VIRTUAL)) {
+			try {
+				startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+			} catch (NoSuchMethodException e) {
+				Timer.showStdErr("Virtual threads are not supported by this Java version, using parallel mode '" + MODE_POOL + "' instead");
+				this.mode = MODE_POOL;
+			}
+		}
+
+		if (this.mode.equals(MODE_POOL)) {
+			if (poolSize <= 0) poolSize = Runtime.getRuntime().availableProcessors();
+			pool = new ForkJoinPool(poolSize, new ForkJoinWorkerThreadFactory() {
+
+				@Override
+				public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+					return new Worker(pool, ParallelExecutor.this);
+				}
+			}, null, true);
+		}
+	}
+
+	/**
+	 * Run 'runnable' (a BdsThread)
+	 */
+	public void execute(Runnable runnable) {
+		if (pool != null) {
+			// Too many blocked workers? Don't queue: Run on a new thread
+			if (spareThreads.get() >= maxSpareThreads) new Thread(runnable).start();
+			else pool.execute(runnable);
+			return;
+		}
+
+		try {
+			startVirtualThread.invoke(null, runnable);
+		} catch (Exception e) {
+			throw new RuntimeException("Cannot start virtual thread", e);
+		}
+	}
+
+	public String getMode() {
+		return mode;
+	}
+
+	/**
+	 * Does each BdsThread run on its own thread? (i.e. 'Thread.start()' is used)
+	 */
+	public boolean isThreadPerBdsThread() {
+		return mode.equals(MODE_THREAD);
+	}
+
+	@Override
+	public String toString() {
+		return "ParallelExecutor(" + mode + (pool != null ? ", parallelism: " + pool.getParallelism() + ", max spare threads: " + maxSpareThreads : "") + ")";
+	}
+
+}
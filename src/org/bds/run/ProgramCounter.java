@@ -1,7 +1,8 @@
 package org.bds.run;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Stack;
+import java.util.NoSuchElementException;
 
 import org.bds.lang.BdsNode;
 import org.bds.serialize.BdsSerialize;
@@ -20,21 +21,22 @@ public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 	int id;
 	int checkPointRecoverNodeIdx; // Checkpoint recovery node index
 	int initialSize;
-	Stack<Integer> nodeIds;
+	int nodeIds[]; // Node IDs (stack)
+	int size; // Number of node IDs in the stack
 
-	protected static int nextId() {
+	protected static synchronized int nextId() {
 		return ++programCounterNum;
 	}
 
 	public ProgramCounter() {
-		nodeIds = new Stack<Integer>();
+		nodeIds = new int[16];
 		id = nextId();
 		initialSize = 0;
 	}
 
 	public ProgramCounter(ProgramCounter pc) {
-		nodeIds = new Stack<Integer>();
-		nodeIds.addAll(pc.nodeIds);
+		nodeIds = Arrays.copyOf(pc.nodeIds, Math.max(16, pc.nodeIds.length));
+		size = pc.size;
 		id = nextId();
 		initialSize = pc.size();
 	}
@@ -79,21 +81,36 @@ public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 
 	@Override
 	public Iterator<Integer> iterator() {
-		return nodeIds.iterator();
+		return new Iterator<Integer>() {
+			int idx = 0;
+
+			@Override
+			public boolean hasNext() {
+				return idx < size;
+			}
+
+			@Override
+			public Integer next() {
+				if (idx >= size) throw new NoSuchElementException();
+				return nodeIds[idx++];
+			}
+		};
 	}
 
 	/**
 	 * Get node ID for index 'idx'
 	 */
 	public int nodeId(int idx) {
-		return nodeIds.get(idx);
+		if (idx >= size) throw new ArrayIndexOutOfBoundsException(idx);
+		return nodeIds[idx];
 	}
 
 	/**
 	 * Add to program counter
 	 */
 	public void pop(BdsNode bdsNode) {
-		int nodeId = nodeIds.pop();
+		if (size <= 0) throw new RuntimeException("Empty program counter");
+		int nodeId = nodeIds[--size];
 
 		// Sanity check
 		if (nodeId != bdsNode.getId()) {
@@ -109,7 +126,12 @@ public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 	 * Add to program counter
 	 */
 	public void push(BdsNode bdsNode) {
-		nodeIds.push(bdsNode.getId());
+		push(bdsNode.getId());
+	}
+
+	void push(int nodeId) {
+		if (size >= nodeIds.length) nodeIds = Arrays.copyOf(nodeIds, 2 * nodeIds.length);
+		nodeIds[size++] = nodeId;
 	}
 
 	@Override
@@ -117,7 +139,7 @@ public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 		initialSize = (int) serializer.getNextFieldInt();
 
 		for (int i = 1; i < serializer.getFields().length - 1; i++)
-			nodeIds.push((int) serializer.getNextFieldInt());
+			push((int) serializer.getNextFieldInt());
 	}
 
 	@Override
@@ -126,8 +148,8 @@ public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 		out.append(getClass().getSimpleName() + "\t");
 		out.append(initialSize + "\t");
 
-		for (int nn : nodeIds)
-			out.append(nn + "\t");
+		for (int i = 0; i < size; i++)
+			out.append(nodeIds[i] + "\t");
 
 		out.deleteCharAt(out.length() - 1); // Remove last tab
 		out.append("\n");
@@ -136,14 +158,14 @@ public class ProgramCounter implements BdsSerialize, Iterable<Integer> {
 	}
 
 	public int size() {
-		return nodeIds.size();
+		return size;
 	}
 
 	@Override
 	public String toString() {
 		StringBuilder pc = new StringBuilder();
-		for (int nn : nodeIds)
-			pc.append((pc.length() > 0 ? " -> " : "") + nn);
+		for (int i = 0; i < size; i++)
+			pc.append((pc.length() > 0 ? " -> " : "") + nodeIds[i]);
 
 		return "PC: size " + size() + " / " + initialSize //
 				+ (isEmpty() ? " [Empty] " : "") //
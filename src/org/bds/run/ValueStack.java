@@ -0,0 +1,175 @@
+package org.bds.run;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+import org.bds.lang.Type;
+
+/**
+ * Program stack (used by BdsThread to evaluate expressions)
+ *
+ * Primitive values (int, real, bool) are stored unboxed in
+ * their own 'lanes', so arithmetic expressions don't have to
+ * create a new Long / Double object on every step.
+ * Values are only boxed when they are popped as objects.
+ *
+ * @author pcingola
+ */
+public class ValueStack {
+
+	public static final int INITIAL_CAPACITY = 16;
+
+	// Value tags
+	static final byte TAG_OBJECT = 0;
+	static final byte TAG_INT = 1;
+	static final byte TAG_REAL = 2;
+	static final byte TAG_BOOL = 3;
+
+	byte tags[]; // Type of each entry
+	long longs[]; // Lane for 'int' and 'bool' values
+	double doubles[]; // Lane for 'real' values
+	Object objects[]; // Lane for everything else
+	int size;
+
+	public ValueStack() {
+		tags = new byte[INITIAL_CAPACITY];
+		longs = new long[INITIAL_CAPACITY];
+		doubles = new double[INITIAL_CAPACITY];
+		objects = new Object[INITIAL_CAPACITY];
+	}
+
+	/**
+	 * Create a stack from a deque (first element is the top of the stack)
+	 */
+	public ValueStack(Deque<Object> deque) {
+		this();
+		if (deque == null) return;
+		for (Iterator<Object> it = deque.descendingIterator(); it.hasNext();)
+			push(it.next());
+	}
+
+	/**
+	 * Make sure there is room for one more entry
+	 */
+	void grow() {
+		if (size < tags.length) return;
+		int len = 2 * tags.length;
+		tags = Arrays.copyOf(tags, len);
+		longs = Arrays.copyOf(longs, len);
+		doubles = Arrays.copyOf(doubles, len);
+		objects = Arrays.copyOf(objects, len);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Value at position 'idx' (boxed)
+	 */
+	Object get(int idx) {
+		switch (tags[idx]) {
+		case TAG_INT:
+			return longs[idx];
+
+		case TAG_REAL:
+			return doubles[idx];
+
+		case TAG_BOOL:
+			return longs[idx] != 0;
+
+		default:
+			return objects[idx];
+		}
+	}
+
+	public Object peek() {
+		if (size == 0) return null;
+		return get(size - 1);
+	}
+
+	public Object pop() {
+		if (size == 0) throw new RuntimeException("Empty stack");
+		size--;
+		Object obj = get(size);
+		objects[size] = null;
+		return obj;
+	}
+
+	public boolean popBool() {
+		if (size > 0 && tags[size - 1] == TAG_BOOL) return longs[--size] != 0;
+		return (Boolean) Type.BOOL.cast(pop());
+	}
+
+	public long popInt() {
+		if (size > 0 && tags[size - 1] == TAG_INT) return longs[--size];
+		return (Long) Type.INT.cast(pop());
+	}
+
+	public double popReal() {
+		if (size > 0) {
+			byte tag = tags[size - 1];
+			if (tag == TAG_REAL) return doubles[--size];
+			if (tag == TAG_INT) return longs[--size];
+		}
+		return (Double) Type.REAL.cast(pop());
+	}
+
+	public void push(Object obj) {
+		grow();
+		tags[size] = TAG_OBJECT;
+		objects[size] = obj;
+		size++;
+	}
+
+	public void pushBool(boolean value) {
+		grow();
+		tags[size] = TAG_BOOL;
+		longs[size] = value ? 1 : 0;
+		size++;
+	}
+
+	public void pushInt(long value) {
+		grow();
+		tags[size] = TAG_INT;
+		longs[size] = value;
+		size++;
+	}
+
+	public void pushReal(double value) {
+		grow();
+		tags[size] = TAG_REAL;
+		doubles[size] = value;
+		size++;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove entries from the top of the stack, until it has 'newSize' entries
+	 */
+	public void truncate(int newSize) {
+		while (size > newSize)
+			objects[--size] = null;
+	}
+
+	/**
+	 * Convert to a deque of (boxed) values, first element is the top of the stack
+	 */
+	public Deque<Object> toDeque() {
+		LinkedList<Object> deque = new LinkedList<>();
+		for (int i = size - 1; i >= 0; i--)
+			deque.add(get(i));
+		return deque;
+	}
+
+	@Override
+	public String toString() {
+		return toDeque().toString();
+	}
+
+}
@@ -1,6 +1,7 @@
 package org.bds.scope;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -56,6 +57,9 @@ public class Scope implements BdsSerialize, Iterable<String> {
 	HashMap<String, ScopeSymbol> symbols;
 	AutoHashMap<String, List<ScopeSymbol>> functions; // Functions can have more than one item under the same name. E.g.: f(int x), f(string s), f(int x, int y), all are called 'f'
 	BdsNode node;
+	Scope layout; // Scope that assigns variables to slots (the one created during type-checking for this node). Null if variables have no slots
+	HashMap<String, Integer> slotByName; // Slot assigned to each variable name (only if this scope is a layout). Only modified during type-checking
+	ScopeSymbol slots[]; // Variables indexed by slot
 
 	/**
 	 * Class scope
@@ -72,7 +76,7 @@ public class Scope implements BdsSerialize, Iterable<String> {
 		return globalScope;
 	}
 
-	protected static int nextId() {
+	protected static synchronized int nextId() {
 		return ++scopeNum;
 	}
 
@@ -104,7 +108,11 @@ public class Scope implements BdsSerialize, Iterable<String> {
 		id = nextId();
 
 		symbols = new HashMap<String, ScopeSymbol>();
-		if (node != null) copy(node.getScope()); // Copy symbols from other scope
+		if (node != null) {
+			Scope nodeScope = node.getScope();
+			if (nodeScope != null) layout = nodeScope.layout; // Share layout with the scope created during type-checking
+			copy(nodeScope); // Copy symbols from other scope
+		}
 	}
 
 	public synchronized void add(ScopeSymbol symbol) {
@@ -114,7 +122,22 @@ public class Scope implements BdsSerialize, Iterable<String> {
 
 			// Add function by name
 			functions.getOrCreate(symbol.getName()).add(symbol);
-		} else symbols.put(symbol.getName(), symbol);
+		} else {
+			symbols.put(symbol.getName(), symbol);
+
+			// Add to slot
+			if (layout == null) return;
+			Integer slot = layout.slotByName.get(symbol.getName());
+			if (slot == null) {
+				if (layout != this) return; // Not declared during type-checking, use name
+				slot = slotByName.size(); // Type-checking: Assign a new slot
+				slotByName.put(symbol.getName(), slot);
+			}
+
+			if (slots == null) slots = new ScopeSymbol[Math.max(slot + 1, layout.slotByName.size())];
+			else if (slot >= slots.length) slots = Arrays.copyOf(slots, Math.max(slot + 1, 2 * slots.length));
+			slots[slot] = symbol;
+		}
 	}
 
 	/**
@@ -215,6 +238,16 @@ public class Scope implements BdsSerialize, Iterable<String> {
 		return functions.get(functionName);
 	}
 
+	/**
+	 * Scope that assigns slots to variables in this scope.
+	 * All runtime scopes created for the same node share the
+	 * layout of the scope created for that node during type-checking
+	 * @return Layout or null if variables in this scope have no slots
+	 */
+	public Scope getLayout() {
+		return layout;
+	}
+
 	public BdsNode getNode() {
 		return node;
 	}
@@ -237,22 +270,61 @@ public class Scope implements BdsSerialize, Iterable<String> {
 		return (node.getFileName() != null ? node.getFileName() + ":" + node.getLineNum() + ":" : "") + node.getClass().getSimpleName();
 	}
 
+	/**
+	 * Slot assigned to a variable name in this layout
+	 * @return Slot number or -1 if not found
+	 */
+	public int getSlot(String name) {
+		Integer slot = (slotByName != null ? slotByName.get(name) : null);
+		return slot != null ? slot : -1;
+	}
+
 	/**
 	 * Get symbol on this scope (or any parent scope)
 	 */
 	public ScopeSymbol getSymbol(String symbol) {
 		// Find symbol on this or any parent scope
 		for (Scope scope = this; scope != null; scope = scope.parent) {
-			// Try to find a symbol
-			ScopeSymbol ssym = scope.getSymbolLocal(symbol);
+			ScopeSymbol ssym = scope.getSymbolOrFunctionLocal(symbol);
 			if (ssym != null) return ssym;
+		}
+
+		// Nothing found
+		return null;
+	}
 
-			// Try a function
-			List<ScopeSymbol> fs = scope.getFunctionsLocal(symbol);
-			// Since we are only matching by name, there has to be one
-			// and only one function with that name
-			// Note, this is limiting and very naive. A better approach is needed
-			if (fs != null && fs.size() == 1) return fs.get(0);
+	/**
+	 * Get symbol on this scope (or any parent scope) using a slot resolved during type-checking
+	 *
+	 * @param symbol : Symbol name
+	 * @param slotLayout : Layout of the scope where the symbol is declared
+	 * @param slot : Symbol's slot in 'slotLayout'
+	 * @param skipLayouts : Layouts of scopes known not to declare the symbol (no lookup is performed)
+	 *
+	 * Scopes that are neither 'slotLayout' nor in 'skipLayouts' (e.g. a caller's
+	 * scope) are searched by name, so the result is the same as 'getSymbol(symbol)'
+	 */
+	public ScopeSymbol getSymbol(String symbol, Scope slotLayout, int slot, Scope skipLayouts[]) {
+		for (Scope scope = this; scope != null; scope = scope.parent) {
+			Scope layout = scope.getLayout();
+
+			// Declaring scope: Direct access by slot
+			if (layout == slotLayout) {
+				ScopeSymbol slotsScope[] = scope.slots;
+				ScopeSymbol ssym = (slotsScope != null && slot < slotsScope.length ? slotsScope[slot] : null);
+				if (ssym != null) return ssym;
+				return scope.getSymbol(symbol); // Not declared yet (or not by slot), use name
+			}
+
+			// Skip scopes that never declare this symbol
+			boolean skip = false;
+			for (int i = 0; !skip && i < skipLayouts.length; i++)
+				skip = (skipLayouts[i] == layout);
+			if (skip) continue;
+
+			// Unknown scope: Find by name
+			ScopeSymbol ssym = scope.getSymbolOrFunctionLocal(symbol);
+			if (ssym != null) return ssym;
 		}
 
 		// Nothing found
@@ -266,6 +338,24 @@ public class Scope implements BdsSerialize, Iterable<String> {
 		return symbols.get(symbol);
 	}
 
+	/**
+	 * Get symbol or function on this scope (not parent scopes)
+	 */
+	ScopeSymbol getSymbolOrFunctionLocal(String symbol) {
+		// Try to find a symbol
+		ScopeSymbol ssym = getSymbolLocal(symbol);
+		if (ssym != null) return ssym;
+
+		// Try a function
+		List<ScopeSymbol> fs = getFunctionsLocal(symbol);
+		// Since we are only matching by name, there has to be one
+		// and only one function with that name
+		// Note, this is limiting and very naive. A better approach is needed
+		if (fs != null && fs.size() == 1) return fs.get(0);
+
+		return null;
+	}
+
 	public Collection<ScopeSymbol> getSymbols() {
 		return symbols.values();
 	}
@@ -285,6 +375,16 @@ public class Scope implements BdsSerialize, Iterable<String> {
 		return getSymbolLocal(symbol) != null || getFunctionsLocal(symbol) != null;
 	}
 
+	/**
+	 * Make this scope a layout, i.e. assign slots to variables added to this scope.
+	 * Only used for scopes created during type-checking: Layouts are not modified
+	 * once the program is running, so runtime scopes can use them without locking
+	 */
+	public void initLayout() {
+		layout = this;
+		slotByName = new HashMap<>();
+	}
+
 	/**
 	 * Is this scope empty?
 	 */
@@ -31,7 +31,7 @@ public class ScopeSymbol implements BdsSerialize, Comparable<ScopeSymbol> {
 	Object value;
 	boolean constant = false;
 
-	protected static int nextId() {
+	protected static synchronized int nextId() {
 		return ++scopeSymbolNum;
 	}
 
@@ -2,11 +2,9 @@ package org.bds.serialize;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import java.io.PrintStream;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -14,7 +12,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.bds.Bds;
@@ -24,6 +21,7 @@ import org.bds.lang.BdsNodeFactory;
 import org.bds.lang.BlockWithFile;
 import org.bds.lang.PrePostOperation;
 import org.bds.lang.PrimitiveType;
+import org.bds.lang.ProgramUnit;
 import org.bds.lang.Type;
 import org.bds.lang.TypeList;
 import org.bds.lang.TypeMap;
@@ -52,13 +50,15 @@ public class BdsSerializer {
 
 	String fileName;
 	int lineNum;
-	String line;
 	int parsedField;
 	String fields[];
 	Config config;
 	Set<BdsSerialize> serializedNodes;
 	Map<String, BdsThread> threadsById;
 	boolean extractSource;
+	String snapshot; // Serialized data, pending to be written
+	ProgramUnit programUnit; // First program unit parsed
+	long snapshotTime; // Time used to create the snapshot (milliseconds)
 
 	public BdsSerializer(String fileName, Config config) {
 		this.fileName = fileName;
@@ -106,6 +106,26 @@ public class BdsSerializer {
 		return threadsById.get(bdsThreadId);
 	}
 
+	/**
+	 * Escape a string
+	 * Note: Most strings do not need escaping, and 'escapeJava' is slow
+	 */
+	protected String escape(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < ' ' || c >= 0x7f || c == '"' || c == '\\') return StringEscapeUtils.escapeJava(str);
+		}
+		return str;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public long getSnapshotTime() {
+		return snapshotTime;
+	}
+
 	public String getCurrField() {
 		if (fields.length < parsedField) return "";
 		return fields[parsedField];
@@ -265,20 +285,36 @@ public class BdsSerializer {
 
 	/**
 	 * Load from a file
+	 * Note: Records are parsed one by one, the file is not loaded into memory
 	 */
 	public List<BdsThread> load() {
-		// Read the whole file
-		String file = Gpr.read(Gpr.reader(fileName, true));
-		if ((file == null) || file.isEmpty()) throw new RuntimeException("Cannot read file '" + fileName + "'");
-
-		// Split file into lines
-		String lines[] = file.split("\n");
+		CheckpointReader reader = CheckpointReader.open(fileName);
 
 		// Parse everything else
 		Scope.resetGlobalScope();
 
-		List<BdsThread> bdsThreads = parseLines(lines, null);
-		return bdsThreads;
+		try {
+			List<BdsThread> bdsThreads = parseRecords(reader, null);
+			if (reader.getCount() <= 0) throw new RuntimeException("Cannot read file '" + fileName + "'");
+			return bdsThreads;
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Load a program unit from a file (see 'save(ProgramUnit)')
+	 */
+	public ProgramUnit loadProgramUnit() {
+		CheckpointReader reader = CheckpointReader.open(fileName);
+
+		try {
+			parseRecords(reader, null);
+			if (reader.getCount() <= 0) throw new RuntimeException("Cannot read file '" + fileName + "'");
+			return programUnit;
+		} finally {
+			reader.close();
+		}
 	}
 
 	/**
@@ -327,12 +363,12 @@ public class BdsSerializer {
 	}
 
 	/**
-	 * Parse lines
+	 * Parse records
 	 *
-	 * @param lines
+	 * @param reader : Checkpoint reader
 	 * @param classNameFilter : If not null, only parse lines matching this className
 	 */
-	List<BdsThread> parseLines(String lines[], String classNameFilter) {
+	List<BdsThread> parseRecords(CheckpointReader reader, String classNameFilter) {
 		// Set fake IDs on
 		BdsNodeFactory.get().setCreateFakeIds(true);
 
@@ -343,12 +379,10 @@ public class BdsSerializer {
 		ArrayList<Scope> scopes = new ArrayList<Scope>();
 		Map<String, BdsSerialize> nodesById = new HashMap<String, BdsSerialize>();
 
-		// Parse lines
-		for (int i = 0; i < lines.length; i++) {
+		// Parse records
+		while ((fields = reader.next()) != null) {
 			// Update line info
-			lineNum = i + 1;
-			line = lines[i];
-			fields = line.split("\t");
+			lineNum = reader.getCount();
 
 			// Fields parsed
 			String clazz = fields[0];
@@ -437,6 +471,7 @@ public class BdsSerializer {
 						// UnSerialize
 						BdsNode csnode = (BdsNode) bdsSerialize;
 						serializedNodes.add(csnode);
+						if (programUnit == null && csnode instanceof ProgramUnit) programUnit = (ProgramUnit) csnode;
 					}
 				}
 			}
@@ -493,7 +528,7 @@ public class BdsSerializer {
 
 	public String parseString(String str) {
 		if (str.equals("null")) return null;
-		str = StringEscapeUtils.unescapeJava(str); // Un-escape
+		if (str.indexOf('\\') >= 0) str = StringEscapeUtils.unescapeJava(str); // Un-escape
 		str = str.substring(1, str.length() - 1); // Remove quotes
 		return str;
 	}
@@ -513,21 +548,46 @@ public class BdsSerializer {
 	 * Save data to file
 	 */
 	public void save(BdsThread bdsThread) {
-		try {
-			// Open compressed output file
-			PrintStream outFile = new PrintStream(new GZIPOutputStream(new FileOutputStream(fileName)));
+		snapshot(bdsThread);
+		write();
+	}
 
-			// Save version
-			outFile.print(Bds.class.getSimpleName() + "\t" + Bds.VERSION_SHORT + "\n");
+	/**
+	 * Save a program unit (nodes only, no threads or scopes) to file
+	 * Note: This is used to save compiled programs
+	 */
+	public void save(ProgramUnit programUnit) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(Bds.class.getSimpleName() + "\t" + Bds.VERSION_SHORT + "\n");
+		sb.append(serializeSave(programUnit));
 
-			// Save main thread
-			outFile.print(this.serializeSave(bdsThread));
-			outFile.close();
+		try {
+			CheckpointWriter writer = new CheckpointWriterBinary(fileName, true, false);
+			writer.addAll(sb.toString());
+			writer.close();
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Serialize all data (the file is written later, see 'write()')
+	 * Note: Threads are only paused while the snapshot is created
+	 */
+	public void snapshot(BdsThread bdsThread) {
+		long start = System.currentTimeMillis();
+		StringBuilder sb = new StringBuilder();
+
+		// Save version
+		sb.append(Bds.class.getSimpleName() + "\t" + Bds.VERSION_SHORT + "\n");
+
+		// Save main thread
+		sb.append(serializeSave(bdsThread));
+
+		snapshot = sb.toString();
+		snapshotTime = System.currentTimeMillis() - start;
+	}
+
 	/**
 	 * Serialize a node
 	 */
@@ -539,46 +599,71 @@ public class BdsSerializer {
 	/**
 	 * Serialize a value
 	 */
-	@SuppressWarnings("rawtypes")
 	public String serializeSaveValue(Object value) {
 		if (value == null) return "null";
+		if (value instanceof String) return serializeSaveValue((String) value);
+		return serializeSaveValue(new StringBuilder(), value).toString();
+	}
 
-		if (value instanceof Type) return TYPE_IDENTIFIER + ((Type) value).toStringSerializer();
+	/**
+	 * Serialize a value, append to 'sb'
+	 * Note: Appending to a single StringBuilder avoids creating many
+	 *       intermediate strings when serializing large lists and maps
+	 */
+	@SuppressWarnings("rawtypes")
+	protected StringBuilder serializeSaveValue(StringBuilder sb, Object value) {
+		if (value == null) return sb.append("null");
 
-		if (value instanceof BdsNode) return NODE_IDENTIFIER + ((BdsNode) value).getId();
+		if (value instanceof Type) return sb.append(TYPE_IDENTIFIER).append(((Type) value).toStringSerializer());
 
-		if (value instanceof String) {
-			String escapedStr = StringEscapeUtils.escapeJava(value.toString());
-			return "\"" + escapedStr + "\"";
-		}
+		if (value instanceof BdsNode) return sb.append(NODE_IDENTIFIER).append(((BdsNode) value).getId());
+
+		if (value instanceof String) return sb.append('"').append(escape(value.toString())).append('"');
 
 		if (value instanceof List) {
 			List list = (List) value;
-			StringBuilder sb = new StringBuilder(LIST_IDENTIFIER + list.size());
+			sb.append(LIST_IDENTIFIER).append(list.size());
 			for (Object o : list)
-				sb.append("\t" + serializeSaveValue(o));
+				serializeSaveValue(sb.append('\t'), o);
 
-			return sb.toString();
+			return sb;
 		}
 
 		if (value instanceof Map) {
 			Map map = (Map) value;
-			StringBuilder sb = new StringBuilder(MAP_IDENTIFIER + map.size());
+			sb.append(MAP_IDENTIFIER).append(map.size());
 			for (Object o : map.keySet()) {
-				sb.append("\t" + serializeSaveValue(o));
-				sb.append("\t" + serializeSaveValue(map.get(o)));
+				serializeSaveValue(sb.append('\t'), o);
+				serializeSaveValue(sb.append('\t'), map.get(o));
 			}
 
-			return sb.toString();
+			return sb;
 		}
 
 		// All other values: use default
-		return value.toString();
+		return sb.append(value.toString());
 	}
 
 	public String serializeSaveValue(String str) {
 		if (str == null) return "null";
-		String escapedStr = StringEscapeUtils.escapeJava(str);
-		return "\"" + escapedStr + "\"";
+		return "\"" + escape(str) + "\"";
+	}
+
+	/**
+	 * Write snapshot to file
+	 */
+	public void write() {
+		if (snapshot == null) throw new RuntimeException("No snapshot to write, file '" + fileName + "'");
+
+		try {
+			// Open output file (format and compression depend on config)
+			CheckpointWriter writer = CheckpointWriter.factory(fileName, config);
+			writer.addAll(snapshot);
+			writer.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+
+		snapshot = null; // Free memory
 	}
 }
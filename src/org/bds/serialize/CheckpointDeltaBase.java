@@ -0,0 +1,135 @@
+package org.bds.serialize;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records' hashes from a 'full' checkpoint file. Used as a
+ * base to create 'delta' checkpoints (i.e. checkpoints that
+ * only store records that changed)
+ *
+ * Records are indexed by a 64 bit hash. Since a record matching
+ * the wrong one would silently restore wrong data, a match also
+ * requires the same length and the same 'digest' (a second,
+ * independent, 64 bit hash).
+ *
+ * @author pcingola
+ */
+public class CheckpointDeltaBase {
+
+	public static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	public static final long FNV_PRIME = 0x100000001b3L;
+	public static final long DIGEST_MULTIPLIER = 0x9e3779b97f4a7c15L;
+	public static final int MAX_CHAIN = 16; // Maximum number of records to check when searching a hash
+
+	String fileName; // Base checkpoint file
+	long id; // Base checkpoint's ID
+	int size; // Number of records
+	long hashes[]; // Records' hashes
+	long digests[]; // Records' digests
+	int lengths[]; // Records' lengths
+	int nextSameHash[]; // Next record having the same hash (-1 if none)
+	Map<Long, Integer> lastByHash; // Last record having a given hash
+	Map<Long, Integer> firstByHash; // First record having a given hash
+
+	/**
+	 * Record's digest: A 64 bit hash, independent of 'hash()' (multiply
+	 * and xor-shift instead of FNV), record is 'line[0, end)'
+	 */
+	public static long digest(String line, int end) {
+		long h = end;
+		for (int i = 0; i < end; i++) {
+			h = (h + line.charAt(i)) * DIGEST_MULTIPLIER;
+			h ^= h >>> 29;
+		}
+		return h;
+	}
+
+	/**
+	 * Record's hash (64 bit FNV-1a), record is 'line[0, end)'
+	 */
+	public static long hash(String line, int end) {
+		long h = FNV_OFFSET;
+		for (int i = 0; i < end; i++)
+			h = (h ^ line.charAt(i)) * FNV_PRIME;
+		return h;
+	}
+
+	public CheckpointDeltaBase(String fileName, long id) {
+		this.fileName = fileName;
+		this.id = id;
+		hashes = new long[1024];
+		digests = new long[1024];
+		lengths = new int[1024];
+		nextSameHash = new int[1024];
+		lastByHash = new HashMap<>();
+		firstByHash = new HashMap<>();
+	}
+
+	/**
+	 * Add a record's hash, digest and length
+	 */
+	public void add(long hash, long digest, int length) {
+		if (size >= hashes.length) {
+			hashes = Arrays.copyOf(hashes, 2 * size);
+			digests = Arrays.copyOf(digests, 2 * size);
+			lengths = Arrays.copyOf(lengths, 2 * size);
+			nextSameHash = Arrays.copyOf(nextSameHash, 2 * size);
+		}
+
+		hashes[size] = hash;
+		digests[size] = digest;
+		lengths[size] = length;
+		nextSameHash[size] = -1;
+
+		Integer last = lastByHash.put(hash, size);
+		if (last != null) nextSameHash[last] = size;
+		else firstByHash.put(hash, size);
+
+		size++;
+	}
+
+	/**
+	 * Find a record having 'hash', 'digest' and 'length', starting at index 'start'
+	 * @return Record index or -1 if not found
+	 */
+	public int find(long hash, long digest, int length, int start) {
+		if (start < size && matches(start, hash, digest, length)) return start;
+
+		Integer first = firstByHash.get(hash);
+		if (first == null) return -1;
+
+		int idx = first;
+		for (int i = 0; (idx >= 0) && (i < MAX_CHAIN); i++) {
+			if (idx >= start && matches(idx, hash, digest, length)) return idx;
+			idx = nextSameHash[idx];
+		}
+
+		return -1;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Does record 'idx' have this hash, digest and length?
+	 */
+	boolean matches(int idx, long hash, long digest, int length) {
+		return hashes[idx] == hash && digests[idx] == digest && lengths[idx] == length;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public int size() {
+		return size;
+	}
+
+}
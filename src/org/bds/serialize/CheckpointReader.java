@@ -0,0 +1,77 @@
+package org.bds.serialize;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Read serialized records from a checkpoint file
+ *
+ * Records are read one at a time, so the whole file
+ * is never loaded into memory
+ *
+ * @author pcingola
+ */
+public abstract class CheckpointReader {
+
+	protected String fileName;
+	protected InputStream in;
+	protected int count; // Number of records read
+
+	/**
+	 * Open a checkpoint file: Detect compression and format
+	 */
+	public static CheckpointReader open(String fileName) {
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(fileName), CheckpointWriter.BUFFER_SIZE);
+
+			// Compressed?
+			in.mark(2);
+			int b1 = in.read(), b2 = in.read();
+			in.reset();
+			if (b1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b2 == (GZIPInputStream.GZIP_MAGIC >> 8)) {
+				in = new BufferedInputStream(new GZIPInputStream(in, CheckpointWriter.BUFFER_SIZE), CheckpointWriter.BUFFER_SIZE);
+			}
+
+			// Binary format?
+			byte magic[] = CheckpointWriterBinary.MAGIC;
+			in.mark(magic.length);
+			boolean binary = true;
+			for (int i = 0; i < magic.length; i++)
+				binary &= (in.read() == magic[i]);
+
+			if (binary) return new CheckpointReaderBinary(fileName, in);
+
+			in.reset();
+			return new CheckpointReaderText(fileName, in);
+		} catch (IOException e) {
+			throw new RuntimeException("Cannot read file '" + fileName + "'", e);
+		}
+	}
+
+	public CheckpointReader(String fileName, InputStream in) {
+		this.fileName = fileName;
+		this.in = in;
+	}
+
+	public void close() {
+		try {
+			in.close();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Read next record's fields
+	 * @return Record's fields or null if there are no more records
+	 */
+	public abstract String[] next();
+
+}
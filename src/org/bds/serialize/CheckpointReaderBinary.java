@@ -0,0 +1,224 @@
+package org.bds.serialize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Read checkpoint file in binary format
+ * Note: The file's MAGIC number has already been read
+ *
+ * @see CheckpointWriterBinary
+ *
+ * @author pcingola
+ */
+public class CheckpointReaderBinary extends CheckpointReader {
+
+	long id;
+	ArrayList<String> stringTable;
+	boolean done;
+	CheckpointReaderBinary base; // Base checkpoint (delta checkpoints)
+	int baseSize; // Base checkpoint: Expected number of records
+	int baseCount; // Base checkpoint: Number of records read
+	int copyCount; // Number of records pending to be copied from base checkpoint
+
+	public CheckpointReaderBinary(String fileName, InputStream in) throws IOException {
+		super(fileName, in);
+		stringTable = new ArrayList<>();
+		readHeader();
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		if (base != null) base.close();
+	}
+
+	public boolean isDelta() {
+		return base != null;
+	}
+
+	@Override
+	public String[] next() {
+		if (done) return null;
+
+		try {
+			while (true) {
+				// Pending records from base checkpoint?
+				if (copyCount > 0) {
+					copyCount--;
+					count++;
+					return nextBase();
+				}
+
+				int op = (int) readVarLong();
+				switch (op) {
+				case CheckpointWriterBinary.OP_END:
+					done = true;
+					if (base != null) checkBase();
+					return null;
+
+				case CheckpointWriterBinary.OP_RECORD:
+					count++;
+					return readRecord();
+
+				case CheckpointWriterBinary.OP_COPY:
+					if (base == null) throw new RuntimeException("Copy operation in non-delta checkpoint");
+					int skip = (int) readVarLong();
+					for (int i = 0; i < skip; i++)
+						nextBase();
+					copyCount = (int) readVarLong();
+					break;
+
+				default:
+					throw new RuntimeException("Unknown operation code " + op);
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading checkpoint file '" + fileName + "'", e);
+		}
+	}
+
+	/**
+	 * Make sure that all records from base checkpoint have been read
+	 */
+	protected void checkBase() {
+		while (baseCount < baseSize)
+			nextBase();
+
+		if (base.next() != null) throw new RuntimeException("Base checkpoint file '" + base.fileName + "' has more records than expected");
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Read next record from base checkpoint
+	 */
+	protected String[] nextBase() {
+		String fields[] = base.next();
+		if (fields == null || baseCount >= baseSize) throw new RuntimeException("Base checkpoint file '" + base.fileName + "' has less records than expected");
+
+		baseCount++;
+		return fields;
+	}
+
+	protected int read() throws IOException {
+		int b = in.read();
+		if (b < 0) throw new EOFException("Unexpected end of file");
+		return b;
+	}
+
+	protected byte[] readBytes(int len) throws IOException {
+		byte bytes[] = new byte[len];
+		int pos = 0;
+		while (pos < len) {
+			int n = in.read(bytes, pos, len - pos);
+			if (n < 0) throw new EOFException("Unexpected end of file");
+			pos += n;
+		}
+		return bytes;
+	}
+
+	protected String readField() throws IOException {
+		int tag = (int) readVarLong();
+		switch (tag) {
+		case CheckpointWriterBinary.TAG_STRING:
+			return readString();
+
+		case CheckpointWriterBinary.TAG_STRING_NEW:
+			String str = readString();
+			stringTable.add(str);
+			return str;
+
+		case CheckpointWriterBinary.TAG_STRING_REF:
+			return stringTable.get((int) readVarLong());
+
+		case CheckpointWriterBinary.TAG_INT:
+			return Long.toString(readVarLongSigned());
+
+		case CheckpointWriterBinary.TAG_REAL:
+			long bits = 0;
+			for (int i = 0; i < 8; i++)
+				bits = (bits << 8) | read();
+			return Double.toString(Double.longBitsToDouble(bits));
+
+		case CheckpointWriterBinary.TAG_TRUE:
+			return "true";
+
+		case CheckpointWriterBinary.TAG_FALSE:
+			return "false";
+
+		case CheckpointWriterBinary.TAG_NODE:
+			return BdsSerializer.NODE_IDENTIFIER + readVarLongSigned();
+
+		case CheckpointWriterBinary.TAG_QUOTED:
+			return "\"" + readString() + "\"";
+
+		case CheckpointWriterBinary.TAG_BASE64:
+			return new String(Base64Coder.encode(readBytes((int) readVarLong())));
+
+		default:
+			throw new RuntimeException("Unknown field tag " + tag);
+		}
+	}
+
+	protected void readHeader() throws IOException {
+		int version = (int) readVarLong();
+		if (version > CheckpointWriterBinary.FORMAT_VERSION) throw new RuntimeException("Unsupported checkpoint format version " + version + " in file '" + fileName + "'");
+
+		int flags = (int) readVarLong();
+		id = readVarLongSigned();
+		if ((flags & CheckpointWriterBinary.FLAG_DELTA) != 0) {
+			String baseFileName = readString();
+			long baseId = readVarLongSigned();
+			baseSize = (int) readVarLong();
+
+			// Open base checkpoint, make sure it's the one used to create this delta checkpoint
+			CheckpointReader reader = CheckpointReader.open(baseFileName);
+			if (!(reader instanceof CheckpointReaderBinary) || ((CheckpointReaderBinary) reader).getId() != baseId) {
+				reader.close();
+				throw new RuntimeException("Base checkpoint file '" + baseFileName + "' does not match delta checkpoint '" + fileName + "'");
+			}
+			base = (CheckpointReaderBinary) reader;
+		}
+	}
+
+	protected String[] readRecord() throws IOException {
+		int numFields = (int) readVarLong();
+		String fields[] = new String[numFields];
+		for (int i = 0; i < numFields; i++)
+			fields[i] = readField();
+		return fields;
+	}
+
+	protected String readString() throws IOException {
+		int len = (int) readVarLong();
+		return new String(readBytes(len), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read an unsigned 'varint'
+	 */
+	protected long readVarLong() throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = read();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw new RuntimeException("Malformed varint in file '" + fileName + "'");
+	}
+
+	/**
+	 * Read a signed 'varint' (zig-zag encoding)
+	 */
+	protected long readVarLongSigned() throws IOException {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,38 @@
+package org.bds.serialize;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read checkpoint file in text format: One line per record
+ *
+ * @author pcingola
+ */
+public class CheckpointReaderText extends CheckpointReader {
+
+	BufferedReader reader;
+
+	public CheckpointReaderText(String fileName, InputStream in) {
+		super(fileName, in);
+		reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public String[] next() {
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) continue;
+				count++;
+				return line.split("\t");
+			}
+			return null;
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading file '" + fileName + "'", e);
+		}
+	}
+
+}
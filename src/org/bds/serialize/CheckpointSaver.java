@@ -0,0 +1,152 @@
+package org.bds.serialize;
+
+import java.util.LinkedList;
+
+import org.bds.util.Timer;
+
+/**
+ * Write checkpoint files in a background thread
+ *
+ * The running thread only pauses while the program's state is
+ * serialized into a 'snapshot' (see BdsSerializer.snapshot()).
+ * Encoding, compressing, writing and syncing the file to disk is
+ * performed by this thread.
+ *
+ * @author pcingola
+ */
+public class CheckpointSaver extends Thread {
+
+	boolean debug;
+	boolean verbose;
+	boolean running;
+	boolean writing; // Is a checkpoint being written?
+	LinkedList<BdsSerializer> queue; // Checkpoints pending to be written
+	int count; // Number of checkpoints written
+	long snapshotTime; // Total time spent creating snapshots (running threads are paused)
+	long writeTime; // Total time spent writing checkpoint files (background)
+
+	public CheckpointSaver() {
+		super();
+		setDaemon(true);
+		queue = new LinkedList<>();
+		running = true;
+	}
+
+	/**
+	 * Add a checkpoint (snapshot already created) to be written
+	 */
+	public synchronized void add(BdsSerializer bdsSerializer) {
+		if (!running) {
+			// Saver finished: Write in caller's thread
+			write(bdsSerializer);
+			return;
+		}
+
+		queue.add(bdsSerializer);
+		notifyAll();
+	}
+
+	public synchronized int getCount() {
+		return count;
+	}
+
+	public synchronized long getSnapshotTime() {
+		return snapshotTime;
+	}
+
+	public synchronized long getWriteTime() {
+		return writeTime;
+	}
+
+	/**
+	 * Are there checkpoints pending to be written?
+	 */
+	public synchronized boolean isPending() {
+		return writing || !queue.isEmpty();
+	}
+
+	/**
+	 * Finish writing all pending checkpoints and stop thread
+	 */
+	public void kill() {
+		waitFinished();
+		synchronized (this) {
+			running = false;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Get next checkpoint to write (wait until there is one)
+	 */
+	protected synchronized BdsSerializer next() throws InterruptedException {
+		while (running && queue.isEmpty())
+			wait();
+
+		BdsSerializer bdsSerializer = queue.poll();
+		writing = (bdsSerializer != null);
+		return bdsSerializer;
+	}
+
+	@Override
+	public void run() {
+		try {
+			BdsSerializer bdsSerializer;
+			while ((bdsSerializer = next()) != null)
+				write(bdsSerializer);
+		} catch (InterruptedException e) {
+			// Nothing to do
+		} finally {
+			synchronized (this) {
+				running = false;
+				writing = false;
+				notifyAll();
+			}
+		}
+	}
+
+	public void setDebug(boolean debug) {
+		this.debug = debug;
+	}
+
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/**
+	 * Wait until all pending checkpoints are written
+	 */
+	public synchronized void waitFinished() {
+		try {
+			while (isPending() && isAlive())
+				wait();
+		} catch (InterruptedException e) {
+			// Nothing to do
+		}
+	}
+
+	/**
+	 * Write a checkpoint file
+	 */
+	protected void write(BdsSerializer bdsSerializer) {
+		long start = System.currentTimeMillis();
+		try {
+			bdsSerializer.write();
+		} catch (Throwable t) {
+			Timer.showStdErr("Error writing checkpoint file '" + bdsSerializer.getFileName() + "': " + t.getMessage());
+			if (debug) t.printStackTrace();
+		}
+		long elapsed = System.currentTimeMillis() - start;
+
+		synchronized (this) {
+			count++;
+			snapshotTime += bdsSerializer.getSnapshotTime();
+			writeTime += elapsed;
+			writing = false;
+			notifyAll();
+		}
+
+		if (verbose) Timer.showStdErr("Checkpoint '" + bdsSerializer.getFileName() + "' written. Snapshot (pause): " + bdsSerializer.getSnapshotTime() + " ms, write (background): " + elapsed + " ms, total: " + (bdsSerializer.getSnapshotTime() + elapsed) + " ms");
+	}
+
+}
@@ -0,0 +1,140 @@
+package org.bds.serialize;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import org.bds.Config;
+
+/**
+ * Write serialized records to a checkpoint file
+ *
+ * A record is a line created by 'BdsSerialize.serializeSave()',
+ * i.e. a list of tab separated fields.
+ *
+ * Records are written to a temporary file, which is renamed when the
+ * writer is closed, so the checkpoint file is never seen half written
+ * (e.g. if the process dies while writing it).
+ *
+ * @author pcingola
+ */
+public abstract class CheckpointWriter {
+
+	public static final String FORMAT_BINARY = "binary";
+	public static final String FORMAT_TEXT = "text";
+
+	public static final String COMPRESSION_GZIP = "gzip";
+	public static final String COMPRESSION_NONE = "none";
+
+	public static final int BUFFER_SIZE = 64 * 1024;
+	public static final String TMP_EXT = ".tmp";
+
+	protected String fileName;
+	protected OutputStream out;
+	protected FileOutputStream fileOut;
+	protected GZIPOutputStream gzipOut;
+	protected int count; // Number of records written
+
+	/**
+	 * Create a checkpoint writer according to config options
+	 */
+	public static CheckpointWriter factory(String fileName, Config config) {
+		String format = FORMAT_BINARY;
+		String compression = COMPRESSION_GZIP;
+		boolean delta = false;
+		if (config != null) {
+			format = config.getString(Config.CHECKPOINT_FORMAT, FORMAT_BINARY).trim();
+			compression = config.getString(Config.CHECKPOINT_COMPRESSION, COMPRESSION_GZIP).trim();
+			delta = config.getBool(Config.CHECKPOINT_DELTA, false);
+		}
+
+		boolean gzip;
+		switch (compression) {
+		case COMPRESSION_GZIP:
+			gzip = true;
+			break;
+
+		case COMPRESSION_NONE:
+			gzip = false;
+			break;
+
+		default:
+			throw new RuntimeException("Unknown checkpoint compression '" + compression + "'");
+		}
+
+		switch (format) {
+		case FORMAT_BINARY:
+			return new CheckpointWriterBinary(fileName, gzip, delta);
+
+		case FORMAT_TEXT:
+			return new CheckpointWriterText(fileName, gzip);
+
+		default:
+			throw new RuntimeException("Unknown checkpoint format '" + format + "'");
+		}
+	}
+
+	public CheckpointWriter(String fileName) {
+		this.fileName = fileName;
+	}
+
+	/**
+	 * Add all records (lines) in a string
+	 */
+	public void addAll(String lines) throws IOException {
+		int start = 0, len = lines.length();
+		while (start < len) {
+			int end = lines.indexOf('\n', start);
+			if (end < 0) end = len;
+			if (end > start) add(lines.substring(start, end));
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Add a record
+	 */
+	public abstract void add(String line) throws IOException;
+
+	/**
+	 * Close file, make sure data is written to disk
+	 */
+	public void close() throws IOException {
+		out.flush();
+		if (gzipOut != null) gzipOut.finish();
+		fileOut.flush();
+		fileOut.getFD().sync();
+		out.close();
+
+		// Replace checkpoint file
+		Files.move(Paths.get(fileName + TMP_EXT), Paths.get(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Open (temporary) output file
+	 */
+	protected void open(boolean gzip) throws IOException {
+		fileOut = new FileOutputStream(fileName + TMP_EXT);
+		OutputStream os = fileOut;
+		if (gzip) {
+			// Use fast compression: Checkpoints can be large
+			os = gzipOut = new GZIPOutputStream(fileOut, BUFFER_SIZE) {
+				{
+					def.setLevel(Deflater.BEST_SPEED);
+				}
+			};
+		}
+		out = new BufferedOutputStream(os, BUFFER_SIZE);
+	}
+
+}
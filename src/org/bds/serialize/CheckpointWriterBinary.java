@@ -0,0 +1,423 @@
+package org.bds.serialize;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.bds.util.Gpr;
+
+/**
+ * Write checkpoint file in binary format
+ *
+ * Format:
+ * 		Header : MAGIC \t FORMAT_VERSION \t flags \t id
+ * 		         If this is a 'delta' checkpoint: baseFileName \t baseId \t baseSize
+ * 		Body   : A sequence of operations
+ * 		         OP_RECORD \t numFields \t field_1 \t ... \t field_N     A record
+ * 		         OP_COPY   \t skip \t count                             Skip 'skip' records from base checkpoint, then copy 'count' records
+ * 		         OP_END                                                 End of file
+ *
+ * Numbers are encoded as 'varints' (signed numbers use zig-zag encoding).
+ * Each field is encoded as 'tag \t value':
+ * 		TAG_INT, TAG_REAL, TAG_TRUE, TAG_FALSE : Primitive values
+ * 		TAG_NODE                               : Node reference (e.g. 'node:42')
+ * 		TAG_BASE64                             : Base64 encoded data (stored as raw bytes)
+ * 		TAG_STRING_NEW, TAG_STRING_REF         : Short strings are stored only once (string table), then referenced by index
+ * 		TAG_STRING, TAG_QUOTED                 : Other strings (length prefixed, quotes are not stored)
+ *
+ * Delta checkpoints: Records that are unchanged since the last full
+ * checkpoint are not written, they are referenced using 'OP_COPY'
+ * operations (the base checkpoint is read when recovering). The base
+ * is the last full checkpoint written to the same file name, so the
+ * base checkpoint is first renamed (adding 'BASE_EXT').
+ *
+ * @author pcingola
+ */
+public class CheckpointWriterBinary extends CheckpointWriter {
+
+	public static final byte MAGIC[] = { 'B', 'D', 'S', 'C', 'H', 'P' };
+	public static final String BASE_EXT = ".base"; // A base checkpoint is renamed using this extension when a delta checkpoint is written to the same file
+	public static final int FORMAT_VERSION = 1;
+	public static final int FLAG_DELTA = 1;
+
+	public static final int OP_END = 0;
+	public static final int OP_RECORD = 1;
+	public static final int OP_COPY = 2;
+
+	public static final int TAG_STRING = 0;
+	public static final int TAG_STRING_NEW = 1;
+	public static final int TAG_STRING_REF = 2;
+	public static final int TAG_INT = 3;
+	public static final int TAG_REAL = 4;
+	public static final int TAG_TRUE = 5;
+	public static final int TAG_FALSE = 6;
+	public static final int TAG_NODE = 7;
+	public static final int TAG_BASE64 = 8;
+	public static final int TAG_QUOTED = 9;
+
+	public static final String BASE64_JAVA_SERIALIZATION = "rO0"; // Base64 encoded Java serialization magic number
+	public static final double DELTA_REBASE_RATIO = 0.5; // Create a full checkpoint after a delta checkpoint having more than this ratio of new records
+	public static final int MAX_INT_LEN = 18; // Longer numbers may not fit in a 'long'
+	public static final int MAX_TABLE_SIZE = 64 * 1024; // Maximum number of entries in string table (repeated strings usually appear early in the file)
+	public static final int MAX_TABLE_STRING_LEN = 128; // Longer strings are not added to string table
+
+	static Map<String, CheckpointDeltaBase> deltaBaseByFile = new HashMap<>(); // Last full checkpoint written to each (canonical) file name, used as base for delta checkpoints
+	static Set<String> deltaRebase = new HashSet<>(); // Last delta checkpoint had too many changes: Create a full checkpoint
+
+	long id; // Random ID, used to make sure that delta checkpoints are recovered using the right base checkpoint
+	Map<String, Integer> stringTable;
+	byte buffer[]; // Output buffer (writing byte by byte to an OutputStream is slow)
+	int bufferLen;
+	CheckpointDeltaBase base; // Base checkpoint (null if this is a full checkpoint)
+	CheckpointDeltaBase newBase; // Record hashes for this checkpoint (null if delta checkpoints are disabled)
+	String fileNameCanonical;
+	int copySkip, copyCount, cursor; // Delta checkpoints: Pending 'copy' operation and position in base checkpoint
+	int countLiteral; // Delta checkpoints: Number of records actually written
+
+	/**
+	 * Find a suitable base checkpoint for (canonical) file name 'fileName'
+	 */
+	protected static synchronized CheckpointDeltaBase deltaBase(String fileName) {
+		CheckpointDeltaBase deltaBase = deltaBaseByFile.get(fileName);
+		if (deltaBase == null || deltaRebase.contains(fileName)) return null;
+		if (!new File(deltaBase.getFileName()).exists()) return null;
+
+		// We are overwriting the base checkpoint: Keep the base checkpoint, using another name
+		if (deltaBase.getFileName().equals(fileName)) {
+			String baseFileName = fileName + BASE_EXT;
+			try {
+				Files.move(Paths.get(fileName), Paths.get(baseFileName), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				return null; // Cannot rename: Create a full checkpoint
+			}
+			deltaBase.setFileName(baseFileName);
+		}
+
+		return deltaBase;
+	}
+
+	/**
+	 * Is 'str' a number that can be parsed back to exactly the same string?
+	 */
+	protected static boolean isInt(String str, int start) {
+		int len = str.length() - start;
+		if (len <= 0 || len > MAX_INT_LEN) return false;
+
+		if (str.charAt(start) == '-') {
+			start++;
+			len--;
+			if (len <= 0 || str.charAt(start) == '0') return false; // Avoid '-' and '-0'
+		}
+
+		if (str.charAt(start) == '0' && len > 1) return false; // Leading zeros
+
+		for (int i = start; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < '0' || c > '9') return false;
+		}
+
+		return true;
+	}
+
+	protected static boolean isAscii(String str, int start, int end) {
+		for (int i = start; i < end; i++)
+			if (str.charAt(i) >= 0x80) return false;
+		return true;
+	}
+
+	protected static synchronized void setDeltaBase(String fileName, CheckpointDeltaBase base, boolean rebase) {
+		if (base != null) deltaBaseByFile.put(fileName, base);
+		if (rebase) deltaRebase.add(fileName);
+		else deltaRebase.remove(fileName);
+	}
+
+	public CheckpointWriterBinary(String fileName, boolean gzip, boolean delta) {
+		super(fileName);
+		id = new Random().nextLong();
+		buffer = new byte[BUFFER_SIZE];
+		stringTable = new HashMap<>();
+
+		if (delta) {
+			fileNameCanonical = Gpr.getCanonicalFileName(fileName);
+			base = deltaBase(fileNameCanonical);
+			if (base == null) newBase = new CheckpointDeltaBase(fileNameCanonical, id);
+		}
+
+		try {
+			open(gzip);
+			writeHeader();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void add(String line) throws IOException {
+		// Trailing empty fields are ignored (same as 'String.split()')
+		int end = line.length();
+		while (end > 0 && line.charAt(end - 1) == '\t')
+			end--;
+		count++;
+
+		long hash = 0, digest = 0;
+		if (newBase != null || base != null) {
+			hash = CheckpointDeltaBase.hash(line, end);
+			digest = CheckpointDeltaBase.digest(line, end);
+		}
+		if (newBase != null) newBase.add(hash, digest, end);
+
+		// Delta checkpoint: Can we copy this record from base checkpoint?
+		if (base != null) {
+			int idx = base.find(hash, digest, end, cursor);
+			if (idx >= 0) {
+				if (idx > cursor || copyCount == 0) {
+					// Start a new 'copy' operation
+					writeCopy();
+					copySkip = idx - cursor;
+				}
+				copyCount++;
+				cursor = idx + 1;
+				return;
+			}
+
+			writeCopy();
+			countLiteral++;
+		}
+
+		writeRecord(line, end);
+	}
+
+	@Override
+	public void close() throws IOException {
+		writeCopy();
+		writeVarLong(OP_END);
+		flushBuffer();
+		super.close();
+
+		if (newBase != null) setDeltaBase(fileNameCanonical, newBase, false);
+		else if (base != null) setDeltaBase(fileNameCanonical, null, countLiteral > DELTA_REBASE_RATIO * count);
+	}
+
+	protected void flushBuffer() throws IOException {
+		out.write(buffer, 0, bufferLen);
+		bufferLen = 0;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public boolean isDelta() {
+		return base != null;
+	}
+
+	protected void writeByte(int b) throws IOException {
+		if (bufferLen >= buffer.length) flushBuffer();
+		buffer[bufferLen++] = (byte) b;
+	}
+
+	protected void writeBytes(byte bytes[]) throws IOException {
+		if (bufferLen + bytes.length > buffer.length) flushBuffer();
+		if (bytes.length > buffer.length) {
+			out.write(bytes);
+			return;
+		}
+		System.arraycopy(bytes, 0, buffer, bufferLen, bytes.length);
+		bufferLen += bytes.length;
+	}
+
+	/**
+	 * Write a pending 'copy' operation
+	 */
+	protected void writeCopy() throws IOException {
+		if (copyCount <= 0) return;
+		writeVarLong(OP_COPY);
+		writeVarLong(copySkip);
+		writeVarLong(copyCount);
+		copySkip = copyCount = 0;
+	}
+
+	protected void writeField(String field) throws IOException {
+		// Boolean
+		if (field.equals("true")) {
+			writeVarLong(TAG_TRUE);
+			return;
+		}
+
+		if (field.equals("false")) {
+			writeVarLong(TAG_FALSE);
+			return;
+		}
+
+		// Integer
+		if (isInt(field, 0)) {
+			writeVarLong(TAG_INT);
+			writeVarLongSigned(Long.parseLong(field));
+			return;
+		}
+
+		// Node reference
+		if (field.startsWith(BdsSerializer.NODE_IDENTIFIER) && isInt(field, BdsSerializer.NODE_IDENTIFIER.length())) {
+			writeVarLong(TAG_NODE);
+			writeVarLongSigned(Long.parseLong(field.substring(BdsSerializer.NODE_IDENTIFIER.length())));
+			return;
+		}
+
+		// Real
+		if (writeFieldReal(field)) return;
+
+		// Short strings: Use string table
+		if (field.length() <= MAX_TABLE_STRING_LEN) {
+			Integer idx = stringTable.get(field);
+			if (idx != null) {
+				writeVarLong(TAG_STRING_REF);
+				writeVarLong(idx);
+				return;
+			}
+
+			if (stringTable.size() < MAX_TABLE_SIZE) {
+				stringTable.put(field, stringTable.size());
+				writeVarLong(TAG_STRING_NEW);
+				writeString(field);
+				return;
+			}
+		} else if (field.startsWith(BASE64_JAVA_SERIALIZATION) && writeFieldBase64(field)) return;
+
+		// Quoted string: No need to store quotes
+		int len = field.length();
+		if (len >= 2 && field.charAt(0) == '"' && field.charAt(len - 1) == '"') {
+			writeVarLong(TAG_QUOTED);
+			writeString(field, 1, len - 1);
+			return;
+		}
+
+		writeVarLong(TAG_STRING);
+		writeString(field);
+	}
+
+	/**
+	 * Write base64 encoded field as raw bytes
+	 * @return true if the field was written
+	 */
+	protected boolean writeFieldBase64(String field) throws IOException {
+		byte data[];
+		try {
+			data = Base64Coder.decode(field);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+
+		// Make sure we get exactly the same string when decoding
+		if (!field.equals(new String(Base64Coder.encode(data)))) return false;
+
+		writeVarLong(TAG_BASE64);
+		writeVarLong(data.length);
+		writeBytes(data);
+		return true;
+	}
+
+	/**
+	 * Write a real number (if the field is a real number)
+	 * @return true if the field was written
+	 */
+	protected boolean writeFieldReal(String field) throws IOException {
+		if (field.isEmpty() || field.length() > 32) return false;
+		char c = field.charAt(0);
+		if (c != '-' && (c < '0' || c > '9')) return false;
+
+		double d;
+		try {
+			d = Double.parseDouble(field);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		if (!Double.toString(d).equals(field)) return false;
+
+		long bits = Double.doubleToRawLongBits(d);
+		writeVarLong(TAG_REAL);
+		for (int i = 56; i >= 0; i -= 8)
+			writeByte((int) (bits >>> i));
+		return true;
+	}
+
+	protected void writeHeader() throws IOException {
+		writeBytes(MAGIC);
+		writeVarLong(FORMAT_VERSION);
+		writeVarLong(base != null ? FLAG_DELTA : 0);
+		writeVarLongSigned(id);
+		if (base != null) {
+			writeString(base.getFileName());
+			writeVarLongSigned(base.getId());
+			writeVarLong(base.size());
+		}
+	}
+
+	/**
+	 * Write a record: Fields are tab separated in 'line[0, end)'
+	 * Note: We don't use 'split()', records can be huge (e.g. large lists or maps)
+	 */
+	protected void writeRecord(String line, int end) throws IOException {
+		int numFields = 1;
+		for (int i = 0; i < end; i++)
+			if (line.charAt(i) == '\t') numFields++;
+
+		writeVarLong(OP_RECORD);
+		writeVarLong(numFields);
+		for (int i = 0, start = 0; i < numFields; i++) {
+			int tab = line.indexOf('\t', start);
+			if (tab < 0 || tab > end) tab = end;
+			writeField(line.substring(start, tab));
+			start = tab + 1;
+		}
+	}
+
+	protected void writeString(String str) throws IOException {
+		writeString(str, 0, str.length());
+	}
+
+	/**
+	 * Write 'str[start, end)'
+	 */
+	protected void writeString(String str, int start, int end) throws IOException {
+		// ASCII strings (most serialized strings are escaped): Copy chars to buffer
+		int len = end - start;
+		if (len < buffer.length && isAscii(str, start, end)) {
+			writeVarLong(len);
+			if (bufferLen + len > buffer.length) flushBuffer();
+			for (int i = start; i < end; i++)
+				buffer[bufferLen++] = (byte) str.charAt(i);
+			return;
+		}
+
+		byte bytes[] = str.substring(start, end).getBytes(StandardCharsets.UTF_8);
+		writeVarLong(bytes.length);
+		writeBytes(bytes);
+	}
+
+	/**
+	 * Write an unsigned 'varint'
+	 */
+	protected void writeVarLong(long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			writeByte((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		writeByte((int) value);
+	}
+
+	/**
+	 * Write a signed 'varint' (zig-zag encoding)
+	 */
+	protected void writeVarLongSigned(long value) throws IOException {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+}
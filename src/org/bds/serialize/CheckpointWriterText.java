@@ -0,0 +1,29 @@
+package org.bds.serialize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Write checkpoint file in text format: One line per record
+ *
+ * @author pcingola
+ */
+public class CheckpointWriterText extends CheckpointWriter {
+
+	public CheckpointWriterText(String fileName, boolean gzip) {
+		super(fileName);
+		try {
+			open(gzip);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public void add(String line) throws IOException {
+		out.write(line.getBytes(StandardCharsets.UTF_8));
+		out.write('\n');
+		count++;
+	}
+
+}
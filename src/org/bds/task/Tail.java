@@ -1,8 +1,22 @@
 package org.bds.task;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import org.bds.util.Timer;
 
@@ -12,21 +26,45 @@ import org.bds.util.Timer;
  * Can 'follow' several files
  * If a file does not exist, tail waits until the file is created
  *
+ * Files are not all checked every SLEEP_TIME_DEFAULT: Files having no
+ * output are checked less often (up to SLEEP_TIME_MAX). If filesystem
+ * notifications (WatchService) are available, a notification for a
+ * file makes us check it right away, so idle files can be checked
+ * even less often (notifications are not delivered for some
+ * filesystems, e.g. NFS, so files are still checked periodically).
+ *
+ * Output is shown through a bounded buffer (see TailOutput), so a task
+ * producing a lot of output (or a slow console) cannot block this thread.
+ *
  * @author pcingola
  */
 public class Tail extends Thread {
 
 	public static final int SLEEP_TIME_DEFAULT = 100;
+	public static final int SLEEP_TIME_MAX = 1000; // Maximum time between checks of an idle file
+	public static final int SLEEP_TIME_MAX_WATCHED = 10 * SLEEP_TIME_MAX; // Maximum time between checks of an idle file, when filesystem notifications are available
 
 	boolean debug, verbose, quiet;
-	boolean running;
-	HashMap<String, TailFile> files;
-	HashSet<String> toRemove;
+	volatile boolean running;
+	Map<String, TailFile> files;
+	TailOutput output;
+	WatchService watchService;
+	Map<String, WatchKey> watchKeyByDir; // Watch key for each directory
+	Map<String, Integer> countByDir; // Number of files followed in each directory
 
 	public Tail() {
-		files = new HashMap<String, TailFile>();
-		toRemove = new HashSet<String>();
+		super("Tail");
+		files = new ConcurrentHashMap<String, TailFile>();
+		watchKeyByDir = new HashMap<>();
+		countByDir = new HashMap<>();
+		output = new TailOutput();
 		setDaemon(true);
+
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+		} catch (IOException | UnsupportedOperationException e) {
+			watchService = null; // No notifications available: We only check files periodically
+		}
 	}
 
 	/**
@@ -35,14 +73,12 @@ public class Tail extends Thread {
 	 * @param tailId : Identifies this 'tail'
 	 * @param showStderr : If true, print to STDERR
 	 */
-	public synchronized void add(InputStream input, String tailId, boolean showStderr) {
+	public void add(InputStream input, String tailId, boolean showStderr) {
 		if (quiet) return; // Quiet mode? Nothing to do
 
 		TailFile tf = new TailStream(input, showStderr, tailId);
 		if (debug) log("Adding (" + tf.getClass().getSimpleName() + ") '" + tailId + "'");
-		tf.setDebug(debug);
-		tf.setVerbose(verbose);
-		files.put(tailId, tf);
+		add(tailId, tf);
 	}
 
 	/**
@@ -51,15 +87,21 @@ public class Tail extends Thread {
 	 * @param outputFileName : Copy input to this file (can be null)
 	 * @param showStderr : If true, print to STDERR
 	 */
-	public synchronized void add(String inputFileName, boolean showStderr) {
+	public void add(String inputFileName, boolean showStderr) {
 		if (inputFileName == null) return;
 		if (quiet) return; // Quiet mode? Nothing to do
 
 		TailFile tf = new TailFileMulti(inputFileName, showStderr);
 		if (debug) log("Adding (" + tf.getClass().getSimpleName() + ") '" + inputFileName + "'");
+		tf.watched = watch(inputFileName);
+		add(inputFileName, tf);
+	}
+
+	void add(String name, TailFile tf) {
 		tf.setDebug(debug);
 		tf.setVerbose(verbose);
-		files.put(inputFileName, tf);
+		tf.setOutput(output);
+		files.put(name, tf);
 	}
 
 	/**
@@ -69,9 +111,15 @@ public class Tail extends Thread {
 		if (debug) log("Closing.");
 
 		// Close all files
-		for (TailFile tf : files.values())
-			tf.close();
-		files = new HashMap<String, TailFile>();
+		for (String name : new ArrayList<>(files.keySet()))
+			remove(name);
+	}
+
+	/**
+	 * Wait until output read from 'fileName' has been shown
+	 */
+	public void flush(String fileName) {
+		if (fileName != null) output.flush(fileName);
 	}
 
 	/**
@@ -81,23 +129,80 @@ public class Tail extends Thread {
 		if (debug) log("Killed");
 		close();
 		running = false;
+		output.kill(); // Show pending output
+		interrupt();
+
+		synchronized (watchKeyByDir) {
+			if (watchService != null) {
+				try {
+					watchService.close();
+				} catch (IOException e) {
+					// Nothing to do
+				}
+				watchService = null;
+			}
+		}
 	}
 
 	public void log(String msg) {
 		Timer.showStdErr(getClass().getSimpleName() + ": " + msg);
 	}
 
+	/**
+	 * Parent directory (the one we watch) of a file
+	 */
+	String parentDir(String fileName) {
+		String dir = new File(fileName).getParent();
+		return dir != null ? dir : ".";
+	}
+
+	/**
+	 * Process filesystem notifications, wait up to 'timeout' milliseconds
+	 */
+	void processWatchEvents(long timeout) throws InterruptedException {
+		WatchService ws = watchService;
+		if (ws == null) {
+			sleep(timeout);
+			return;
+		}
+
+		try {
+			WatchKey watchKey = ws.poll(timeout, TimeUnit.MILLISECONDS);
+			while (watchKey != null) {
+				String dir = watchKey.watchable().toString();
+
+				for (WatchEvent<?> event : watchKey.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						// Events were lost: Check all files
+						for (TailFile tf : files.values())
+							tf.wakeUp();
+					} else {
+						TailFile tf = files.get(dir + File.separator + ((Path) event.context()).toString());
+						if (tf != null) tf.wakeUp();
+					}
+				}
+
+				watchKey.reset();
+				watchKey = ws.poll();
+			}
+		} catch (ClosedWatchServiceException e) {
+			// Tail has been killed
+		}
+	}
+
 	/**
 	 * Remove 'fileName' (do not 'follow' any more)
 	 */
-	public synchronized void remove(String fileName) {
+	public void remove(String fileName) {
+		if (fileName == null) return;
+
 		try {
-			TailFile tf = files.get(fileName);
+			TailFile tf = files.remove(fileName);
 			if (tf != null) {
 				if (debug) log("Removing (" + tf.getClass().getSimpleName() + ") '" + fileName + "'");
 				tf.close();
+				if (tf.watched) unwatch(fileName);
 			}
-			files.remove(fileName);
 		} catch (Exception e) {
 			// Nothing to do
 			e.printStackTrace();
@@ -106,15 +211,19 @@ public class Tail extends Thread {
 
 	@Override
 	public void run() {
+		output.start();
+
 		try {
 			running = true;
 
 			// Loop until kill()
 			while (running) {
 				if (!quiet) tail();
-				sleep(SLEEP_TIME_DEFAULT);
+				processWatchEvents(SLEEP_TIME_DEFAULT);
 			}
 
+		} catch (InterruptedException e) {
+			// Killed
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		} finally {
@@ -126,6 +235,20 @@ public class Tail extends Thread {
 		this.debug = debug;
 	}
 
+	/**
+	 * Maximum number of bytes waiting to be shown
+	 */
+	public void setMaxBufferSize(long maxBufferSize) {
+		output.setMaxBufferSize(maxBufferSize);
+	}
+
+	/**
+	 * Maximum number of bytes shown per second
+	 */
+	public void setMaxBytesPerSec(long maxBytesPerSec) {
+		output.setMaxBytesPerSec(maxBytesPerSec);
+	}
+
 	public void setQuiet(boolean quiet) {
 		this.quiet = quiet;
 	}
@@ -135,29 +258,86 @@ public class Tail extends Thread {
 	}
 
 	/**
-	 * Check if there is output available on any file
+	 * Check if there is output available on files that are due
 	 */
-	synchronized boolean tail() {
+	boolean tail() {
 		boolean anyOutput = false;
+		List<String> toRemove = null;
+		long now = System.currentTimeMillis();
 
 		// Try to read form all buffers
-		for (String name : files.keySet()) {
-			TailFile tf = files.get(name);
+		for (Map.Entry<String, TailFile> entry : files.entrySet()) {
+			TailFile tf = entry.getValue();
+			if (!tf.isDue(now)) continue;
 
 			// Try to 'tail'. Any problems? => Remove the entry
-			int bytes = (tf != null ? tf.tail() : -1);
+			int bytes = tf.tail();
 
-			if (bytes < 0) toRemove.add(name); // Problems? Remove the file from this list
-			else if (bytes > 0) anyOutput = true; // There was an output of 'bytes' number of bytes
+			if (bytes < 0) {
+				// Problems? Remove the file from this list
+				if (toRemove == null) toRemove = new ArrayList<>();
+				toRemove.add(entry.getKey());
+			} else {
+				if (bytes > 0) anyOutput = true; // There was an output of 'bytes' number of bytes
+				tf.schedule(now, bytes > 0, SLEEP_TIME_DEFAULT, tf.watched ? SLEEP_TIME_MAX_WATCHED : SLEEP_TIME_MAX);
+			}
 		}
 
 		// Remove  entries (if any)
-		if (!toRemove.isEmpty()) {
+		if (toRemove != null) {
 			for (String fileName : toRemove)
 				remove(fileName);
-			toRemove = new HashSet<String>();
 		}
 
 		return anyOutput;
 	}
+
+	/**
+	 * Stop watching a file's directory (if there are no other files in it)
+	 */
+	void unwatch(String fileName) {
+		String dir = parentDir(fileName);
+		synchronized (watchKeyByDir) {
+			Integer count = countByDir.get(dir);
+			if (count == null) return;
+
+			if (count > 1) {
+				countByDir.put(dir, count - 1);
+				return;
+			}
+
+			countByDir.remove(dir);
+			WatchKey watchKey = watchKeyByDir.remove(dir);
+			if (watchKey != null) watchKey.cancel();
+		}
+	}
+
+	/**
+	 * Watch a file's directory (filesystem notifications)
+	 * @return true if notifications are available for this file
+	 */
+	boolean watch(String fileName) {
+		String dir = parentDir(fileName);
+		synchronized (watchKeyByDir) {
+			if (watchService == null) return false;
+
+			Integer count = countByDir.get(dir);
+			if (count != null) {
+				countByDir.put(dir, count + 1);
+				return true;
+			}
+
+			try {
+				WatchKey watchKey = Paths.get(dir).register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+				watchKeyByDir.put(dir, watchKey);
+				countByDir.put(dir, 1);
+				return true;
+			} catch (IOException e) {
+				// Directory may not exist yet: Check this file periodically
+				if (debug) log("Cannot watch directory '" + dir + "': " + e.getMessage());
+				return false;
+			}
+		}
+	}
+
 }
@@ -21,6 +21,10 @@ public abstract class TailFile {
 	String inputFileName; // Read (tail -f) from this file
 	boolean showStderr; // Do we show on STDERR? (default STDOUT)
 	boolean debug, verbose;
+	TailOutput output; // Show output using this buffer (if null, write directly to STDOUT / STDERR)
+	long nextTail; // Next time (milliseconds) this file should be checked (see Tail)
+	int sleepTime; // Time between checks, increases while there is no output (see Tail)
+	boolean watched; // Are filesystem notifications available for this file?
 
 	public static String tail(String fileName) {
 		return tail(fileName, DEFAULT_TAIL);
@@ -126,6 +130,20 @@ public abstract class TailFile {
 		close(true);
 	}
 
+	/**
+	 * Name identifying this file's output (see 'TailOutput.flush(name)')
+	 */
+	public String getName() {
+		return inputFileName;
+	}
+
+	/**
+	 * Is it time to check this file?
+	 */
+	boolean isDue(long now) {
+		return now >= nextTail;
+	}
+
 	/**
 	 * Close files
 	 */
@@ -140,17 +158,47 @@ public abstract class TailFile {
 	 */
 	protected abstract boolean open();
 
+	/**
+	 * Schedule next check. Files having no output are checked less often
+	 */
+	void schedule(long now, boolean anyOutput, int minSleep, int maxSleep) {
+		if (anyOutput || sleepTime <= 0) sleepTime = minSleep;
+		else sleepTime = Math.min(2 * sleepTime, maxSleep);
+		nextTail = now + sleepTime;
+	}
+
 	public void setDebug(boolean debug) {
 		this.debug = debug;
 	}
 
+	public void setOutput(TailOutput output) {
+		this.output = output;
+	}
+
 	public void setVerbose(boolean verbose) {
 		this.verbose = verbose;
 	}
 
+	/**
+	 * Show output
+	 */
+	protected void show(byte bytes[], int count) {
+		if (output != null) output.write(getName(), bytes, count, showStderr);
+		else if (showStderr) System.err.write(bytes, 0, count);
+		else System.out.write(bytes, 0, count);
+	}
+
 	/**
 	 * Check if there is output available on any file
 	 * @returns Number of bytes read. Negative number of there were problems
 	 */
 	protected abstract int tail();
+
+	/**
+	 * Check this file as soon as possible (e.g. a filesystem notification was received)
+	 */
+	void wakeUp() {
+		nextTail = 0;
+		sleepTime = 0;
+	}
 }
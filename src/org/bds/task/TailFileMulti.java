@@ -55,7 +55,7 @@ public class TailFileMulti extends TailFile {
 	 * @returns Number of bytes read. Negative number of there were problems
 	 */
 	@Override
-	protected int tail() {
+	protected synchronized int tail() {
 		if (!exists) {
 			exists = inputFile.exists();
 			if (!exists) return 0;
@@ -84,8 +84,7 @@ public class TailFileMulti extends TailFile {
 				inputPos += count;
 
 				// Show bytes
-				if (showStderr) System.err.write(bytes, 0, count);
-				else System.out.write(bytes, 0, count);
+				show(bytes, count);
 
 				// Write to output
 				if (output != null) output.write(bytes, 0, count);
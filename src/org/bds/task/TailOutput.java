@@ -0,0 +1,202 @@
+package org.bds.task;
+
+import java.io.PrintStream;
+import java.util.LinkedList;
+
+/**
+ * Show tasks' output (STDOUT / STDERR) on the console
+ *
+ * Tail adds output to a bounded buffer, a background thread writes it
+ * at most 'maxBytesPerSec' bytes per second. Tail never blocks: If the
+ * buffer is full (e.g. a task writing too fast or a slow console), the
+ * output is not shown (it is still available in the task's STDOUT /
+ * STDERR files) and a message reports how many bytes were dropped.
+ *
+ * @author pcingola
+ */
+public class TailOutput extends Thread {
+
+	public static final long DEFAULT_MAX_BUFFER_SIZE = 16 * 1024 * 1024;
+	public static final long DEFAULT_MAX_BYTES_PER_SEC = 10 * 1024 * 1024;
+
+	/**
+	 * Output pending to be shown
+	 */
+	class Chunk {
+		String name; // File the output was read from
+		byte bytes[];
+		int len;
+		boolean stderr;
+
+		Chunk(String name, byte bytes[], int len, boolean stderr) {
+			this.name = name;
+			this.bytes = bytes;
+			this.len = len;
+			this.stderr = stderr;
+		}
+	}
+
+	boolean running;
+	Chunk writing; // Chunk being written (null if none)
+	long maxBufferSize; // Maximum number of bytes in buffer
+	long maxBytesPerSec; // Maximum number of bytes shown per second (zero or negative means no limit)
+	long buffered; // Number of bytes in buffer
+	long dropped; // Number of bytes dropped (not shown) since last message
+	long rateStart, rateShown; // Number of bytes shown since 'rateStart' (used to limit the number of bytes per second)
+	LinkedList<Chunk> queue;
+
+	public TailOutput() {
+		super("TailOutput");
+		setDaemon(true);
+		maxBufferSize = DEFAULT_MAX_BUFFER_SIZE;
+		maxBytesPerSec = DEFAULT_MAX_BYTES_PER_SEC;
+		queue = new LinkedList<>();
+		running = true;
+	}
+
+	/**
+	 * Wait until all buffered output has been shown
+	 */
+	public synchronized void flush() {
+		try {
+			while ((!queue.isEmpty() || writing != null) && isAlive())
+				wait(100);
+		} catch (InterruptedException e) {
+			// Nothing to do
+		}
+	}
+
+	/**
+	 * Wait until all buffered output from file 'name' has been shown
+	 * Note: Output from other files queued after it is not waited for
+	 */
+	public synchronized void flush(String name) {
+		try {
+			while (isPending(name) && isAlive())
+				wait(100);
+		} catch (InterruptedException e) {
+			// Nothing to do
+		}
+	}
+
+	/**
+	 * Is there any output from file 'name' waiting to be shown?
+	 */
+	synchronized boolean isPending(String name) {
+		if (writing != null && name.equals(writing.name)) return true;
+		for (Chunk chunk : queue)
+			if (name.equals(chunk.name)) return true;
+		return false;
+	}
+
+	/**
+	 * Show pending output and stop thread
+	 */
+	public void kill() {
+		flush();
+		synchronized (this) {
+			running = false;
+			notifyAll();
+		}
+	}
+
+	@Override
+	public void run() {
+		rateStart = System.currentTimeMillis();
+		try {
+			while (true) {
+				Chunk chunk;
+				long droppedBytes = 0;
+				synchronized (this) {
+					while (queue.isEmpty() && dropped == 0 && running)
+						wait();
+
+					if (queue.isEmpty()) {
+						if (dropped == 0) break; // Not running and nothing else to show
+						chunk = null;
+					} else {
+						chunk = queue.removeFirst();
+						buffered -= chunk.len;
+					}
+
+					// Report dropped bytes once the buffer is empty
+					if (queue.isEmpty()) {
+						droppedBytes = dropped;
+						dropped = 0;
+					}
+					writing = chunk;
+				}
+
+				if (chunk != null) show(chunk);
+				if (droppedBytes > 0) System.err.println("\nTail: " + droppedBytes + " bytes of tasks' output not shown (output buffer full)");
+
+				synchronized (this) {
+					writing = null;
+					notifyAll();
+				}
+			}
+		} catch (InterruptedException e) {
+			// Nothing to do
+		} finally {
+			synchronized (this) {
+				writing = null;
+				notifyAll();
+			}
+		}
+	}
+
+	public void setMaxBufferSize(long maxBufferSize) {
+		this.maxBufferSize = maxBufferSize;
+	}
+
+	public void setMaxBytesPerSec(long maxBytesPerSec) {
+		this.maxBytesPerSec = maxBytesPerSec;
+	}
+
+	/**
+	 * Show a chunk (wait if needed, to limit the number of bytes shown per second)
+	 */
+	void show(Chunk chunk) throws InterruptedException {
+		if (maxBytesPerSec > 0) {
+			long now = System.currentTimeMillis();
+			if (now - rateStart > 1000) {
+				rateStart = now;
+				rateShown = 0;
+			}
+
+			rateShown += chunk.len;
+			long waitTime = (1000 * rateShown) / maxBytesPerSec - (now - rateStart);
+			if (waitTime > 0) sleep(waitTime);
+		}
+
+		PrintStream out = (chunk.stderr ? System.err : System.out);
+		out.write(chunk.bytes, 0, chunk.len);
+		out.flush();
+	}
+
+	/**
+	 * Add output to buffer. Never blocks
+	 * @return false if the buffer is full (output is dropped)
+	 */
+	public synchronized boolean write(String name, byte bytes[], int len, boolean stderr) {
+		if (len <= 0) return true;
+
+		// Not running? Write directly
+		if (!running || !isAlive()) {
+			PrintStream out = (stderr ? System.err : System.out);
+			out.write(bytes, 0, len);
+			return true;
+		}
+
+		if (buffered + len > maxBufferSize) {
+			dropped += len;
+			return false;
+		}
+
+		queue.add(new Chunk(name, bytes, len, stderr));
+		buffered += len;
+		notifyAll();
+		return true;
+	}
+
+}
@@ -47,6 +47,11 @@ public class TailStream extends TailFile {
 		}
 	}
 
+	@Override
+	public String getName() {
+		return tailId;
+	}
+
 	/**
 	 * Open a file and add buffer to 'buffers'
 	 */
@@ -71,7 +76,7 @@ public class TailStream extends TailFile {
 	 * @returns Number of bytes read. Negative number of there were problems
 	 */
 	@Override
-	protected int tail() {
+	protected synchronized int tail() {
 		if (!open()) return 0; // Files not opened yet (may be input file does not exists). OK, nothing to do...
 
 		try {
@@ -87,8 +92,7 @@ public class TailStream extends TailFile {
 				count = input.read(bytes);
 
 				// Show bytes
-				if (showStderr) System.err.write(bytes, 0, count);
-				else System.out.write(bytes, 0, count);
+				show(bytes, count);
 
 				if (debug) log("Reading '" + (new String(bytes, 0, count)) + "'");
 			}
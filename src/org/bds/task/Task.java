@@ -58,8 +58,10 @@ public class Task implements BdsSerialize {
 	protected String queue; // Preferred execution queue
 	protected String stdoutFile, stderrFile, exitCodeFile; // STDOUT, STDERR & exit code Files
 	protected String errorMsg; // Error messages
+	protected String checkOutputFiles; // Errors found when checking output files (cached, checked once the task finished)
 	protected String postMortemInfo; // Error information about task that failed
 	protected String taskName = ""; // Task name (can be set by programmer)
+	protected Date scheduledTime; // When was this task queued for execution
 	protected Date runningStartTime, runningEndTime;
 	protected TaskState taskState;
 	protected HostResources resources; // Resources to be consumes when executing this task
@@ -159,8 +161,20 @@ public class Task implements BdsSerialize {
 		return taskState == TaskState.SCHEDULED;
 	}
 
-	public String checkOutputFiles() {
-		return taskDependency.checkOutputFiles(this);
+	/**
+	 * Check that output files are OK
+	 * Output files are only checked once the task finished, the result is
+	 * cached (until the task is reset) to avoid accessing the file system
+	 * every time we ask whether the task failed.
+	 *
+	 * @return An empty string if OK, an error message otherwise
+	 */
+	public synchronized String checkOutputFiles() {
+		if (checkOutputFiles != null) return checkOutputFiles;
+		if (!isStateFinished()) return ""; // Nothing to check yet
+
+		checkOutputFiles = taskDependency.checkOutputFiles(this);
+		return checkOutputFiles;
 	}
 
 	/**
@@ -436,6 +450,10 @@ public class Task implements BdsSerialize {
 		return runningStartTime;
 	}
 
+	public Date getScheduledTime() {
+		return scheduledTime;
+	}
+
 	public String getStderrFile() {
 		return stderrFile;
 	}
@@ -545,10 +563,12 @@ public class Task implements BdsSerialize {
 	public synchronized void reset() {
 		taskState = TaskState.NONE;
 		exitValue = 0;
+		scheduledTime = null;
 		runningStartTime = null;
 		runningEndTime = null;
 		postMortemInfo = null;
 		errorMsg = null;
+		checkOutputFiles = null;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -666,8 +686,9 @@ public class Task implements BdsSerialize {
 		this.taskState = taskState;
 	}
 
-	public void setTaskDependency(TaskDependency taskDependency) {
+	public synchronized void setTaskDependency(TaskDependency taskDependency) {
 		this.taskDependency = taskDependency;
+		checkOutputFiles = null;
 	}
 
 	public void setTaskName(String taskName) {
@@ -687,8 +708,10 @@ public class Task implements BdsSerialize {
 
 		switch (newState) {
 		case SCHEDULED:
-			if (taskState == TaskState.NONE) setState(newState);
-			else throw new RuntimeException("Task: Cannot jump from state '" + taskState + "' to state '" + newState + "'\n" + this);
+			if (taskState == TaskState.NONE) {
+				setState(newState);
+				scheduledTime = new Date();
+			} else throw new RuntimeException("Task: Cannot jump from state '" + taskState + "' to state '" + newState + "'\n" + this);
 			break;
 
 		case STARTED:
@@ -744,10 +767,10 @@ public class Task implements BdsSerialize {
 			throw new RuntimeException("Unimplemented state: '" + newState + "'");
 		}
 
-		// Finished OK? Check that output files are OK as well
+		// Finished OK? Check that output files are OK as well (result is cached)
 		if (isStateFinished()) {
 			// Update failCount if output files failed to be created
-			if (!isCanFail() && !checkOutputFiles().isEmpty()) failCount++;
+			if (!checkOutputFiles().isEmpty() && !isCanFail()) failCount++;
 		}
 	}
 
@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -13,8 +14,9 @@ import java.util.Set;
 import org.bds.Config;
 import org.bds.data.Data;
 import org.bds.lang.ExpressionTask;
-import org.bds.report.Report;
+import org.bds.report.ReportProgress;
 import org.bds.run.BdsThread;
+import org.bds.run.ParallelExecutor;
 import org.bds.util.AutoHashMap;
 import org.bds.util.Timer;
 
@@ -25,7 +27,7 @@ import org.bds.util.Timer;
  */
 public class TaskDependecies {
 
-	public static final int SLEEP_TIME = 250;
+	public static final int SLEEP_TIME = 1000; // Waiting threads are notified when a task finishes, this is only a bound for periodic reports
 
 	private static TaskDependecies taskDependecies = new TaskDependecies(); // Global instance (keeps track of all tasks)
 
@@ -35,6 +37,8 @@ public class TaskDependecies {
 	Map<String, Task> tasksById;
 	AutoHashMap<String, List<Task>> tasksByOutput;
 	HashMap<String, String> canonicalPath;
+	AutoHashMap<Task, Set<Task>> dependents; // Reverse dependency graph: Task -> Tasks that depend on it. Guarded by 'dependents'
+	Map<Task, Integer> dependenciesPending; // Number of unfinished dependencies for each task. Guarded by 'dependents'
 
 	public static TaskDependecies get() {
 		return taskDependecies;
@@ -52,6 +56,8 @@ public class TaskDependecies {
 		tasksByOutput = new AutoHashMap<>(new LinkedList<Task>());
 		tasksById = new HashMap<>();
 		tasks = new ArrayList<>();
+		dependents = new AutoHashMap<>(new LinkedHashSet<Task>());
+		dependenciesPending = new HashMap<>();
 	}
 
 	/**
@@ -69,6 +75,28 @@ public class TaskDependecies {
 
 		// Add to glabal object
 		if (!isGlobal()) TaskDependecies.get().add(task);
+		else addDependents(task);
+	}
+
+	/**
+	 * Add task to the reverse dependency graph
+	 * Note: Only unfinished dependencies are added
+	 */
+	protected void addDependents(Task task) {
+		synchronized (dependents) {
+			for (Task taskDep : task.getDependencies())
+				if (!taskDep.isDone()) addDependent(task, taskDep);
+		}
+	}
+
+	/**
+	 * Add 'task' as a dependent of 'taskDep' (i.e. 'task' depends on 'taskDep')
+	 */
+	protected void addDependent(Task task, Task taskDep) {
+		if (!dependents.getOrCreate(taskDep).add(task)) return; // Already added
+
+		Integer pending = dependenciesPending.get(task);
+		dependenciesPending.put(task, pending != null ? pending + 1 : 1);
 	}
 
 	/**
@@ -120,6 +148,32 @@ public class TaskDependecies {
 		return count;
 	}
 
+	/**
+	 * Are dependencies satisfied for this task?
+	 *
+	 * Unlike Task.dependencyState(), this does not walk the dependency
+	 * graph: It only uses the number of unfinished dependencies (which is
+	 * updated in 'taskFinished()') and checks direct dependencies once
+	 * all of them finished.
+	 */
+	public DependencyState dependencyState(Task task) {
+		synchronized (dependents) {
+			Integer pending = dependenciesPending.get(task);
+			if (pending != null && pending > 0) return DependencyState.WAIT;
+
+			boolean wait = false;
+			for (Task taskDep : task.getDependencies()) {
+				if (!taskDep.isDone()) {
+					// Not finished (e.g. task is being re-tried): Make sure we keep track of it
+					addDependent(task, taskDep);
+					wait = true;
+				} else if (!taskDep.isCanFail() && !taskDep.isDoneOk()) return DependencyState.ERROR;
+			}
+
+			return wait ? DependencyState.WAIT : DependencyState.OK;
+		}
+	}
+
 	/**
 	 * Find all tasks that must be completed before we proceed
 	 */
@@ -411,12 +465,57 @@ public class TaskDependecies {
 		return tasksById.size();
 	}
 
-	void sleep() {
-		try {
-			Thread.sleep(SLEEP_TIME);
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+	/**
+	 * Wait until the task finishes (we are notified by 'taskFinished()')
+	 * or SLEEP_TIME milliseconds elapsed
+	 */
+	void waitTaskFinished(Task task) {
+		synchronized (task) {
+			try {
+				if (!task.isDone()) ParallelExecutor.waitOn(task, SLEEP_TIME);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * A task finished execution (and it will not be re-executed).
+	 * Update all tasks depending on it and notify threads waiting for it.
+	 *
+	 * @return A list of tasks whose dependency state may have changed, i.e.
+	 *         all their dependencies finished or this task failed
+	 */
+	public List<Task> taskFinished(Task task) {
+		List<Task> changed = new LinkedList<>();
+
+		// Add task to progress report
+		ReportProgress reportProgress = Config.get().getReportProgress();
+		if (reportProgress != null) reportProgress.add(task);
+
+		synchronized (dependents) {
+			dependenciesPending.remove(task);
+
+			Set<Task> deps = dependents.remove(task);
+			if (deps != null) {
+				boolean failed = !task.isCanFail() && !task.isDoneOk();
+				for (Task t : deps) {
+					Integer pending = dependenciesPending.get(t);
+					int p = (pending != null ? pending - 1 : 0);
+					if (p > 0) dependenciesPending.put(t, p);
+					else dependenciesPending.remove(t);
+
+					if (p <= 0 || failed) changed.add(t);
+				}
+			}
 		}
+
+		// Wake up threads waiting for this task
+		synchronized (task) {
+			task.notifyAll();
+		}
+
+		return changed;
 	}
 
 	/**
@@ -454,7 +553,7 @@ public class TaskDependecies {
 	 * Wait for one task to finish
 	 * @return true if task finished OK or it was allowed to fail (i.e. canFail = true)
 	 */
-	public synchronized boolean waitTask(String taskId) {
+	public boolean waitTask(String taskId) {
 		if ((taskId == null) || taskId.isEmpty()) return true;
 
 		Task task = getTask(taskId);
@@ -469,12 +568,15 @@ public class TaskDependecies {
 		if (debug) Timer.showStdErr("Wait: Waiting for task to finish: " + task.getId() + ", state: " + task.getTaskState());
 
 		// Wait for task to finish
-		while (!task.isDone()) {
-			sleep();
-			if (Config.get().isLog()) {
-				Report.reportTime();
-			}
-		}
+		while (!task.isDone())
+			waitTaskFinished(task);
+
+		// Make sure task's output is shown before we continue
+		// Note: This is done here, not when the executioner removes the task
+		//       from 'tail', to avoid waiting while holding the executioner's lock
+		Tail tail = Config.get().getTail();
+		tail.flush(task.getStdoutFile());
+		tail.flush(task.getStderrFile());
 
 		// Either finished OK or it was allowed to fail
 		boolean ok = task.isDoneOk() || task.isCanFail();
@@ -495,7 +597,7 @@ public class TaskDependecies {
 	 * Wait for all tasks to finish
 	 * @return true if all tasks finished OK or it were allowed to fail (i.e. canFail = true)
 	 */
-	public synchronized boolean waitTasksAll() {
+	public boolean waitTasksAll() {
 		// Wait for all tasks to finish
 		boolean ok = true;
 
@@ -503,7 +605,9 @@ public class TaskDependecies {
 
 		// Get all taskIds in a new collection (to avoid concurrent modification
 		LinkedList<String> tids = new LinkedList<>();
-		tids.addAll(getTaskIds());
+		synchronized (this) {
+			tids.addAll(getTaskIds());
+		}
 
 		// Wait for each task
 		for (String tid : tids)
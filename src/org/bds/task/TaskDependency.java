@@ -5,6 +5,7 @@ import java.util.Collection;
 import java.util.List;
 
 import org.bds.data.Data;
+import org.bds.data.DataRemote;
 import org.bds.lang.Expression;
 import org.bds.run.BdsThreads;
 import org.bds.util.Timer;
@@ -20,7 +21,6 @@ public class TaskDependency {
 	protected Expression expresison; // Expression that created this 'TaskDependency' (for logging & debugging purposes)
 	protected List<String> inputs; // Input files generated by this task
 	protected List<String> outputs; // Output files generated by this task
-	protected String checkOutputs; // Errors that pop-up when checking output files
 	protected List<Task> tasks; // Task that need to finish before this one is executed
 
 	public TaskDependency() {
@@ -88,15 +88,16 @@ public class TaskDependency {
 
 	/**
 	 * Check if output files are OK
-	 * @return true if OK, false there is an error (output file does not exist or has zero length)
+	 * Note: This accesses the file system, results are cached by Task.checkOutputFiles()
+	 * @return An empty string if OK, an error message otherwise (output file does not exist or has zero length)
 	 */
 	public String checkOutputFiles(Task task) {
-		if (checkOutputs != null) return checkOutputs;
 		if (!task.isStateFinished() || outputs == null) return ""; // Nothing to check
 
-		checkOutputs = "";
+		String checkOutputs = "";
 		for (String fileName : outputs) {
 			Data file = Data.factory(fileName);
+			if (file.isRemote()) ((DataRemote) file).invalidateInfo(); // The task has just created (uploaded) this file: Cached information is stale
 			if (!file.exists()) checkOutputs += "Error: Output file '" + fileName + "' does not exist.";
 			else if ((!task.isAllowEmpty()) && (file.size() <= 0)) checkOutputs += "Error: Output file '" + fileName + "' has zero length.";
 		}
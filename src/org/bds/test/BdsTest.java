@@ -1,13 +1,16 @@
 package org.bds.test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.bds.Bds;
 import org.bds.compile.CompilerMessages;
+import org.bds.lang.FunctionDeclaration;
 import org.bds.osCmd.TeeOutputStream;
 import org.bds.run.RunState;
 import org.bds.scope.ScopeSymbol;
@@ -272,6 +275,31 @@ public class BdsTest {
 		return sb.toString();
 	}
 
+	/**
+	 * Get a function (first function named 'name')
+	 */
+	/**
+	 * Remove files created by running the program (PID file and checkpoints
+	 * created on fatal errors) when the JVM exits
+	 */
+	void deleteOnExit(Bds bds) {
+		if (bds.getConfig() != null && bds.getConfig().getPidFile() != null) new File(bds.getConfig().getPidFile()).deleteOnExit();
+
+		File programFile = new File(fileName).getAbsoluteFile();
+		String[] files = programFile.getParentFile().list();
+		if (files == null) return;
+
+		String chpPrefix = programFile.getName() + ".line_";
+		for (String f : files)
+			if (f.startsWith(chpPrefix) && f.endsWith(".chp")) new File(programFile.getParentFile(), f).deleteOnExit();
+	}
+
+	public FunctionDeclaration getFunction(String name) {
+		List<ScopeSymbol> funcs = bds.getProgramUnit().getRunScope().getFunctions(name);
+		if (funcs.isEmpty()) return null;
+		return (FunctionDeclaration) funcs.get(0).getValue();
+	}
+
 	/**
 	 * Get a symbol
 	 */
@@ -297,6 +325,7 @@ public class BdsTest {
 			throw new RuntimeException(t);
 		} finally {
 			captureStop();
+			deleteOnExit(bds);
 		}
 	}
 
@@ -333,6 +362,7 @@ public class BdsTest {
 		Bds bigDataScript2 = new Bds(verbose ? args2v : args2);
 		bigDataScript2.setStackCheck(true);
 		bigDataScript2.run();
+		deleteOnExit(bigDataScript2);
 
 		// Check variable's value on the recovered (checkpoint run) program
 		if (varName != null) {
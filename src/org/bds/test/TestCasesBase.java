@@ -1,12 +1,17 @@
 package org.bds.test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 import org.bds.Bds;
 import org.bds.Config;
 import org.bds.executioner.Executioners;
 import org.bds.run.BdsThreads;
+import org.junit.After;
 import org.junit.Before;
 
 /**
@@ -18,6 +23,14 @@ public class TestCasesBase {
 
 	public boolean debug = false;
 	public boolean verbose = false;
+	List<File> tmpDirs = new ArrayList<>(); // Temporary directories, deleted after each test
+
+	@After
+	public void after() {
+		for (File dir : tmpDirs)
+			delete(dir);
+		tmpDirs.clear();
+	}
 
 	@Before
 	public void before() {
@@ -45,6 +58,18 @@ public class TestCasesBase {
 		bdsTest.checkCompileOk();
 	}
 
+	/**
+	 * Delete a file or directory (including all its contents)
+	 */
+	void delete(File file) {
+		File files[] = file.listFiles();
+		if (files != null) {
+			for (File f : files)
+				delete(f);
+		}
+		file.delete();
+	}
+
 	void runAndCheck(int expectedExitCode, String fileName, String varname, Object expectedValue) {
 		BdsTest bdsTest = new BdsTest(fileName, verbose, debug);
 		bdsTest.run();
@@ -198,4 +223,17 @@ public class TestCasesBase {
 		bdsTest.checkRunOk();
 	}
 
+	/**
+	 * Create a temporary directory, deleted (including its contents) after the test
+	 */
+	String tmpDir(String prefix) {
+		try {
+			File dir = Files.createTempDirectory(prefix).toFile();
+			tmpDirs.add(dir);
+			return dir.getPath();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 }
@@ -0,0 +1,303 @@
+package org.bds.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.bds.Bds;
+import org.bds.Config;
+import org.bds.compile.CompilerMessages;
+import org.bds.compile.IncludeParser;
+import org.bds.executioner.TaskQueue;
+import org.bds.run.BdsThread;
+import org.bds.serialize.BdsSerializer;
+import org.bds.serialize.CheckpointWriter;
+import org.bds.task.DependencyState;
+import org.bds.task.Task;
+import org.bds.task.TaskDependecies;
+import org.bds.task.TaskState;
+import org.bds.util.Gpr;
+import org.bds.util.Timer;
+import org.junit.Test;
+
+import junit.framework.Assert;
+
+/**
+ * Benchmarks: These are not part of the test suite (they take
+ * too long and depend on the system's load). Results are shown
+ * on STDOUT so we can track performance regressions.
+ *
+ * @author pcingola
+ */
+public class TestCasesBenchmark extends TestCasesBase {
+
+	/**
+	 * Measure how long a task waits between being queued (SCHEDULED) and launched (RUNNING)
+	 */
+	@Test
+	public void benchmark01_task_queue_latency() {
+		Gpr.debug("Test");
+		BdsTest bdsTest = new BdsTest("test/benchmark_01.bds", verbose, debug);
+		bdsTest.run();
+		bdsTest.checkRunOk();
+
+		// Calculate latencies
+		long sum = 0, max = 0;
+		int count = 0;
+		for (Task task : bdsTest.bds.getBigDataScriptThread().getTasks()) {
+			Assert.assertNotNull("Task was not scheduled: " + task.getId(), task.getScheduledTime());
+			Assert.assertNotNull("Task was not started: " + task.getId(), task.getRunningStartTime());
+
+			long latency = task.getRunningStartTime().getTime() - task.getScheduledTime().getTime();
+			sum += latency;
+			max = Math.max(max, latency);
+			count++;
+		}
+
+		Assert.assertTrue("No tasks executed", count > 0);
+		System.out.println("Task queue latency (queued to running):" //
+				+ "\n\tTasks   : " + count //
+				+ "\n\tAverage : " + (sum / count) + " ms" //
+				+ "\n\tMax     : " + max + " ms" //
+		);
+	}
+
+	/**
+	 * Select tasks from a large queue, where most tasks are blocked on dependencies
+	 */
+	@Test
+	public void benchmark02_task_queue_select() {
+		Gpr.debug("Test");
+		benchmarkTaskQueue(10 * 1000);
+		benchmarkTaskQueue(100 * 1000);
+		benchmarkTaskQueue(1000 * 1000);
+	}
+
+	/**
+	 * Run many short local tasks: One process per task vs. a launcher process
+	 */
+	@Test
+	public void benchmark03_local_launcher() {
+		Gpr.debug("Test");
+		long timeProcess = benchmarkLocalTasks(false);
+		long timeLauncher = benchmarkLocalTasks(true);
+
+		System.out.println("Local tasks, 200 short tasks:" //
+				+ "\n\tOne process per task : " + timeProcess + " ms" //
+				+ "\n\tLauncher process     : " + timeLauncher + " ms" //
+		);
+	}
+
+	/**
+	 * Checkpoint large lists and maps: Time the program is paused
+	 * (snapshot) vs. total serialization time (snapshot + write)
+	 */
+	@Test
+	public void benchmark04_checkpoint() {
+		Gpr.debug("Test");
+		BdsTest bdsTest = new BdsTest("test/benchmark_04.bds", verbose, debug);
+		bdsTest.run();
+		bdsTest.checkRunOk();
+
+		// Load program's state from checkpoint
+		Config config = bdsTest.bds.getConfig();
+		BdsThread bdsThread = new BdsSerializer("test/benchmark_04.chp", config).load().get(0);
+
+		String formats[] = { CheckpointWriter.FORMAT_TEXT, CheckpointWriter.FORMAT_BINARY };
+		for (String format : formats) {
+			String chpFile = "test/benchmark_04." + format + ".chp";
+			config.set(Config.CHECKPOINT_FORMAT, format);
+
+			BdsSerializer bdsSerializer = new BdsSerializer(chpFile, config);
+			bdsSerializer.snapshot(bdsThread);
+			Timer timer = new Timer();
+			bdsSerializer.write();
+			long timeWrite = timer.elapsed();
+			long timeSnapshot = bdsSerializer.getSnapshotTime();
+
+			System.out.println("Checkpoint, format '" + format + "':" //
+					+ "\n\tFile size          : " + new File(chpFile).length() + " bytes" //
+					+ "\n\tSnapshot (paused)  : " + timeSnapshot + " ms" //
+					+ "\n\tWrite (background) : " + timeWrite + " ms" //
+					+ "\n\tTotal              : " + (timeSnapshot + timeWrite) + " ms" //
+			);
+
+			new File(chpFile).delete();
+		}
+
+		new File("test/benchmark_04.chp").delete();
+	}
+
+	/**
+	 * Tight 'for' loops, arithmetic and comparisons
+	 */
+	@Test
+	public void benchmark05_arithmetic() {
+		Gpr.debug("Test");
+		int numRuns = 5;
+		long min = Long.MAX_VALUE, sum = 0;
+		for (int i = 0; i < numRuns; i++) {
+			BdsTest bdsTest = new BdsTest("test/benchmark_05.bds", verbose, debug);
+			Timer timer = new Timer();
+			bdsTest.run();
+			long elapsed = timer.elapsed();
+			bdsTest.checkRunOk();
+			bdsTest.checkVariable("count", 249997L);
+
+			min = Math.min(min, elapsed);
+			sum += elapsed;
+		}
+
+		System.out.println("Arithmetic loops:" //
+				+ "\n\tRuns    : " + numRuns //
+				+ "\n\tAverage : " + (sum / numRuns) + " ms" //
+				+ "\n\tMin     : " + min + " ms" //
+		);
+	}
+
+	/**
+	 * Parse all programs in 'include' and 'bds_pipelines': Sequential
+	 * vs. parallel parsing of included files
+	 */
+	@Test
+	public void benchmark06_parse() {
+		Gpr.debug("Test");
+		BdsTest bdsTest = new BdsTest("test/benchmark_06.bds", verbose, debug);
+		bdsTest.bds(); // Create command now so we can change 'config'
+		bdsTest.bds.getConfig().getIncludePath().add("include"); // Some programs include 'bio/seq/...'
+
+		int numRuns = 5;
+		long min[] = { Long.MAX_VALUE, Long.MAX_VALUE }, sum[] = new long[2];
+		for (int i = -1; i < numRuns; i++) { // First run is only a warm-up
+			for (int parallel = 0; parallel < 2; parallel++) {
+				CompilerMessages.reset();
+				IncludeParser includeParser = (parallel > 0 ? new IncludeParser() : null);
+
+				Timer timer = new Timer();
+				ParseTree tree = Bds.createAst(new File("test/benchmark_06.bds"), false, new HashSet<String>(), includeParser);
+				long elapsed = timer.elapsed();
+				if (includeParser != null) includeParser.shutdown();
+
+				Assert.assertNotNull("Cannot parse program", tree);
+				Assert.assertTrue("Errors parsing program:\n" + CompilerMessages.get(), CompilerMessages.get().isEmpty());
+				if (i < 0) continue;
+
+				min[parallel] = Math.min(min[parallel], elapsed);
+				sum[parallel] += elapsed;
+			}
+		}
+
+		System.out.println("Parse 'include' and 'bds_pipelines' programs:" //
+				+ "\n\tRuns                : " + numRuns //
+				+ "\n\tSequential, average : " + (sum[0] / numRuns) + " ms" //
+				+ "\n\tSequential, min     : " + min[0] + " ms" //
+				+ "\n\tParallel, average   : " + (sum[1] / numRuns) + " ms" //
+				+ "\n\tParallel, min       : " + min[1] + " ms" //
+		);
+	}
+
+	/**
+	 * Declare variables on concurrent threads ('par' and 'pmap'): Scopes of
+	 * all threads share the same slot layouts
+	 */
+	@Test
+	public void benchmark07_variable_declarations() {
+		Gpr.debug("Test");
+		int numRuns = 5;
+		long min = Long.MAX_VALUE, sum = 0;
+		for (int i = 0; i < numRuns; i++) {
+			BdsTest bdsTest = new BdsTest("test/benchmark_07.bds", verbose, debug);
+			bdsTest.bds(); // Create command now so we can change 'config' before running
+			bdsTest.bds.getConfig().set(Config.COMPILE_CACHE, "false"); // Slots are assigned when type-checking
+			Timer timer = new Timer();
+			bdsTest.run();
+			long elapsed = timer.elapsed();
+			bdsTest.checkRunOk();
+			bdsTest.checkVariable("count", 400L);
+
+			min = Math.min(min, elapsed);
+			sum += elapsed;
+		}
+
+		System.out.println("Variable declarations on concurrent threads:" //
+				+ "\n\tRuns    : " + numRuns //
+				+ "\n\tAverage : " + (sum / numRuns) + " ms" //
+				+ "\n\tMin     : " + min + " ms" //
+		);
+	}
+
+	long benchmarkLocalTasks(boolean launcher) {
+		BdsTest bdsTest = new BdsTest("test/benchmark_01.bds", verbose, debug);
+		bdsTest.bds(); // Create command now so we can change 'config' before running
+		bdsTest.bds.getConfig().set(Config.LOCAL_LAUNCHER, "" + launcher);
+
+		Timer timer = new Timer();
+		bdsTest.run();
+		bdsTest.checkRunOk();
+		return timer.elapsed();
+	}
+
+	void benchmarkTaskQueue(int numTasks) {
+		int numPasses = 100;
+
+		TaskDependecies.reset();
+
+		// Create tasks: Only one in ten tasks is ready, the rest wait for 'taskDep'
+		Task taskDep = new Task("taskDep");
+		taskDep.state(TaskState.SCHEDULED);
+
+		List<Task> tasks = new ArrayList<>(numTasks);
+		for (int i = 0; i < numTasks; i++) {
+			Task task = new Task("task_" + i);
+			if (i % 10 != 0) task.addDependency(taskDep);
+			task.state(TaskState.SCHEDULED);
+			tasks.add(task);
+		}
+
+		// Queue all tasks
+		Timer timer = new Timer();
+		TaskQueue taskQueue = new TaskQueue();
+		for (Task task : tasks)
+			taskQueue.add(task);
+		taskQueue.update();
+		long timeAdd = timer.elapsed();
+		Assert.assertEquals(numTasks / 10, taskQueue.sizeReady());
+
+		// Scheduling passes
+		timer = new Timer();
+		for (int i = 0; i < numPasses; i++) {
+			taskQueue.update();
+			Assert.assertEquals(1, taskQueue.readyFirst().size());
+		}
+		long timePass = timer.elapsed() / numPasses;
+
+		// Linear scan (this is how tasks used to be selected), only one pass
+		timer = new Timer();
+		int ready = 0;
+		for (Task task : tasks)
+			if (task.canRun() && task.dependencyState() == DependencyState.OK) ready++;
+		long timeScan = timer.elapsed();
+		Assert.assertEquals(numTasks / 10, ready);
+
+		// Dependency finishes: All tasks are ready
+		timer = new Timer();
+		taskDep.state(TaskState.STARTED);
+		taskDep.state(TaskState.RUNNING);
+		taskDep.state(TaskState.FINISHED);
+		taskQueue.dependencyStateChanged(TaskDependecies.get().taskFinished(taskDep));
+		taskQueue.update();
+		long timeUpdate = timer.elapsed();
+		Assert.assertEquals(numTasks, taskQueue.sizeReady());
+
+		System.out.println("Task queue, select tasks:" //
+				+ "\n\tTasks                       : " + numTasks //
+				+ "\n\tQueue all tasks             : " + timeAdd + " ms" //
+				+ "\n\tScheduling pass             : " + timePass + " ms" //
+				+ "\n\tScheduling pass (linear)    : " + timeScan + " ms" //
+				+ "\n\tUpdate after dependency done: " + timeUpdate + " ms" //
+		);
+	}
+
+}
@@ -1,10 +1,19 @@
 package org.bds.test;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.bds.Bds;
 import org.bds.run.BdsThread;
+import org.bds.serialize.BdsSerializer;
+import org.bds.serialize.CheckpointDeltaBase;
+import org.bds.serialize.CheckpointReader;
+import org.bds.serialize.CheckpointReaderBinary;
+import org.bds.serialize.CheckpointWriter;
+import org.bds.serialize.CheckpointWriterBinary;
+import org.bds.serialize.CheckpointWriterText;
 import org.bds.util.Gpr;
 import org.junit.Assert;
 import org.junit.Test;
@@ -13,6 +22,54 @@ public class TestCasesCheckpoint extends TestCasesBase {
 
 	public static boolean debug = false;
 
+	/**
+	 * Create some records (lines) similar to the ones in a checkpoint file
+	 */
+	List<String> checkpointRecords(int num, int changeEvery) {
+		BdsSerializer ser = new BdsSerializer(null, null);
+		StringBuilder blob = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			blob.append(i);
+		String b64 = ser.base64encode(blob.toString());
+
+		List<String> lines = new ArrayList<>();
+		lines.add("Bds\t2.0");
+		for (int i = 0; i < num; i++) {
+			int value = (changeEvery > 0 && i % changeEvery == 0 ? -i : i);
+			lines.add("Scope\t" + i + "\t\"\"\tnode:" + (i / 10));
+			lines.add("ScopeSymbol\t\"x" + (i % 7) + "\"\ttype:int\t" + value);
+			lines.add("ScopeSymbol\t\"r\"\ttype:real\t" + (value / 4.0) + "\ttrue\tfalse\tnull");
+			lines.add("ScopeSymbol\t\"s\"\ttype:string\t" + ser.serializeSaveValue("Line\t" + value + "\n\u00e9"));
+		}
+		lines.add("BdsThread\t1\tfalse\t\"\"\t" + b64);
+		return lines;
+	}
+
+	/**
+	 * Read all records from a checkpoint file, check that they match 'lines'
+	 */
+	void checkpointRecordsCheck(String fileName, List<String> lines) {
+		CheckpointReader reader = CheckpointReader.open(fileName);
+		int i = 0;
+		String fields[];
+		while ((fields = reader.next()) != null) {
+			Assert.assertTrue("Too many records", i < lines.size());
+			Assert.assertArrayEquals("Record " + i, lines.get(i).split("\t"), fields);
+			i++;
+		}
+		reader.close();
+		Assert.assertEquals(lines.size(), i);
+	}
+
+	/**
+	 * Write records to a checkpoint file
+	 */
+	void checkpointRecordsWrite(CheckpointWriter writer, List<String> lines) throws IOException {
+		for (String line : lines)
+			writer.add(line);
+		writer.close();
+	}
+
 	@Test
 	public void test01() {
 		Gpr.debug("Test");
@@ -292,4 +349,163 @@ public class TestCasesCheckpoint extends TestCasesBase {
 		runAndCheckpoint("test/checkpoint_26.bds", "test/checkpoint_26.chp", "out", 56);
 	}
 
+	@Test
+	public void test27_checkpoint_format() throws IOException {
+		Gpr.debug("Test");
+		List<String> lines = checkpointRecords(1000, 0);
+
+		String txt = "test/checkpoint_27.txt.chp";
+		String bin = "test/checkpoint_27.bin.chp";
+		String binGz = "test/checkpoint_27.bin.gz.chp";
+		checkpointRecordsWrite(new CheckpointWriterText(txt, false), lines);
+		checkpointRecordsWrite(new CheckpointWriterBinary(bin, false, false), lines);
+		checkpointRecordsWrite(new CheckpointWriterBinary(binGz, true, false), lines);
+
+		// All formats are detected and read back
+		checkpointRecordsCheck(txt, lines);
+		checkpointRecordsCheck(bin, lines);
+		checkpointRecordsCheck(binGz, lines);
+
+		long lenTxt = new File(txt).length(), lenBin = new File(bin).length(), lenBinGz = new File(binGz).length();
+		if (verbose) Gpr.debug("File sizes: text " + lenTxt + ", binary: " + lenBin + ", binary compressed: " + lenBinGz);
+		Assert.assertTrue("Binary file is not smaller than text file", lenBin < lenTxt);
+		Assert.assertTrue("Compressed file is not smaller than binary file", lenBinGz < lenBin);
+
+		new File(txt).delete();
+		new File(bin).delete();
+		new File(binGz).delete();
+	}
+
+	@Test
+	public void test28_checkpoint_delta() throws IOException {
+		Gpr.debug("Test");
+		String chp = "test/checkpoint_28.chp";
+		String other = "test/checkpoint_28.other.chp";
+		String base = Gpr.getCanonicalFileName(chp) + CheckpointWriterBinary.BASE_EXT;
+
+		// Full checkpoint (it will be used as base for the next one written to the same file)
+		List<String> lines = checkpointRecords(1000, 0);
+		CheckpointWriterBinary writerFull = new CheckpointWriterBinary(chp, false, true);
+		checkpointRecordsWrite(writerFull, lines);
+		Assert.assertFalse(writerFull.isDelta());
+		long lenFull = new File(chp).length();
+
+		// Change a few records
+		List<String> linesChanged = checkpointRecords(1000, 100);
+		linesChanged.add(10, "ScopeSymbol\t\"new\"\ttype:int\t42");
+		linesChanged.remove(2000);
+
+		// A different file name has no base checkpoint: Full checkpoint
+		CheckpointWriterBinary writerOther = new CheckpointWriterBinary(other, false, true);
+		checkpointRecordsWrite(writerOther, linesChanged);
+		Assert.assertFalse("Checkpoint should not be a delta", writerOther.isDelta());
+
+		// Same file name: Only changes are saved
+		CheckpointWriterBinary writerDelta = new CheckpointWriterBinary(chp, false, true);
+		checkpointRecordsWrite(writerDelta, linesChanged);
+		Assert.assertTrue(writerDelta.isDelta());
+
+		CheckpointReader reader = CheckpointReader.open(chp);
+		Assert.assertTrue(((CheckpointReaderBinary) reader).isDelta());
+		reader.close();
+		checkpointRecordsCheck(chp, linesChanged);
+
+		long lenDelta = new File(chp).length();
+		if (verbose) Gpr.debug("File sizes: full " + lenFull + ", delta: " + lenDelta);
+		Assert.assertTrue("Delta checkpoint is too large", 4 * lenDelta < lenFull);
+
+		// Base checkpoint changed: Recovery should fail
+		checkpointRecordsWrite(new CheckpointWriterBinary(base, false, false), linesChanged);
+		try {
+			checkpointRecordsCheck(chp, linesChanged);
+			Assert.fail("Delta checkpoint recovered using the wrong base checkpoint");
+		} catch (RuntimeException e) {
+			if (verbose) Gpr.debug("Expected error: " + e.getMessage());
+		}
+
+		new File(chp).delete();
+		new File(other).delete();
+		new File(base).delete();
+	}
+
+	/**
+	 * Checkpoint file is written in background: Make sure the checkpoint
+	 * has the values at the moment it was created
+	 */
+	@Test
+	public void test29_checkpoint_async() {
+		Gpr.debug("Test");
+		String args[] = { "-c", "test/checkpoint_29.config" };
+		BdsTest bdsTest = new BdsTest("test/checkpoint_29.bds", args, verbose, debug);
+		bdsTest.runAndCheckpoint("test/checkpoint_29.chp", "n", "1", null);
+		Assert.assertFalse("Temporary checkpoint file not removed", new File("test/checkpoint_29.chp" + CheckpointWriter.TMP_EXT).exists());
+	}
+
+	/**
+	 * Checkpoint inside 'for' loops iterating on 'readLines()' and 'range()'
+	 */
+	@Test
+	public void test30_checkpoint_for_lazy() {
+		Gpr.debug("Test");
+		runAndCheckpoint("test/checkpoint_30.bds", "test/checkpoint_30.chp", "out", "a1;a2;a3;b1;b2;b3;1;2;3;c1;c2;c3;d1;d2;d3;");
+	}
+
+	/**
+	 * Delta checkpoints written to the same file name (e.g. automatic checkpoints)
+	 */
+	@Test
+	public void test31_checkpoint_delta_same_file() throws IOException {
+		Gpr.debug("Test");
+		String chp = "test/checkpoint_31.chp";
+		String base = Gpr.getCanonicalFileName(chp) + CheckpointWriterBinary.BASE_EXT;
+
+		// Full checkpoint
+		List<String> lines = checkpointRecords(1000, 0);
+		CheckpointWriterBinary writer = new CheckpointWriterBinary(chp, false, true);
+		checkpointRecordsWrite(writer, lines);
+		Assert.assertFalse(writer.isDelta());
+		long lenFull = new File(chp).length();
+
+		// Same file name: The base checkpoint is renamed, a delta checkpoint is written
+		List<String> linesChanged = checkpointRecords(1000, 100);
+		writer = new CheckpointWriterBinary(chp, false, true);
+		checkpointRecordsWrite(writer, linesChanged);
+		Assert.assertTrue("Checkpoint should be a delta", writer.isDelta());
+		Assert.assertTrue("Base checkpoint not found: " + base, new File(base).exists());
+		Assert.assertTrue("Delta checkpoint is too large", 4 * new File(chp).length() < lenFull);
+		checkpointRecordsCheck(chp, linesChanged);
+
+		// Next checkpoint is also a delta (same base)
+		List<String> linesChanged2 = checkpointRecords(1000, 200);
+		writer = new CheckpointWriterBinary(chp, false, true);
+		checkpointRecordsWrite(writer, linesChanged2);
+		Assert.assertTrue("Checkpoint should be a delta", writer.isDelta());
+		checkpointRecordsCheck(chp, linesChanged2);
+
+		new File(chp).delete();
+		new File(base).delete();
+	}
+
+	/**
+	 * Delta checkpoints: Records having the same hash are only copied
+	 * from the base checkpoint if their digest and length also match
+	 */
+	@Test
+	public void test32_checkpoint_delta_hash_collision() {
+		Gpr.debug("Test");
+		String rec = "ScopeSymbol\t\"x\"\ttype:int\t42";
+		String recOther = "ScopeSymbol\t\"y\"\ttype:int\t42";
+		long hash = CheckpointDeltaBase.hash(rec, rec.length());
+		long digest = CheckpointDeltaBase.digest(rec, rec.length());
+
+		CheckpointDeltaBase base = new CheckpointDeltaBase("test/checkpoint_32.chp", 0);
+		base.add(hash, digest, rec.length());
+		Assert.assertEquals(0, base.find(hash, digest, rec.length(), 0));
+
+		// Same hash (i.e. a hash collision), different record
+		Assert.assertTrue(digest != CheckpointDeltaBase.digest(recOther, recOther.length()));
+		Assert.assertEquals(-1, base.find(hash, CheckpointDeltaBase.digest(recOther, recOther.length()), recOther.length(), 0));
+		Assert.assertEquals(-1, base.find(hash, digest, rec.length() + 1, 0));
+	}
+
 }
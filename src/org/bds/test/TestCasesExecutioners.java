@@ -1,14 +1,31 @@
 package org.bds.test;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 import junit.framework.Assert;
 
 import org.bds.Config;
+import org.bds.cluster.ClusterSsh;
+import org.bds.cluster.commandParser.CommandParserHealth;
+import org.bds.cluster.host.HostHealth;
+import org.bds.cluster.host.HostSsh;
 import org.bds.executioner.CheckTasksRunning;
 import org.bds.executioner.Executioner;
+import org.bds.executioner.ExecutionerCluster;
 import org.bds.executioner.Executioners;
 import org.bds.executioner.Executioners.ExecutionerType;
+import org.bds.executioner.MonitorTask;
+import org.bds.executioner.TaskQueue;
+import org.bds.osCmd.Cmd;
+import org.bds.osCmd.CmdClusterArray;
+import org.bds.osCmd.Exec;
+import org.bds.osCmd.ExecResult;
+import org.bds.task.Task;
+import org.bds.task.TaskDependecies;
+import org.bds.task.TaskState;
 import org.bds.util.Gpr;
 import org.junit.Test;
 
@@ -20,6 +37,27 @@ import org.junit.Test;
  */
 public class TestCasesExecutioners extends TestCasesBase {
 
+	/**
+	 * Cluster executioner that records killed array elements instead of running 'qdel'
+	 */
+	class ExecutionerClusterKillArray extends ExecutionerCluster {
+
+		List<String> pidsKilled = new ArrayList<>();
+
+		ExecutionerClusterKillArray(Config config) {
+			super(config);
+		}
+
+		void add(Task task, Cmd cmd) {
+			addCmd(task, cmd);
+		}
+
+		@Override
+		public void killArrayTask(Task task) {
+			pidsKilled.add(task.getPid());
+		}
+	}
+
 	@Test
 	public void test01_parsePidQstatRegex() {
 		Gpr.debug("Test");
@@ -84,4 +122,212 @@ public class TestCasesExecutioners extends TestCasesBase {
 		if (verbose) System.out.println("Done");
 	}
 
+	/**
+	 * Check that all task monitors detect exit files
+	 */
+	@Test
+	public void test03_monitorTask() {
+		Gpr.debug("Test");
+
+		Config config = new Config();
+		config.setDebug(debug);
+		config.setVerbose(verbose);
+		Executioner ex = Executioners.getInstance(config).get(ExecutionerType.LOCAL);
+
+		String types[] = { MonitorTask.MONITOR_TYPE_POLL, MonitorTask.MONITOR_TYPE_LIST, MonitorTask.MONITOR_TYPE_WATCH };
+		for (String type : types) {
+			if (verbose) System.out.println("Monitor type: " + type);
+			MonitorTask monitorTask = MonitorTask.factory(type);
+
+			// Create tasks in a new directory
+			String dir = Gpr.HOME + "/.bds/test_monitorTask_" + type;
+			File dirFile = new File(dir);
+			dirFile.mkdirs();
+			dirFile.deleteOnExit();
+
+			List<Task> tasks = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				Task task = new Task("task_" + type + "_" + i, dir + "/task_" + i + ".sh", "true", null, -1);
+				task.createProgramFile();
+				task.deleteOnExit();
+				new File(task.getProgramFileName()).deleteOnExit();
+				new File(task.getExitCodeFile()).delete();
+				tasks.add(task);
+				monitorTask.add(ex, task);
+			}
+			Assert.assertEquals(10, monitorTask.size());
+
+			// Half of the tasks finish before the first check
+			for (int i = 0; i < 5; i++)
+				Gpr.toFile(tasks.get(i).getExitCodeFile(), "0");
+			Gpr.toFile(tasks.get(9).getExitCodeFile(), ""); // Empty exit file: Not finished yet
+			sleepCheck(monitorTask);
+			Assert.assertEquals(5, monitorTask.size());
+
+			// The rest of the tasks finish
+			for (int i = 5; i < 10; i++)
+				Gpr.toFile(tasks.get(i).getExitCodeFile(), "0");
+			sleepCheck(monitorTask);
+			Assert.assertEquals(0, monitorTask.size());
+
+			monitorTask.kill();
+		}
+
+		ex.kill();
+	}
+
+	/**
+	 * Array job IDs: Each task gets its own ID and CheckTasksRunning
+	 * matches it to the array job ID reported by 'qstat'
+	 */
+	@Test
+	public void test04_clusterArrayPid() {
+		Gpr.debug("Test");
+
+		Config config = new Config();
+		config.setDebug(debug);
+		config.setVerbose(verbose);
+
+		ExecutionerCluster ex = (ExecutionerCluster) Executioners.getInstance(config).get(ExecutionerType.CLUSTER);
+		Assert.assertEquals("123[4].server", ex.arrayTaskPid("123[].server", 4));
+		Assert.assertEquals("123[4]", ex.arrayTaskPid("123", 4));
+
+		// 'qstat' shows the array job, not each task
+		CheckTasksRunning ctr = new CheckTasksRunning(config, ex);
+		String lines[] = { "123[].server    STDIN    user    0 R batch" };
+		Set<String> pids = ctr.parseCommandOutput(lines);
+		Assert.assertTrue("Array job ID not found: " + pids, pids.contains("123"));
+
+		ex.kill();
+	}
+
+	/**
+	 * Run local tasks using a 'launcher' process
+	 */
+	@Test
+	public void test05_localLauncher() {
+		Gpr.debug("Test");
+
+		BdsTest bdsTest = new BdsTest("test/localLauncher_01.bds", verbose, debug);
+		bdsTest.bds(); // Create command now so we can change 'config' before running
+		bdsTest.bds.getConfig().set(Config.LOCAL_LAUNCHER, "true");
+
+		bdsTest.run();
+		bdsTest.checkRunOk();
+		bdsTest.checkVariable("count", 20L);
+		bdsTest.checkVariable("exitCode", 3L);
+	}
+
+	/**
+	 * Host health: Obtain all host's information in one command.
+	 * The command is run by a local shell (instead of a remote one, via ssh)
+	 */
+	@Test
+	public void test06_hostHealthProbe() {
+		Gpr.debug("Test");
+
+		HostSsh host = new HostSsh(new ClusterSsh(), "localhost");
+		CommandParserHealth commandParser = new CommandParserHealth(host, true);
+
+		// Run command locally
+		List<String> args = new ArrayList<>();
+		args.add("bash");
+		args.add("-c");
+		args.add(commandParser.getCmd());
+		ExecResult execResult = Exec.exec(args, true);
+		if (verbose) System.out.println(execResult.stdOut);
+		Assert.assertEquals(0, execResult.exitValue);
+
+		// Parse all information
+		commandParser.parse(execResult.stdOut, true);
+		HostHealth health = host.getHealth();
+		if (verbose) System.out.println(health);
+
+		Assert.assertTrue(health.isAlive());
+		Assert.assertEquals("Linux", health.getSystemType());
+		Assert.assertTrue("Number of CPUs not found", host.getResources().getCpus() > 0);
+		Assert.assertTrue("Memory not found", host.getResources().getMem() > 0);
+		Assert.assertTrue("Disk space not found", health.getFsTotal() > 0);
+	}
+
+	/**
+	 * Kill one task in an 'array job': The rest of the tasks keep running
+	 */
+	@Test
+	public void test07_clusterArrayKillTask() {
+		Gpr.debug("Test");
+
+		Config config = new Config();
+		config.setDebug(debug);
+		config.setVerbose(verbose);
+
+		// Three tasks submitted as one array job
+		ExecutionerClusterKillArray ex = new ExecutionerClusterKillArray(config);
+		List<Task> tasks = new ArrayList<>();
+		for (int i = 0; i < 3; i++)
+			tasks.add(new Task("task_array_" + i));
+
+		CmdClusterArray cmd = new CmdClusterArray("task_array.array", new String[0], tasks);
+		cmd.setExecutioner(ex);
+		for (int i = 0; i < tasks.size(); i++) {
+			tasks.get(i).setPid(ex.arrayTaskPid("123", i + 1));
+			ex.add(tasks.get(i), cmd);
+		}
+
+		// Kill the second task
+		ex.kill(tasks.get(1));
+		if (verbose) System.out.println("Killed: " + ex.pidsKilled);
+		Assert.assertEquals("[123[2]]", ex.pidsKilled.toString());
+		Assert.assertEquals(Task.EXITCODE_KILLED, tasks.get(1).getExitValue());
+
+		// Other tasks are still running
+		Assert.assertTrue(Task.EXITCODE_KILLED != tasks.get(0).getExitValue());
+		Assert.assertTrue(Task.EXITCODE_KILLED != tasks.get(2).getExitValue());
+		Assert.assertEquals(2, cmd.tasksAlive().size());
+
+		// Killing the same task again does nothing
+		ex.kill(tasks.get(1));
+		Assert.assertEquals(1, ex.pidsKilled.size());
+	}
+
+	/**
+	 * Ready tasks are only grouped when they request the same resources
+	 * (cpus, memory, timeouts and queue)
+	 */
+	@Test
+	public void test08_taskQueueResources() {
+		Gpr.debug("Test");
+		TaskDependecies.reset();
+
+		List<Task> tasks = new ArrayList<>();
+		for (int i = 0; i < 6; i++) {
+			Task task = new Task("task_queue_" + i);
+			task.state(TaskState.SCHEDULED);
+			tasks.add(task);
+		}
+		tasks.get(1).getResources().setTimeout(60);
+		tasks.get(2).getResources().setWallTimeout(120);
+		tasks.get(3).setQueue("long");
+		tasks.get(4).getResources().setCpus(2);
+
+		TaskQueue taskQueue = new TaskQueue();
+		for (Task task : tasks)
+			taskQueue.add(task);
+		taskQueue.update();
+
+		// Last task requests the same resources as the first one
+		List<Task> ready = taskQueue.readyFirst();
+		if (verbose) System.out.println("Ready: " + ready);
+		Assert.assertEquals(tasks.subList(0, 5), ready);
+	}
+
+	void sleepCheck(MonitorTask monitorTask) {
+		try {
+			Thread.sleep(MonitorTask.SLEEP_TIME + 100);
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+		monitorTask.check();
+	}
+
 }
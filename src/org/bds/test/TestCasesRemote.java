@@ -2,15 +2,26 @@ package org.bds.test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
 
 import org.bds.data.Data;
 import org.bds.data.DataFile;
 import org.bds.data.DataHttp;
 import org.bds.data.DataRemote;
 import org.bds.data.DataS3;
+import org.bds.data.LocalCache;
+import org.bds.data.RemoteInfoCache;
+import org.bds.data.TransferManifest;
 import org.bds.util.Gpr;
+import org.bds.util.Timer;
 import org.junit.Test;
 
+import com.amazonaws.services.s3.model.GetObjectRequest;
+
 import junit.framework.Assert;
 
 /**
@@ -20,6 +31,43 @@ import junit.framework.Assert;
  *
  */
 public class TestCasesRemote extends TestCasesBase {
+
+	/**
+	 * A 'remote' file that is actually a local file (counts downloads, no connections)
+	 */
+	class DataHttpLocal extends DataHttp {
+
+		String fileName;
+		int downloads;
+
+		DataHttpLocal(String urlStr, String fileName) {
+			super(urlStr);
+			this.fileName = fileName;
+		}
+
+		@Override
+		protected boolean downloadRemote(String localFile) {
+			downloads++;
+			try {
+				Files.copy(new File(fileName).toPath(), new File(localFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return true;
+		}
+
+		@Override
+		protected boolean updateInfo() {
+			File file = new File(fileName);
+			exists = file.exists();
+			canRead = true;
+			size = file.length();
+			lastModified = new Date(file.lastModified());
+			version = null;
+			latestUpdate = new Timer(CACHE_TIMEOUT);
+			return true;
+		}
+	}
 	/**
 	 * Check a 'hello.txt' file in an S3 bucket
 	 */
@@ -342,4 +390,180 @@ public class TestCasesRemote extends TestCasesBase {
 		runAndCheck("test/remote_18.bds", "ok", "true");
 	}
 
+	/**
+	 * Remote information cache: TTL, LRU eviction, invalidation and directory listings
+	 */
+	@Test
+	public void test19_remote_info_cache() {
+		Gpr.debug("Test");
+		String url1 = "http://localhost/bds_test/file_1.txt";
+		String url2 = "http://localhost/bds_test/file_2.txt";
+		String url3 = "http://localhost/bds_test/file_3.txt";
+
+		RemoteInfoCache cache = new RemoteInfoCache(60 * 1000, 2);
+		cache.put(url1, true, false, true, new Date(1000L), 10, null);
+		cache.put(url2, true, false, true, new Date(2000L), 20, null);
+
+		// Information is loaded from cache (no connection)
+		DataRemote d = new DataHttp(url1);
+		Assert.assertTrue("Cache hit", cache.load(url1, d));
+		Assert.assertTrue(d.exists());
+		Assert.assertEquals(10, d.size());
+		Assert.assertEquals(1000L, d.getLastModified().getTime());
+
+		// Least recently used entry ('url2') is evicted
+		cache.put(url3, true, false, true, new Date(3000L), 30, null);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertFalse("Evicted", cache.load(url2, new DataHttp(url2)));
+		Assert.assertTrue("Cache hit", cache.load(url3, new DataHttp(url3)));
+
+		// Invalidate
+		cache.invalidate(url1);
+		Assert.assertFalse("Invalidated", cache.load(url1, new DataHttp(url1)));
+
+		// Files not in a (complete) directory listing do not exist
+		cache.addListing(RemoteInfoCache.parent(url1), true);
+		d = new DataHttp(url1);
+		Assert.assertTrue("Cache hit", cache.load(url1, d));
+		Assert.assertFalse(d.exists());
+
+		// Expired entries are not used
+		cache = new RemoteInfoCache(-1, 10);
+		cache.put(url1, true, false, true, new Date(1000L), 10, null);
+		Assert.assertFalse("Expired", cache.load(url1, new DataHttp(url1)));
+	}
+
+	/**
+	 * Remote information cache: Sub-directories in a directory listing exist
+	 */
+	@Test
+	public void test19b_remote_info_cache_dirs() {
+		Gpr.debug("Test");
+		String dirUrl = "s3://pcingola.bds/test_dir";
+		String subDirUrl = dirUrl + "/sub_dir";
+		String fileUrl = dirUrl + "/file.txt";
+
+		// Listing: One file and one sub-directory (common prefix)
+		RemoteInfoCache cache = new RemoteInfoCache(60 * 1000, 10);
+		cache.put(fileUrl, true, true, true, new Date(1000L), 10, null);
+		cache.putDir(subDirUrl + "/");
+		cache.addListing(dirUrl, true);
+
+		// Files not in the listing do not exist
+		DataRemote d = new DataS3(dirUrl + "/nonexistent.txt");
+		Assert.assertTrue("Cache hit", cache.load(d.getAbsolutePath(), d));
+		Assert.assertFalse(d.exists());
+
+		// Sub-directory exists
+		d = new DataS3(subDirUrl);
+		Assert.assertTrue("Cache hit", cache.load(subDirUrl, d));
+		Assert.assertTrue(d.exists());
+
+		// URLs ending in '/' are never assumed not to exist
+		cache.addListing(subDirUrl, true);
+		Assert.assertFalse("Directory should not be negative cached", cache.load(subDirUrl + "/", new DataS3(subDirUrl + "/")));
+		Assert.assertFalse("Directory should not be negative cached", cache.load(subDirUrl + "/sub_sub_dir/", new DataS3(subDirUrl + "/sub_sub_dir/")));
+	}
+
+	/**
+	 * Local cache: Disabled by default, hits, local files are copies and evicted entries are removed
+	 */
+	@Test
+	public void test19c_local_cache() throws IOException {
+		Gpr.debug("Test");
+
+		// Disabled unless enabled in config
+		LocalCache.reset();
+		Assert.assertNull("Local cache should be disabled by default", LocalCache.get());
+		LocalCache.reset();
+
+		// Create an empty cache directory (test files are created next to it)
+		String dir = tmpDir("bds_local_cache") + "/localCache";
+		File dirFile = new File(dir);
+		dirFile.mkdirs();
+
+		String src1 = dir + "_1.txt";
+		String src2 = dir + "_2.txt";
+		Gpr.toFile(src1, "hello 1\n");
+		Gpr.toFile(src2, "hello 2\n");
+
+		// First download is a miss, second one is a hit
+		LocalCache localCache = new LocalCache(dir, 10);
+		DataHttpLocal d1 = new DataHttpLocal("http://localhost/bds_test/local_cache_1.txt", src1);
+		Assert.assertTrue(localCache.download(d1, dir + "_local_1.txt"));
+		Assert.assertTrue(localCache.download(d1, dir + "_local_2.txt"));
+		Assert.assertEquals(1, d1.downloads);
+		Assert.assertEquals(1, localCache.getHits());
+		Assert.assertEquals(1, localCache.getMisses());
+		Assert.assertEquals("hello 1\n", Gpr.readFile(dir + "_local_2.txt"));
+
+		// Modifying a local file does not modify the cache entry
+		Gpr.toFile(dir + "_local_1.txt", "modified\n");
+		Assert.assertTrue(localCache.download(d1, dir + "_local_3.txt"));
+		Assert.assertEquals("hello 1\n", Gpr.readFile(dir + "_local_3.txt"));
+
+		// A new entry exceeds cache size: Least recently used entry is evicted
+		DataHttpLocal d2 = new DataHttpLocal("http://localhost/bds_test/local_cache_2.txt", src2);
+		Assert.assertTrue(localCache.download(d2, dir + "_local_4.txt"));
+		Assert.assertEquals("hello 2\n", Gpr.readFile(dir + "_local_4.txt"));
+
+		int entries = 0, lockFiles = 0;
+		for (File f : dirFile.listFiles()) {
+			if (verbose) System.out.println("Cache file: " + f);
+			if (f.getName().endsWith(LocalCache.LOCK_EXT)) lockFiles++;
+			else if (!f.getName().equals(LocalCache.STATS_FILE)) entries++;
+		}
+		Assert.assertEquals("Cache entries", 1, entries);
+		Assert.assertTrue("Too many lock files: " + lockFiles, lockFiles <= 2);
+
+		// Evicted entry is downloaded again
+		Assert.assertTrue(localCache.download(d1, dir + "_local_5.txt"));
+		Assert.assertEquals(2, d1.downloads);
+	}
+
+	/**
+	 * Transfer manifest: Failed transfers are reported
+	 */
+	@Test
+	public void test20_transfer_manifest() {
+		Gpr.debug("Test");
+		TransferManifest transferManifest = new TransferManifest("test/transfer_01.txt");
+		transferManifest.load();
+		Assert.assertEquals(2, transferManifest.size());
+		Assert.assertFalse("Transfers should fail", transferManifest.run());
+	}
+
+	/**
+	 * S3 ranged downloads: Parts cover the whole object and are pinned to the object's ETag (no connection)
+	 */
+	@Test
+	public void test21_S3_download_parts() {
+		Gpr.debug("Test");
+
+		// Parts: [first, last] byte ranges (inclusive)
+		List<long[]> ranges = DataS3.partRanges(10, 4);
+		Assert.assertEquals(3, ranges.size());
+		Assert.assertEquals("[0, 3]", Arrays.toString(ranges.get(0)));
+		Assert.assertEquals("[4, 7]", Arrays.toString(ranges.get(1)));
+		Assert.assertEquals("[8, 9]", Arrays.toString(ranges.get(2)));
+
+		// Size is a multiple of part size: No empty part at the end
+		ranges = DataS3.partRanges(8, 4);
+		Assert.assertEquals(2, ranges.size());
+		Assert.assertEquals("[4, 7]", Arrays.toString(ranges.get(1)));
+		Assert.assertEquals(0, DataS3.partRanges(0, 4).size());
+
+		// Requests are pinned to the object's ETag
+		DataS3 d = new DataS3("s3://pcingola.bds/hello.txt");
+		GetObjectRequest request = d.partRequest(4, 7, "abc123");
+		Assert.assertEquals("pcingola.bds", request.getBucketName());
+		Assert.assertEquals("hello.txt", request.getKey());
+		Assert.assertEquals("[4, 7]", Arrays.toString(request.getRange()));
+		Assert.assertEquals("[abc123]", request.getMatchingETagConstraints().toString());
+
+		// No ETag: No constraint
+		request = d.partRequest(0, 3, null);
+		Assert.assertTrue(request.getMatchingETagConstraints().isEmpty());
+	}
+
 }
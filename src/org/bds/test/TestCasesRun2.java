@@ -6,6 +6,12 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.bds.Config;
+import org.bds.compile.CompiledProgramCache;
+import org.bds.report.ReportProgress;
+import org.bds.run.BdsThread;
+import org.bds.serialize.BdsSerializer;
+import org.bds.task.Task;
 import org.bds.util.Gpr;
 import org.junit.Test;
 
@@ -21,6 +27,29 @@ import junit.framework.Assert;
  */
 public class TestCasesRun2 extends TestCasesBase {
 
+	/**
+	 * Number of compiled programs in a cache directory
+	 */
+	int countCompiledPrograms(String dir) {
+		int count = 0;
+		for (String f : new File(dir).list())
+			if (f.endsWith(CompiledProgramCache.PROGRAM_EXT)) count++;
+		return count;
+	}
+
+	/**
+	 * Run a program using a compiled programs cache in 'cacheDir'
+	 */
+	void runAndCheckCompileCache(String fileName, String cacheDir, String varname, Object expectedValue) {
+		BdsTest bdsTest = new BdsTest(fileName, verbose, debug);
+		bdsTest.bds(); // Create command now so we can change 'config' before running
+		bdsTest.bds.getConfig().set(Config.COMPILE_CACHE, "true");
+		bdsTest.bds.getConfig().set(Config.COMPILE_CACHE_DIR, cacheDir);
+		bdsTest.run();
+		bdsTest.checkRunOk();
+		bdsTest.checkVariable(varname, expectedValue);
+	}
+
 	@Test
 	public void test100() {
 		Gpr.debug("Test");
@@ -692,4 +721,236 @@ public class TestCasesRun2 extends TestCasesBase {
 		runAndCheck("test/run_154.bds", "res", "OK");
 	}
 
+	@Test
+	public void test155_retry_output_file() {
+		Gpr.debug("Test");
+		runAndCheck("test/run_155.bds", "ok", "true");
+	}
+
+	@Test
+	public void test156_var_slots() {
+		Gpr.debug("Test");
+		HashMap<String, Object> expectedValues = new HashMap<>();
+		expectedValues.put("xs", "12213103141041");
+		expectedValues.put("f", 3628800);
+		expectedValues.put("yc", 20);
+		expectedValues.put("yg", 10);
+		expectedValues.put("sum", 999000);
+
+		runAndCheck("test/run_156.bds", expectedValues);
+	}
+
+	/**
+	 * Fatal error inside an expression: Stack must be consistent in checkpoint file
+	 */
+	@Test
+	public void test157_fast_run_error() {
+		Gpr.debug("Test");
+		String chpFile = "test/run_157.bds.line_5.chp";
+		new File(chpFile).delete();
+
+		BdsTest bdsTest = new BdsTest("test/run_157.bds", verbose, debug);
+		bdsTest.run();
+		bdsTest.checkExitCode(1);
+
+		// Only the statement is recorded (program counter), the stack must be empty
+		Assert.assertTrue("Checkpoint file not found: " + chpFile, new File(chpFile).exists());
+		BdsThread bdsThread = new BdsSerializer(chpFile, bdsTest.bds.getConfig()).load().get(0);
+		Assert.assertTrue("Stack is not empty: " + bdsThread.getStack(), bdsThread.getStack().isEmpty());
+
+		new File(chpFile).delete();
+	}
+
+	/**
+	 * Lazy iteration on 'readLines()' and 'range()'
+	 */
+	@Test
+	public void test158_for_lazy() {
+		Gpr.debug("Test");
+		HashMap<String, Object> expectedValues = new HashMap<>();
+		expectedValues.put("linesOk", "true");
+		expectedValues.put("lsLazy", "[, line 1, , , line 4]");
+		expectedValues.put("emptyCount", 1);
+		expectedValues.put("missingCount", 0);
+		expectedValues.put("sum", 5050);
+		expectedValues.put("sumStep", 735);
+		expectedValues.put("sumReal", 2.5);
+		expectedValues.put("emptyRange", 0);
+		expectedValues.put("emptyRangeList", 0);
+		expectedValues.put("firstBig", 32);
+
+		runAndCheck("test/run_158.bds", expectedValues);
+	}
+
+	/**
+	 * Run 'par' on a (small) thread pool
+	 */
+	@Test
+	public void test159_parallel_pool() {
+		Gpr.debug("Test");
+		String configs[] = { "test/run_159.config", "test/run_159_spare.config" }; // Second config limits the number of threads added to the pool
+		for (String config : configs) {
+			String args[] = { "-c", config };
+			String stdout = runAndReturnStdout("test/run_159.bds", args);
+
+			Set<String> linesPar = new HashSet<>();
+			for (String line : stdout.split("\n")) {
+				if (line.startsWith("Par:")) {
+					if (linesPar.contains(line)) throw new RuntimeException("Line repeated (this should never happen): '" + line + "'");
+					linesPar.add(line);
+				}
+			}
+
+			Assert.assertEquals(100, linesPar.size());
+		}
+	}
+
+	/**
+	 * Compiled program cache: Programs are not compiled again, unless a file changes
+	 */
+	@Test
+	public void test160_compiled_program_cache() {
+		Gpr.debug("Test");
+		String dir = tmpDir("bds_run_160");
+		String cacheDir = dir + "/cache";
+		String mainFile = dir + "/run_160.bds";
+		String includeFile = dir + "/run_160_include.bds";
+
+		Gpr.toFile(mainFile, "include \"run_160_include.bds\"\n\nint[] l = [1, 2, 3]\nint[] m = l.map(inc)\nint y = -inc(1)\n");
+		Gpr.toFile(includeFile, "int inc(int x) { return x + 1 }\n");
+
+		// First run: Compile and save to cache
+		runAndCheckCompileCache(mainFile, cacheDir, "y", "-2");
+		Assert.assertEquals(1, countCompiledPrograms(cacheDir));
+
+		// Second run: Program is loaded from cache
+		Assert.assertNotNull("Compiled program not found in cache", new CompiledProgramCache(cacheDir).load(mainFile));
+		runAndCheckCompileCache(mainFile, cacheDir, "m", "[2, 3, 4]");
+
+		// Change included file: Program is compiled again, previous entry is deleted
+		Gpr.toFile(includeFile, "int inc(int x) { return x + 10 }\n");
+		Assert.assertNull("Compiled program should not be found in cache", new CompiledProgramCache(cacheDir).load(mainFile));
+		runAndCheckCompileCache(mainFile, cacheDir, "y", "-11");
+		Assert.assertEquals(1, countCompiledPrograms(cacheDir));
+	}
+
+	/**
+	 * Execute 'sys' commands using a long lived shell process
+	 */
+	@Test
+	public void test161_sys_coprocess() {
+		Gpr.debug("Test");
+		BdsTest bdsTest = new BdsTest("test/run_161.bds", verbose, debug);
+		bdsTest.bds(); // Create command now so we can change 'config' before running
+		bdsTest.bds.getConfig().set(Config.SYS_COPROCESS, "true");
+		bdsTest.run();
+		bdsTest.checkRunOk();
+		bdsTest.checkVariable("hello", "hello\n");
+		bdsTest.checkVariable("noNewLine", "abc\n");
+		bdsTest.checkVariable("twoLines", "a\nb\n");
+		bdsTest.checkVariable("setVar", "1\n");
+		bdsTest.checkVariable("getVar", "[]\n");
+		bdsTest.checkVariable("dir", "test\n");
+		bdsTest.checkVariable("sum", 4950L);
+		bdsTest.checkVariable("failed", "before\n");
+
+		// Command fails and cannot fail: Program stops
+		bdsTest = new BdsTest("test/run_161_fail.bds", verbose, debug);
+		bdsTest.bds();
+		bdsTest.bds.getConfig().set(Config.SYS_COPROCESS, "true");
+		bdsTest.run();
+		bdsTest.checkExitCode(1);
+		bdsTest.checkStdout("Program continued", true);
+	}
+
+	/**
+	 * Parallel list methods (pmap, pfilter, pforeach)
+	 */
+	@Test
+	public void test162_list_parallel() {
+		Gpr.debug("Test");
+		HashMap<String, Object> expectedValues = new HashMap<>();
+		expectedValues.put("squaresOk", "true");
+		expectedValues.put("oddsOk", "true");
+		expectedValues.put("labelLens", "[3, 4, 5]");
+		expectedValues.put("totals", "[1, 3, 6, 10]");
+		expectedValues.put("total", "20");
+		// Second run loads the program from the compiled program cache
+		String cacheDir = tmpDir("bds_run_162");
+		BdsTest bdsTest = null;
+		for (int i = 0; i < 2; i++) {
+			bdsTest = new BdsTest("test/run_162.bds", verbose, debug);
+			bdsTest.bds(); // Create command now so we can change 'config' before running
+			bdsTest.bds.getConfig().set(Config.COMPILE_CACHE, "true");
+			bdsTest.bds.getConfig().set(Config.COMPILE_CACHE_DIR, cacheDir);
+			bdsTest.run();
+			bdsTest.checkRunOk();
+			bdsTest.checkVariables(expectedValues);
+
+			// Only side effect free functions can be applied in parallel
+			Assert.assertTrue(bdsTest.getFunction("square").isSideEffectFree());
+			Assert.assertTrue(bdsTest.getFunction("isOdd").isSideEffectFree());
+			Assert.assertTrue(bdsTest.getFunction("labelLen").isSideEffectFree());
+			Assert.assertFalse(bdsTest.getFunction("addTotal").isSideEffectFree());
+			Assert.assertFalse(bdsTest.getFunction("addTotalBool").isSideEffectFree());
+			Assert.assertFalse(bdsTest.getFunction("setFirst").isSideEffectFree());
+			Assert.assertFalse(bdsTest.getFunction("showSquare").isSideEffectFree());
+			Assert.assertFalse(bdsTest.getFunction("sysSquare").isSideEffectFree());
+			Assert.assertFalse(bdsTest.getFunction("pushFirst").isSideEffectFree());
+		}
+		Assert.assertEquals(1, countCompiledPrograms(cacheDir));
+
+		// Fatal error in a function applied in parallel: Program stops
+		bdsTest = new BdsTest("test/run_162_fail.bds", verbose, debug);
+		bdsTest.run();
+		bdsTest.checkExitCode(1);
+		bdsTest.checkStdout("Program continued", true);
+	}
+
+	/**
+	 * Progress report: One line per finished task, escaped, not
+	 * written before 'REPORT_TIME' (unless forced)
+	 */
+	@Test
+	public void test163_report_progress() {
+		Gpr.debug("Test");
+		BdsTest bdsTest = new BdsTest("test/run_01.bds", verbose, debug);
+		bdsTest.run();
+		bdsTest.checkRunOk();
+
+		Config.get().setReportFileName(tmpDir("bds_run_163") + "/report");
+		ReportProgress reportProgress = new ReportProgress(bdsTest.bds.getBigDataScriptThread());
+		String jsFile = reportProgress.getJsFile();
+
+		Task task1 = new Task("task_163_1");
+		task1.setTaskName("name \"quoted\"\\back\nline");
+		Task task2 = new Task("task_163_2");
+		reportProgress.add(task1);
+		reportProgress.add(task2);
+		reportProgress.add(task1); // Task notified as finished twice (e.g. a retried task)
+
+		// Nothing is written before 'REPORT_TIME'
+		reportProgress.update(false);
+		Assert.assertFalse("Progress report created too early", new File(jsFile).exists());
+		Assert.assertFalse("Progress report created too early", new File(reportProgress.getHtmlFile()).exists());
+
+		// Force update: One line per task
+		reportProgress.update(true);
+		Assert.assertTrue("Progress report not found", new File(reportProgress.getHtmlFile()).exists());
+		String lines[] = Gpr.readFile(jsFile).split("\n");
+		if (verbose) System.out.println(Gpr.readFile(jsFile));
+		Assert.assertEquals(2, lines.length);
+		Assert.assertTrue(lines[0], lines[0].startsWith("bdsTask({") && lines[0].endsWith("});"));
+		Assert.assertTrue(lines[0], lines[0].contains("\"name\": \"name \\\"quoted\\\"\\\\back\\nline\""));
+		Assert.assertTrue(lines[1], lines[1].contains("\"id\": \"task_163_2\""));
+
+		// Report already created: New tasks are appended, tasks already written are not
+		reportProgress.add(task2);
+		reportProgress.add(new Task("task_163_3"));
+		reportProgress.update(false);
+		lines = Gpr.readFile(jsFile).split("\n");
+		Assert.assertEquals(3, lines.length);
+		Assert.assertTrue(lines[2], lines[2].contains("\"id\": \"task_163_3\""));
+	}
+
 }
@@ -3,6 +3,7 @@ package org.bds.test;
 import junit.framework.Assert;
 
 import org.bds.task.TailFile;
+import org.bds.util.Gpr;
 import org.junit.Test;
 
 /**
@@ -56,4 +57,19 @@ public class TestCasesTail extends TestCasesBase {
 		Assert.assertEquals("line 11\nline 12\nline 13\nline 14\nline 15\nline 16\nline 17\nline 18\nline 19\nline 20\n", tail);
 	}
 
+	/**
+	 * A task that fails to start has no STDOUT / STDERR files: Removing
+	 * them from 'Tail' should not fail
+	 */
+	@Test
+	public void test07_task_start_failed() {
+		Gpr.debug("Test");
+		BdsTest bdsTest = new BdsTest("test/run_88.bds", verbose, debug);
+		bdsTest.run();
+		bdsTest.checkStderr("Not enough resources to execute task:");
+
+		String stderr = bdsTest.captureStderr.toString();
+		Assert.assertFalse("Unexpected exception in STDERR:\n" + stderr, stderr.contains("NullPointerException"));
+	}
+
 }